@@ -0,0 +1,57 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.EmployeeManagementPortal;
+
+/**
+ * Boots the application without a web server against a private in-memory H2 database seeded with
+ * {@code user1..userN}, so benchmarks measure the real beans and their configuration.
+ */
+final class BenchmarkContext implements AutoCloseable {
+
+  private final ConfigurableApplicationContext context;
+
+  private BenchmarkContext(ConfigurableApplicationContext context) {
+    this.context = context;
+  }
+
+  static BenchmarkContext start(String database, int users, String... properties) {
+    List<String> args = new ArrayList<>();
+    args.add("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+    args.add("--spring.jpa.show-sql=false");
+    args.add("--spring.main.banner-mode=off");
+    args.add("--logging.level.root=WARN");
+    for (String property : properties) {
+      args.add("--" + property);
+    }
+    // Passed as command-line arguments because builder properties lose to application.properties
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(EmployeeManagementPortal.class)
+            .web(WebApplicationType.NONE)
+            .run(args.toArray(new String[0]));
+    context
+        .getBean(JdbcTemplate.class)
+        .update(
+            "INSERT INTO users (id, username, password, email) "
+                + "SELECT X, 'user' || X, 'password', 'user' || X || '@example.com' "
+                + "FROM SYSTEM_RANGE(1, ?)",
+            users);
+    return new BenchmarkContext(context);
+  }
+
+  <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+}
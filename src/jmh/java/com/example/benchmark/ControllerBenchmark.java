@@ -0,0 +1,83 @@
+package com.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import com.example.config.StaticDocumentProperties;
+import com.example.controller.CrossDomainController;
+import com.example.controller.EmployeeController;
+import com.example.service.StaticDocumentStore;
+
+/**
+ * Controller methods that do their work in memory: the HTML string building of {@code
+ * /api/render-content} and the three ways {@code /crossdomain.xml} can be answered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+  @Param({"16", "4096"})
+  private int inputLength;
+
+  private EmployeeController employeeController;
+  private CrossDomainController crossDomainController;
+  private String userInput;
+  private HttpHeaders plainRequest;
+  private HttpHeaders gzipRequest;
+  private HttpHeaders revalidationRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    employeeController = new EmployeeController();
+    userInput = "x".repeat(inputLength);
+
+    crossDomainController =
+        new CrossDomainController(
+            new StaticDocumentStore(new StaticDocumentProperties(), new DefaultResourceLoader()));
+    plainRequest = new HttpHeaders();
+    gzipRequest = new HttpHeaders();
+    gzipRequest.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+    revalidationRequest = new HttpHeaders();
+    revalidationRequest.setIfNoneMatch(
+        crossDomainController.getCrossDomainXml(plainRequest).getHeaders().getETag());
+  }
+
+  @Benchmark
+  public String renderContent() {
+    return employeeController.renderContentExample(userInput);
+  }
+
+  @Benchmark
+  public ResponseEntity<byte[]> crossDomainXml() {
+    return crossDomainController.getCrossDomainXml(plainRequest);
+  }
+
+  @Benchmark
+  public ResponseEntity<byte[]> crossDomainXmlGzip() {
+    return crossDomainController.getCrossDomainXml(gzipRequest);
+  }
+
+  @Benchmark
+  public ResponseEntity<byte[]> crossDomainXmlNotModified() {
+    return crossDomainController.getCrossDomainXml(revalidationRequest);
+  }
+}
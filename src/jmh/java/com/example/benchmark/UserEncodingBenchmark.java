@@ -0,0 +1,115 @@
+package com.example.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.controller.FrameWriter;
+import com.example.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Writing and reading a list of users in each encoding {@code /api/user-search} and {@code
+ * /api/user-directory} offer: {@code json}, {@code cbor} and {@code smile} as one array, and
+ * {@code cbor-frames} as the directory streams it, one length-prefixed CBOR document per user. The
+ * payload size of each is printed once the users are built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserEncodingBenchmark {
+
+  @Param({"100", "10000"})
+  private int rows;
+
+  @Param({"json", "cbor", "smile", "cbor-frames"})
+  private String format;
+
+  private ObjectMapper objectMapper;
+  private List<User> users;
+  private ObjectWriter listWriter;
+  private ObjectReader listReader;
+  private ObjectReader userReader;
+  private byte[] payload;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    // Mappers built as BinaryEncodingConfig and Spring Boot build them
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    if (format.startsWith("cbor")) {
+      builder.factory(new CBORFactory());
+    } else if (format.equals("smile")) {
+      builder.factory(new SmileFactory());
+    }
+    objectMapper = builder.build();
+    listWriter = objectMapper.writerFor(new TypeReference<List<User>>() {});
+    listReader = objectMapper.readerForListOf(User.class);
+    userReader = objectMapper.readerFor(User.class);
+
+    // As the summary projection maps them: no password
+    users = new ArrayList<>(rows);
+    for (int i = 1; i <= rows; i++) {
+      User user = new User("user" + i, null, "user" + i + "@example.com");
+      user.setId((long) i);
+      users.add(user);
+    }
+    payload = serialize();
+    System.out.printf(
+        "%n%s: %d users in %d bytes, %.1f bytes per user%n",
+        format, rows, payload.length, (double) payload.length / rows);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    if (!format.equals("cbor-frames")) {
+      return listWriter.writeValueAsBytes(users);
+    }
+    // As the directory writes them
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    FrameWriter frames = new FrameWriter(objectMapper, bytes);
+    for (User user : users) {
+      frames.write(user);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public List<User> deserialize() throws IOException {
+    if (!format.equals("cbor-frames")) {
+      return listReader.readValue(payload);
+    }
+    List<User> read = new ArrayList<>(rows);
+    ByteBuffer frames = ByteBuffer.wrap(payload);
+    while (frames.hasRemaining()) {
+      int length = frames.getInt();
+      read.add(userReader.readValue(payload, frames.position(), length));
+      frames.position(frames.position() + length);
+    }
+    return read;
+  }
+}
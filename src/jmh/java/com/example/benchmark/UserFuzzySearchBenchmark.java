@@ -0,0 +1,141 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.model.User;
+import com.example.service.UserMatch;
+import com.example.service.UserSearchIndex;
+
+/**
+ * {@code UserSearchIndex.search} over generated users with names like {@code maria.nguyen42} and
+ * emails at a handful of domains, queried with a one-letter typo: swapped, dropped or replaced.
+ * The index's estimated size is printed after it is loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserFuzzySearchBenchmark {
+
+  private static final String[] FIRST = {
+    "james", "mary", "robert", "patricia", "john", "jennifer", "michael", "linda", "david",
+    "elizabeth", "william", "barbara", "richard", "susan", "joseph", "jessica", "thomas", "sarah",
+    "charles", "karen", "christopher", "lisa", "daniel", "nancy", "matthew", "betty", "anthony",
+    "margaret", "mark", "sandra", "donald", "ashley", "steven", "kimberly", "paul", "emily",
+    "andrew", "donna", "joshua", "michelle", "kenneth", "carol", "kevin", "amanda", "brian",
+    "dorothy", "george", "melissa", "timothy", "deborah", "maria", "wei", "priya", "ahmed",
+    "olga", "kenji", "fatima", "luca", "ingrid", "tomasz"
+  };
+
+  private static final String[] LAST = {
+    "smith", "johnson", "williams", "brown", "jones", "garcia", "miller", "davis", "rodriguez",
+    "martinez", "hernandez", "lopez", "gonzalez", "wilson", "anderson", "thomas", "taylor",
+    "moore", "jackson", "martin", "lee", "perez", "thompson", "white", "harris", "sanchez",
+    "clark", "ramirez", "lewis", "robinson", "walker", "young", "allen", "king", "wright",
+    "scott", "torres", "nguyen", "hill", "flores", "green", "adams", "nelson", "baker", "hall",
+    "rivera", "campbell", "mitchell", "carter", "roberts", "kowalski", "tanaka", "okafor",
+    "schmidt", "rossi", "dubois", "ivanova", "haddad", "larsen", "kim"
+  };
+
+  private static final String[] DOMAINS = {
+    "example.com", "corp.example", "mail.example.org", "staff.example.net", "hq.example"
+  };
+
+  private static final int QUERIES = 1024;
+
+  @Param({"1000000"})
+  private int users;
+
+  private BenchmarkContext context;
+  private UserSearchIndex index;
+  private String[] queries;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start("user-fuzzy-search-benchmark", 0);
+    index = context.getBean(UserSearchIndex.class);
+    Random random = new Random(42);
+    String[] usernames = new String[users];
+    List<User> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < users; i++) {
+      String first = FIRST[random.nextInt(FIRST.length)];
+      String last = LAST[random.nextInt(LAST.length)];
+      String username = first + "." + last + random.nextInt(1000);
+      String email =
+          (random.nextBoolean() ? first + "." + last : first.charAt(0) + last)
+              + random.nextInt(100)
+              + "@"
+              + DOMAINS[random.nextInt(DOMAINS.length)];
+      User user = new User(username, null, email);
+      user.setId((long) i + 1);
+      batch.add(user);
+      usernames[i] = username;
+      if (batch.size() == 10_000) {
+        index.putAll(batch);
+        batch.clear();
+      }
+    }
+    index.putAll(batch);
+
+    queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = typo(usernames[random.nextInt(users)], random);
+    }
+    UserSearchIndex.Snapshot snapshot = index.snapshot();
+    System.out.printf(
+        "%nIndexed %d users: %d trigrams, %d postings, about %d MB%n",
+        snapshot.getUsers(),
+        snapshot.getGrams(),
+        snapshot.getPostings(),
+        snapshot.getEstimatedBytes() >> 20);
+  }
+
+  private static String typo(String username, Random random) {
+    StringBuilder query = new StringBuilder(username);
+    int at = 1 + random.nextInt(username.length() - 2);
+    switch (random.nextInt(3)) {
+      case 0:
+        char c = query.charAt(at);
+        query.setCharAt(at, query.charAt(at + 1));
+        query.setCharAt(at + 1, c);
+        break;
+      case 1:
+        query.deleteCharAt(at);
+        break;
+      default:
+        query.setCharAt(at, (char) ('a' + random.nextInt(26)));
+    }
+    return query.toString();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<UserMatch> searchWithTypo() {
+    next = (next + 1) & (QUERIES - 1);
+    return index.search(queries[next]);
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.model.User;
+import com.example.repository.UserRepository;
+import com.example.service.UserImportFormat;
+import com.example.service.UserImportListener;
+import com.example.service.UserImportResult;
+import com.example.service.UserImportService;
+
+/** Rows per second loaded by the bulk CSV import versus {@code UserRepository.saveAll}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserImportBenchmark {
+
+  private static final int ROWS = 20_000;
+
+  private BenchmarkContext context;
+  private UserImportService userImportService;
+  private UserRepository userRepository;
+  private JdbcTemplate jdbcTemplate;
+  private byte[] csv;
+  private List<User> users;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start("user-import-benchmark", 0);
+    userImportService = context.getBean(UserImportService.class);
+    userRepository = context.getBean(UserRepository.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+    StringBuilder content = new StringBuilder("username,password,email\n");
+    for (int i = 0; i < ROWS; i++) {
+      content.append("import").append(i).append(",password,import");
+      content.append(i).append("@example.com\n");
+    }
+    csv = content.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Setup(Level.Invocation)
+  public void newEntities() {
+    // Entities are assigned ids on save, so every invocation needs fresh ones
+    users = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      users.add(new User("save" + i, "password", "save" + i + "@example.com"));
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void truncate() {
+    jdbcTemplate.update("TRUNCATE TABLE users");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public UserImportResult bulkImport() throws Exception {
+    return userImportService.importUsers(
+        new ByteArrayInputStream(csv), UserImportFormat.CSV, new UserImportListener() {});
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public List<User> repositorySaveAll() {
+    return userRepository.saveAll(users);
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.model.User;
+import com.example.repository.UserProjection;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The rest of a {@code /api/user-search} response after the query: mapping rows to {@link User}
+ * and writing them as JSON with an {@link ObjectMapper} configured like Spring Boot's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserJsonBenchmark {
+
+  @Param({"1", "100"})
+  private int rows;
+
+  private Connection connection;
+  private PreparedStatement summaryProjection;
+  private ObjectMapper objectMapper;
+  private List<User> users;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    connection = DriverManager.getConnection("jdbc:h2:mem:user-json-benchmark", "sa", "");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+          "CREATE TABLE users (id BIGINT PRIMARY KEY, email VARCHAR(255), "
+              + "password VARCHAR(255), username VARCHAR(255))");
+      statement.execute(
+          "INSERT INTO users SELECT X, 'user' || X || '@example.com', 'password', 'user' || X "
+              + "FROM SYSTEM_RANGE(1, 1000)");
+    }
+    summaryProjection = connection.prepareStatement(UserProjection.SUMMARY.select("WHERE id <= ?"));
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    users = mapRows();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(users);
+  }
+
+  @Benchmark
+  public byte[] mapAndSerialize() throws SQLException, JsonProcessingException {
+    return objectMapper.writeValueAsBytes(mapRows());
+  }
+
+  private List<User> mapRows() throws SQLException {
+    summaryProjection.setInt(1, rows);
+    List<User> mapped = new ArrayList<>(rows);
+    try (ResultSet resultSet = summaryProjection.executeQuery()) {
+      while (resultSet.next()) {
+        mapped.add(UserProjection.SUMMARY.map(resultSet));
+      }
+    }
+    return mapped;
+  }
+}
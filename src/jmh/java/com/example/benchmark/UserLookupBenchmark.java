@@ -0,0 +1,72 @@
+package com.example.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.service.EmployeeService;
+
+/** Resolving {@code lookups} usernames one query at a time versus one batch lookup. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLookupBenchmark {
+
+  private static final int SEEDED_USERS = 10_000;
+
+  @Param({"10", "100", "1000"})
+  private int lookups;
+
+  private BenchmarkContext context;
+  private EmployeeService employeeService;
+  private List<String> usernames;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // Both paths go to the database; with the cache on, single lookups would be cache hits
+    context =
+        BenchmarkContext.start(
+            "user-lookup-benchmark", SEEDED_USERS, "employee.user-cache.enabled=false");
+    employeeService = context.getBean(EmployeeService.class);
+    usernames = new ArrayList<>(lookups);
+    for (int i = 0; i < lookups; i++) {
+      usernames.add("user" + (1 + (i * 7919) % SEEDED_USERS));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void singleLookups(Blackhole blackhole) {
+    for (String username : usernames) {
+      blackhole.consume(employeeService.findUserByUsername(username));
+    }
+  }
+
+  @Benchmark
+  public void batchLookup(Blackhole blackhole) throws SQLException {
+    blackhole.consume(employeeService.findUsersByUsernames(usernames));
+  }
+}
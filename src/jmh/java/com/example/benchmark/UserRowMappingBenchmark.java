@@ -0,0 +1,97 @@
+package com.example.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.model.User;
+import com.example.repository.UserProjection;
+
+/**
+ * The original {@code SELECT *} plus by-name column lookups against {@link UserProjection}'s
+ * explicit select list and positional mapping, over the same rows on one open H2 connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserRowMappingBenchmark {
+
+  @Param({"1", "100"})
+  private int rows;
+
+  private Connection connection;
+  private PreparedStatement selectStar;
+  private PreparedStatement summaryProjection;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    connection = DriverManager.getConnection("jdbc:h2:mem:row-mapping-benchmark", "sa", "");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+          "CREATE TABLE users (id BIGINT PRIMARY KEY, email VARCHAR(255), "
+              + "password VARCHAR(255), username VARCHAR(255))");
+      statement.execute(
+          "INSERT INTO users SELECT X, 'user' || X || '@example.com', 'password', 'user' || X "
+              + "FROM SYSTEM_RANGE(1, 1000)");
+    }
+    selectStar = connection.prepareStatement("SELECT * FROM users WHERE id <= ?");
+    summaryProjection = connection.prepareStatement(UserProjection.SUMMARY.select("WHERE id <= ?"));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  public List<User> selectStarByName() throws SQLException {
+    selectStar.setInt(1, rows);
+    List<User> users = new ArrayList<>(rows);
+    try (ResultSet resultSet = selectStar.executeQuery()) {
+      while (resultSet.next()) {
+        User user = new User();
+        user.setId(resultSet.getLong("id"));
+        user.setUsername(resultSet.getString("username"));
+        user.setPassword(resultSet.getString("password"));
+        user.setEmail(resultSet.getString("email"));
+        users.add(user);
+      }
+    }
+    return users;
+  }
+
+  @Benchmark
+  public List<User> summaryProjectionByIndex() throws SQLException {
+    summaryProjection.setInt(1, rows);
+    List<User> users = new ArrayList<>(rows);
+    try (ResultSet resultSet = summaryProjection.executeQuery()) {
+      while (resultSet.next()) {
+        users.add(UserProjection.SUMMARY.map(resultSet));
+      }
+    }
+    return users;
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.model.User;
+import com.example.service.EmployeeService;
+
+/**
+ * {@code EmployeeService.findUserByUsername} over a seeded H2 database, served from the lookup
+ * cache and with the cache disabled so every call runs the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSearchBenchmark {
+
+  private static final int SEEDED_USERS = 10_000;
+  private static final int USERNAMES = 1024;
+
+  @Param({"true", "false"})
+  private boolean cacheEnabled;
+
+  private BenchmarkContext context;
+  private EmployeeService employeeService;
+  private String[] usernames;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context =
+        BenchmarkContext.start(
+            "user-search-benchmark", SEEDED_USERS, "employee.user-cache.enabled=" + cacheEnabled);
+    employeeService = context.getBean(EmployeeService.class);
+    usernames = new String[USERNAMES];
+    for (int i = 0; i < USERNAMES; i++) {
+      usernames[i] = "user" + (1 + (i * 7919) % SEEDED_USERS);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<User> findUserByUsername() {
+    next = (next + 1) & (USERNAMES - 1);
+    return employeeService.findUserByUsername(usernames[next]);
+  }
+}
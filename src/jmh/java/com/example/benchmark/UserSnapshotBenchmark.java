@@ -0,0 +1,143 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.model.User;
+import com.example.repository.UserProjection;
+import com.example.service.EmployeeService;
+import com.example.service.UserSnapshotService;
+
+/**
+ * Username lookups over a seeded H2 database, with the lookup cache disabled, answered three ways:
+ * {@code jdbc} queries the database, {@code heap} reads maps of every user by username and id
+ * built on the heap, and {@code snapshot} goes through {@code EmployeeService} to the memory-mapped
+ * user snapshot. The heap each keeps after a full GC, and the snapshot's file size, are printed
+ * once the users are loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserSnapshotBenchmark {
+
+  private static final int USERNAMES = 1024;
+
+  @Param({"1000000"})
+  private int users;
+
+  @Param({"jdbc", "heap", "snapshot"})
+  private String source;
+
+  private BenchmarkContext context;
+  private Path directory;
+  private EmployeeService employeeService;
+  private Map<String, List<User>> byUsername;
+  /** Kept only so that the heap it takes is counted, as the snapshot has an id index too. */
+  private Map<Long, User> byId;
+  private String[] usernames;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, SQLException {
+    directory = Files.createTempDirectory("user-snapshot-benchmark");
+    // Every refresh reads the table in full, as the first one on a new node does
+    context =
+        BenchmarkContext.start(
+            "user-snapshot-benchmark",
+            users,
+            "employee.user-cache.enabled=false",
+            "employee.user-snapshot.enabled=" + source.equals("snapshot"),
+            "employee.user-snapshot.refresh-interval=1h",
+            "employee.user-snapshot.full-refresh-interval=0s",
+            "employee.user-snapshot.path=" + directory.resolve("users.snapshot"));
+    employeeService = context.getBean(EmployeeService.class);
+    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+    // One scan first, so that what H2 keeps of it is not counted against the first to load
+    jdbcTemplate.query(UserProjection.SUMMARY.select("ORDER BY id"), resultSet -> {});
+    long before = usedHeap();
+    long start = System.nanoTime();
+    if (source.equals("heap")) {
+      byUsername = new HashMap<>();
+      byId = new HashMap<>();
+      jdbcTemplate.query(
+              UserProjection.SUMMARY.select("ORDER BY id"),
+              resultSet -> {
+                User user = UserProjection.SUMMARY.map(resultSet);
+                byUsername.computeIfAbsent(user.getUsername(), key -> new ArrayList<>(1)).add(user);
+                byId.put(user.getId(), user);
+              });
+    } else if (source.equals("snapshot")) {
+      context.getBean(UserSnapshotService.class).refresh();
+    }
+    long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    long retained = usedHeap() - before;
+    UserSnapshotService.Snapshot snapshot = context.getBean(UserSnapshotService.class).snapshot();
+    System.out.printf(
+        "%n%s: %d users loaded in %d ms, %d MB more heap retained, %d MB mapped%n",
+        source,
+        users,
+        loadMillis,
+        retained >> 20,
+        snapshot.getFileBytes() >> 20);
+
+    usernames = new String[USERNAMES];
+    for (int i = 0; i < USERNAMES; i++) {
+      usernames[i] = "user" + (1 + (i * 7919L) % users);
+    }
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public Object findUserByUsername() {
+    next = (next + 1) & (USERNAMES - 1);
+    String username = usernames[next];
+    return byUsername != null
+        ? byUsername.get(username)
+        : employeeService.findUserByUsername(username);
+  }
+}
@@ -2,8 +2,13 @@ package com.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+// The reactive searches are read-only; a second, R2DBC transaction manager would only make
+// @Transactional ambiguous next to the JPA one
+@SpringBootApplication(exclude = R2dbcTransactionManagerAutoConfiguration.class)
+@ConfigurationPropertiesScan
 public class EmployeeManagementPortal {
 
   public static void main(String[] args) {
@@ -0,0 +1,70 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.account-updates")
+public class AccountUpdateProperties {
+
+  /**
+   * Usernames that may have an update waiting to be written. Further updates of a waiting username
+   * replace its email without taking a place; updates of other usernames wait for one.
+   */
+  private int queueCapacity = 10_000;
+
+  /** Updates written by each batch, in one transaction per shard. */
+  private int batchSize = 500;
+
+  /**
+   * Longest an update waits for others to share its commit. A batch is written as soon as it is
+   * full or its oldest update has waited this long.
+   */
+  private Duration maxDelay = Duration.ofMillis(10);
+
+  /** How long an update waits for a place in a full queue before it is rejected. */
+  private Duration offerTimeout = Duration.ofSeconds(1);
+
+  /** How long a durable update waits for its commit before the request gives up waiting. */
+  private Duration ackTimeout = Duration.ofSeconds(5);
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+
+  public void setMaxDelay(Duration maxDelay) {
+    this.maxDelay = maxDelay;
+  }
+
+  public Duration getOfferTimeout() {
+    return offerTimeout;
+  }
+
+  public void setOfferTimeout(Duration offerTimeout) {
+    this.offerTimeout = offerTimeout;
+  }
+
+  public Duration getAckTimeout() {
+    return ackTimeout;
+  }
+
+  public void setAckTimeout(Duration ackTimeout) {
+    this.ackTimeout = ackTimeout;
+  }
+}
@@ -0,0 +1,67 @@
+package com.example.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "employee.command-runner")
+public class CommandRunnerProperties {
+
+  /** Commands that may run at the same time. */
+  private int workers = 4;
+
+  /** Commands that may wait for a worker, at least 1; further commands are rejected. */
+  private int queueCapacity = 16;
+
+  /** Wall-clock limit on a command, after which it and its children are killed. */
+  private Duration timeout = Duration.ofSeconds(10);
+
+  /** Bytes kept from each of stdout and stderr; the rest is read and discarded. */
+  private DataSize maxOutputSize = DataSize.ofKilobytes(64);
+
+  /** Program names that may be run, matched exactly against the first word of the command. */
+  private List<String> allowedCommands = new ArrayList<>(List.of("echo"));
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public void setWorkers(int workers) {
+    this.workers = workers;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  public DataSize getMaxOutputSize() {
+    return maxOutputSize;
+  }
+
+  public void setMaxOutputSize(DataSize maxOutputSize) {
+    this.maxOutputSize = maxOutputSize;
+  }
+
+  public List<String> getAllowedCommands() {
+    return allowedCommands;
+  }
+
+  public void setAllowedCommands(List<String> allowedCommands) {
+    this.allowedCommands = allowedCommands;
+  }
+}
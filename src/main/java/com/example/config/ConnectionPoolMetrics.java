@@ -0,0 +1,206 @@
+package com.example.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Collects telemetry from every Hikari pool created by {@link DataSourceConfig}: live
+ * active/idle/waiting counts come from the pool itself, acquire-wait times are recorded by the
+ * tracker Hikari calls on every {@code getConnection()}.
+ *
+ * <p>A pool takes a single tracker factory, so setting this one keeps Spring Boot from binding
+ * Hikari's Micrometer tracker itself; every tracker therefore also forwards to a Micrometer one
+ * when a {@link MeterRegistry} is available, publishing the usual {@code hikaricp.*} meters.
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+  private final Map<String, PoolTracker> trackers = new ConcurrentHashMap<>();
+
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+
+  public ConnectionPoolMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    // Resolved when the pool starts rather than at injection, as the registry binds the pool
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    IMetricsTracker micrometer =
+        registry == null
+            ? new IMetricsTracker() {}
+            : new MicrometerMetricsTrackerFactory(registry).create(poolName, poolStats);
+    PoolTracker tracker = new PoolTracker(poolName, poolStats, micrometer);
+    trackers.put(poolName, tracker);
+    return tracker;
+  }
+
+  public List<PoolSnapshot> snapshot() {
+    List<PoolSnapshot> snapshots = new ArrayList<>();
+    for (PoolTracker tracker : trackers.values()) {
+      snapshots.add(tracker.snapshot());
+    }
+    return snapshots;
+  }
+
+  public PoolSnapshot snapshot(String poolName) {
+    PoolTracker tracker = trackers.get(poolName);
+    return tracker == null ? null : tracker.snapshot();
+  }
+
+  private static final class PoolTracker implements IMetricsTracker {
+
+    private final String poolName;
+    private final PoolStats poolStats;
+    private final IMetricsTracker micrometer;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+
+    PoolTracker(String poolName, PoolStats poolStats, IMetricsTracker micrometer) {
+      this.poolName = poolName;
+      this.poolStats = poolStats;
+      this.micrometer = micrometer;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+      micrometer.recordConnectionCreatedMillis(connectionCreatedMillis);
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+      acquisitions.increment();
+      acquireNanos.add(elapsedAcquiredNanos);
+      maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+      micrometer.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+      micrometer.recordConnectionUsageMillis(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+      timeouts.increment();
+      micrometer.recordConnectionTimeout();
+    }
+
+    @Override
+    public void close() {
+      micrometer.close();
+    }
+
+    PoolSnapshot snapshot() {
+      long count = acquisitions.sum();
+      long averageMicros =
+          count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / count);
+      return new PoolSnapshot(
+          poolName,
+          poolStats.getActiveConnections(),
+          poolStats.getIdleConnections(),
+          poolStats.getTotalConnections(),
+          poolStats.getPendingThreads(),
+          poolStats.getMaxConnections(),
+          count,
+          timeouts.sum(),
+          averageMicros,
+          TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()));
+    }
+  }
+
+  public static final class PoolSnapshot {
+
+    private final String poolName;
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int waiting;
+    private final int maximum;
+    private final long acquisitions;
+    private final long timeouts;
+    private final long averageAcquireMicros;
+    private final long maxAcquireMicros;
+
+    PoolSnapshot(
+        String poolName,
+        int active,
+        int idle,
+        int total,
+        int waiting,
+        int maximum,
+        long acquisitions,
+        long timeouts,
+        long averageAcquireMicros,
+        long maxAcquireMicros) {
+      this.poolName = poolName;
+      this.active = active;
+      this.idle = idle;
+      this.total = total;
+      this.waiting = waiting;
+      this.maximum = maximum;
+      this.acquisitions = acquisitions;
+      this.timeouts = timeouts;
+      this.averageAcquireMicros = averageAcquireMicros;
+      this.maxAcquireMicros = maxAcquireMicros;
+    }
+
+    public String getPoolName() {
+      return poolName;
+    }
+
+    public int getActive() {
+      return active;
+    }
+
+    public int getIdle() {
+      return idle;
+    }
+
+    public int getTotal() {
+      return total;
+    }
+
+    public int getWaiting() {
+      return waiting;
+    }
+
+    public int getMaximum() {
+      return maximum;
+    }
+
+    public long getAcquisitions() {
+      return acquisitions;
+    }
+
+    public long getTimeouts() {
+      return timeouts;
+    }
+
+    public long getAverageAcquireMicros() {
+      return averageAcquireMicros;
+    }
+
+    public long getMaxAcquireMicros() {
+      return maxAcquireMicros;
+    }
+  }
+}
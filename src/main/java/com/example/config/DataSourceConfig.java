@@ -0,0 +1,182 @@
+package com.example.config;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.example.datasource.ReadWriteRoutingDataSource;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.ShardIdRanges;
+import com.example.datasource.ShardedDataSource;
+import com.example.datasource.UserShards;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Declares the application's connection pool explicitly instead of relying on the auto-configured
+ * one, so the pool settings in {@code spring.datasource.hikari.*} are always applied and every pool
+ * reports into {@link ConnectionPoolMetrics}.
+ *
+ * <p>When {@code employee.datasource.replicas} are configured, the application's {@link DataSource}
+ * becomes a {@link ReadWriteRoutingDataSource} over the primary and one pool per replica. When
+ * {@code employee.sharding.shards} are configured, it becomes a {@link ShardedDataSource} over the
+ * primary, with its replicas, as shard 0 and one pool per further shard, and startup fails unless
+ * every shard's {@code users_seq} counts in its own {@link ShardIdRanges range}.
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource dataSource(
+      DataSourceProperties properties, ConnectionPoolMetrics connectionPoolMetrics) {
+    HikariDataSource dataSource =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    dataSource.setMetricsTrackerFactory(connectionPoolMetrics);
+    return dataSource;
+  }
+
+  @Configuration
+  @ConditionalOnProperty("employee.datasource.replicas[0].url")
+  static class ReplicaConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+        HikariDataSource dataSource,
+        DataSourceRoutingProperties properties,
+        RecentWrites recentWrites,
+        ConnectionPoolMetrics connectionPoolMetrics) {
+      List<DataSourceRoutingProperties.Replica> replicas = properties.getReplicas();
+      Map<String, DataSource> pools = new LinkedHashMap<>();
+      for (int i = 0; i < replicas.size(); i++) {
+        DataSourceRoutingProperties.Replica replica = replicas.get(i);
+        String name = "employee-replica-" + (i + 1);
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(replica.getUrl());
+        pool.setUsername(replica.getUsername());
+        pool.setPassword(replica.getPassword());
+        pool.setMaximumPoolSize(properties.getReplicaPoolSize());
+        pool.setConnectionTimeout(properties.getReplicaConnectionTimeout().toMillis());
+        pool.setReadOnly(true);
+        // Start even if the replica is down; it is retried when reads come in
+        pool.setInitializationFailTimeout(-1);
+        pool.setMetricsTrackerFactory(connectionPoolMetrics);
+        pools.put(name, pool);
+      }
+      return new ReadWriteRoutingDataSource(
+          dataSource, pools, properties.getReplicaRetryInterval(), recentWrites);
+    }
+  }
+
+  @Configuration
+  @ConditionalOnProperty("employee.sharding.shards[0].url")
+  static class ShardConfig {
+
+    @Bean
+    public ShardedDataSource shardedDataSource(
+        HikariDataSource dataSource,
+        ObjectProvider<ReadWriteRoutingDataSource> readWriteRoutingDataSource,
+        ShardingProperties properties,
+        ConnectionPoolMetrics connectionPoolMetrics) {
+      List<DataSource> shards = new ArrayList<>();
+      // Shard 0 keeps its replicas, if it has any
+      DataSource primary = readWriteRoutingDataSource.getIfAvailable();
+      shards.add(primary != null ? primary : dataSource);
+      List<ShardingProperties.Shard> configured = properties.getShards();
+      for (int i = 0; i < configured.size(); i++) {
+        ShardingProperties.Shard shard = configured.get(i);
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("employee-shard-" + (i + 1));
+        pool.setJdbcUrl(shard.getUrl());
+        pool.setUsername(shard.getUsername());
+        pool.setPassword(shard.getPassword());
+        pool.setMaximumPoolSize(properties.getShardPoolSize());
+        pool.setConnectionTimeout(dataSource.getConnectionTimeout());
+        pool.setMetricsTrackerFactory(connectionPoolMetrics);
+        shards.add(pool);
+      }
+      return new ShardedDataSource(shards);
+    }
+
+    /** Checked once the schema of shard 0, and its {@code users_seq}, has been created. */
+    @Bean
+    public ShardIdRanges shardIdRanges(
+        ShardedDataSource shardedDataSource,
+        UserShards userShards,
+        EntityManagerFactory entityManagerFactory)
+        throws SQLException {
+      Dialect dialect =
+          entityManagerFactory
+              .unwrap(SessionFactoryImplementor.class)
+              .getJdbcServices()
+              .getDialect();
+      ShardIdRanges ranges =
+          new ShardIdRanges(
+              shardedDataSource, userShards, dialect.getSequenceNextValString("users_seq"));
+      ranges.verify();
+      return ranges;
+    }
+  }
+
+  /** With replicas or shards, the application's connections go through their routing. */
+  @Configuration
+  @Conditional(RoutingCondition.class)
+  static class RoutingConfig {
+
+    /** Takes the connection at the first statement, once a transaction's read-only flag is set. */
+    @Bean
+    @Primary
+    public DataSource routingDataSource(
+        ObjectProvider<ShardedDataSource> shardedDataSource,
+        ObjectProvider<ReadWriteRoutingDataSource> readWriteRoutingDataSource,
+        HikariDataSource dataSource) {
+      LazyConnectionDataSourceProxy proxy =
+          new LazyConnectionDataSourceProxy() {
+            @Override
+            public void afterPropertiesSet() {
+              // The proxy would otherwise take a connection now to read the defaults, starting a
+              // pool whose metrics bind every DataSource bean, this one included. The isolation
+              // level is read from the first real connection if a transaction ever sets one.
+            }
+          };
+      DataSource sharded = shardedDataSource.getIfAvailable();
+      proxy.setTargetDataSource(sharded != null ? sharded : readWriteRoutingDataSource.getObject());
+      // Hikari applies its auto-commit setting to every connection it hands out
+      proxy.setDefaultAutoCommit(dataSource.isAutoCommit());
+      return proxy;
+    }
+  }
+
+  static class RoutingCondition extends AnyNestedCondition {
+
+    RoutingCondition() {
+      super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnProperty("employee.datasource.replicas[0].url")
+    static class Replicas {}
+
+    @ConditionalOnProperty("employee.sharding.shards[0].url")
+    static class Shards {}
+  }
+}
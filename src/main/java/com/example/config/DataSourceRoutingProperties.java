@@ -0,0 +1,100 @@
+package com.example.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.datasource")
+public class DataSourceRoutingProperties {
+
+  /** Read replicas of {@code spring.datasource}; without any, every query goes to the primary. */
+  private List<Replica> replicas = new ArrayList<>();
+
+  /** Connections of each replica pool. */
+  private int replicaPoolSize = 10;
+
+  /** How long a read waits for a replica connection before trying the next replica. */
+  private Duration replicaConnectionTimeout = Duration.ofSeconds(1);
+
+  /** How long a replica that failed to hand out a connection is skipped before it is retried. */
+  private Duration replicaRetryInterval = Duration.ofSeconds(5);
+
+  /**
+   * How long after a user is written its lookups keep reading from the primary, so that a replica
+   * lagging behind cannot serve (or the lookup cache keep) the state from before the write.
+   */
+  private Duration readYourWritesWindow = Duration.ofSeconds(2);
+
+  public List<Replica> getReplicas() {
+    return replicas;
+  }
+
+  public void setReplicas(List<Replica> replicas) {
+    this.replicas = replicas;
+  }
+
+  public int getReplicaPoolSize() {
+    return replicaPoolSize;
+  }
+
+  public void setReplicaPoolSize(int replicaPoolSize) {
+    this.replicaPoolSize = replicaPoolSize;
+  }
+
+  public Duration getReplicaConnectionTimeout() {
+    return replicaConnectionTimeout;
+  }
+
+  public void setReplicaConnectionTimeout(Duration replicaConnectionTimeout) {
+    this.replicaConnectionTimeout = replicaConnectionTimeout;
+  }
+
+  public Duration getReplicaRetryInterval() {
+    return replicaRetryInterval;
+  }
+
+  public void setReplicaRetryInterval(Duration replicaRetryInterval) {
+    this.replicaRetryInterval = replicaRetryInterval;
+  }
+
+  public Duration getReadYourWritesWindow() {
+    return readYourWritesWindow;
+  }
+
+  public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+    this.readYourWritesWindow = readYourWritesWindow;
+  }
+
+  public static class Replica {
+
+    private String url;
+    private String username;
+    private String password;
+
+    public String getUrl() {
+      return url;
+    }
+
+    public void setUrl(String url) {
+      this.url = url;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+
+    public String getPassword() {
+      return password;
+    }
+
+    public void setPassword(String password) {
+      this.password = password;
+    }
+  }
+}
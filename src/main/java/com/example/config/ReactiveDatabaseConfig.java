@@ -0,0 +1,60 @@
+package com.example.config;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+
+/**
+ * The R2DBC connection pool behind {@link com.example.service.ReactiveUserSearchService}. It is
+ * declared here rather than auto-configured so that, by default, it opens the same database as the
+ * JDBC pool in {@link DataSourceConfig}.
+ */
+@Configuration
+public class ReactiveDatabaseConfig {
+
+  private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionPool reactiveConnectionPool(
+      ReactiveSearchProperties properties, DataSourceProperties dataSourceProperties) {
+    ConnectionFactory connectionFactory = connectionFactory(properties, dataSourceProperties);
+    return new ConnectionPool(
+        ConnectionPoolConfiguration.builder(connectionFactory)
+            .name("employee-reactive")
+            .initialSize(1)
+            .maxSize(properties.getMaxPoolSize())
+            .maxAcquireTime(properties.getAcquireTimeout())
+            .build());
+  }
+
+  @Bean
+  public DatabaseClient reactiveDatabaseClient(ConnectionPool reactiveConnectionPool) {
+    return DatabaseClient.create(reactiveConnectionPool);
+  }
+
+  private static ConnectionFactory connectionFactory(
+      ReactiveSearchProperties properties, DataSourceProperties dataSourceProperties) {
+    if (properties.getUrl() != null) {
+      return ConnectionFactories.get(properties.getUrl());
+    }
+    String jdbcUrl = dataSourceProperties.determineUrl();
+    if (jdbcUrl == null || !jdbcUrl.startsWith(H2_JDBC_PREFIX)) {
+      throw new IllegalStateException(
+          "employee.reactive-search.url must be set for a non-H2 database: " + jdbcUrl);
+    }
+    return new H2ConnectionFactory(
+        H2ConnectionConfiguration.builder()
+            .url(jdbcUrl.substring(H2_JDBC_PREFIX.length()))
+            .username(dataSourceProperties.determineUsername())
+            .password(dataSourceProperties.determinePassword())
+            .build());
+  }
+}
@@ -0,0 +1,45 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.reactive-search")
+public class ReactiveSearchProperties {
+
+  /**
+   * R2DBC URL of the users database. When unset, an H2 {@code spring.datasource.url} is reused so
+   * both stacks see the same database; any other database needs this and its R2DBC driver.
+   */
+  private String url;
+
+  /** Connections of the R2DBC pool, separate from the JDBC pool. */
+  private int maxPoolSize = 10;
+
+  /** How long a query waits for a pooled connection before failing. */
+  private Duration acquireTimeout = Duration.ofSeconds(2);
+
+  public String getUrl() {
+    return url;
+  }
+
+  public void setUrl(String url) {
+    this.url = url;
+  }
+
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  public void setMaxPoolSize(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  public Duration getAcquireTimeout() {
+    return acquireTimeout;
+  }
+
+  public void setAcquireTimeout(Duration acquireTimeout) {
+    this.acquireTimeout = acquireTimeout;
+  }
+}
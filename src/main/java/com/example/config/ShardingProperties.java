@@ -0,0 +1,105 @@
+package com.example.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.sharding")
+public class ShardingProperties {
+
+  /**
+   * Databases holding users beside {@code spring.datasource}, which is always shard 0; these are
+   * shards 1 to N in order. Users are placed by a hash of their username over all of them, so
+   * adding or reordering shards moves users and needs the data moved with it.
+   */
+  private List<Shard> shards = new ArrayList<>();
+
+  /** Connections of each pool of {@code shards}; shard 0 uses {@code spring.datasource.hikari}. */
+  private int shardPoolSize = 10;
+
+  /** How long a search fanned out over every shard waits for all of them to answer. */
+  private Duration fanOutTimeout = Duration.ofSeconds(2);
+
+  /** Threads querying shards in parallel, shared by all fanned-out searches. */
+  private int fanOutThreads = 16;
+
+  /**
+   * Shard queries that may wait for {@code fanOutThreads}; a search that finds the queue full fails
+   * at once. When unset, there is room for 200 searches, Tomcat's default request threads, each
+   * over every shard.
+   */
+  private Integer fanOutQueueCapacity;
+
+  public List<Shard> getShards() {
+    return shards;
+  }
+
+  public void setShards(List<Shard> shards) {
+    this.shards = shards;
+  }
+
+  public int getShardPoolSize() {
+    return shardPoolSize;
+  }
+
+  public void setShardPoolSize(int shardPoolSize) {
+    this.shardPoolSize = shardPoolSize;
+  }
+
+  public Duration getFanOutTimeout() {
+    return fanOutTimeout;
+  }
+
+  public void setFanOutTimeout(Duration fanOutTimeout) {
+    this.fanOutTimeout = fanOutTimeout;
+  }
+
+  public int getFanOutThreads() {
+    return fanOutThreads;
+  }
+
+  public void setFanOutThreads(int fanOutThreads) {
+    this.fanOutThreads = fanOutThreads;
+  }
+
+  public Integer getFanOutQueueCapacity() {
+    return fanOutQueueCapacity;
+  }
+
+  public void setFanOutQueueCapacity(Integer fanOutQueueCapacity) {
+    this.fanOutQueueCapacity = fanOutQueueCapacity;
+  }
+
+  public static class Shard {
+
+    private String url;
+    private String username;
+    private String password;
+
+    public String getUrl() {
+      return url;
+    }
+
+    public void setUrl(String url) {
+      this.url = url;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+
+    public String getPassword() {
+      return password;
+    }
+
+    public void setPassword(String password) {
+      this.password = password;
+    }
+  }
+}
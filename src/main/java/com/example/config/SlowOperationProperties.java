@@ -0,0 +1,52 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.slow-operations")
+public class SlowOperationProperties {
+
+  private boolean enabled = true;
+
+  /** JDBC queries taking longer than this are logged, with their SQL and row count. */
+  private Duration queryThreshold = Duration.ofMillis(200);
+
+  /** URL fetches taking longer than this are logged, with their host, status and size. */
+  private Duration fetchThreshold = Duration.ofSeconds(1);
+
+  /** Commands taking longer than this are logged, with their program and exit code. */
+  private Duration commandThreshold = Duration.ofSeconds(2);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Duration getQueryThreshold() {
+    return queryThreshold;
+  }
+
+  public void setQueryThreshold(Duration queryThreshold) {
+    this.queryThreshold = queryThreshold;
+  }
+
+  public Duration getFetchThreshold() {
+    return fetchThreshold;
+  }
+
+  public void setFetchThreshold(Duration fetchThreshold) {
+    this.fetchThreshold = fetchThreshold;
+  }
+
+  public Duration getCommandThreshold() {
+    return commandThreshold;
+  }
+
+  public void setCommandThreshold(Duration commandThreshold) {
+    this.commandThreshold = commandThreshold;
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "employee.static-documents")
+public class StaticDocumentProperties {
+
+  /** Directory whose files are loaded into memory at startup. */
+  private String location = "classpath:static/";
+
+  /** Files larger than this are left on disk. */
+  private DataSize maxSize = DataSize.ofKilobytes(64);
+
+  /** How long clients and shared caches may reuse a document without revalidating it. */
+  private Duration maxAge = Duration.ofDays(1);
+
+  public String getLocation() {
+    return location;
+  }
+
+  public void setLocation(String location) {
+    this.location = location;
+  }
+
+  public DataSize getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(DataSize maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public Duration getMaxAge() {
+    return maxAge;
+  }
+
+  public void setMaxAge(Duration maxAge) {
+    this.maxAge = maxAge;
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "employee.upstream-cache")
+public class UpstreamCacheProperties {
+
+  private boolean enabled = true;
+
+  /** Total body bytes kept; Caffeine evicts documents, by size and frequency of use, beyond it. */
+  private DataSize maxSize = DataSize.ofMegabytes(16);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public DataSize getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(DataSize maxSize) {
+    this.maxSize = maxSize;
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "employee.upstream-http")
+public class UpstreamHttpProperties {
+
+  /** How long to wait for a TCP (and TLS) connection to an upstream. */
+  private Duration connectTimeout = Duration.ofSeconds(2);
+
+  /** Longest wait for the response headers, and between two chunks of the body. */
+  private Duration readTimeout = Duration.ofSeconds(5);
+
+  /** Upper bound on a whole fetch, from sending the request to the last byte of the body. */
+  private Duration totalTimeout = Duration.ofSeconds(10);
+
+  /** Bodies larger than this are abandoned rather than buffered. */
+  private DataSize maxResponseSize = DataSize.ofMegabytes(1);
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public Duration getTotalTimeout() {
+    return totalTimeout;
+  }
+
+  public void setTotalTimeout(Duration totalTimeout) {
+    this.totalTimeout = totalTimeout;
+  }
+
+  public DataSize getMaxResponseSize() {
+    return maxResponseSize;
+  }
+
+  public void setMaxResponseSize(DataSize maxResponseSize) {
+    this.maxResponseSize = maxResponseSize;
+  }
+}
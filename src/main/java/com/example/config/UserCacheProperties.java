@@ -0,0 +1,52 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.user-cache")
+public class UserCacheProperties {
+
+  private boolean enabled = true;
+
+  /** Upper bound on cached usernames; beyond it the least valuable entries are evicted. */
+  private long maximumSize = 10_000;
+
+  /** How long a lookup that found users stays cached. */
+  private Duration ttl = Duration.ofSeconds(60);
+
+  /** How long a lookup that found nobody stays cached. */
+  private Duration negativeTtl = Duration.ofSeconds(10);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(Duration ttl) {
+    this.ttl = ttl;
+  }
+
+  public Duration getNegativeTtl() {
+    return negativeTtl;
+  }
+
+  public void setNegativeTtl(Duration negativeTtl) {
+    this.negativeTtl = negativeTtl;
+  }
+}
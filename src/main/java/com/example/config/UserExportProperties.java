@@ -0,0 +1,29 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.user-export")
+public class UserExportProperties {
+
+  /** Rows requested per round trip by the export cursor. */
+  private int fetchSize = 1000;
+
+  /** Bytes buffered between the row writer and the response before each write. */
+  private int bufferSize = 64 * 1024;
+
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+}
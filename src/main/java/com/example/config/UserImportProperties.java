@@ -0,0 +1,40 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.user-import")
+public class UserImportProperties {
+
+  /** Rows written by each multi-row INSERT statement. */
+  private int batchSize = 500;
+
+  /** Rows written per transaction; progress is reported after every commit. */
+  private int commitSize = 10_000;
+
+  /** Rejected rows reported individually; further rejects are only counted. */
+  private int maxReportedRejects = 1000;
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getCommitSize() {
+    return commitSize;
+  }
+
+  public void setCommitSize(int commitSize) {
+    this.commitSize = commitSize;
+  }
+
+  public int getMaxReportedRejects() {
+    return maxReportedRejects;
+  }
+
+  public void setMaxReportedRejects(int maxReportedRejects) {
+    this.maxReportedRejects = maxReportedRejects;
+  }
+}
@@ -0,0 +1,136 @@
+package com.example.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.user-search")
+public class UserSearchProperties {
+
+  /** Largest number of distinct usernames accepted by a single batch lookup. */
+  private int batchMaxUsernames = 1000;
+
+  /** Usernames bound into each multi-value {@code IN (...)} query of a batch lookup. */
+  private int batchChunkSize = 100;
+
+  /** Rows requested per round trip by the directory search cursor. */
+  private int directoryFetchSize = 500;
+
+  /** Page size of a directory search that does not ask for one. */
+  private int directoryDefaultPageSize = 1000;
+
+  /** Largest page a single directory search may request. */
+  private int directoryMaxPageSize = 100_000;
+
+  /**
+   * Edits a fuzzy search match may be away from the query. Each allows three fewer of the query's
+   * trigrams to match, so higher values find more and cost more.
+   */
+  private int fuzzyMaxTypos = 1;
+
+  /** Matches returned by a fuzzy search that does not ask for a number. */
+  private int fuzzyDefaultResults = 20;
+
+  /** Most matches a single fuzzy search may request. */
+  private int fuzzyMaxResults = 100;
+
+  /** Longest fuzzy search query accepted, in characters; at most 255. */
+  private int fuzzyMaxQueryLength = 255;
+
+  /**
+   * Wait before retrying a failed first load of the fuzzy search index, doubled after each further
+   * failure. Fuzzy searches are answered with 503 until a load succeeds.
+   */
+  private Duration fuzzyLoadRetryDelay = Duration.ofSeconds(1);
+
+  /** Longest wait between retries of the first load of the fuzzy search index. */
+  private Duration fuzzyLoadMaxRetryDelay = Duration.ofMinutes(1);
+
+  public int getBatchMaxUsernames() {
+    return batchMaxUsernames;
+  }
+
+  public void setBatchMaxUsernames(int batchMaxUsernames) {
+    this.batchMaxUsernames = batchMaxUsernames;
+  }
+
+  public int getBatchChunkSize() {
+    return batchChunkSize;
+  }
+
+  public void setBatchChunkSize(int batchChunkSize) {
+    this.batchChunkSize = batchChunkSize;
+  }
+
+  public int getDirectoryFetchSize() {
+    return directoryFetchSize;
+  }
+
+  public void setDirectoryFetchSize(int directoryFetchSize) {
+    this.directoryFetchSize = directoryFetchSize;
+  }
+
+  public int getDirectoryDefaultPageSize() {
+    return directoryDefaultPageSize;
+  }
+
+  public void setDirectoryDefaultPageSize(int directoryDefaultPageSize) {
+    this.directoryDefaultPageSize = directoryDefaultPageSize;
+  }
+
+  public int getDirectoryMaxPageSize() {
+    return directoryMaxPageSize;
+  }
+
+  public void setDirectoryMaxPageSize(int directoryMaxPageSize) {
+    this.directoryMaxPageSize = directoryMaxPageSize;
+  }
+
+  public int getFuzzyMaxTypos() {
+    return fuzzyMaxTypos;
+  }
+
+  public void setFuzzyMaxTypos(int fuzzyMaxTypos) {
+    this.fuzzyMaxTypos = fuzzyMaxTypos;
+  }
+
+  public int getFuzzyDefaultResults() {
+    return fuzzyDefaultResults;
+  }
+
+  public void setFuzzyDefaultResults(int fuzzyDefaultResults) {
+    this.fuzzyDefaultResults = fuzzyDefaultResults;
+  }
+
+  public int getFuzzyMaxResults() {
+    return fuzzyMaxResults;
+  }
+
+  public void setFuzzyMaxResults(int fuzzyMaxResults) {
+    this.fuzzyMaxResults = fuzzyMaxResults;
+  }
+
+  public int getFuzzyMaxQueryLength() {
+    return fuzzyMaxQueryLength;
+  }
+
+  public void setFuzzyMaxQueryLength(int fuzzyMaxQueryLength) {
+    this.fuzzyMaxQueryLength = fuzzyMaxQueryLength;
+  }
+
+  public Duration getFuzzyLoadRetryDelay() {
+    return fuzzyLoadRetryDelay;
+  }
+
+  public void setFuzzyLoadRetryDelay(Duration fuzzyLoadRetryDelay) {
+    this.fuzzyLoadRetryDelay = fuzzyLoadRetryDelay;
+  }
+
+  public Duration getFuzzyLoadMaxRetryDelay() {
+    return fuzzyLoadMaxRetryDelay;
+  }
+
+  public void setFuzzyLoadMaxRetryDelay(Duration fuzzyLoadMaxRetryDelay) {
+    this.fuzzyLoadMaxRetryDelay = fuzzyLoadMaxRetryDelay;
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "employee.user-snapshot")
+public class UserSnapshotProperties {
+
+  /** Keep a memory-mapped snapshot of the users table and serve username lookups from it. */
+  private boolean enabled = false;
+
+  /** The snapshot file. It is mapped again on startup, so lookups need not wait for a refresh. */
+  private Path path = Paths.get("data", "users.snapshot");
+
+  /** Time between refreshes, each of which reads the rows changed since the previous one. */
+  private Duration refreshInterval = Duration.ofSeconds(30);
+
+  /**
+   * Time between full reloads, which also drop deleted users that a refresh found no trace of and
+   * changes it missed.
+   */
+  private Duration fullRefreshInterval = Duration.ofHours(1);
+
+  /**
+   * How far before the previous refresh a refresh looks for changed rows. Rows are stamped when
+   * their transaction starts, so this must exceed the longest write transaction.
+   */
+  private Duration changeOverlap = Duration.ofMinutes(1);
+
+  /** Rows requested per round trip when a shard is read in full. */
+  private int fetchSize = 1000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public void setPath(Path path) {
+    this.path = path;
+  }
+
+  public Duration getRefreshInterval() {
+    return refreshInterval;
+  }
+
+  public void setRefreshInterval(Duration refreshInterval) {
+    this.refreshInterval = refreshInterval;
+  }
+
+  public Duration getFullRefreshInterval() {
+    return fullRefreshInterval;
+  }
+
+  public void setFullRefreshInterval(Duration fullRefreshInterval) {
+    this.fullRefreshInterval = fullRefreshInterval;
+  }
+
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  public Duration getChangeOverlap() {
+    return changeOverlap;
+  }
+
+  public void setChangeOverlap(Duration changeOverlap) {
+    this.changeOverlap = changeOverlap;
+  }
+}
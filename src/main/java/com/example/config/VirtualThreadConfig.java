@@ -0,0 +1,44 @@
+package com.example.config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Serves requests on virtual threads when {@code employee.virtual-threads.enabled} is set, which
+ * needs Java 21 (see the {@code java21} Maven profile). Tomcat starts one virtual thread per
+ * request instead of taking one from its bounded pool, so requests blocked on JDBC, an upstream
+ * fetch or a child process no longer hold a platform thread; {@code server.tomcat.threads.max} no
+ * longer applies. Database concurrency is still capped by the connection pool, and commands by the
+ * {@link com.example.service.CommandRunner} workers.
+ */
+@Configuration
+@ConditionalOnProperty("employee.virtual-threads.enabled")
+public class VirtualThreadConfig implements WebMvcConfigurer, DisposableBean {
+
+  private final ExecutorService requestExecutor =
+      VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+    return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+  }
+
+  /** Streaming and other asynchronous MVC responses run on virtual threads too. */
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(new TaskExecutorAdapter(requestExecutor));
+  }
+
+  @Override
+  public void destroy() {
+    requestExecutor.shutdown();
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual-thread executors on Java 21 and later. The project is compiled for Java 11, so
+ * the Java 21 API is reached reflectively, once, when the executor is created; the threads it
+ * starts are ordinary virtual threads.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {}
+
+  public static boolean isSupported() {
+    return Runtime.version().feature() >= 21;
+  }
+
+  /**
+   * An executor that starts a new virtual thread, named {@code prefix} plus a counter, for every
+   * task.
+   *
+   * @throws IllegalStateException if the running JVM has no virtual threads
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+    if (!isSupported()) {
+      throw new IllegalStateException(
+          "Virtual threads need Java 21 or later; running on " + Runtime.version());
+    }
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+      ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+      Method executor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) executor.invoke(null, factory);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot create a virtual-thread executor", e);
+    }
+  }
+}
@@ -1,29 +1,44 @@
 package com.example.controller;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.service.StaticDocument;
+import com.example.service.StaticDocumentStore;
+
 @RestController
 public class CrossDomainController {
 
-  private static final String CROSS_DOMAIN_XML = "static/crossdomain.xml";
+  private static final String CROSS_DOMAIN_XML = "crossdomain.xml";
 
-  @GetMapping(value = "/crossdomain.xml", produces = MediaType.APPLICATION_XML_VALUE)
-  public String getCrossDomainXml() {
-    try {
-      ClassPathResource resource = new ClassPathResource(CROSS_DOMAIN_XML);
-      return new String(Files.readAllBytes(Paths.get(resource.getURI())));
-    } catch (IOException e) {
-      return "<?xml version=\"1.0\"?>\n"
+  private static final String DEFAULT_POLICY =
+      "<?xml version=\"1.0\"?>\n"
           + "<cross-domain-policy>\n"
           + "  <allow-access-from domain=\"*\" />\n"
           + "</cross-domain-policy>";
-    }
+
+  private final StaticDocumentStore staticDocuments;
+  private final StaticDocument policy;
+
+  public CrossDomainController(StaticDocumentStore staticDocuments) {
+    this.staticDocuments = staticDocuments;
+    this.policy =
+        staticDocuments
+            .find(CROSS_DOMAIN_XML)
+            .orElseGet(
+                () ->
+                    StaticDocument.of(
+                        CROSS_DOMAIN_XML, DEFAULT_POLICY.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /** Served from memory; the policy file is read once at startup. */
+  @GetMapping("/crossdomain.xml")
+  public ResponseEntity<byte[]> getCrossDomainXml(@RequestHeader HttpHeaders headers) {
+    return staticDocuments.serve(policy, headers);
   }
 }
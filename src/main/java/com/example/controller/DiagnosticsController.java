@@ -0,0 +1,100 @@
+package com.example.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.config.ConnectionPoolMetrics;
+import com.example.datasource.ReadWriteRoutingDataSource;
+import com.example.datasource.UserShards;
+import com.example.logging.LoggingStats;
+import com.example.service.AccountUpdateService;
+import com.example.service.CommandRunner;
+import com.example.service.UpstreamResponseCache;
+import com.example.service.UserLookupCache;
+import com.example.service.UserSearchIndex;
+import com.example.service.UserSnapshotService;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+  @Autowired private ConnectionPoolMetrics connectionPoolMetrics;
+
+  @Autowired private ObjectProvider<ReadWriteRoutingDataSource> readWriteRoutingDataSource;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private UserLookupCache userLookupCache;
+
+  @Autowired private UpstreamResponseCache upstreamResponseCache;
+
+  @Autowired private CommandRunner commandRunner;
+
+  @Autowired private AccountUpdateService accountUpdateService;
+
+  @Autowired private UserSearchIndex userSearchIndex;
+
+  @Autowired private UserSnapshotService userSnapshotService;
+
+  @Autowired private LoggingStats loggingStats;
+
+  @GetMapping("/connection-pools")
+  public List<ConnectionPoolMetrics.PoolSnapshot> connectionPools() {
+    return connectionPoolMetrics.snapshot();
+  }
+
+  /** Connections per replica and their health; 404 when no replicas are configured. */
+  @GetMapping("/datasource-routing")
+  public ResponseEntity<ReadWriteRoutingDataSource.Snapshot> datasourceRouting() {
+    ReadWriteRoutingDataSource routing = readWriteRoutingDataSource.getIfAvailable();
+    return routing == null
+        ? ResponseEntity.notFound().build()
+        : ResponseEntity.ok(routing.snapshot());
+  }
+
+  @GetMapping("/user-shards")
+  public UserShards.Snapshot userShards() {
+    return userShards.snapshot();
+  }
+
+  @GetMapping("/user-cache")
+  public UserLookupCache.Snapshot userCache() {
+    return userLookupCache.snapshot();
+  }
+
+  @GetMapping("/upstream-cache")
+  public UpstreamResponseCache.Snapshot upstreamCache() {
+    return upstreamResponseCache.snapshot();
+  }
+
+  @GetMapping("/command-runner")
+  public CommandRunner.Snapshot commandRunner() {
+    return commandRunner.snapshot();
+  }
+
+  @GetMapping("/user-search-index")
+  public UserSearchIndex.Snapshot userSearchIndex() {
+    return userSearchIndex.snapshot();
+  }
+
+  @GetMapping("/user-snapshot")
+  public UserSnapshotService.Snapshot userSnapshot() {
+    return userSnapshotService.snapshot();
+  }
+
+  @GetMapping("/account-updates")
+  public AccountUpdateService.Snapshot accountUpdates() {
+    return accountUpdateService.snapshot();
+  }
+
+  @GetMapping("/logging")
+  public LoggingStats.Snapshot logging() {
+    return loggingStats.snapshot();
+  }
+}
@@ -1,27 +1,292 @@
 package com.example.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.model.User;
+import com.example.repository.UserProjection;
+import com.example.service.AccountUpdateService;
 import com.example.service.EmployeeService;
+import com.example.service.UserCursor;
+import com.example.service.UserExportFormat;
+import com.example.service.UserExportService;
+import com.example.service.UserImportFormat;
+import com.example.service.UserImportListener;
+import com.example.service.UserImportResult;
+import com.example.service.UserImportService;
+import com.example.service.UserMatch;
+import com.example.service.UserSearchIndex;
+import com.example.service.UserSearchIndexUnavailableException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @RestController
 @RequestMapping("/api")
 public class EmployeeController {
 
+  private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  private static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+  /** Length-prefixed CBOR documents, for consumers of large directory pages. */
+  static final String APPLICATION_CBOR_FRAMES_VALUE = "application/x-cbor-frames";
+
+  private static final MediaType APPLICATION_CBOR_FRAMES =
+      MediaType.valueOf(APPLICATION_CBOR_FRAMES_VALUE);
+
   @Autowired private EmployeeService employeeService;
 
+  @Autowired private UserImportService userImportService;
+
+  @Autowired private UserExportService userExportService;
+
+  @Autowired private AccountUpdateService accountUpdateService;
+
+  @Autowired private UserSearchIndex userSearchIndex;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
   @GetMapping("/user-search")
-  public List<User> userSearchExample(@RequestParam String username) {
+  public List<User> userSearchExample(
+      @RequestParam String username, @RequestParam(required = false) String fields) {
+    if (fields != null) {
+      return employeeService.findUserByUsername(username, UserProjection.parse(fields));
+    }
     return employeeService.findUserByUsername(username);
   }
 
+  /** Exact email match; every shard is searched. */
+  @GetMapping("/user-search/by-email")
+  public List<User> userSearchByEmailExample(@RequestParam String email) throws SQLException {
+    return employeeService.findUsersByEmail(email);
+  }
+
+  /**
+   * Typo-tolerant search over usernames and emails, best match first, answered from the in-memory
+   * trigram index without touching the database.
+   */
+  @GetMapping("/user-search/fuzzy")
+  public List<UserMatch> fuzzyUserSearch(
+      @RequestParam String q, @RequestParam(required = false) Integer limit) {
+    return limit == null ? userSearchIndex.search(q) : userSearchIndex.search(q, limit);
+  }
+
+  @PostMapping("/user-search/batch")
+  public Map<String, List<User>> batchUserSearchExample(@RequestBody List<String> usernames)
+      throws SQLException {
+    return employeeService.findUsersByUsernames(usernames);
+  }
+
+  /**
+   * Streams one page of a "starts with" directory search as newline-delimited JSON. When the page
+   * is full, a final {@code {"nextCursor": "..."}} line carries the token for the next page. A
+   * request that prefers {@value #APPLICATION_CBOR_FRAMES_VALUE} to NDJSON gets the same documents
+   * as CBOR instead, each preceded by its length as a 4-byte big-endian integer. A request that
+   * accepts neither gets 406.
+   */
+  @GetMapping(
+      value = "/user-directory",
+      produces = {APPLICATION_NDJSON_VALUE, APPLICATION_CBOR_FRAMES_VALUE})
+  public ResponseEntity<StreamingResponseBody> userDirectoryExample(
+      @RequestParam String prefix,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    UserCursor after = cursor == null ? null : UserCursor.decode(cursor);
+    int pageSize = employeeService.directoryPageSize(limit);
+
+    if (prefersCborFrames(accept)) {
+      return ResponseEntity.ok()
+          .header(HttpHeaders.CONTENT_TYPE, APPLICATION_CBOR_FRAMES_VALUE)
+          .body(cborFrameDirectory(prefix, after, pageSize));
+    }
+    return ResponseEntity.ok()
+        .header(HttpHeaders.CONTENT_TYPE, APPLICATION_NDJSON_VALUE)
+        .body(ndjsonDirectory(prefix, after, pageSize));
+  }
+
+  private StreamingResponseBody ndjsonDirectory(String prefix, UserCursor after, int pageSize) {
+    ObjectWriter writer =
+        objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    return outputStream -> {
+      try (JsonGenerator generator =
+          objectMapper
+              .getFactory()
+              .createGenerator(outputStream)
+              .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+              .setRootValueSeparator(null)) {
+        UserCursor next =
+            employeeService.streamUsersByPrefix(
+                prefix,
+                after,
+                pageSize,
+                user -> {
+                  writer.writeValue(generator, user);
+                  generator.writeRaw('\n');
+                });
+        if (next != null) {
+          generator.writeStartObject();
+          generator.writeStringField("nextCursor", next.encode());
+          generator.writeEndObject();
+          generator.writeRaw('\n');
+        }
+      } catch (SQLException e) {
+        throw new IOException("Directory search failed", e);
+      }
+    };
+  }
+
+  private StreamingResponseBody cborFrameDirectory(String prefix, UserCursor after, int pageSize) {
+    ObjectMapper cborMapper = cborHttpMessageConverter.getObjectMapper();
+
+    return outputStream -> {
+      FrameWriter frames = new FrameWriter(cborMapper, outputStream);
+      try {
+        UserCursor next =
+            employeeService.streamUsersByPrefix(prefix, after, pageSize, frames::write);
+        if (next != null) {
+          frames.write(Collections.singletonMap("nextCursor", next.encode()));
+        }
+      } catch (SQLException e) {
+        throw new IOException("Directory search failed", e);
+      }
+      frames.flush();
+    };
+  }
+
+  /**
+   * Whether CBOR frames are accepted with a higher quality than NDJSON, which answers a request
+   * without an {@code Accept} header, with a wildcard or with both at the same quality.
+   */
+  private static boolean prefersCborFrames(String accept) {
+    if (accept == null) {
+      return false;
+    }
+    List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+    return quality(accepted, APPLICATION_CBOR_FRAMES) > quality(accepted, APPLICATION_NDJSON);
+  }
+
+  /** The quality of the most specific accepted type that includes {@code produced}, or 0. */
+  private static double quality(List<MediaType> accepted, MediaType produced) {
+    MediaType best = null;
+    for (MediaType type : accepted) {
+      if (type.includes(produced)
+          && (best == null || MediaType.SPECIFICITY_COMPARATOR.compare(type, best) < 0)) {
+        best = type;
+      }
+    }
+    return best == null ? 0 : best.getQualityValue();
+  }
+
+  /**
+   * Bulk-loads users from a CSV or NDJSON request body. Rejected lines, progress after every commit
+   * and a final summary are written back as newline-delimited JSON events while the import runs.
+   */
+  @PostMapping(
+      value = "/user-import",
+      consumes = {"text/csv", APPLICATION_NDJSON_VALUE},
+      produces = APPLICATION_NDJSON_VALUE)
+  public void userImportExample(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    UserImportFormat format = UserImportFormat.fromContentType(request.getContentType());
+    response.setContentType(APPLICATION_NDJSON_VALUE);
+    OutputStream out = response.getOutputStream();
+
+    UserImportListener listener =
+        new UserImportListener() {
+          @Override
+          public void onReject(long line, String reason) throws IOException {
+            ObjectNode event = objectMapper.createObjectNode().put("event", "reject");
+            writeEvent(out, event.put("line", line).put("reason", reason));
+          }
+
+          @Override
+          public void onProgress(UserImportResult progress) throws IOException {
+            writeEvent(out, importEvent("progress", progress));
+          }
+        };
+
+    UserImportResult result =
+        userImportService.importUsers(request.getInputStream(), format, listener);
+    writeEvent(out, importEvent("summary", result));
+  }
+
+  private ObjectNode importEvent(String name, UserImportResult result) {
+    ObjectNode event = objectMapper.createObjectNode().put("event", name);
+    event.setAll((ObjectNode) objectMapper.valueToTree(result));
+    return event;
+  }
+
+  private void writeEvent(OutputStream out, ObjectNode event) throws IOException {
+    out.write(objectMapper.writeValueAsBytes(event));
+    out.write('\n');
+    out.flush();
+  }
+
+  /**
+   * Downloads the whole users table as CSV or NDJSON, optionally gzipped. {@code fields} limits the
+   * columns; the password is never exported.
+   */
+  @GetMapping("/user-export")
+  public void userExportExample(
+      @RequestParam(defaultValue = "csv") String format,
+      @RequestParam(required = false) String fields,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response)
+      throws IOException {
+    UserExportFormat exportFormat = UserExportFormat.fromName(format);
+    UserProjection projection =
+        fields == null ? UserProjection.SUMMARY : UserProjection.parse(fields);
+
+    String filename = "users." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+    if (gzip) {
+      response.setContentType("application/gzip");
+    } else {
+      response.setContentType(exportFormat.getMediaType());
+      response.setCharacterEncoding("UTF-8");
+    }
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+    OutputStream out = response.getOutputStream();
+    try {
+      if (gzip) {
+        GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+        userExportService.exportUsers(projection, exportFormat, compressed);
+        compressed.finish();
+      } else {
+        userExportService.exportUsers(projection, exportFormat, out);
+      }
+    } catch (SQLException e) {
+      throw new IOException("User export failed", e);
+    }
+  }
+
   @GetMapping("/render-content")
   public String renderContentExample(@RequestParam String userInput) {
     return "<html><body><h1>User Input:</h1><p>" + userInput + "</p></body></html>";
@@ -48,8 +313,71 @@ public class EmployeeController {
     return new ResponseEntity<>("Redirecting to: " + url, headers, HttpStatus.FOUND);
   }
 
+  /**
+   * Changes a user's email through the write-behind queue. With {@code ack=durable}, the default,
+   * the answer comes once the change is committed and is 404 for an unknown user; with {@code
+   * ack=async} it comes once the change is queued, as 202. A queue that stays full answers 503.
+   */
   @PostMapping("/update-account")
-  public String updateAccount(@RequestParam String username, @RequestParam String email) {
-    return "Account updated for user: " + username + " with email: " + email;
+  public ResponseEntity<String> updateAccount(
+      @RequestParam String username,
+      @RequestParam String email,
+      @RequestParam(defaultValue = "durable") String ack)
+      throws SQLException {
+    if ("async".equalsIgnoreCase(ack)) {
+      accountUpdateService.submit(username, email);
+      return ResponseEntity.accepted()
+          .body("Account update queued for user: " + username + " with email: " + email);
+    }
+    if (!"durable".equalsIgnoreCase(ack)) {
+      throw new IllegalArgumentException("ack must be durable or async");
+    }
+    if (!accountUpdateService.updateEmail(username, email)) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No such user: " + username);
+    }
+    return ResponseEntity.ok("Account updated for user: " + username + " with email: " + email);
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+
+  /**
+   * A shard missed the fan-out deadline, or an account update was not committed in time; either may
+   * well succeed on a retry.
+   */
+  @ExceptionHandler(SQLTimeoutException.class)
+  public ResponseEntity<String> handleSqlTimeout(SQLTimeoutException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(e.getMessage());
+  }
+
+  /**
+   * Any other database failure. A search that failed is answered as such, never as one that found
+   * nothing, and the driver's message stays in the log.
+   */
+  @ExceptionHandler(SQLException.class)
+  public ResponseEntity<String> handleSqlException(SQLException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body("The user store is unavailable");
+  }
+
+  /** The fuzzy search index is still waiting for its first load to succeed. */
+  @ExceptionHandler(UserSearchIndexUnavailableException.class)
+  public ResponseEntity<String> handleUserSearchIndexUnavailable(
+      UserSearchIndexUnavailableException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(e.getMessage());
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<String> handleRejectedExecution(RejectedExecutionException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(e.getMessage());
   }
 }
@@ -0,0 +1,75 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes documents as length-prefixed frames: a 4-byte big-endian length, then the document in the
+ * mapper's format. One generator encodes every document into a buffer that leaves room for the
+ * length, so each frame reaches the stream in a single write.
+ */
+public final class FrameWriter {
+
+  private final OutputStream out;
+  private final FrameBuffer frame = new FrameBuffer();
+  private final ObjectWriter writer;
+  private final JsonGenerator generator;
+
+  public FrameWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+    this.out = out;
+    this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.generator = mapper.getFactory().createGenerator(frame);
+  }
+
+  public void write(Object value) throws IOException {
+    writer.writeValue(generator, value);
+    generator.flush();
+    frame.writeTo(out);
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /** Unsynchronized, unlike {@link java.io.ByteArrayOutputStream}; the first 4 bytes are kept. */
+  private static final class FrameBuffer extends OutputStream {
+
+    private byte[] bytes = new byte[256];
+    private int count = 4;
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1);
+      bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(len);
+      System.arraycopy(b, off, bytes, count, len);
+      count += len;
+    }
+
+    private void ensureCapacity(int more) {
+      if (count + more > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + more));
+      }
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+      int length = count - 4;
+      bytes[0] = (byte) (length >>> 24);
+      bytes[1] = (byte) (length >>> 16);
+      bytes[2] = (byte) (length >>> 8);
+      bytes[3] = (byte) length;
+      out.write(bytes, 0, count);
+      count = 4;
+    }
+  }
+}
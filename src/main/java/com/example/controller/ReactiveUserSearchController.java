@@ -0,0 +1,57 @@
+package com.example.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.model.User;
+import com.example.service.EmployeeService;
+import com.example.service.ReactiveSearchUnsupportedException;
+import com.example.service.ReactiveUserSearchService;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking variants of the {@link EmployeeController} searches. Each returns as soon as the
+ * query is set up, releasing the request thread; the users are then written as newline-delimited
+ * JSON, one at a time, and the next row is only requested from the database once the previous one
+ * has been written.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+public class ReactiveUserSearchController {
+
+  private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  @Autowired private ReactiveUserSearchService reactiveUserSearchService;
+
+  @Autowired private EmployeeService employeeService;
+
+  @GetMapping(value = "/user-search", produces = APPLICATION_NDJSON_VALUE)
+  public Flux<User> userSearch(@RequestParam String username) {
+    return reactiveUserSearchService.findUserByUsername(username);
+  }
+
+  @GetMapping(value = "/user-directory", produces = APPLICATION_NDJSON_VALUE)
+  public Flux<User> userDirectory(
+      @RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+    return reactiveUserSearchService.findUsersByPrefix(
+        prefix, employeeService.directoryPageSize(limit));
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+
+  /** The store is sharded, and these searches only read {@code spring.datasource}. */
+  @ExceptionHandler(ReactiveSearchUnsupportedException.class)
+  public ResponseEntity<String> handleUnsupported(ReactiveSearchUnsupportedException e) {
+    return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(e.getMessage());
+  }
+}
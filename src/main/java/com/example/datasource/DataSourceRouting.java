@@ -0,0 +1,62 @@
+package com.example.datasource;
+
+/**
+ * Marks the queries run by the current thread as reads that a replica may serve, or as ones that
+ * must see the primary. Scopes nest; closing one restores the enclosing choice:
+ *
+ * <pre>
+ * try (DataSourceRouting.Scope scope = DataSourceRouting.replica()) {
+ *   // connections taken here come from a replica
+ * }
+ * </pre>
+ *
+ * Outside any scope, read-only transactions go to a replica and everything else to the primary.
+ */
+public final class DataSourceRouting {
+
+  private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+  private DataSourceRouting() {}
+
+  public static Scope replica() {
+    return enter(Boolean.TRUE);
+  }
+
+  public static Scope primary() {
+    return enter(Boolean.FALSE);
+  }
+
+  /** {@link #replica()} unless {@code mustSeeWrites}, e.g. right after the data was written. */
+  public static Scope replicaUnless(boolean mustSeeWrites) {
+    return mustSeeWrites ? primary() : replica();
+  }
+
+  /** The innermost open scope's choice, or null outside any scope. */
+  static Boolean current() {
+    return REPLICA.get();
+  }
+
+  /** Re-enters a choice read with {@link #current()}, e.g. on another thread. */
+  static Scope inherit(Boolean replica) {
+    return replica == null ? () -> {} : enter(replica);
+  }
+
+  private static Scope enter(Boolean replica) {
+    Boolean enclosing = REPLICA.get();
+    REPLICA.set(replica);
+    return () -> {
+      if (enclosing == null) {
+        REPLICA.remove();
+      } else {
+        REPLICA.set(enclosing);
+      }
+    };
+  }
+
+  /** Closes without throwing, so it can be used in try-with-resources without a catch. */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,211 @@
+package com.example.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out primary connections for writes and replica connections for reads. A read is a query in
+ * a {@link DataSourceRouting#replica()} scope or, outside any scope, in a read-only transaction
+ * while no user has been written within the {@link RecentWrites} window.
+ *
+ * <p>Reads rotate over the replicas. A replica that fails to hand out a connection is skipped for
+ * the retry interval, after which the next read tries it again; while every replica is skipped,
+ * reads go to the primary.
+ *
+ * <p>The decision is made when the connection is taken, so for JPA this must sit behind a {@link
+ * org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which takes it at the first
+ * statement, once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+  private final DataSource primary;
+  private final Replica[] replicas;
+  private final long retryIntervalNanos;
+  private final RecentWrites recentWrites;
+  private final AtomicInteger next = new AtomicInteger();
+  private final LongAdder primaryConnections = new LongAdder();
+  private final LongAdder replicaFallbacks = new LongAdder();
+
+  /** {@code replicas} maps names, used in logs and diagnostics, to replica pools, in order. */
+  public ReadWriteRoutingDataSource(
+      DataSource primary,
+      Map<String, DataSource> replicas,
+      Duration retryInterval,
+      RecentWrites recentWrites) {
+    this.primary = primary;
+    this.replicas = new Replica[replicas.size()];
+    int i = 0;
+    for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+      this.replicas[i++] = new Replica(replica.getKey(), replica.getValue());
+    }
+    this.retryIntervalNanos = retryInterval.toNanos();
+    this.recentWrites = recentWrites;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!isRead()) {
+      primaryConnections.increment();
+      return primary.getConnection();
+    }
+    int start = next.getAndIncrement();
+    long now = System.nanoTime();
+    for (int i = 0; i < replicas.length; i++) {
+      Replica replica = replicas[Math.floorMod(start + i, replicas.length)];
+      if (!replica.isAvailable(now)) {
+        continue;
+      }
+      try {
+        Connection connection = replica.dataSource.getConnection();
+        replica.connections.increment();
+        replica.downUntilNanos.set(0);
+        return connection;
+      } catch (SQLException e) {
+        replica.failures.increment();
+        replica.downUntilNanos.set(System.nanoTime() + retryIntervalNanos);
+        log.warn(
+            "Replica {} unavailable, skipping it for {} ms: {}",
+            replica.name,
+            Duration.ofNanos(retryIntervalNanos).toMillis(),
+            e.getMessage());
+      }
+    }
+    replicaFallbacks.increment();
+    primaryConnections.increment();
+    return primary.getConnection();
+  }
+
+  /** Closes the replica pools; the primary belongs to whoever created it. */
+  public void close() throws Exception {
+    for (Replica replica : replicas) {
+      if (replica.dataSource instanceof AutoCloseable) {
+        ((AutoCloseable) replica.dataSource).close();
+      }
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Credentials are fixed per pool");
+  }
+
+  private boolean isRead() {
+    if (replicas.length == 0) {
+      return false;
+    }
+    Boolean scope = DataSourceRouting.current();
+    if (scope != null) {
+      return scope;
+    }
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        && !recentWrites.isAnyRecent();
+  }
+
+  public Snapshot snapshot() {
+    List<ReplicaSnapshot> replicaSnapshots = new ArrayList<>();
+    long now = System.nanoTime();
+    for (Replica replica : replicas) {
+      replicaSnapshots.add(
+          new ReplicaSnapshot(
+              replica.name,
+              replica.isAvailable(now),
+              replica.connections.sum(),
+              replica.failures.sum()));
+    }
+    return new Snapshot(primaryConnections.sum(), replicaFallbacks.sum(), replicaSnapshots);
+  }
+
+  private static final class Replica {
+
+    final String name;
+    final DataSource dataSource;
+    final AtomicLong downUntilNanos = new AtomicLong();
+    final LongAdder connections = new LongAdder();
+    final LongAdder failures = new LongAdder();
+
+    Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+
+    boolean isAvailable(long now) {
+      long downUntil = downUntilNanos.get();
+      return downUntil == 0 || now - downUntil >= 0;
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final long primaryConnections;
+    private final long replicaFallbacks;
+    private final List<ReplicaSnapshot> replicas;
+
+    Snapshot(long primaryConnections, long replicaFallbacks, List<ReplicaSnapshot> replicas) {
+      this.primaryConnections = primaryConnections;
+      this.replicaFallbacks = replicaFallbacks;
+      this.replicas = replicas;
+    }
+
+    /** Connections taken from the primary: writes, reads that must see them, and fallbacks. */
+    public long getPrimaryConnections() {
+      return primaryConnections;
+    }
+
+    /** Reads sent to the primary because no replica was available. */
+    public long getReplicaFallbacks() {
+      return replicaFallbacks;
+    }
+
+    public List<ReplicaSnapshot> getReplicas() {
+      return replicas;
+    }
+  }
+
+  public static final class ReplicaSnapshot {
+
+    private final String name;
+    private final boolean available;
+    private final long connections;
+    private final long failures;
+
+    ReplicaSnapshot(String name, boolean available, long connections, long failures) {
+      this.name = name;
+      this.available = available;
+      this.connections = connections;
+      this.failures = failures;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isAvailable() {
+      return available;
+    }
+
+    public long getConnections() {
+      return connections;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+  }
+}
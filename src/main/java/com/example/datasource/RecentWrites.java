@@ -0,0 +1,80 @@
+package com.example.datasource;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.example.config.DataSourceRoutingProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * The usernames written within the read-your-writes window, whose reads must go to the primary
+ * until the replicas have caught up. Entries expire on their own; the number remembered is bounded,
+ * and beyond it every read is sent to the primary until the window passes, rather than risk a stale
+ * one.
+ */
+@Component
+public class RecentWrites {
+
+  private static final int MAXIMUM_TRACKED = 100_000;
+
+  private final long windowNanos;
+  private final Cache<String, Boolean> usernames;
+  private final AtomicLong lastWriteNanos = new AtomicLong(System.nanoTime() - Long.MAX_VALUE / 2);
+  private final AtomicLong overflowUntilNanos = new AtomicLong(lastWriteNanos.get());
+
+  public RecentWrites(DataSourceRoutingProperties properties) {
+    Duration window = properties.getReadYourWritesWindow();
+    this.windowNanos = window.toNanos();
+    this.usernames =
+        Caffeine.newBuilder()
+            .expireAfterWrite(windowNanos, TimeUnit.NANOSECONDS)
+            .maximumSize(MAXIMUM_TRACKED)
+            .build();
+  }
+
+  public void record(String username) {
+    if (windowNanos <= 0 || username == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    lastWriteNanos.set(now);
+    if (usernames.estimatedSize() >= MAXIMUM_TRACKED) {
+      overflowUntilNanos.set(now + windowNanos);
+    }
+    usernames.put(username, Boolean.TRUE);
+  }
+
+  /** Whether reads of {@code username} must still go to the primary. */
+  public boolean isRecent(String username) {
+    return windowNanos > 0 && (overflowing() || usernames.getIfPresent(username) != null);
+  }
+
+  public boolean isAnyRecent(Collection<String> usernames) {
+    if (windowNanos <= 0) {
+      return false;
+    }
+    if (overflowing()) {
+      return true;
+    }
+    for (String username : usernames) {
+      if (this.usernames.getIfPresent(username) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether any user was written within the window, for reads that cannot name their users. */
+  public boolean isAnyRecent() {
+    return windowNanos > 0 && System.nanoTime() - lastWriteNanos.get() < windowNanos;
+  }
+
+  private boolean overflowing() {
+    return System.nanoTime() - overflowUntilNanos.get() < 0;
+  }
+}
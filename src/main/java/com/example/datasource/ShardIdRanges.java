@@ -0,0 +1,74 @@
+package com.example.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps user ids unique across shards. Each shard's {@code users_seq} must count within its own
+ * range of {@link #IDS_PER_SHARD} ids, shard n from {@code n * IDS_PER_SHARD + 1}; {@link #verify}
+ * fails startup when one does not. Ids are handed out in blocks from whichever shard's sequence was
+ * read last, so an id says nothing about the shard its user is on, only that no other user has it.
+ */
+public class ShardIdRanges {
+
+  public static final long IDS_PER_SHARD = 1_000_000_000_000L;
+
+  private final DataSource dataSource;
+  private final UserShards userShards;
+  private final String nextValueSql;
+
+  /**
+   * @param dataSource connections to the shard of the current {@link UserShards} scope
+   * @param nextValueSql the database's query for the next value of {@code users_seq}
+   */
+  public ShardIdRanges(DataSource dataSource, UserShards userShards, String nextValueSql) {
+    this.dataSource = dataSource;
+    this.userShards = userShards;
+    this.nextValueSql = nextValueSql;
+  }
+
+  public static long firstId(int shard) {
+    return shard * IDS_PER_SHARD + 1;
+  }
+
+  /**
+   * Reads the next value of every shard's {@code users_seq}, which skips one block of ids on each.
+   *
+   * @throws IllegalStateException if a shard's sequence is outside that shard's range
+   */
+  public void verify() throws SQLException {
+    for (int shard = 0; shard < userShards.count(); shard++) {
+      long next = nextValue(shard);
+      long first = firstId(shard);
+      long last = first + IDS_PER_SHARD - 1;
+      if (next < first || next > last) {
+        throw new IllegalStateException(
+            "users_seq on shard "
+                + shard
+                + " is at "
+                + next
+                + ", outside the shard's ids "
+                + first
+                + " to "
+                + last
+                + "; restart it at "
+                + first
+                + " or above so that ids stay unique across shards");
+      }
+    }
+  }
+
+  private long nextValue(int shard) throws SQLException {
+    try (DataSourceRouting.Scope scope = userShards.on(shard);
+        Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rows = statement.executeQuery(nextValueSql)) {
+      rows.next();
+      return rows.getLong(1);
+    }
+  }
+}
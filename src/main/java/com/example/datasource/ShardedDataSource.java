@@ -0,0 +1,47 @@
+package com.example.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Hands out connections to the shard of the current {@link UserShards} scope, shard 0 outside any.
+ * Like the {@link ReadWriteRoutingDataSource}, the choice is made when the connection is taken, so
+ * for JPA this sits behind a {@link
+ * org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} and a transaction lands on the
+ * shard of its first statement.
+ */
+public class ShardedDataSource extends AbstractDataSource implements AutoCloseable {
+
+  private final DataSource[] shards;
+
+  /** {@code shards} in shard order; the first is {@code spring.datasource}. */
+  public ShardedDataSource(List<DataSource> shards) {
+    this.shards = shards.toArray(new DataSource[0]);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return shards[UserShards.current()].getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Credentials are fixed per pool");
+  }
+
+  /** Closes the pools of shards 1 to N; shard 0 belongs to whoever created it. */
+  @Override
+  public void close() throws Exception {
+    for (int i = 1; i < shards.length; i++) {
+      if (shards[i] instanceof AutoCloseable) {
+        ((AutoCloseable) shards[i]).close();
+      }
+    }
+  }
+}
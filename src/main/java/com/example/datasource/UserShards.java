@@ -0,0 +1,304 @@
+package com.example.datasource;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import com.example.config.ShardingProperties;
+
+/**
+ * Places each user on one of the shards by a hash of the username, and marks which shard the
+ * current thread's queries go to. Connections taken in a scope come from that shard:
+ *
+ * <pre>
+ * try (DataSourceRouting.Scope scope = userShards.on(username)) {
+ *   // connections taken here come from the shard holding username
+ * }
+ * </pre>
+ *
+ * Outside any scope they come from shard 0, {@code spring.datasource}. Searches that cannot be
+ * keyed by username are {@linkplain #scatter scattered} over every shard in parallel. Without
+ * {@code employee.sharding.shards} there is a single shard and both are free.
+ */
+@Component
+public class UserShards {
+
+  private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+  /** Searches the default fan-out queue holds: as many as Tomcat has request threads by default. */
+  private static final int DEFAULT_QUEUED_SEARCHES = 200;
+
+  private final int count;
+  private final long fanOutTimeoutNanos;
+  private final ThreadPoolExecutor executor;
+  private final LongAdder fanOuts = new LongAdder();
+  private final LongAdder fanOutTimeouts = new LongAdder();
+  private final LongAdder fanOutFailures = new LongAdder();
+  private final LongAdder fanOutRejections = new LongAdder();
+
+  public UserShards(ShardingProperties properties) {
+    this.count = 1 + properties.getShards().size();
+    this.fanOutTimeoutNanos = properties.getFanOutTimeout().toNanos();
+    int threads = Math.max(1, properties.getFanOutThreads());
+    int queueCapacity =
+        properties.getFanOutQueueCapacity() != null
+            ? properties.getFanOutQueueCapacity()
+            : DEFAULT_QUEUED_SEARCHES * count;
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException(
+          "employee.sharding.fan-out-queue-capacity must be at least 1, not " + queueCapacity);
+    }
+    // A full queue fails the search at once: a query run on the caller would not be bounded by
+    // the deadline, and would hold back the submission of the remaining shards
+    this.executor =
+        count == 1
+            ? null
+            : new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory("user-shard"),
+                new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  public int count() {
+    return count;
+  }
+
+  /**
+   * The shard holding {@code username}. The hash is part of the stored layout: changing it, or the
+   * number of shards, strands users on shards their lookups no longer go to.
+   */
+  public int shardOf(String username) {
+    if (count == 1 || username == null) {
+      return 0;
+    }
+    int hash = username.hashCode();
+    // Murmur3's finalizer, so usernames differing only in their last characters spread evenly
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return Math.floorMod(hash, count);
+  }
+
+  /** Sends the current thread's connections to the shard holding {@code username}. */
+  public DataSourceRouting.Scope on(String username) {
+    return on(shardOf(username));
+  }
+
+  public DataSourceRouting.Scope on(int shard) {
+    if (shard < 0 || shard >= count) {
+      throw new IllegalArgumentException("No shard " + shard + " among " + count);
+    }
+    Integer enclosing = SHARD.get();
+    SHARD.set(shard);
+    return () -> {
+      if (enclosing == null) {
+        SHARD.remove();
+      } else {
+        SHARD.set(enclosing);
+      }
+    };
+  }
+
+  /** The innermost open scope's shard, or 0 outside any scope. */
+  static int current() {
+    Integer shard = SHARD.get();
+    return shard == null ? 0 : shard;
+  }
+
+  /**
+   * Runs {@code task} once per shard, each in that shard's scope and in parallel, and returns the
+   * results by shard. The caller's {@link DataSourceRouting} choice is carried to every task.
+   *
+   * <p>If any shard fails, or they have not all answered within {@code
+   * employee.sharding.fan-out-timeout}, the whole search fails: a partial answer would look
+   * complete. Results already returned, and those of shards still running, are then handed to
+   * {@code discard} so that they can release what they hold.
+   *
+   * @throws SQLTimeoutException if a shard missed the deadline
+   * @throws RejectedExecutionException if {@code employee.sharding.fan-out-threads} are busy and
+   *     {@code employee.sharding.fan-out-queue-capacity} queries already wait for them
+   */
+  public <T> List<T> scatter(ShardTask<T> task, Consumer<? super T> discard) throws SQLException {
+    if (count == 1) {
+      return Collections.singletonList(task.run(0));
+    }
+    fanOuts.increment();
+    Boolean replica = DataSourceRouting.current();
+    long deadline = System.nanoTime() + fanOutTimeoutNanos;
+    List<CompletableFuture<T>> futures = new ArrayList<>(count);
+    try {
+      for (int shard = 0; shard < count; shard++) {
+        int index = shard;
+        futures.add(CompletableFuture.supplyAsync(() -> run(index, replica, task), executor));
+      }
+    } catch (RejectedExecutionException e) {
+      fanOutRejections.increment();
+      abandon(Collections.emptyList(), futures, discard);
+      throw new RejectedExecutionException("Too many searches are waiting for shards", e);
+    }
+
+    List<T> results = new ArrayList<>(count);
+    for (int shard = 0; shard < count; shard++) {
+      try {
+        long remaining = Math.max(0, deadline - System.nanoTime());
+        results.add(futures.get(shard).get(remaining, TimeUnit.NANOSECONDS));
+      } catch (TimeoutException e) {
+        fanOutTimeouts.increment();
+        List<Integer> late = new ArrayList<>();
+        for (int i = shard; i < count; i++) {
+          if (!futures.get(i).isDone()) {
+            late.add(i);
+          }
+        }
+        abandon(results, futures, discard);
+        throw new SQLTimeoutException(
+            "Shards "
+                + late
+                + " did not answer within "
+                + Duration.ofNanos(fanOutTimeoutNanos).toMillis()
+                + " ms");
+      } catch (ExecutionException e) {
+        fanOutFailures.increment();
+        abandon(results, futures, discard);
+        throw rethrow(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        abandon(results, futures, discard);
+        throw new SQLException("Interrupted waiting for shards", e);
+      }
+    }
+    return results;
+  }
+
+  /** {@link #scatter(ShardTask, Consumer)} for results that hold nothing to release. */
+  public <T> List<T> scatter(ShardTask<T> task) throws SQLException {
+    return scatter(task, result -> {});
+  }
+
+  private <T> T run(int shard, Boolean replica, ShardTask<T> task) {
+    try (DataSourceRouting.Scope routing = DataSourceRouting.inherit(replica);
+        DataSourceRouting.Scope scope = on(shard)) {
+      return task.run(shard);
+    } catch (SQLException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static <T> void abandon(
+      List<T> results, List<CompletableFuture<T>> futures, Consumer<? super T> discard) {
+    results.forEach(discard);
+    // Tasks cannot be stopped part way through a query; release what they return once they do
+    for (int i = results.size(); i < futures.size(); i++) {
+      futures.get(i).thenAccept(discard);
+    }
+  }
+
+  private static SQLException rethrow(Throwable failure) {
+    if (failure instanceof SQLException) {
+      return (SQLException) failure;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    return new SQLException(failure);
+  }
+
+  private static ThreadFactory threadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+      thread.setName(name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @PreDestroy
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(
+        count, fanOuts.sum(), fanOutTimeouts.sum(), fanOutFailures.sum(), fanOutRejections.sum());
+  }
+
+  /** A query against one shard. */
+  @FunctionalInterface
+  public interface ShardTask<T> {
+    T run(int shard) throws SQLException;
+  }
+
+  public static final class Snapshot {
+
+    private final int shards;
+    private final long fanOuts;
+    private final long fanOutTimeouts;
+    private final long fanOutFailures;
+    private final long fanOutRejections;
+
+    Snapshot(
+        int shards, long fanOuts, long fanOutTimeouts, long fanOutFailures, long fanOutRejections) {
+      this.shards = shards;
+      this.fanOuts = fanOuts;
+      this.fanOutTimeouts = fanOutTimeouts;
+      this.fanOutFailures = fanOutFailures;
+      this.fanOutRejections = fanOutRejections;
+    }
+
+    public int getShards() {
+      return shards;
+    }
+
+    /** Searches scattered over every shard since startup. */
+    public long getFanOuts() {
+      return fanOuts;
+    }
+
+    /** Of those, searches failed because a shard missed the deadline. */
+    public long getFanOutTimeouts() {
+      return fanOutTimeouts;
+    }
+
+    /** Of those, searches failed because a shard failed. */
+    public long getFanOutFailures() {
+      return fanOutFailures;
+    }
+
+    /** Of those, searches turned away because the fan-out threads and their queue were full. */
+    public long getFanOutRejections() {
+      return fanOutRejections;
+    }
+  }
+}
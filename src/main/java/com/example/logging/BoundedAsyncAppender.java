@@ -0,0 +1,221 @@
+package com.example.logging;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+/**
+ * Hands events to the attached appenders on a single background thread through a bounded queue, so
+ * a logging thread never waits on the console or a file. The queue's lock is shared by every
+ * logging thread and the worker, but is held only to add or take events, never during I/O. When the
+ * queue is full the event is dropped rather than blocking the caller; once fewer than {@code
+ * discardingThreshold} slots remain, INFO and below are dropped so that warnings and errors keep
+ * the last slots. Every drop is counted by level.
+ */
+public class BoundedAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+    implements AppenderAttachable<ILoggingEvent> {
+
+  private static final Level[] LEVELS = {
+    Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR
+  };
+
+  private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+  private final LongAdder[] dropped = new LongAdder[LEVELS.length];
+  private final LongAdder appended = new LongAdder();
+
+  private int queueSize = 1024;
+  private int discardingThreshold = -1;
+  private int maxFlushTime = 1000;
+
+  private BlockingQueue<ILoggingEvent> queue;
+  private Thread worker;
+
+  public BoundedAsyncAppender() {
+    for (int i = 0; i < dropped.length; i++) {
+      dropped[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void start() {
+    if (isStarted()) {
+      return;
+    }
+    if (!appenders.iteratorForAppenders().hasNext()) {
+      addError("No appender attached to " + getName());
+      return;
+    }
+    if (queueSize < 1) {
+      addError("Invalid queueSize " + queueSize);
+      return;
+    }
+    if (discardingThreshold < 0) {
+      discardingThreshold = queueSize / 5;
+    }
+    queue = new ArrayBlockingQueue<>(queueSize);
+    worker = new Thread(this::drain, "logback-async-" + getName());
+    worker.setDaemon(true);
+    super.start();
+    worker.start();
+  }
+
+  @Override
+  public void stop() {
+    if (!isStarted()) {
+      return;
+    }
+    // The worker exits once it finds the queue empty with the appender stopped
+    super.stop();
+    try {
+      worker.join(maxFlushTime);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (worker.isAlive()) {
+      addWarn(queue.size() + " events still queued after " + maxFlushTime + " ms; discarding");
+    }
+    appenders.detachAndStopAllAppenders();
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    if (queue.remainingCapacity() < discardingThreshold
+        && event.getLevel().toInt() < Level.WARN_INT) {
+      drop(event);
+      return;
+    }
+    // Capture what the worker cannot: the caller's MDC and the formatted message
+    event.prepareForDeferredProcessing();
+    if (queue.offer(event)) {
+      appended.increment();
+    } else {
+      drop(event);
+    }
+  }
+
+  private void drop(ILoggingEvent event) {
+    dropped[index(event.getLevel())].increment();
+  }
+
+  private void drain() {
+    while (true) {
+      ILoggingEvent event;
+      try {
+        event = queue.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (event != null) {
+        try {
+          appenders.appendLoopOnAppenders(event);
+        } catch (RuntimeException e) {
+          addError("Appender failed", e);
+        }
+      } else if (!isStarted()) {
+        return;
+      }
+    }
+  }
+
+  /** Events dropped at {@code level} since startup. */
+  public long getDropped(Level level) {
+    return dropped[index(level)].sum();
+  }
+
+  public long getDroppedTotal() {
+    long total = 0;
+    for (LongAdder counter : dropped) {
+      total += counter.sum();
+    }
+    return total;
+  }
+
+  /** Events accepted into the queue since startup. */
+  public long getAppended() {
+    return appended.sum();
+  }
+
+  /** Events waiting for the worker. */
+  public int getQueued() {
+    return queue == null ? 0 : queue.size();
+  }
+
+  private static int index(Level level) {
+    for (int i = LEVELS.length - 1; i > 0; i--) {
+      if (level.toInt() >= LEVELS[i].toInt()) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  public int getDiscardingThreshold() {
+    return discardingThreshold;
+  }
+
+  /** Free slots below which INFO and lower are dropped; defaults to a fifth of the queue. */
+  public void setDiscardingThreshold(int discardingThreshold) {
+    this.discardingThreshold = discardingThreshold;
+  }
+
+  public int getMaxFlushTime() {
+    return maxFlushTime;
+  }
+
+  /** Milliseconds {@link #stop()} waits for queued events to be written. */
+  public void setMaxFlushTime(int maxFlushTime) {
+    this.maxFlushTime = maxFlushTime;
+  }
+
+  @Override
+  public void addAppender(Appender<ILoggingEvent> appender) {
+    appenders.addAppender(appender);
+  }
+
+  @Override
+  public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+    return appenders.iteratorForAppenders();
+  }
+
+  @Override
+  public Appender<ILoggingEvent> getAppender(String name) {
+    return appenders.getAppender(name);
+  }
+
+  @Override
+  public boolean isAttached(Appender<ILoggingEvent> appender) {
+    return appenders.isAttached(appender);
+  }
+
+  @Override
+  public void detachAndStopAllAppenders() {
+    appenders.detachAndStopAllAppenders();
+  }
+
+  @Override
+  public boolean detachAppender(Appender<ILoggingEvent> appender) {
+    return appenders.detachAppender(appender);
+  }
+
+  @Override
+  public boolean detachAppender(String name) {
+    return appenders.detachAppender(name);
+  }
+}
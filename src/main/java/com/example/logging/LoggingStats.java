@@ -0,0 +1,184 @@
+package com.example.logging;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Reads the counters of the {@link BoundedAsyncAppender}s and {@link RepeatedEventFilter}s in the
+ * Logback configuration. They are looked up on every read, as Spring Boot reconfigures Logback
+ * while the application starts.
+ */
+@Component
+public class LoggingStats implements MeterBinder {
+
+  private static final Level[] DROP_LEVELS = {Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG};
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (Level level : DROP_LEVELS) {
+      FunctionCounter.builder("logging.async.dropped", this, stats -> stats.dropped(level))
+          .description("Log events dropped because the async appender's queue was full")
+          .tag("level", level.toString().toLowerCase())
+          .register(registry);
+    }
+    Gauge.builder("logging.async.queued", this, stats -> stats.snapshot().getQueued())
+        .description("Log events waiting to be written")
+        .register(registry);
+    FunctionCounter.builder(
+            "logging.repeats.suppressed", this, stats -> stats.snapshot().getSuppressedRepeats())
+        .description("Repeated warnings and errors that were not logged")
+        .register(registry);
+  }
+
+  public Snapshot snapshot() {
+    int queueSize = 0;
+    int queued = 0;
+    long appended = 0;
+    for (BoundedAsyncAppender appender : appenders()) {
+      queueSize += appender.getQueueSize();
+      queued += appender.getQueued();
+      appended += appender.getAppended();
+    }
+    long suppressed = 0;
+    for (RepeatedEventFilter filter : filters()) {
+      suppressed += filter.getSuppressed();
+    }
+    return new Snapshot(
+        queueSize,
+        queued,
+        appended,
+        dropped(Level.ERROR),
+        dropped(Level.WARN),
+        dropped(Level.INFO),
+        dropped(Level.DEBUG),
+        suppressed);
+  }
+
+  /** Drops at {@code level}; DEBUG includes TRACE. */
+  private long dropped(Level level) {
+    long dropped = 0;
+    for (BoundedAsyncAppender appender : appenders()) {
+      dropped += appender.getDropped(level);
+      if (level == Level.DEBUG) {
+        dropped += appender.getDropped(Level.TRACE);
+      }
+    }
+    return dropped;
+  }
+
+  private static List<BoundedAsyncAppender> appenders() {
+    List<BoundedAsyncAppender> appenders = new ArrayList<>();
+    LoggerContext context = context();
+    if (context == null) {
+      return appenders;
+    }
+    for (Logger logger : context.getLoggerList()) {
+      Iterator<Appender<ILoggingEvent>> iterator = logger.iteratorForAppenders();
+      while (iterator.hasNext()) {
+        Appender<ILoggingEvent> appender = iterator.next();
+        if (appender instanceof BoundedAsyncAppender && !appenders.contains(appender)) {
+          appenders.add((BoundedAsyncAppender) appender);
+        }
+      }
+    }
+    return appenders;
+  }
+
+  private static List<RepeatedEventFilter> filters() {
+    List<RepeatedEventFilter> filters = new ArrayList<>();
+    LoggerContext context = context();
+    if (context == null) {
+      return filters;
+    }
+    for (TurboFilter filter : context.getTurboFilterList()) {
+      if (filter instanceof RepeatedEventFilter) {
+        filters.add((RepeatedEventFilter) filter);
+      }
+    }
+    return filters;
+  }
+
+  private static LoggerContext context() {
+    ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+    return factory instanceof LoggerContext ? (LoggerContext) factory : null;
+  }
+
+  public static final class Snapshot {
+
+    private final int queueSize;
+    private final int queued;
+    private final long appended;
+    private final long droppedError;
+    private final long droppedWarn;
+    private final long droppedInfo;
+    private final long droppedDebug;
+    private final long suppressedRepeats;
+
+    Snapshot(
+        int queueSize,
+        int queued,
+        long appended,
+        long droppedError,
+        long droppedWarn,
+        long droppedInfo,
+        long droppedDebug,
+        long suppressedRepeats) {
+      this.queueSize = queueSize;
+      this.queued = queued;
+      this.appended = appended;
+      this.droppedError = droppedError;
+      this.droppedWarn = droppedWarn;
+      this.droppedInfo = droppedInfo;
+      this.droppedDebug = droppedDebug;
+      this.suppressedRepeats = suppressedRepeats;
+    }
+
+    public int getQueueSize() {
+      return queueSize;
+    }
+
+    public int getQueued() {
+      return queued;
+    }
+
+    public long getAppended() {
+      return appended;
+    }
+
+    public long getDroppedError() {
+      return droppedError;
+    }
+
+    public long getDroppedWarn() {
+      return droppedWarn;
+    }
+
+    public long getDroppedInfo() {
+      return droppedInfo;
+    }
+
+    public long getDroppedDebug() {
+      return droppedDebug;
+    }
+
+    public long getSuppressedRepeats() {
+      return suppressedRepeats;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package com.example.logging;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Rate-limits repeated warnings and errors. Events are considered repeats when they come from the
+ * same logger with the same message pattern and exception type, whatever their arguments; up to
+ * {@code burst} of them are logged per {@code window}, the rest are denied before an event is even
+ * created. The first repeat in a new window is preceded by a count of those suppressed in the
+ * previous one.
+ */
+public class RepeatedEventFilter extends TurboFilter {
+
+  private static final String FQCN = RepeatedEventFilter.class.getName();
+
+  private static final ThreadLocal<Boolean> REPORTING = new ThreadLocal<>();
+
+  private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+  private final LongAdder suppressed = new LongAdder();
+
+  private long window = 10_000;
+  private int burst = 5;
+  private int maxKeys = 1000;
+
+  @Override
+  public FilterReply decide(
+      Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+    // Level checks such as isDebugEnabled() arrive without a format
+    if (format == null || level == null || level.toInt() < Level.WARN_INT) {
+      return FilterReply.NEUTRAL;
+    }
+    if (REPORTING.get() != null) {
+      return FilterReply.NEUTRAL;
+    }
+    Throwable throwable = t != null ? t : lastThrowable(params);
+    Key key = new Key(logger.getName(), format, throwable == null ? null : throwable.getClass());
+    Window state = windows.get(key);
+    if (state == null) {
+      if (windows.size() >= maxKeys) {
+        // Unbounded message patterns; stop tracking new ones rather than grow without limit
+        return FilterReply.NEUTRAL;
+      }
+      state = windows.computeIfAbsent(key, k -> new Window(System.nanoTime()));
+    }
+
+    long now = System.nanoTime();
+    long start = state.start.get();
+    if (now - start >= TimeUnit.MILLISECONDS.toNanos(window)
+        && state.start.compareAndSet(start, now)) {
+      state.count.set(0);
+      int previous = state.suppressed.getAndSet(0);
+      if (previous > 0) {
+        report(logger, level, format, previous);
+      }
+    }
+    if (state.count.incrementAndGet() <= burst) {
+      return FilterReply.NEUTRAL;
+    }
+    state.suppressed.incrementAndGet();
+    suppressed.increment();
+    return FilterReply.DENY;
+  }
+
+  private void report(Logger logger, Level level, String format, int count) {
+    REPORTING.set(Boolean.TRUE);
+    try {
+      logger.log(
+          null,
+          FQCN,
+          Level.toLocationAwareLoggerInteger(level),
+          "Suppressed {} repeats of \"{}\" beyond {} per {} ms",
+          new Object[] {count, format, burst, window},
+          null);
+    } finally {
+      REPORTING.remove();
+    }
+  }
+
+  private static Throwable lastThrowable(Object[] params) {
+    if (params == null || params.length == 0) {
+      return null;
+    }
+    Object last = params[params.length - 1];
+    return last instanceof Throwable ? (Throwable) last : null;
+  }
+
+  /** Events denied since startup. */
+  public long getSuppressed() {
+    return suppressed.sum();
+  }
+
+  public long getWindow() {
+    return window;
+  }
+
+  /** Milliseconds over which {@code burst} repeats are allowed. */
+  public void setWindow(long window) {
+    this.window = window;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public void setBurst(int burst) {
+    this.burst = burst;
+  }
+
+  public int getMaxKeys() {
+    return maxKeys;
+  }
+
+  /** Distinct logger, pattern and exception combinations tracked. */
+  public void setMaxKeys(int maxKeys) {
+    this.maxKeys = maxKeys;
+  }
+
+  private static final class Window {
+
+    final AtomicLong start;
+    final AtomicInteger count = new AtomicInteger();
+    final AtomicInteger suppressed = new AtomicInteger();
+
+    Window(long start) {
+      this.start = new AtomicLong(start);
+    }
+  }
+
+  private static final class Key {
+
+    private final String logger;
+    private final String format;
+    private final Class<?> exception;
+    private final int hash;
+
+    Key(String logger, String format, Class<?> exception) {
+      this.logger = logger;
+      this.format = format;
+      this.exception = exception;
+      this.hash = 31 * (31 * logger.hashCode() + format.hashCode()) + Objects.hashCode(exception);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return logger.equals(key.logger)
+          && format.equals(key.format)
+          && Objects.equals(exception, key.exception);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -1,23 +1,52 @@
 package com.example.model;
 
+import java.time.Instant;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import com.example.service.UserCacheInvalidationListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
-@Table(name = "users")
+@Table(
+    name = "users",
+    indexes = {
+      @Index(name = "idx_users_username", columnList = "username, id"),
+      @Index(name = "idx_users_updated_at", columnList = "updated_at")
+    })
+@EntityListeners(UserCacheInvalidationListener.class)
 public class User {
 
+  // A pooled sequence hands out ids in blocks, which lets inserts be batched; IDENTITY cannot
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
   private Long id;
 
   private String username;
   private String password;
   private String email;
 
+  // Stamped by the database on every insert and update, whoever writes the row, so that
+  // UserSnapshotService can read only the rows changed since its last refresh. ON UPDATE is an
+  // H2 and MySQL extension; elsewhere only writers that set the column, such as
+  // AccountUpdateService, move it forward
+  @JsonIgnore
+  @Column(
+      name = "updated_at",
+      insertable = false,
+      updatable = false,
+      columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP")
+  private Instant updatedAt;
+
   // Default constructor required by JPA
   public User() {}
 
@@ -61,6 +90,10 @@ public class User {
     this.email = email;
   }
 
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
   @Override
   public String toString() {
     return "User [id=" + id + ", username=" + username + ", email=" + email + "]";
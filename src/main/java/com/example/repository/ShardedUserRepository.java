@@ -0,0 +1,22 @@
+package com.example.repository;
+
+import java.util.List;
+
+import com.example.model.User;
+
+/**
+ * The {@link UserRepository} methods that follow a user to its shard; see {@link
+ * com.example.datasource.UserShards}. On a sharded store each call runs in a transaction of its own
+ * on that shard, apart from any the caller has open. Ids are unique across shards; see {@link
+ * com.example.datasource.ShardIdRanges}.
+ */
+public interface ShardedUserRepository {
+
+  /** Read-only, so a replica serves it when replicas are configured. */
+  User findByUsername(String username);
+
+  <S extends User> S save(S user);
+
+  /** Saves the users shard by shard, one transaction per shard. */
+  <S extends User> List<S> saveAll(Iterable<S> users);
+}
@@ -0,0 +1,100 @@
+package com.example.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.datasource.DataSourceRouting;
+import com.example.datasource.UserShards;
+import com.example.model.User;
+
+class ShardedUserRepositoryImpl implements ShardedUserRepository {
+
+  private static final String BY_USERNAME = "SELECT u FROM User u WHERE u.username = :username";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  private final UserShards userShards;
+  private final TransactionTemplate reads;
+  private final TransactionTemplate writes;
+
+  ShardedUserRepositoryImpl(PlatformTransactionManager transactionManager, UserShards userShards) {
+    this.userShards = userShards;
+    // A transaction keeps the connection of its first statement, so one already open elsewhere
+    // may be on another shard
+    int propagation =
+        userShards.count() == 1
+            ? TransactionDefinition.PROPAGATION_REQUIRED
+            : TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+    this.reads = new TransactionTemplate(transactionManager);
+    this.reads.setPropagationBehavior(propagation);
+    this.reads.setReadOnly(true);
+    this.writes = new TransactionTemplate(transactionManager);
+    this.writes.setPropagationBehavior(propagation);
+  }
+
+  @Override
+  public User findByUsername(String username) {
+    try (DataSourceRouting.Scope scope = userShards.on(username)) {
+      List<User> users =
+          reads.execute(
+              status ->
+                  entityManager
+                      .createQuery(BY_USERNAME, User.class)
+                      .setParameter("username", username)
+                      .setMaxResults(2)
+                      .getResultList());
+      if (users.size() > 1) {
+        throw new IncorrectResultSizeDataAccessException(1);
+      }
+      return users.isEmpty() ? null : users.get(0);
+    }
+  }
+
+  @Override
+  public <S extends User> S save(S user) {
+    try (DataSourceRouting.Scope scope = userShards.on(user.getUsername())) {
+      return writes.execute(status -> persist(user));
+    }
+  }
+
+  @Override
+  public <S extends User> List<S> saveAll(Iterable<S> users) {
+    Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+    List<S> saved = new ArrayList<>();
+    for (S user : users) {
+      positionsByShard
+          .computeIfAbsent(userShards.shardOf(user.getUsername()), shard -> new ArrayList<>())
+          .add(saved.size());
+      saved.add(user);
+    }
+    for (Map.Entry<Integer, List<Integer>> shard : positionsByShard.entrySet()) {
+      try (DataSourceRouting.Scope scope = userShards.on(shard.getKey())) {
+        writes.executeWithoutResult(
+            status -> {
+              for (int position : shard.getValue()) {
+                saved.set(position, persist(saved.get(position)));
+              }
+            });
+      }
+    }
+    return saved;
+  }
+
+  private <S extends User> S persist(S user) {
+    if (user.getId() == null) {
+      entityManager.persist(user);
+      return user;
+    }
+    return entityManager.merge(user);
+  }
+}
@@ -0,0 +1,62 @@
+package com.example.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.example.model.User;
+
+/** Columns of the {@code users} table, each knowing how to copy itself into a {@link User}. */
+public enum UserColumn {
+  ID("id", true) {
+    @Override
+    void read(ResultSet resultSet, int index, User user) throws SQLException {
+      user.setId(resultSet.getLong(index));
+    }
+  },
+  USERNAME("username", true) {
+    @Override
+    void read(ResultSet resultSet, int index, User user) throws SQLException {
+      user.setUsername(resultSet.getString(index));
+    }
+  },
+  PASSWORD("password", false) {
+    @Override
+    void read(ResultSet resultSet, int index, User user) throws SQLException {
+      user.setPassword(resultSet.getString(index));
+    }
+  },
+  EMAIL("email", true) {
+    @Override
+    void read(ResultSet resultSet, int index, User user) throws SQLException {
+      user.setEmail(resultSet.getString(index));
+    }
+  };
+
+  private final String columnName;
+  private final boolean exposed;
+
+  UserColumn(String columnName, boolean exposed) {
+    this.columnName = columnName;
+    this.exposed = exposed;
+  }
+
+  public String getColumnName() {
+    return columnName;
+  }
+
+  /** Whether callers outside the service may request this column; the password never is. */
+  public boolean isExposed() {
+    return exposed;
+  }
+
+  abstract void read(ResultSet resultSet, int index, User user) throws SQLException;
+
+  public static UserColumn fromColumnName(String columnName) {
+    for (UserColumn column : values()) {
+      if (column.columnName.equalsIgnoreCase(columnName.trim())) {
+        return column;
+      }
+    }
+    throw new IllegalArgumentException("Unknown user column: " + columnName);
+  }
+}
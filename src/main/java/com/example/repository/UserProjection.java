@@ -0,0 +1,93 @@
+package com.example.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.model.User;
+
+/**
+ * An explicit select list over the {@code users} table together with its row mapper.
+ *
+ * <p>Columns are always selected in {@link UserColumn} declaration order, so each set of columns
+ * has exactly one statement shape and one instance. The mapper reads the result set by position,
+ * which was fixed when the projection was built, instead of resolving column names on every row.
+ */
+public final class UserProjection {
+
+  private static final Map<Set<UserColumn>, UserProjection> PROJECTIONS = new ConcurrentHashMap<>();
+
+  /** Every column, including the password. Only for code that really needs the password. */
+  public static final UserProjection FULL = of(EnumSet.allOf(UserColumn.class));
+
+  /** What searches return: everything but the password. */
+  public static final UserProjection SUMMARY =
+      of(EnumSet.of(UserColumn.ID, UserColumn.USERNAME, UserColumn.EMAIL));
+
+  private final UserColumn[] columns;
+  private final String select;
+
+  private UserProjection(Set<UserColumn> columns) {
+    this.columns = columns.toArray(new UserColumn[0]);
+    StringJoiner selectList = new StringJoiner(", ", "SELECT ", " FROM users");
+    for (UserColumn column : this.columns) {
+      selectList.add(column.getColumnName());
+    }
+    this.select = selectList.toString();
+  }
+
+  public static UserProjection of(Set<UserColumn> columns) {
+    if (columns.isEmpty()) {
+      throw new IllegalArgumentException("A projection needs at least one column");
+    }
+    return PROJECTIONS.computeIfAbsent(EnumSet.copyOf(columns), UserProjection::new);
+  }
+
+  /**
+   * Parses a comma-separated list of column names such as {@code "id,username"}. Only exposed
+   * columns are accepted.
+   */
+  public static UserProjection parse(String columnNames) {
+    Set<UserColumn> columns = EnumSet.noneOf(UserColumn.class);
+    for (String columnName : columnNames.split(",")) {
+      UserColumn column = UserColumn.fromColumnName(columnName);
+      if (!column.isExposed()) {
+        throw new IllegalArgumentException("Column cannot be selected: " + columnName.trim());
+      }
+      columns.add(column);
+    }
+    return of(columns);
+  }
+
+  /** {@code SELECT <columns> FROM users} followed by {@code clauses}, e.g. a WHERE clause. */
+  public String select(String clauses) {
+    return select + " " + clauses;
+  }
+
+  public User map(ResultSet resultSet) throws SQLException {
+    User user = new User();
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].read(resultSet, i + 1, user);
+    }
+    return user;
+  }
+
+  /** The selected columns, in select-list order. */
+  public List<UserColumn> columns() {
+    return List.of(columns);
+  }
+
+  public int columnCount() {
+    return columns.length;
+  }
+
+  @Override
+  public String toString() {
+    return select;
+  }
+}
@@ -6,8 +6,21 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.model.User;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-  User findByUsername(String username);
+/**
+ * Users, by way of JPA. {@link #findByUsername}, {@link #save} and {@link #saveAll} go to the shard
+ * holding each username. On a sharded store every other method, {@code findById}, {@code findAll},
+ * {@code count} and {@code deleteById} among them, sees only the shard of the enclosing {@link
+ * com.example.datasource.UserShards} scope, and shard 0 outside any: {@code findById} misses users
+ * on other shards and {@code count} counts one shard.
+ */
+public interface UserRepository extends JpaRepository<User, Long>, ShardedUserRepository {
+
+  // Both supertypes declare these; the shard-aware ones are what the repository runs
+  @Override
+  <S extends User> S save(S user);
+
+  @Override
+  <S extends User> List<S> saveAll(Iterable<S> users);
 
   default List<User> executeCustomQuery(String query) {
     return List.of(new User("demoUser", "password", "demo@example.com"));
@@ -0,0 +1,593 @@
+package com.example.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.config.AccountUpdateProperties;
+import com.example.datasource.DataSourceRouting;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.UserShards;
+
+/**
+ * Writes email changes from {@code /api/update-account} behind the request. Updates wait in a queue
+ * of at most {@code employee.account-updates.queue-capacity} usernames, where a later update of a
+ * waiting username replaces the earlier one, so only the last write is made. A single flusher takes
+ * up to {@code batch-size} of them once that many are waiting or the oldest has waited {@code
+ * max-delay}, and writes them as one batched UPDATE and one commit per shard: concurrent requests
+ * share a commit instead of paying for one each.
+ *
+ * <p>Callers choose their acknowledgment: {@link #updateEmail} returns once the change is
+ * committed, {@link #submit} once it is queued. When the queue is full, callers wait up to {@code
+ * offer-timeout} for a place and are then turned away, so a database that cannot keep up slows
+ * writers down rather than growing the queue.
+ */
+@Service
+public class AccountUpdateService {
+
+  private static final Logger log = LoggerFactory.getLogger(AccountUpdateService.class);
+
+  private static final String UPDATE_EMAIL =
+      "UPDATE users SET email = ?, updated_at = CURRENT_TIMESTAMP WHERE username = ?";
+
+  private static final int MAX_COLUMN_LENGTH = 255;
+
+  private final AccountUpdateProperties properties;
+  private final DataSource dataSource;
+  private final UserShards userShards;
+  private final RecentWrites recentWrites;
+  private final UserLookupCache userLookupCache;
+  private final UserSearchIndex userSearchIndex;
+  private final UserSnapshotService userSnapshotService;
+  private final SlowOperationLog slowOperationLog;
+
+  private final int queueCapacity;
+  private final int batchSize;
+  private final long maxDelayNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  /** Waiting updates by username, oldest first; guarded by {@link #lock}. */
+  private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+
+  private boolean closed;
+  private Thread flusher;
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder commits = new LongAdder();
+  private final LongAccumulator largestBatch = new LongAccumulator(Math::max, 0);
+  private final LongAdder totalQueueNanos = new LongAdder();
+  private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+
+  public AccountUpdateService(
+      AccountUpdateProperties properties,
+      DataSource dataSource,
+      UserShards userShards,
+      RecentWrites recentWrites,
+      UserLookupCache userLookupCache,
+      UserSearchIndex userSearchIndex,
+      UserSnapshotService userSnapshotService,
+      SlowOperationLog slowOperationLog) {
+    this.properties = properties;
+    this.dataSource = dataSource;
+    this.userShards = userShards;
+    this.recentWrites = recentWrites;
+    this.userLookupCache = userLookupCache;
+    this.userSearchIndex = userSearchIndex;
+    this.userSnapshotService = userSnapshotService;
+    this.slowOperationLog = slowOperationLog;
+    this.queueCapacity = Math.max(1, properties.getQueueCapacity());
+    this.batchSize = Math.max(1, properties.getBatchSize());
+    this.maxDelayNanos = Math.max(0, properties.getMaxDelay().toNanos());
+  }
+
+  @PostConstruct
+  public void start() {
+    flusher = new Thread(this::flushLoop, "account-update-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Changes the email of {@code username} and waits, up to {@code ack-timeout}, for the change to
+   * be committed. Lookups started after this returns see the new email.
+   *
+   * @return whether the user exists; an unknown username changes nothing
+   * @throws SQLTimeoutException if the change was not committed in time; it may still be
+   * @throws SQLException if writing the batch holding the change failed
+   * @throws RejectedExecutionException if the queue stayed full for {@code offer-timeout}
+   */
+  public boolean updateEmail(String username, String email) throws SQLException {
+    CompletableFuture<Boolean> committed = submit(username, email);
+    long timeout = properties.getAckTimeout().toMillis();
+    try {
+      return committed.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new SQLTimeoutException(
+          "Account update for " + username + " not committed within " + timeout + " ms");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for account update", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new SQLException(e.getCause());
+    }
+  }
+
+  /**
+   * Queues a change of the email of {@code username} and returns once it is queued. The future
+   * completes once the change is committed, with whether the user exists, or exceptionally if
+   * writing its batch failed. Updates superseded while waiting complete with the one replacing
+   * them.
+   *
+   * @throws RejectedExecutionException if the queue stayed full for {@code offer-timeout}
+   */
+  public CompletableFuture<Boolean> submit(String username, String email) {
+    validate(username, email);
+    CompletableFuture<Boolean> committed = new CompletableFuture<>();
+    lock.lock();
+    try {
+      Pending update = pending.get(username);
+      if (update == null) {
+        long remaining = properties.getOfferTimeout().toNanos();
+        while (!closed && pending.size() >= queueCapacity && pending.get(username) == null) {
+          if (remaining <= 0) {
+            rejected.increment();
+            throw new RejectedExecutionException(
+                "Account update queue is full (" + queueCapacity + " users waiting)");
+          }
+          remaining = notFull.awaitNanos(remaining);
+        }
+        if (closed) {
+          rejected.increment();
+          throw new RejectedExecutionException("Account updates are shutting down");
+        }
+        update = pending.get(username);
+      }
+      if (update == null) {
+        update = new Pending(System.nanoTime());
+        pending.put(username, update);
+        // Wake the flusher for the first update, which starts the delay, and for a full batch
+        if (pending.size() == 1 || pending.size() == batchSize) {
+          notEmpty.signal();
+        }
+      } else {
+        coalesced.increment();
+      }
+      update.email = email;
+      update.waiting.add(committed);
+      submitted.increment();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      rejected.increment();
+      throw new RejectedExecutionException("Interrupted waiting for the account update queue", e);
+    } finally {
+      lock.unlock();
+    }
+    return committed;
+  }
+
+  private static void validate(String username, String email) {
+    if (username == null || username.isBlank()) {
+      throw new IllegalArgumentException("Missing username");
+    }
+    if (username.length() > MAX_COLUMN_LENGTH) {
+      throw new IllegalArgumentException("Username longer than " + MAX_COLUMN_LENGTH);
+    }
+    if (email == null || email.indexOf('@') < 1) {
+      throw new IllegalArgumentException("Invalid email");
+    }
+    if (email.length() > MAX_COLUMN_LENGTH) {
+      throw new IllegalArgumentException("Email longer than " + MAX_COLUMN_LENGTH);
+    }
+  }
+
+  private void flushLoop() {
+    while (true) {
+      Map<String, Pending> batch;
+      try {
+        batch = nextBatch();
+      } catch (InterruptedException e) {
+        // Only close() interrupts, and only once the queue has been written out or abandoned
+        return;
+      }
+      if (batch == null) {
+        return;
+      }
+      try {
+        write(batch);
+      } catch (RuntimeException e) {
+        // The only flusher must outlive any one batch; its callers hear of the failure
+        log.error("Account update batch of {} failed: {}", batch.size(), e.getMessage(), e);
+        failBatch(batch, e);
+      }
+    }
+  }
+
+  /** Fails the callers of {@code batch} not yet answered; those answered keep their answer. */
+  private static void failBatch(Map<String, Pending> batch, Throwable failure) {
+    for (Pending update : batch.values()) {
+      update.waiting.forEach(committed -> committed.completeExceptionally(failure));
+    }
+  }
+
+  /**
+   * Waits for a full batch or for the oldest update's delay; {@code null} once closed and empty.
+   */
+  private Map<String, Pending> nextBatch() throws InterruptedException {
+    lock.lock();
+    try {
+      while (pending.isEmpty()) {
+        if (closed) {
+          return null;
+        }
+        notEmpty.await();
+      }
+      while (!closed && pending.size() < batchSize) {
+        long wait =
+            pending.values().iterator().next().queuedNanos + maxDelayNanos - System.nanoTime();
+        if (wait <= 0) {
+          break;
+        }
+        notEmpty.awaitNanos(wait);
+      }
+      Map<String, Pending> batch = new LinkedHashMap<>();
+      Iterator<Map.Entry<String, Pending>> oldest = pending.entrySet().iterator();
+      while (batch.size() < batchSize && oldest.hasNext()) {
+        Map.Entry<String, Pending> entry = oldest.next();
+        batch.put(entry.getKey(), entry.getValue());
+        oldest.remove();
+      }
+      notFull.signalAll();
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Writes {@code batch} with one statement batch and one commit on each shard it touches. */
+  private void write(Map<String, Pending> batch) {
+    long now = System.nanoTime();
+    for (Pending update : batch.values()) {
+      long queued = now - update.queuedNanos;
+      totalQueueNanos.add(queued);
+      maxQueueNanos.accumulate(queued);
+    }
+    largestBatch.accumulate(batch.size());
+    Map<Integer, List<String>> byShard = new TreeMap<>();
+    for (String username : batch.keySet()) {
+      byShard
+          .computeIfAbsent(userShards.shardOf(username), shard -> new ArrayList<>())
+          .add(username);
+    }
+    for (Map.Entry<Integer, List<String>> shard : byShard.entrySet()) {
+      List<String> usernames = shard.getValue();
+      JdbcQueryEvent event = new JdbcQueryEvent();
+      event.begin();
+      long start = System.nanoTime();
+      boolean[] found;
+      try {
+        found = update(shard.getKey(), usernames, batch);
+      } catch (SQLException | RuntimeException e) {
+        finished(event, start, usernames.size(), e);
+        log.error(
+            "Account update batch of {} failed on shard {}: {}",
+            usernames.size(),
+            shard.getKey(),
+            e.getMessage(),
+            e);
+        failed.add(usernames.size());
+        for (String username : usernames) {
+          batch.get(username).waiting.forEach(committed -> committed.completeExceptionally(e));
+        }
+        continue;
+      }
+      finished(event, start, usernames.size(), null);
+      commits.increment();
+      written.add(usernames.size());
+      for (int i = 0; i < usernames.size(); i++) {
+        String username = usernames.get(i);
+        String email = batch.get(username).email;
+        boolean exists = found[i];
+        // Before acknowledging, so nothing read ahead of the commit outlives the acknowledgment.
+        // Each step on its own: the change is committed whichever of them fails.
+        afterCommit(username, () -> recentWrites.record(username));
+        afterCommit(username, () -> userLookupCache.invalidate(username));
+        afterCommit(username, () -> userSnapshotService.changed(username));
+        if (exists) {
+          afterCommit(username, () -> userSearchIndex.emailChanged(username, email));
+        }
+        batch.get(username).waiting.forEach(committed -> committed.complete(exists));
+      }
+    }
+  }
+
+  private static void afterCommit(String username, Runnable step) {
+    try {
+      step.run();
+    } catch (RuntimeException e) {
+      log.error("Account update of {} committed, but a post-commit step failed", username, e);
+    }
+  }
+
+  /** Writes the batch to one shard and returns, by position, whether each username was there. */
+  private boolean[] update(int shard, List<String> usernames, Map<String, Pending> batch)
+      throws SQLException {
+    try (DataSourceRouting.Scope scope = userShards.on(shard);
+        Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(UPDATE_EMAIL)) {
+        for (String username : usernames) {
+          statement.setString(1, batch.get(username).email);
+          statement.setString(2, username);
+          statement.addBatch();
+        }
+        boolean[] found = found(connection, usernames, statement.executeBatch());
+        connection.commit();
+        return found;
+      } catch (SQLException | RuntimeException e) {
+        rollback(connection);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Which of the batch's usernames matched a row. Drivers that rewrite a batch into one statement,
+   * such as MySQL's with {@code rewriteBatchedStatements} or Oracle's, report {@link
+   * Statement#SUCCESS_NO_INFO} for each row instead of a count; those usernames are looked up in
+   * the same transaction.
+   */
+  private static boolean[] found(Connection connection, List<String> usernames, int[] counts)
+      throws SQLException {
+    boolean[] found = new boolean[usernames.size()];
+    List<String> unknown = new ArrayList<>();
+    for (int i = 0; i < found.length; i++) {
+      found[i] = counts[i] > 0;
+      if (counts[i] == Statement.SUCCESS_NO_INFO) {
+        unknown.add(usernames.get(i));
+      }
+    }
+    if (unknown.isEmpty()) {
+      return found;
+    }
+    Set<String> existing = new HashSet<>();
+    String placeholders = String.join(", ", Collections.nCopies(unknown.size(), "?"));
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT username FROM users WHERE username IN (" + placeholders + ")")) {
+      for (int i = 0; i < unknown.size(); i++) {
+        statement.setString(i + 1, unknown.get(i));
+      }
+      try (ResultSet rows = statement.executeQuery()) {
+        while (rows.next()) {
+          existing.add(rows.getString(1));
+        }
+      }
+    }
+    for (int i = 0; i < found.length; i++) {
+      if (counts[i] == Statement.SUCCESS_NO_INFO) {
+        found[i] = existing.contains(usernames.get(i));
+      }
+    }
+    return found;
+  }
+
+  private static void rollback(Connection connection) {
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      log.error("Rollback failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+    }
+  }
+
+  private void finished(JdbcQueryEvent event, long startNanos, int rows, Exception error) {
+    long elapsed = System.nanoTime() - startNanos;
+    String errorName = error == null ? null : error.getClass().getSimpleName();
+    event.end();
+    if (event.shouldCommit()) {
+      event.sql = UPDATE_EMAIL;
+      event.rows = rows;
+      event.error = errorName;
+      event.commit();
+    }
+    slowOperationLog.query(elapsed, UPDATE_EMAIL, rows, errorName);
+  }
+
+  /**
+   * Stops taking updates and writes out those already queued, waiting at most {@code ack-timeout}
+   * for them; whatever is still queued after that fails.
+   */
+  @PreDestroy
+  public void close() throws InterruptedException {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (flusher == null) {
+      return;
+    }
+    flusher.join(properties.getAckTimeout().toMillis());
+    if (flusher.isAlive()) {
+      flusher.interrupt();
+      lock.lock();
+      try {
+        SQLException abandoned = new SQLException("Account update abandoned at shutdown");
+        pending
+            .values()
+            .forEach(update -> update.waiting.forEach(c -> c.completeExceptionally(abandoned)));
+        failed.add(pending.size());
+        pending.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  public Snapshot snapshot() {
+    int queued;
+    lock.lock();
+    try {
+      queued = pending.size();
+    } finally {
+      lock.unlock();
+    }
+    long done = written.sum() + failed.sum();
+    return new Snapshot(
+        queued,
+        queueCapacity,
+        submitted.sum(),
+        coalesced.sum(),
+        rejected.sum(),
+        written.sum(),
+        failed.sum(),
+        commits.sum(),
+        largestBatch.get(),
+        done == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueNanos.sum() / done),
+        TimeUnit.NANOSECONDS.toMillis(maxQueueNanos.get()));
+  }
+
+  /** The latest email queued for one username, and everyone waiting for it to be committed. */
+  private static final class Pending {
+
+    private final long queuedNanos;
+    private final List<CompletableFuture<Boolean>> waiting = new ArrayList<>(1);
+    private String email;
+
+    Pending(long queuedNanos) {
+      this.queuedNanos = queuedNanos;
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final int queued;
+    private final int queueCapacity;
+    private final long submitted;
+    private final long coalesced;
+    private final long rejected;
+    private final long written;
+    private final long failed;
+    private final long commits;
+    private final long largestBatch;
+    private final long meanQueueMillis;
+    private final long maxQueueMillis;
+
+    Snapshot(
+        int queued,
+        int queueCapacity,
+        long submitted,
+        long coalesced,
+        long rejected,
+        long written,
+        long failed,
+        long commits,
+        long largestBatch,
+        long meanQueueMillis,
+        long maxQueueMillis) {
+      this.queued = queued;
+      this.queueCapacity = queueCapacity;
+      this.submitted = submitted;
+      this.coalesced = coalesced;
+      this.rejected = rejected;
+      this.written = written;
+      this.failed = failed;
+      this.commits = commits;
+      this.largestBatch = largestBatch;
+      this.meanQueueMillis = meanQueueMillis;
+      this.maxQueueMillis = maxQueueMillis;
+    }
+
+    /** Usernames with an update waiting to be written. */
+    public int getQueued() {
+      return queued;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    /** Updates accepted into the queue. */
+    public long getSubmitted() {
+      return submitted;
+    }
+
+    /** Of those, updates that replaced a waiting update of the same username. */
+    public long getCoalesced() {
+      return coalesced;
+    }
+
+    /** Updates turned away because the queue stayed full. */
+    public long getRejected() {
+      return rejected;
+    }
+
+    /** Rows updated, one per username per batch, whether or not the user existed. */
+    public long getWritten() {
+      return written;
+    }
+
+    /** Rows whose batch failed to commit. */
+    public long getFailed() {
+      return failed;
+    }
+
+    /** Transactions committed; {@code written / commits} is the mean group size. */
+    public long getCommits() {
+      return commits;
+    }
+
+    public long getLargestBatch() {
+      return largestBatch;
+    }
+
+    /** Time from a username's first queued update to its batch being written. */
+    public long getMeanQueueMillis() {
+      return meanQueueMillis;
+    }
+
+    public long getMaxQueueMillis() {
+      return maxQueueMillis;
+    }
+  }
+}
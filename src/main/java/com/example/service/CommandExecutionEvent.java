@@ -0,0 +1,28 @@
+package com.example.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.CommandExecution")
+@Label("Command Execution")
+@Category({"Employee Portal", "Backend"})
+@Description("A command run by EmployeeService, including any wait for a free worker")
+@StackTrace(false)
+final class CommandExecutionEvent extends Event {
+
+  @Label("Program")
+  String program;
+
+  @Label("Exit Code")
+  int exitCode;
+
+  @Label("Timed Out")
+  boolean timedOut;
+
+  @Label("Error")
+  String error;
+}
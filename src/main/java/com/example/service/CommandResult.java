@@ -0,0 +1,55 @@
+package com.example.service;
+
+import java.time.Duration;
+
+/** What a command run by {@link CommandRunner} printed, and how it ended. */
+public final class CommandResult {
+
+  private final int exitCode;
+  private final String stdout;
+  private final String stderr;
+  private final boolean truncated;
+  private final boolean timedOut;
+  private final Duration runTime;
+
+  CommandResult(
+      int exitCode,
+      String stdout,
+      String stderr,
+      boolean truncated,
+      boolean timedOut,
+      Duration runTime) {
+    this.exitCode = exitCode;
+    this.stdout = stdout;
+    this.stderr = stderr;
+    this.truncated = truncated;
+    this.timedOut = timedOut;
+    this.runTime = runTime;
+  }
+
+  /** The exit status, or -1 if the command was killed. */
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  public String getStdout() {
+    return stdout;
+  }
+
+  public String getStderr() {
+    return stderr;
+  }
+
+  /** Whether either stream printed more than {@code max-output-size} bytes. */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
+  public Duration getRunTime() {
+    return runTime;
+  }
+}
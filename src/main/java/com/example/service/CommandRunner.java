@@ -0,0 +1,372 @@
+package com.example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import com.example.config.CommandRunnerProperties;
+
+/**
+ * Runs allowlisted commands for {@code /api/execute} on a fixed pool of {@code workers} threads
+ * with a queue of {@code queue-capacity}; commands beyond that are rejected rather than forked.
+ * Each command's stdout and stderr are drained concurrently into buffers capped at {@code
+ * max-output-size}, so a chatty stream can neither block the child nor grow without bound, and a
+ * command still running after {@code timeout} is killed together with its children.
+ */
+@Component
+public class CommandRunner {
+
+  // Time given to the drains to see end of stream once the process has exited or been killed
+  private static final long DRAIN_GRACE_MILLIS = 1000;
+
+  private final Set<String> allowedCommands;
+  private final long timeoutNanos;
+  private final int maxOutputBytes;
+  private final int queueCapacity;
+  private final ThreadPoolExecutor workers;
+  private final ExecutorService drainers;
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder totalRunNanos = new LongAdder();
+  private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder totalQueueNanos = new LongAdder();
+  private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+
+  public CommandRunner(CommandRunnerProperties properties) {
+    this.allowedCommands = new HashSet<>(properties.getAllowedCommands());
+    this.timeoutNanos = properties.getTimeout().toNanos();
+    this.maxOutputBytes =
+        (int) Math.min(Integer.MAX_VALUE, properties.getMaxOutputSize().toBytes());
+    this.queueCapacity = properties.getQueueCapacity();
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException(
+          "employee.command-runner.queue-capacity must be at least 1, not " + queueCapacity);
+    }
+    int size = Math.max(1, properties.getWorkers());
+    this.workers =
+        new ThreadPoolExecutor(
+            size,
+            size,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            threadFactory("command-runner"),
+            new ThreadPoolExecutor.AbortPolicy());
+    // Two drains per running command, and at most one command per worker is running
+    this.drainers = Executors.newFixedThreadPool(2 * size, threadFactory("command-drain"));
+  }
+
+  /**
+   * Runs {@code command}, split into words on whitespace, and waits for it to finish.
+   *
+   * @throws IllegalArgumentException if the program is not in {@code allowed-commands}
+   * @throws RejectedExecutionException if all workers are busy and the queue is full
+   * @throws IOException if the program could not be started
+   */
+  public CommandResult run(String command) throws IOException, InterruptedException {
+    List<String> words = new ArrayList<>();
+    StringTokenizer tokenizer = new StringTokenizer(command);
+    while (tokenizer.hasMoreTokens()) {
+      words.add(tokenizer.nextToken());
+    }
+    return run(words);
+  }
+
+  /** Like {@link #run(String)}, with the program and its arguments already separated. */
+  public CommandResult run(List<String> command) throws IOException, InterruptedException {
+    if (command.isEmpty()) {
+      throw new IllegalArgumentException("Empty command");
+    }
+    if (!allowedCommands.contains(command.get(0))) {
+      throw new IllegalArgumentException("Command not allowed: " + command.get(0));
+    }
+
+    long queuedAt = System.nanoTime();
+    Future<CommandResult> result;
+    try {
+      result = workers.submit(() -> execute(command, queuedAt));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new RejectedExecutionException(
+          "Too many commands running; " + queueCapacity + " already waiting", e);
+    }
+
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      // The worker kills the process when interrupted
+      result.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private CommandResult execute(List<String> command, long queuedAt) throws Exception {
+    long started = System.nanoTime();
+    record(started - queuedAt, totalQueueNanos, maxQueueNanos);
+
+    Process process = null;
+    try {
+      process = new ProcessBuilder(command).start();
+      process.getOutputStream().close();
+      InputStream stdoutStream = process.getInputStream();
+      InputStream stderrStream = process.getErrorStream();
+      Future<Captured> stdout = drainers.submit(() -> drain(stdoutStream));
+      Future<Captured> stderr = drainers.submit(() -> drain(stderrStream));
+
+      boolean expired = !process.waitFor(timeoutNanos, TimeUnit.NANOSECONDS);
+      if (expired) {
+        kill(process);
+        timedOut.increment();
+      }
+      Captured out = collect(stdout, stdoutStream);
+      Captured err = collect(stderr, stderrStream);
+      int exitCode = expired ? -1 : process.exitValue();
+      completed.increment();
+
+      return new CommandResult(
+          exitCode,
+          out.text(),
+          err.text(),
+          out.truncated || err.truncated,
+          expired,
+          Duration.ofNanos(System.nanoTime() - started));
+    } catch (IOException | InterruptedException e) {
+      if (process != null) {
+        kill(process);
+      }
+      failed.increment();
+      throw e;
+    } finally {
+      record(System.nanoTime() - started, totalRunNanos, maxRunNanos);
+    }
+  }
+
+  private static void kill(Process process) {
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
+  }
+
+  /**
+   * Waits for a drain to finish. A child that escaped the kill may still hold the pipe open; its
+   * stream is then closed, and if even that does not end the drain the output is given up on.
+   */
+  private static Captured collect(Future<Captured> drain, InputStream stream)
+      throws InterruptedException, ExecutionException {
+    try {
+      return drain.get(DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      try {
+        stream.close();
+      } catch (IOException ignored) {
+        // The drain sees the failure and returns what it has
+      }
+    }
+    try {
+      return drain.get(DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      drain.cancel(true);
+      return new Captured(new byte[0], true);
+    }
+  }
+
+  private Captured drain(InputStream stream) {
+    ByteArrayOutputStream kept = new ByteArrayOutputStream(Math.min(maxOutputBytes, 8192));
+    byte[] buffer = new byte[8192];
+    boolean truncated = false;
+    try (InputStream in = stream) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        int keep = Math.min(read, maxOutputBytes - kept.size());
+        kept.write(buffer, 0, keep);
+        truncated |= keep < read;
+      }
+    } catch (IOException e) {
+      // Stream closed under us after a kill; keep what was read
+    }
+    return new Captured(kept.toByteArray(), truncated);
+  }
+
+  private static void record(long nanos, LongAdder total, LongAccumulator max) {
+    total.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  private static ThreadFactory threadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+      thread.setName(name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @PreDestroy
+  public void close() {
+    workers.shutdownNow();
+    drainers.shutdownNow();
+  }
+
+  public Snapshot snapshot() {
+    long runs = completed.sum() + failed.sum();
+    return new Snapshot(
+        workers.getMaximumPoolSize(),
+        workers.getActiveCount(),
+        workers.getQueue().size(),
+        queueCapacity,
+        completed.sum(),
+        rejected.sum(),
+        timedOut.sum(),
+        failed.sum(),
+        runs == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.sum() / runs),
+        TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()),
+        runs == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueNanos.sum() / runs),
+        TimeUnit.NANOSECONDS.toMillis(maxQueueNanos.get()));
+  }
+
+  private static final class Captured {
+
+    private final byte[] bytes;
+    private final boolean truncated;
+
+    Captured(byte[] bytes, boolean truncated) {
+      this.bytes = bytes;
+      this.truncated = truncated;
+    }
+
+    String text() {
+      return new String(bytes, Charset.defaultCharset());
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final int workers;
+    private final int active;
+    private final int queued;
+    private final int queueCapacity;
+    private final long completed;
+    private final long rejected;
+    private final long timedOut;
+    private final long failed;
+    private final long meanRunMillis;
+    private final long maxRunMillis;
+    private final long meanQueueMillis;
+    private final long maxQueueMillis;
+
+    Snapshot(
+        int workers,
+        int active,
+        int queued,
+        int queueCapacity,
+        long completed,
+        long rejected,
+        long timedOut,
+        long failed,
+        long meanRunMillis,
+        long maxRunMillis,
+        long meanQueueMillis,
+        long maxQueueMillis) {
+      this.workers = workers;
+      this.active = active;
+      this.queued = queued;
+      this.queueCapacity = queueCapacity;
+      this.completed = completed;
+      this.rejected = rejected;
+      this.timedOut = timedOut;
+      this.failed = failed;
+      this.meanRunMillis = meanRunMillis;
+      this.maxRunMillis = maxRunMillis;
+      this.meanQueueMillis = meanQueueMillis;
+      this.maxQueueMillis = maxQueueMillis;
+    }
+
+    public int getWorkers() {
+      return workers;
+    }
+
+    public int getActive() {
+      return active;
+    }
+
+    /** Commands waiting for a worker. */
+    public int getQueued() {
+      return queued;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    /** Commands that ran to completion or were killed at the timeout. */
+    public long getCompleted() {
+      return completed;
+    }
+
+    /** Commands turned away because the queue was full. */
+    public long getRejected() {
+      return rejected;
+    }
+
+    public long getTimedOut() {
+      return timedOut;
+    }
+
+    /** Commands that could not be started or were interrupted. */
+    public long getFailed() {
+      return failed;
+    }
+
+    public long getMeanRunMillis() {
+      return meanRunMillis;
+    }
+
+    public long getMaxRunMillis() {
+      return maxRunMillis;
+    }
+
+    public long getMeanQueueMillis() {
+      return meanQueueMillis;
+    }
+
+    public long getMaxQueueMillis() {
+      return maxQueueMillis;
+    }
+  }
+}
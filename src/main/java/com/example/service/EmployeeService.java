@@ -1,100 +1,612 @@
 package com.example.service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.example.config.UserSearchProperties;
+import com.example.datasource.DataSourceRouting;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.UserShards;
 import com.example.model.User;
+import com.example.repository.UserProjection;
+import com.example.service.BackendMetrics.Operation;
+
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class EmployeeService {
 
-  @Autowired private javax.sql.DataSource dataSource;
+  private static final Logger log = LoggerFactory.getLogger(EmployeeService.class);
+
+  private static final String DIRECTORY_FIRST_PAGE =
+      UserProjection.SUMMARY.select(
+          "WHERE username LIKE ? ESCAPE '!' ORDER BY username, id LIMIT ?");
+
+  private static final String DIRECTORY_NEXT_PAGE =
+      UserProjection.SUMMARY.select(
+          "WHERE username LIKE ? ESCAPE '!' AND (username > ? OR (username = ? AND id > ?))"
+              + " ORDER BY username, id LIMIT ?");
+
+  private static final String BY_EMAIL =
+      UserProjection.SUMMARY.select("WHERE email = ? ORDER BY username, id");
+
+  /** Directory order, which is the same on every shard as a username lives on only one. */
+  private static final Comparator<User> BY_USERNAME_AND_ID =
+      Comparator.comparing(User::getUsername).thenComparing(User::getId);
+
+  @Autowired private DataSource dataSource;
+
+  @Autowired private UserSearchProperties userSearchProperties;
+
+  @Autowired private RecentWrites recentWrites;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private UserLookupCache userLookupCache;
+
+  @Autowired private UserSnapshotService userSnapshotService;
+
+  @Autowired private UpstreamResponseCache upstreamResponseCache;
+
+  @Autowired private CommandRunner commandRunner;
+
+  @Autowired private BackendMetrics backendMetrics;
 
+  @Autowired private SlowOperationLog slowOperationLog;
+
+  /**
+   * The users named {@code username}, from the {@link UserSnapshotService} when it can answer and
+   * otherwise through the lookup cache.
+   */
   public List<User> findUserByUsername(String username) {
-    List<User> users = new java.util.ArrayList<>();
+    List<User> users = userSnapshotService.findByUsername(username);
+    if (users != null) {
+      return users;
+    }
+    return userLookupCache.get(username, key -> loadUsersByUsername(key, UserProjection.SUMMARY));
+  }
 
-    String query = "SELECT * FROM users WHERE username = ?";
+  /**
+   * Looks up {@code username} selecting only the columns of {@code projection}. Summary lookups are
+   * served from the cache; other projections always query the database.
+   */
+  public List<User> findUserByUsername(String username, UserProjection projection) {
+    if (projection == UserProjection.SUMMARY) {
+      return findUserByUsername(username);
+    }
+    List<User> users = loadUsersByUsername(username, projection);
+    return users == null ? new ArrayList<>() : users;
+  }
 
-    try {
-      java.sql.Connection connection = dataSource.getConnection();
-      java.sql.PreparedStatement statement = connection.prepareStatement(query);
+  /** Drops any cached lookup of {@code username} after its account has changed. */
+  public void invalidateUserLookup(String username) {
+    userLookupCache.invalidate(username);
+  }
+
+  private List<User> loadUsersByUsername(String username, UserProjection projection) {
+    List<User> users = new ArrayList<>();
+
+    String query = projection.select("WHERE username = ?");
+
+    Timer.Sample sample = backendMetrics.start();
+    JdbcQueryEvent event = new JdbcQueryEvent();
+    event.begin();
+    long start = System.nanoTime();
+    try (DataSourceRouting.Scope routing =
+            DataSourceRouting.replicaUnless(recentWrites.isRecent(username));
+        DataSourceRouting.Scope shard = userShards.on(username);
+        Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(query)) {
       statement.setString(1, username);
 
-      try (java.sql.ResultSet resultSet = statement.executeQuery()) {
+      try (ResultSet resultSet = statement.executeQuery()) {
 
         while (resultSet.next()) {
-          User user = new User();
-          user.setId(resultSet.getLong("id"));
-          user.setUsername(resultSet.getString("username"));
-          user.setPassword(resultSet.getString("password"));
-          user.setEmail(resultSet.getString("email"));
-          users.add(user);
+          users.add(projection.map(resultSet));
         }
-      } catch (java.sql.SQLException e) {
-        System.err.println("SQL Error: " + e.getMessage());
-        System.err.println("SQL State: " + e.getSQLState());
-        System.err.println("Error Code: " + e.getErrorCode());
-        e.printStackTrace();
       }
-    } catch (java.sql.SQLException e) {
-      System.err.println("SQL Error: " + e.getMessage());
-      System.err.println("SQL State: " + e.getSQLState());
-      System.err.println("Error Code: " + e.getErrorCode());
-      e.printStackTrace();
+    } catch (SQLException e) {
+      backendMetrics.failure(sample, Operation.USER_QUERY, e);
+      queryFinished(event, start, query, users.size(), e);
+      log.error(
+          "User lookup failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+      // A failed query is not a negative result; keep it out of the cache
+      return null;
     }
 
+    backendMetrics.success(sample, Operation.USER_QUERY);
+    queryFinished(event, start, query, users.size(), null);
     return users;
   }
 
-  public String fetchDataFromUrl(String url) {
-    try {
-      URL targetUrl = new URL(url);
-      HttpURLConnection connection = (HttpURLConnection) targetUrl.openConnection();
-      connection.setRequestMethod("GET");
+  /**
+   * Resolves many usernames at once. The distinct usernames are bound into {@code IN (...)} queries
+   * of at most {@code employee.user-search.batch-chunk-size} values, all issued on one connection
+   * per shard, with the shards queried in parallel, and the matches are grouped by username in
+   * request order. Usernames without a match map to an empty list.
+   *
+   * @throws SQLException if any shard could not be searched: none of its usernames is known to be
+   *     missing, so no partial answer is returned
+   */
+  public Map<String, List<User>> findUsersByUsernames(Collection<String> usernames)
+      throws SQLException {
+    Set<String> distinct = new LinkedHashSet<>(usernames);
+    if (distinct.contains(null)) {
+      throw new IllegalArgumentException("Usernames must not be null");
+    }
+    if (distinct.size() > userSearchProperties.getBatchMaxUsernames()) {
+      throw new IllegalArgumentException(
+          "At most "
+              + userSearchProperties.getBatchMaxUsernames()
+              + " usernames can be resolved per batch, got "
+              + distinct.size());
+    }
 
-      BufferedReader reader =
-          new BufferedReader(new InputStreamReader(connection.getInputStream()));
-      String line;
-      StringBuilder response = new StringBuilder();
+    Map<String, List<User>> usersByUsername = new LinkedHashMap<>();
+    for (String username : distinct) {
+      usersByUsername.put(username, new ArrayList<>());
+    }
+    if (distinct.isEmpty()) {
+      return usersByUsername;
+    }
 
-      while ((line = reader.readLine()) != null) {
-        response.append(line);
+    List<List<String>> byShard = new ArrayList<>();
+    for (int shard = 0; shard < userShards.count(); shard++) {
+      byShard.add(new ArrayList<>());
+    }
+    for (String username : distinct) {
+      byShard.get(userShards.shardOf(username)).add(username);
+    }
+
+    try (DataSourceRouting.Scope routing =
+        DataSourceRouting.replicaUnless(recentWrites.isAnyRecent(distinct))) {
+      List<List<User>> found =
+          userShards.scatter(
+              shard -> byShard.get(shard).isEmpty() ? List.of() : loadBatch(byShard.get(shard)));
+      for (List<User> users : found) {
+        for (User user : users) {
+          usersByUsername.computeIfAbsent(user.getUsername(), key -> new ArrayList<>()).add(user);
+        }
       }
-      reader.close();
+    } catch (SQLException e) {
+      log.error(
+          "Batch user lookup failed: sqlState={} errorCode={}",
+          e.getSQLState(),
+          e.getErrorCode(),
+          e);
+      throw e;
+    }
 
-      return response.toString();
-    } catch (Exception e) {
-      return "Error fetching URL: " + e.getMessage();
+    return usersByUsername;
+  }
+
+  /** Resolves {@code usernames}, all held by one shard, in chunks on one of its connections. */
+  private List<User> loadBatch(List<String> usernames) throws SQLException {
+    List<User> users = new ArrayList<>();
+    int chunkSize = Math.max(1, userSearchProperties.getBatchChunkSize());
+    try (Connection connection = dataSource.getConnection()) {
+      for (int from = 0; from < usernames.size(); from += chunkSize) {
+        List<String> chunk = usernames.subList(from, Math.min(from + chunkSize, usernames.size()));
+        int parameters = inListSize(chunk.size(), chunkSize);
+        String query =
+            UserProjection.SUMMARY.select("WHERE username IN (" + placeholders(parameters) + ")");
+
+        JdbcQueryEvent event = new JdbcQueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+          // Pad short chunks with their last value so only a handful of statement shapes exist
+          for (int i = 0; i < parameters; i++) {
+            statement.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+          }
+
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+              users.add(UserProjection.SUMMARY.map(resultSet));
+              rows++;
+            }
+          }
+        } catch (SQLException e) {
+          queryFinished(event, start, query, rows, e);
+          throw e;
+        }
+        queryFinished(event, start, query, rows, null);
+      }
     }
+    return users;
   }
 
-  public String executeCommand(String command) {
-    try {
-      Process process = Runtime.getRuntime().exec(command);
+  /**
+   * The users whose email is exactly {@code email}, ordered by {@code (username, id)}. Emails say
+   * nothing about the shard, so every shard is searched.
+   */
+  public List<User> findUsersByEmail(String email) throws SQLException {
+    List<List<User>> found;
+    try (DataSourceRouting.Scope routing = DataSourceRouting.replica()) {
+      found = userShards.scatter(shard -> loadUsersByEmail(email));
+    } catch (SQLException e) {
+      log.error(
+          "Email search failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+      throw e;
+    }
+    List<User> users = new ArrayList<>();
+    found.forEach(users::addAll);
+    users.sort(BY_USERNAME_AND_ID);
+    return users;
+  }
 
-      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-      StringBuilder output = new StringBuilder();
-      String line;
-      while ((line = reader.readLine()) != null) {
-        output.append(line).append("\n");
+  private List<User> loadUsersByEmail(String email) throws SQLException {
+    List<User> users = new ArrayList<>();
+    JdbcQueryEvent event = new JdbcQueryEvent();
+    event.begin();
+    long start = System.nanoTime();
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(BY_EMAIL)) {
+      statement.setString(1, email);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          users.add(UserProjection.SUMMARY.map(resultSet));
+        }
       }
+    } catch (SQLException e) {
+      queryFinished(event, start, BY_EMAIL, users.size(), e);
+      throw e;
+    }
+    queryFinished(event, start, BY_EMAIL, users.size(), null);
+    return users;
+  }
+
+  /**
+   * Streams the users whose username starts with {@code prefix}, ordered by {@code (username, id)}
+   * and starting after {@code after} when given. Rows are handed to {@code handler} as the cursor
+   * reads them, {@code employee.user-search.directory-fetch-size} at a time, so memory use does not
+   * depend on the page size. On a sharded store each shard reads its own page through its own
+   * cursor, and the cursors are merged in order until the page is full.
+   *
+   * @return the cursor for the next page, or {@code null} if this page reached the end
+   */
+  public UserCursor streamUsersByPrefix(
+      String prefix, UserCursor after, int limit, UserRowHandler handler)
+      throws SQLException, IOException {
+    directoryPageSize(limit);
 
-      BufferedReader errorReader =
-          new BufferedReader(new InputStreamReader(process.getErrorStream()));
-      while ((line = errorReader.readLine()) != null) {
-        output.append("ERROR: ").append(line).append("\n");
+    String query = after == null ? DIRECTORY_FIRST_PAGE : DIRECTORY_NEXT_PAGE;
+
+    // Rows are handed on as they are read, so the event and slow log include the handler's time
+    JdbcQueryEvent event = new JdbcQueryEvent();
+    event.begin();
+    long start = System.nanoTime();
+    int rows = 0;
+    UserCursor next;
+    List<DirectoryCursor> cursors = new ArrayList<>();
+    // Scans cannot tell which users they will return, so they may lag a write by the replica lag
+    try (DataSourceRouting.Scope routing = DataSourceRouting.replica()) {
+      // Each shard returns its own first page; merging them in order gives the page across shards
+      for (DirectoryCursor cursor :
+          userShards.scatter(
+              shard -> DirectoryCursor.open(dataSource, query, prefix, after, limit, fetchSize()),
+              DirectoryCursor::close)) {
+        if (cursor.current != null) {
+          cursors.add(cursor);
+        } else {
+          cursor.close();
+        }
       }
+      PriorityQueue<DirectoryCursor> merge =
+          new PriorityQueue<>(
+              Math.max(1, cursors.size()),
+              (a, b) -> BY_USERNAME_AND_ID.compare(a.current, b.current));
+      merge.addAll(cursors);
+      User user = null;
+      while (rows < limit && !merge.isEmpty()) {
+        DirectoryCursor cursor = merge.poll();
+        user = cursor.current;
+        handler.handle(user);
+        rows++;
+        if (cursor.advance()) {
+          merge.add(cursor);
+        }
+      }
+      next = rows == limit ? new UserCursor(user.getUsername(), user.getId()) : null;
+    } catch (SQLException e) {
+      queryFinished(event, start, query, rows, e);
+      log.error(
+          "Directory query failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+      throw e;
+    } catch (IOException e) {
+      queryFinished(event, start, query, rows, e);
+      throw e;
+    } finally {
+      cursors.forEach(DirectoryCursor::close);
+    }
+    queryFinished(event, start, query, rows, null);
+    return next;
+  }
+
+  private int fetchSize() {
+    return userSearchProperties.getDirectoryFetchSize();
+  }
+
+  /** Applies the configured default to a requested directory page size and checks its bounds. */
+  public int directoryPageSize(Integer requested) {
+    int limit = requested == null ? userSearchProperties.getDirectoryDefaultPageSize() : requested;
+    if (limit < 1 || limit > userSearchProperties.getDirectoryMaxPageSize()) {
+      throw new IllegalArgumentException(
+          "Page size must be between 1 and " + userSearchProperties.getDirectoryMaxPageSize());
+    }
+    return limit;
+  }
+
+  static String escapeLike(String value) {
+    return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+  }
+
+  private static int inListSize(int values, int chunkSize) {
+    int size = Integer.highestOneBit(values);
+    if (size < values) {
+      size <<= 1;
+    }
+    return Math.min(size, chunkSize);
+  }
+
+  private static String placeholders(int count) {
+    StringBuilder placeholders = new StringBuilder(count * 3);
+    for (int i = 0; i < count; i++) {
+      placeholders.append(i == 0 ? "?" : ", ?");
+    }
+    return placeholders.toString();
+  }
+
+  /** Commits the flight recorder event of a statement and logs it if it was slow. */
+  private void queryFinished(
+      JdbcQueryEvent event, long startNanos, String sql, int rows, Exception error) {
+    long elapsed = System.nanoTime() - startNanos;
+    String errorName = error == null ? null : error.getClass().getSimpleName();
+    event.end();
+    if (event.shouldCommit()) {
+      event.sql = sql;
+      event.rows = rows;
+      event.error = errorName;
+      event.commit();
+    }
+    slowOperationLog.query(elapsed, sql, rows, errorName);
+  }
+
+  /**
+   * Fetches {@code url} through the {@link UpstreamResponseCache}, which serves fresh responses
+   * itself and lets concurrent requests for one URL share a single upstream exchange. Failures,
+   * timeouts and error statuses are reported in the returned text, as before.
+   */
+  public String fetchDataFromUrl(String url) {
+    return fetchDataFromUrlAsync(url).join();
+  }
+
+  /** Non-blocking variant of {@link #fetchDataFromUrl(String)}; the future never fails. */
+  public CompletableFuture<String> fetchDataFromUrlAsync(String url) {
+    Timer.Sample sample = backendMetrics.start();
+    UrlFetchEvent event = new UrlFetchEvent();
+    event.begin();
+    long start = System.nanoTime();
+    return upstreamResponseCache
+        .fetch(url)
+        .whenComplete(
+            (response, failure) -> {
+              fetchFinished(event, start, url, response, failure);
+              if (failure != null) {
+                backendMetrics.failure(sample, Operation.URL_FETCH, failure);
+              } else if (response.getStatusCode() >= 400) {
+                backendMetrics.failure(
+                    sample, Operation.URL_FETCH, "http-" + response.getStatusCode() / 100 + "xx");
+              } else {
+                backendMetrics.success(sample, Operation.URL_FETCH);
+              }
+            })
+        .thenApply(
+            response ->
+                response.getStatusCode() >= 400
+                    ? "Error fetching URL: HTTP " + response.getStatusCode()
+                    : response.getBodyAsString())
+        .exceptionally(failure -> "Error fetching URL: " + describe(failure));
+  }
+
+  /** Commits the flight recorder event of a fetch and logs it if it was slow. */
+  private void fetchFinished(
+      UrlFetchEvent event,
+      long startNanos,
+      String url,
+      UpstreamResponse response,
+      Throwable failure) {
+    long elapsed = System.nanoTime() - startNanos;
+    event.end();
+    int status = response == null ? 0 : response.getStatusCode();
+    long bytes = response == null ? 0 : response.getBody().length;
+    String error = failure == null ? null : rootCause(failure).getClass().getSimpleName();
+    if (event.shouldCommit()) {
+      event.host = SlowOperationLog.host(url);
+      event.status = status;
+      event.bytes = bytes;
+      event.error = error;
+      event.commit();
+    }
+    slowOperationLog.fetch(elapsed, url, status, bytes, error);
+  }
+
+  private static Throwable rootCause(Throwable failure) {
+    Throwable cause = failure;
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  private static String describe(Throwable failure) {
+    Throwable cause = rootCause(failure);
+    return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+  }
 
-      process.waitFor();
-      return output.toString();
-    } catch (Exception e) {
+  /**
+   * Runs an allowlisted command through the {@link CommandRunner} and returns its stdout followed
+   * by its stderr lines prefixed with {@code ERROR: }. Commands outside the allowlist are rejected
+   * with an {@link IllegalArgumentException}, and commands that find the runner's queue full with a
+   * {@link java.util.concurrent.RejectedExecutionException}.
+   */
+  public String executeCommand(String command) {
+    Timer.Sample sample = backendMetrics.start();
+    CommandExecutionEvent event = new CommandExecutionEvent();
+    event.begin();
+    long start = System.nanoTime();
+    CommandResult result;
+    try {
+      result = commandRunner.run(command);
+    } catch (IOException e) {
+      backendMetrics.failure(sample, Operation.COMMAND_EXEC, e);
+      commandFinished(event, start, command, null, e);
       return "Error executing command: " + e.getMessage();
+    } catch (InterruptedException e) {
+      backendMetrics.failure(sample, Operation.COMMAND_EXEC, e);
+      commandFinished(event, start, command, null, e);
+      Thread.currentThread().interrupt();
+      return "Error executing command: interrupted";
+    } catch (IllegalArgumentException | RejectedExecutionException e) {
+      backendMetrics.failure(sample, Operation.COMMAND_EXEC, e);
+      commandFinished(event, start, command, null, e);
+      throw e;
+    }
+    commandFinished(event, start, command, result, null);
+    if (result.isTimedOut()) {
+      backendMetrics.failure(sample, Operation.COMMAND_EXEC, "timeout");
+    } else if (result.getExitCode() != 0) {
+      backendMetrics.failure(sample, Operation.COMMAND_EXEC, "exit-status");
+    } else {
+      backendMetrics.success(sample, Operation.COMMAND_EXEC);
+    }
+
+    StringBuilder output = new StringBuilder();
+    result.getStdout().lines().forEach(line -> output.append(line).append("\n"));
+    result.getStderr().lines().forEach(line -> output.append("ERROR: ").append(line).append("\n"));
+    if (result.isTruncated()) {
+      output.append("ERROR: output truncated\n");
+    }
+    if (result.isTimedOut()) {
+      output
+          .append("Error executing command: timed out after ")
+          .append(result.getRunTime().toMillis())
+          .append(" ms\n");
+    }
+    return output.toString();
+  }
+
+  /** Commits the flight recorder event of a command and logs it if it was slow. */
+  private void commandFinished(
+      CommandExecutionEvent event,
+      long startNanos,
+      String command,
+      CommandResult result,
+      Exception error) {
+    long elapsed = System.nanoTime() - startNanos;
+    event.end();
+    int exitCode = result == null ? -1 : result.getExitCode();
+    boolean timedOut = result != null && result.isTimedOut();
+    String errorName = error == null ? null : error.getClass().getSimpleName();
+    if (event.shouldCommit()) {
+      event.program = SlowOperationLog.program(command);
+      event.exitCode = exitCode;
+      event.timedOut = timedOut;
+      event.error = errorName;
+      event.commit();
+    }
+    slowOperationLog.command(elapsed, command, exitCode, timedOut, errorName);
+  }
+
+  /**
+   * One shard's directory page, read a row ahead so that shards can be merged by their next row.
+   */
+  private static final class DirectoryCursor {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private User current;
+
+    private DirectoryCursor(
+        Connection connection, PreparedStatement statement, ResultSet resultSet) {
+      this.connection = connection;
+      this.statement = statement;
+      this.resultSet = resultSet;
+    }
+
+    static DirectoryCursor open(
+        DataSource dataSource,
+        String query,
+        String prefix,
+        UserCursor after,
+        int limit,
+        int fetchSize)
+        throws SQLException {
+      Connection connection = dataSource.getConnection();
+      try {
+        PreparedStatement statement =
+            connection.prepareStatement(
+                query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        int parameter = 1;
+        statement.setString(parameter++, escapeLike(prefix) + "%");
+        if (after != null) {
+          statement.setString(parameter++, after.getUsername());
+          statement.setString(parameter++, after.getUsername());
+          statement.setLong(parameter++, after.getId());
+        }
+        statement.setInt(parameter, limit);
+        DirectoryCursor cursor =
+            new DirectoryCursor(connection, statement, statement.executeQuery());
+        cursor.advance();
+        return cursor;
+      } catch (SQLException | RuntimeException e) {
+        try {
+          connection.close();
+        } catch (SQLException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+    }
+
+    /** Moves to the next row; returns false, leaving {@code current} null, at the end. */
+    boolean advance() throws SQLException {
+      current = resultSet.next() ? UserProjection.SUMMARY.map(resultSet) : null;
+      return current != null;
+    }
+
+    void close() {
+      // Closing the connection returns it to the pool, which closes its statements
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        log.warn("Closing a directory cursor failed: {}", e.getMessage());
+      }
     }
   }
 }
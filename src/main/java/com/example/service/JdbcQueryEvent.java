@@ -0,0 +1,26 @@
+package com.example.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.JdbcQuery")
+@Label("JDBC Query")
+@Category({"Employee Portal", "Backend"})
+@Description("A statement executed by EmployeeService, from execution until its rows were read")
+@StackTrace(false)
+final class JdbcQueryEvent extends Event {
+
+  @Label("SQL")
+  @Description("The prepared statement, with ? in place of every value")
+  String sql;
+
+  @Label("Rows")
+  int rows;
+
+  @Label("Error")
+  String error;
+}
@@ -0,0 +1,11 @@
+package com.example.service;
+
+/** The reactive searches read {@code spring.datasource} only, so they cannot search shards. */
+public class ReactiveSearchUnsupportedException extends RuntimeException {
+
+  public ReactiveSearchUnsupportedException() {
+    super(
+        "Reactive searches are not supported on a sharded store;"
+            + " use /api/user-search or /api/user-directory");
+  }
+}
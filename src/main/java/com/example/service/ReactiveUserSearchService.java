@@ -0,0 +1,73 @@
+package com.example.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+import com.example.datasource.UserShards;
+import com.example.model.User;
+import com.example.repository.UserProjection;
+import com.example.service.BackendMetrics.Operation;
+
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterparts of the {@link EmployeeService} searches, over R2DBC. Nothing runs until
+ * the returned {@link Flux} is subscribed; rows are then read as the subscriber requests them, so a
+ * slow consumer holds back the query instead of buffering its results. Lookups are not cached. They
+ * read {@code spring.datasource} only, so on a sharded store they fail with {@link
+ * ReactiveSearchUnsupportedException} rather than miss users.
+ */
+@Service
+public class ReactiveUserSearchService {
+
+  private static final String BY_USERNAME = UserProjection.SUMMARY.select("WHERE username = $1");
+
+  private static final String BY_PREFIX =
+      UserProjection.SUMMARY.select(
+          "WHERE username LIKE $1 ESCAPE '!' ORDER BY username, id LIMIT $2");
+
+  @Autowired private DatabaseClient reactiveDatabaseClient;
+
+  @Autowired private BackendMetrics backendMetrics;
+
+  @Autowired private UserShards userShards;
+
+  public Flux<User> findUserByUsername(String username) {
+    return query(reactiveDatabaseClient.sql(BY_USERNAME).bind(0, username));
+  }
+
+  /** The first {@code limit} users whose username starts with {@code prefix}, in username order. */
+  public Flux<User> findUsersByPrefix(String prefix, int limit) {
+    return query(
+        reactiveDatabaseClient
+            .sql(BY_PREFIX)
+            .bind(0, EmployeeService.escapeLike(prefix) + "%")
+            .bind(1, limit));
+  }
+
+  private Flux<User> query(DatabaseClient.GenericExecuteSpec spec) {
+    return Flux.defer(
+        () -> {
+          if (userShards.count() > 1) {
+            return Flux.error(new ReactiveSearchUnsupportedException());
+          }
+          Timer.Sample sample = backendMetrics.start();
+          return spec.map(ReactiveUserSearchService::map)
+              .all()
+              .doOnComplete(() -> backendMetrics.success(sample, Operation.USER_QUERY))
+              .doOnError(e -> backendMetrics.failure(sample, Operation.USER_QUERY, e));
+        });
+  }
+
+  /** Reads a {@link UserProjection#SUMMARY} row by position. */
+  private static User map(Row row) {
+    User user = new User();
+    user.setId(row.get(0, Long.class));
+    user.setUsername(row.get(1, String.class));
+    user.setEmail(row.get(2, String.class));
+    return user;
+  }
+}
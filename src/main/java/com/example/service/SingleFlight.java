@@ -0,0 +1,115 @@
+package com.example.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into one execution. The first caller for a key runs
+ * the loader; callers arriving while it is in flight wait for it and receive the same result, or
+ * the same exception. Nothing is remembered once the execution finishes, so this is not a cache:
+ * the next call for the key runs the loader again.
+ *
+ * <p>Owners whose data can change underneath an execution call {@link #forget(Object)} after the
+ * change, so that later callers start a fresh execution instead of joining one that may have read
+ * the old data.
+ */
+public final class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Runs {@code loader} on the calling thread, or waits for the identical call already running.
+   * Exceptions thrown by the loader are rethrown to every caller sharing the execution.
+   */
+  public V execute(K key, Supplier<V> loader) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      coalesced.increment();
+      return await(existing);
+    }
+
+    executions.increment();
+    V value;
+    try {
+      value = loader.get();
+    } catch (Throwable failure) {
+      land(key, flight, null, failure);
+      throw failure;
+    }
+    land(key, flight, value, null);
+    return value;
+  }
+
+  /**
+   * Asynchronous variant of {@link #execute(Object, Supplier)}: {@code loader} starts the work and
+   * every caller sharing it gets its own view of the resulting future.
+   */
+  public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      coalesced.increment();
+      return existing.copy();
+    }
+
+    executions.increment();
+    CompletableFuture<V> work;
+    try {
+      work = loader.get();
+    } catch (RuntimeException e) {
+      work = CompletableFuture.failedFuture(e);
+    }
+    work.whenComplete((value, failure) -> land(key, flight, value, failure));
+    return flight.copy();
+  }
+
+  /** Lets later calls for {@code key} start a new execution; current waiters are unaffected. */
+  public void forget(K key) {
+    inFlight.remove(key);
+  }
+
+  public void forgetAll() {
+    inFlight.clear();
+  }
+
+  /** Calls that ran their loader. */
+  public long getExecutions() {
+    return executions.sum();
+  }
+
+  /** Calls that shared an execution already in flight. */
+  public long getCoalesced() {
+    return coalesced.sum();
+  }
+
+  private void land(K key, CompletableFuture<V> flight, V value, Throwable failure) {
+    // Unpublish first so no new caller joins an execution that has already finished
+    inFlight.remove(key, flight);
+    if (failure != null) {
+      flight.completeExceptionally(failure);
+    } else {
+      flight.complete(value);
+    }
+  }
+
+  private static <V> V await(CompletableFuture<V> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+}
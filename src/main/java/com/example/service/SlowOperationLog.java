@@ -0,0 +1,89 @@
+package com.example.service;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.config.SlowOperationProperties;
+
+/**
+ * Logs the backend calls of {@link EmployeeService} that take longer than their {@code
+ * employee.slow-operations.*} threshold, at WARN under this class's logger. Below the threshold a
+ * call costs one comparison; nothing is formatted.
+ */
+@Component
+public class SlowOperationLog {
+
+  private static final Logger log = LoggerFactory.getLogger(SlowOperationLog.class);
+
+  private final boolean enabled;
+  private final long queryThresholdNanos;
+  private final long fetchThresholdNanos;
+  private final long commandThresholdNanos;
+
+  public SlowOperationLog(SlowOperationProperties properties) {
+    this.enabled = properties.isEnabled();
+    this.queryThresholdNanos = properties.getQueryThreshold().toNanos();
+    this.fetchThresholdNanos = properties.getFetchThreshold().toNanos();
+    this.commandThresholdNanos = properties.getCommandThreshold().toNanos();
+  }
+
+  /** Logs a query if slow; {@code error} is null when it succeeded. */
+  public void query(long elapsedNanos, String sql, int rows, String error) {
+    if (enabled && elapsedNanos >= queryThresholdNanos) {
+      log.warn(
+          "Slow query: {} ms, {} rows{}: {}",
+          TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          rows,
+          error == null ? "" : ", failed with " + error,
+          sql);
+    }
+  }
+
+  /** Logs a fetch if slow; only the host is logged, never the path or query string. */
+  public void fetch(long elapsedNanos, String url, int status, long bytes, String error) {
+    if (enabled && elapsedNanos >= fetchThresholdNanos) {
+      log.warn(
+          "Slow URL fetch: {} ms from {}, {}",
+          TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          host(url),
+          error == null ? "HTTP " + status + ", " + bytes + " bytes" : "failed with " + error);
+    }
+  }
+
+  /** Logs a command if slow; only the program is logged, never its arguments. */
+  public void command(
+      long elapsedNanos, String command, int exitCode, boolean timedOut, String error) {
+    if (enabled && elapsedNanos >= commandThresholdNanos) {
+      log.warn(
+          "Slow command: {} ms running {}, {}",
+          TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          program(command),
+          error != null
+              ? "failed with " + error
+              : timedOut ? "timed out" : "exit code " + exitCode);
+    }
+  }
+
+  /** The host of {@code url}, or null if it cannot be parsed. */
+  static String host(String url) {
+    try {
+      return URI.create(url).getHost();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /** The first word of a command line; the arguments may hold anything and are not recorded. */
+  static String program(String command) {
+    String trimmed = command == null ? "" : command.trim();
+    int end = 0;
+    while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))) {
+      end++;
+    }
+    return trimmed.substring(0, end);
+  }
+}
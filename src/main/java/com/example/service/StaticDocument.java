@@ -0,0 +1,78 @@
+package com.example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.DigestUtils;
+
+/**
+ * A small file held in memory with everything needed to serve it: its bytes, a gzip-compressed copy
+ * when compression actually saves space, and a strong ETag for each of the two.
+ */
+public final class StaticDocument {
+
+  private final String path;
+  private final MediaType mediaType;
+  private final byte[] identity;
+  private final String identityEtag;
+  private final byte[] gzip;
+  private final String gzipEtag;
+
+  private StaticDocument(String path, MediaType mediaType, byte[] identity, byte[] gzip) {
+    this.path = path;
+    this.mediaType = mediaType;
+    this.identity = identity;
+    this.identityEtag = etag(identity);
+    this.gzip = gzip;
+    this.gzipEtag = gzip == null ? null : etag(gzip);
+  }
+
+  /** Prepares {@code content}, typed by the extension of {@code path}. */
+  public static StaticDocument of(String path, byte[] content) {
+    MediaType mediaType =
+        MediaTypeFactory.getMediaType(path).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    byte[] identity = content.clone();
+    byte[] gzip = gzip(identity);
+    return new StaticDocument(
+        path, mediaType, identity, gzip.length < identity.length ? gzip : null);
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  public boolean hasGzip() {
+    return gzip != null;
+  }
+
+  /** The bytes of the requested variant; callers must not modify them. */
+  byte[] body(boolean gzipped) {
+    return gzipped ? gzip : identity;
+  }
+
+  String etag(boolean gzipped) {
+    return gzipped ? gzipEtag : identityEtag;
+  }
+
+  private static String etag(byte[] bytes) {
+    return "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length);
+    try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+}
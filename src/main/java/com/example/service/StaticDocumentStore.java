@@ -0,0 +1,152 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.example.config.StaticDocumentProperties;
+
+/**
+ * Small static files, read once at startup from {@code employee.static-documents.location} and
+ * served from memory. Files are read through their resource streams, so this works the same from a
+ * directory and from inside a jar.
+ *
+ * <p>{@link #serve(StaticDocument, HttpHeaders)} answers with the gzip variant when the client
+ * accepts it, with 304 when the client's {@code If-None-Match} names the variant it would get, and
+ * with {@code Cache-Control: max-age} so most clients do not ask again at all.
+ */
+@Component
+public class StaticDocumentStore {
+
+  private final Map<String, StaticDocument> documents;
+  private final CacheControl cacheControl;
+
+  public StaticDocumentStore(StaticDocumentProperties properties, ResourceLoader resourceLoader) {
+    this.cacheControl = CacheControl.maxAge(properties.getMaxAge()).cachePublic();
+    try {
+      this.documents =
+          load(resourceLoader, properties.getLocation(), properties.getMaxSize().toBytes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Could not load static documents from " + properties.getLocation(), e);
+    }
+  }
+
+  /** The document at {@code path} relative to the location, if it was small enough to load. */
+  public Optional<StaticDocument> find(String path) {
+    return Optional.ofNullable(documents.get(path));
+  }
+
+  public ResponseEntity<byte[]> serve(StaticDocument document, HttpHeaders request) {
+    boolean gzipped = document.hasGzip() && acceptsGzip(request.get(HttpHeaders.ACCEPT_ENCODING));
+    String etag = document.etag(gzipped);
+
+    boolean notModified = matches(request.getIfNoneMatch(), etag);
+    ResponseEntity.BodyBuilder response =
+        ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+            .eTag(etag)
+            .cacheControl(cacheControl);
+    if (document.hasGzip()) {
+      response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+    }
+    if (notModified) {
+      return response.build();
+    }
+    if (gzipped) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    byte[] body = document.body(gzipped);
+    return response.contentType(document.getMediaType()).contentLength(body.length).body(body);
+  }
+
+  private static Map<String, StaticDocument> load(
+      ResourceLoader resourceLoader, String location, long maxSize) throws IOException {
+    String root = location.endsWith("/") ? location : location + "/";
+    Resource rootResource = resourceLoader.getResource(root);
+    if (!rootResource.exists()) {
+      return Collections.emptyMap();
+    }
+    String rootUrl = rootResource.getURL().toString();
+
+    Map<String, StaticDocument> documents = new HashMap<>();
+    PathMatchingResourcePatternResolver resolver =
+        new PathMatchingResourcePatternResolver(resourceLoader);
+    for (Resource resource : resolver.getResources(root + "**")) {
+      String url = resource.getURL().toString();
+      if (!resource.isReadable() || url.endsWith("/") || !url.startsWith(rootUrl)) {
+        continue;
+      }
+      if (resource.contentLength() > maxSize) {
+        continue;
+      }
+      String path = url.substring(rootUrl.length());
+      try (InputStream in = resource.getInputStream()) {
+        documents.put(path, StaticDocument.of(path, in.readAllBytes()));
+      }
+    }
+    return Collections.unmodifiableMap(documents);
+  }
+
+  private static boolean acceptsGzip(Iterable<String> acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Boolean wildcard = null;
+    for (String header : acceptEncoding) {
+      for (String coding : header.split(",")) {
+        String[] parts = coding.split(";");
+        String name = parts[0].trim().toLowerCase(Locale.ROOT);
+        boolean accepted = quality(parts) > 0;
+        if (name.equals("gzip") || name.equals("x-gzip")) {
+          return accepted;
+        }
+        if (name.equals("*")) {
+          wildcard = accepted;
+        }
+      }
+    }
+    return Boolean.TRUE.equals(wildcard);
+  }
+
+  private static double quality(String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      String parameter = parameters[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /** If-None-Match uses the weak comparison, so a {@code W/} prefix is ignored. */
+  private static boolean matches(Iterable<String> ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
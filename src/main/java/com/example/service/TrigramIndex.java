@@ -0,0 +1,663 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Inverted index from the trigrams of each user's username and email to the users containing them,
+ * for {@link UserSearchIndex}. Not thread-safe; the owner guards it.
+ *
+ * <p>Every user version gets a slot, and each posting list is a growable {@code int[]} of slots in
+ * ascending order. A changed user is appended under a new slot and the old one is marked dead, so
+ * updates only ever append; dead slots are skipped by searches and dropped by a compaction once
+ * they outnumber the live ones. Texts are lower-cased and framed by start and end markers, so a
+ * text of n characters has n trigrams and matches at its ends count.
+ *
+ * <p>A search for a query with n trigrams and up to k typos looks for texts sharing at least {@code
+ * t = n - 2 - 3k} of them: one edit changes at most three, and the two framed ones are not needed
+ * for the query to be found inside a longer text. Any such text is in one of the {@code n - t + 1}
+ * shortest posting lists of the query, so only those are merged into candidates; each candidate's
+ * text is then compared with the query and ranked by the Dice coefficient of the two trigram sets.
+ */
+final class TrigramIndex {
+
+  private static final char START = '\u0002';
+  private static final char END = '\u0003';
+  private static final int[] NO_SLOTS = new int[0];
+  private static final int MIN_DEAD_TO_COMPACT = 1024;
+  private static final int POOLED_SCRATCHES = 16;
+
+  /** Longest query searched for, as long as the longest text; trigram counts then fit a byte. */
+  static final int MAX_QUERY_LENGTH = 255;
+
+  private long[] ids;
+  private String[] usernames;
+  private String[] emails;
+  /** The previous live-or-dead slot with the same username, or -1. */
+  private int[] sameUsername;
+
+  private long[] live;
+  private int slots;
+  private int liveCount;
+
+  private LongIntTable slotById;
+  /** Open-addressing table of the newest slot + 1 for each username, 0 where empty. */
+  private int[] slotByUsername;
+
+  private int usernameCount;
+
+  private Field usernameGrams;
+  private Field emailGrams;
+
+  /** Scratch trigram buffer for writers; searches take a {@link Scratch}. */
+  private long[] gramBuffer = new long[256];
+
+  private final BlockingQueue<Scratch> scratches = new ArrayBlockingQueue<>(POOLED_SCRATCHES);
+
+  TrigramIndex() {
+    this(1024);
+  }
+
+  TrigramIndex(int expectedUsers) {
+    int capacity = Math.max(16, expectedUsers);
+    ids = new long[capacity];
+    usernames = new String[capacity];
+    emails = new String[capacity];
+    sameUsername = new int[capacity];
+    live = new long[(capacity + 63) >>> 6];
+    slotById = new LongIntTable(capacity);
+    slotByUsername = new int[tableSize(capacity)];
+    usernameGrams = new Field(capacity);
+    emailGrams = new Field(capacity);
+  }
+
+  /** Users indexed. */
+  int size() {
+    return liveCount;
+  }
+
+  /** Adds the user with {@code id}, or replaces the texts indexed for it. */
+  void put(long id, String username, String email) {
+    int previous = slotById.get(id);
+    if (previous >= 0 && isLive(previous)) {
+      if (equal(usernames[previous], username) && equal(emails[previous], email)) {
+        return;
+      }
+      kill(previous);
+    }
+    append(id, username, email);
+    compactIfSparse();
+  }
+
+  /** Drops the user with {@code id}; returns whether it was indexed. */
+  boolean remove(long id) {
+    int slot = slotById.get(id);
+    if (slot < 0 || !isLive(slot)) {
+      return false;
+    }
+    kill(slot);
+    compactIfSparse();
+    return true;
+  }
+
+  /** Replaces the email of every user named {@code username}; returns how many there were. */
+  int updateEmail(String username, String email) {
+    // Ids rather than slots, since a put may compact and renumber the slots
+    long[] matching = new long[1];
+    int count = 0;
+    for (int slot = newestSlotOf(username); slot >= 0; slot = sameUsername[slot]) {
+      if (isLive(slot) && username.equals(usernames[slot])) {
+        if (count == matching.length) {
+          matching = Arrays.copyOf(matching, count << 1);
+        }
+        matching[count++] = ids[slot];
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      put(matching[i], username, email);
+    }
+    return count;
+  }
+
+  /**
+   * The users whose username or email is within {@code maxTypos} edits of {@code query}, by
+   * trigrams, best match first and at most {@code limit} of them.
+   */
+  List<UserMatch> search(String query, int limit, int maxTypos) {
+    if (query.length() > MAX_QUERY_LENGTH) {
+      throw new IllegalArgumentException("Query longer than " + MAX_QUERY_LENGTH);
+    }
+    long[] queryGrams = new long[Math.max(1, query.length())];
+    int n = grams(query, queryGrams);
+    if (n == 0 || limit <= 0) {
+      return new ArrayList<>();
+    }
+    // The two framed trigrams only match a whole text, so a query found inside a longer one, such
+    // as part of an email, needs only its inner trigrams; the framed ones then lift whole matches
+    int threshold = Math.max(1, n - 2 - 3 * maxTypos);
+    TopMatches top = new TopMatches(limit);
+    Scratch scratch = scratch();
+    try {
+      search(usernameGrams, usernames, queryGrams, n, threshold, top, scratch);
+      search(emailGrams, emails, queryGrams, n, threshold, top, scratch);
+    } finally {
+      scratches.offer(scratch);
+    }
+
+    List<UserMatch> matches = new ArrayList<>(top.size);
+    for (int i = 0; i < top.size; i++) {
+      int slot = top.slots[i];
+      matches.add(new UserMatch(ids[slot], usernames[slot], emails[slot], top.scores[i]));
+    }
+    return matches;
+  }
+
+  private void search(
+      Field field,
+      String[] texts,
+      long[] queryGrams,
+      int n,
+      int threshold,
+      TopMatches top,
+      Scratch scratch) {
+    int[][] lists = new int[n][];
+    int[] lengths = new int[n];
+    int[] bits = new int[n];
+    for (int i = 0; i < n; i++) {
+      int gram = field.gramIds.get(queryGrams[i]);
+      lists[i] = gram < 0 ? NO_SLOTS : field.postings[gram];
+      lengths[i] = gram < 0 ? 0 : field.lengths[gram];
+      bits[i] = signatureBit(queryGrams[i]);
+    }
+    // Shortest lists first; n is small, so an insertion sort does
+    for (int i = 1; i < n; i++) {
+      for (int j = i; j > 0 && lengths[j] < lengths[j - 1]; j--) {
+        int length = lengths[j];
+        lengths[j] = lengths[j - 1];
+        lengths[j - 1] = length;
+        int[] list = lists[j];
+        lists[j] = lists[j - 1];
+        lists[j - 1] = list;
+        int bit = bits[j];
+        bits[j] = bits[j - 1];
+        bits[j - 1] = bit;
+      }
+    }
+
+    // A match misses at most n - threshold trigrams, so it is in at least `required` of the
+    // shortest lists; counting a couple more lists than the minimum leaves far fewer candidates
+    int extra = Math.min(2, threshold - 1);
+    int counted = n - threshold + 1 + extra;
+    int required = 1 + extra;
+    byte[] counts = scratch.counts;
+    int[] touched = scratch.touched;
+    int touchedCount = 0;
+    for (int i = 0; i < counted; i++) {
+      int[] list = lists[i];
+      for (int j = 0; j < lengths[i]; j++) {
+        int slot = list[j];
+        if (counts[slot]++ == 0) {
+          if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, touchedCount << 1);
+            scratch.touched = touched;
+          }
+          touched[touchedCount++] = slot;
+        }
+      }
+    }
+
+    long[] signatures = field.signatures;
+    for (int i = 0; i < touchedCount; i++) {
+      int slot = touched[i];
+      int count = counts[slot] & 0xff;
+      counts[slot] = 0;
+      int slotGrams = field.gramCounts[slot];
+      if (count < required || slotGrams < threshold || !isLive(slot)) {
+        continue;
+      }
+      // The trigrams of the uncounted lists whose signature bit is set bound what they can add
+      long low = signatures[slot << 1];
+      long high = signatures[(slot << 1) + 1];
+      int bound = count;
+      for (int j = counted; j < n && bound < threshold; j++) {
+        long signature = bits[j] < 64 ? low : high;
+        if ((signature & 1L << bits[j]) != 0) {
+          bound++;
+        }
+      }
+      if (bound < threshold) {
+        continue;
+      }
+      String text = texts[slot];
+      if (scratch.grams.length < text.length()) {
+        scratch.grams = new long[text.length()];
+      }
+      int shared = shared(queryGrams, n, scratch.grams, grams(text, scratch.grams));
+      if (shared >= threshold) {
+        top.offer(slot, 2.0 * shared / (n + slotGrams), usernames[slot]);
+      }
+    }
+  }
+
+  /** Per-search buffers, pooled since the counts cover every slot. */
+  private Scratch scratch() {
+    Scratch scratch = scratches.poll();
+    if (scratch == null || scratch.counts.length < slots) {
+      scratch = new Scratch(ids.length);
+    }
+    return scratch;
+  }
+
+  private static int signatureBit(long gram) {
+    return (int) (gram * 0x9e3779b97f4a7c15L >>> 57);
+  }
+
+  /** The number of trigrams two ascending, distinct trigram lists have in common. */
+  private static int shared(long[] a, int aLength, long[] b, int bLength) {
+    int i = 0;
+    int j = 0;
+    int shared = 0;
+    while (i < aLength && j < bLength) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        shared++;
+        i++;
+        j++;
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Writes the distinct trigrams of {@code text}, lower-cased and framed by start and end markers,
+   * to {@code out} in ascending order and returns how many there are. {@code out} must hold at
+   * least {@code text.length()} values.
+   */
+  static int grams(String text, long[] out) {
+    int length = text == null ? 0 : text.length();
+    if (length == 0) {
+      return 0;
+    }
+    long a = START;
+    long b = Character.toLowerCase(text.charAt(0));
+    for (int i = 1; i <= length; i++) {
+      long c = i < length ? Character.toLowerCase(text.charAt(i)) : END;
+      out[i - 1] = a << 32 | b << 16 | c;
+      a = b;
+      b = c;
+    }
+    Arrays.sort(out, 0, length);
+    int distinct = 1;
+    for (int i = 1; i < length; i++) {
+      if (out[i] != out[distinct - 1]) {
+        out[distinct++] = out[i];
+      }
+    }
+    return distinct;
+  }
+
+  private void append(long id, String username, String email) {
+    if (slots == ids.length) {
+      grow();
+    }
+    int slot = slots++;
+    ids[slot] = id;
+    usernames[slot] = username;
+    emails[slot] = email;
+    live[slot >>> 6] |= 1L << slot;
+    liveCount++;
+    slotById.put(id, slot);
+    sameUsername[slot] = newestSlotOf(username);
+    setNewestSlot(username, slot);
+    usernameGrams.add(slot, username, this);
+    emailGrams.add(slot, email, this);
+  }
+
+  private void kill(int slot) {
+    live[slot >>> 6] &= ~(1L << slot);
+    liveCount--;
+  }
+
+  private boolean isLive(int slot) {
+    return (live[slot >>> 6] & 1L << slot) != 0;
+  }
+
+  private void grow() {
+    int capacity = ids.length + (ids.length >> 1);
+    ids = Arrays.copyOf(ids, capacity);
+    usernames = Arrays.copyOf(usernames, capacity);
+    emails = Arrays.copyOf(emails, capacity);
+    sameUsername = Arrays.copyOf(sameUsername, capacity);
+    live = Arrays.copyOf(live, (capacity + 63) >>> 6);
+    usernameGrams.grow(capacity);
+    emailGrams.grow(capacity);
+  }
+
+  /** Re-indexes the live users into fresh slots once dead slots outnumber them. */
+  private void compactIfSparse() {
+    int dead = slots - liveCount;
+    if (dead < MIN_DEAD_TO_COMPACT || dead < liveCount) {
+      return;
+    }
+    TrigramIndex compacted = new TrigramIndex(liveCount + (liveCount >> 2));
+    for (int slot = 0; slot < slots; slot++) {
+      if (isLive(slot)) {
+        compacted.append(ids[slot], usernames[slot], emails[slot]);
+      }
+    }
+    ids = compacted.ids;
+    usernames = compacted.usernames;
+    emails = compacted.emails;
+    sameUsername = compacted.sameUsername;
+    live = compacted.live;
+    slots = compacted.slots;
+    liveCount = compacted.liveCount;
+    slotById = compacted.slotById;
+    slotByUsername = compacted.slotByUsername;
+    usernameCount = compacted.usernameCount;
+    usernameGrams = compacted.usernameGrams;
+    emailGrams = compacted.emailGrams;
+  }
+
+  private int newestSlotOf(String username) {
+    if (username == null) {
+      return -1;
+    }
+    int mask = slotByUsername.length - 1;
+    for (int i = mix(username.hashCode()) & mask; ; i = (i + 1) & mask) {
+      int entry = slotByUsername[i];
+      if (entry == 0) {
+        return -1;
+      }
+      if (username.equals(usernames[entry - 1])) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private void setNewestSlot(String username, int slot) {
+    if (username == null) {
+      return;
+    }
+    if (usernameCount + 1 > slotByUsername.length >> 1) {
+      int[] old = slotByUsername;
+      slotByUsername = new int[old.length << 1];
+      for (int entry : old) {
+        if (entry != 0) {
+          insertNewestSlot(usernames[entry - 1], entry - 1);
+        }
+      }
+    }
+    if (insertNewestSlot(username, slot)) {
+      usernameCount++;
+    }
+  }
+
+  /** Points the entry for {@code username} at {@code slot}; returns whether the entry is new. */
+  private boolean insertNewestSlot(String username, int slot) {
+    int mask = slotByUsername.length - 1;
+    for (int i = mix(username.hashCode()) & mask; ; i = (i + 1) & mask) {
+      int entry = slotByUsername[i];
+      if (entry == 0 || username.equals(usernames[entry - 1])) {
+        slotByUsername[i] = slot + 1;
+        return entry == 0;
+      }
+    }
+  }
+
+  /** An estimate of the heap held by the index, texts included. */
+  long estimatedBytes() {
+    long bytes = ids.length * (8L + 4 + 4 + 4 + 4) + live.length * 8L;
+    bytes += slotById.estimatedBytes() + slotByUsername.length * 4L;
+    for (int slot = 0; slot < slots; slot++) {
+      bytes += textBytes(usernames[slot]) + textBytes(emails[slot]);
+    }
+    return bytes + usernameGrams.estimatedBytes() + emailGrams.estimatedBytes();
+  }
+
+  /** Distinct trigrams across both fields. */
+  int grams() {
+    return usernameGrams.grams + emailGrams.grams;
+  }
+
+  /** Slots in all posting lists, dead ones included. */
+  long postings() {
+    return usernameGrams.postings() + emailGrams.postings();
+  }
+
+  int deadSlots() {
+    return slots - liveCount;
+  }
+
+  private static long textBytes(String text) {
+    // Object header and fields, plus the Latin-1 array of a compact string
+    return text == null ? 0 : 24 + 16 + text.length();
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  private static int tableSize(int entries) {
+    return Integer.highestOneBit(Math.max(8, entries) * 2 - 1) << 1;
+  }
+
+  private static int mix(int hash) {
+    hash *= 0x9e3779b9;
+    return hash ^ hash >>> 16;
+  }
+
+  /** The posting lists of one of the two texts of every user. */
+  private static final class Field {
+
+    private final LongIntTable gramIds = new LongIntTable(4096);
+    private int[][] postings = new int[4096][];
+    private int[] lengths = new int[4096];
+    private int grams;
+    /** Distinct trigrams of each slot's text. */
+    private short[] gramCounts;
+    /** 128 bits per slot, set for the {@link #signatureBit} of each of its trigrams. */
+    private long[] signatures;
+
+    Field(int capacity) {
+      gramCounts = new short[capacity];
+      signatures = new long[capacity << 1];
+    }
+
+    void grow(int capacity) {
+      gramCounts = Arrays.copyOf(gramCounts, capacity);
+      signatures = Arrays.copyOf(signatures, capacity << 1);
+    }
+
+    void add(int slot, String text, TrigramIndex index) {
+      int length = text == null ? 0 : text.length();
+      if (index.gramBuffer.length < length) {
+        index.gramBuffer = new long[length];
+      }
+      long[] buffer = index.gramBuffer;
+      int count = TrigramIndex.grams(text, buffer);
+      gramCounts[slot] = (short) Math.min(count, Short.MAX_VALUE);
+      for (int i = 0; i < count; i++) {
+        int bit = signatureBit(buffer[i]);
+        signatures[(slot << 1) + (bit >>> 6)] |= 1L << bit;
+        int gram = gramIds.get(buffer[i]);
+        if (gram < 0) {
+          gram = grams++;
+          if (gram == postings.length) {
+            postings = Arrays.copyOf(postings, gram << 1);
+            lengths = Arrays.copyOf(lengths, gram << 1);
+          }
+          postings[gram] = new int[2];
+          gramIds.put(buffer[i], gram);
+        }
+        int[] list = postings[gram];
+        if (lengths[gram] == list.length) {
+          list = Arrays.copyOf(list, list.length + (list.length >> 1) + 1);
+          postings[gram] = list;
+        }
+        list[lengths[gram]++] = slot;
+      }
+    }
+
+    long postings() {
+      long total = 0;
+      for (int gram = 0; gram < grams; gram++) {
+        total += lengths[gram];
+      }
+      return total;
+    }
+
+    long estimatedBytes() {
+      long bytes = gramIds.estimatedBytes() + postings.length * 8L + lengths.length * 4L;
+      bytes += gramCounts.length * 2L + signatures.length * 8L;
+      for (int gram = 0; gram < grams; gram++) {
+        bytes += 16 + postings[gram].length * 4L;
+      }
+      return bytes;
+    }
+  }
+
+  /** Open-addressing map from {@code long} keys to non-negative {@code int} values. */
+  static final class LongIntTable {
+
+    private long[] keys;
+    /** Value + 1, 0 where the bucket is empty. */
+    private int[] values;
+
+    private int size;
+
+    LongIntTable(int expected) {
+      int capacity = tableSize(expected);
+      keys = new long[capacity];
+      values = new int[capacity];
+    }
+
+    /** The value for {@code key}, or -1. */
+    int get(long key) {
+      int mask = keys.length - 1;
+      for (int i = index(key, mask); ; i = (i + 1) & mask) {
+        if (values[i] == 0) {
+          return -1;
+        }
+        if (keys[i] == key) {
+          return values[i] - 1;
+        }
+      }
+    }
+
+    void put(long key, int value) {
+      if (size + 1 > keys.length >> 1) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new int[oldValues.length << 1];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+          if (oldValues[i] != 0) {
+            put(oldKeys[i], oldValues[i] - 1);
+          }
+        }
+      }
+      int mask = keys.length - 1;
+      for (int i = index(key, mask); ; i = (i + 1) & mask) {
+        if (values[i] == 0) {
+          keys[i] = key;
+          values[i] = value + 1;
+          size++;
+          return;
+        }
+        if (keys[i] == key) {
+          values[i] = value + 1;
+          return;
+        }
+      }
+    }
+
+    long estimatedBytes() {
+      return keys.length * 12L;
+    }
+
+    private static int index(long key, int mask) {
+      long hash = key * 0x9e3779b97f4a7c15L;
+      return (int) (hash ^ hash >>> 32) & mask;
+    }
+  }
+
+  private static final class Scratch {
+
+    private final byte[] counts;
+    private int[] touched = new int[4096];
+    private long[] grams = new long[256];
+
+    Scratch(int slots) {
+      counts = new byte[slots];
+    }
+  }
+
+  /** The best {@code limit} slots seen so far, best first; a slot offered twice keeps its best. */
+  private static final class TopMatches {
+
+    private final int[] slots;
+    private final double[] scores;
+    private final String[] usernames;
+    private int size;
+
+    TopMatches(int limit) {
+      slots = new int[limit];
+      scores = new double[limit];
+      usernames = new String[limit];
+    }
+
+    void offer(int slot, double score, String username) {
+      for (int i = 0; i < size; i++) {
+        if (slots[i] == slot) {
+          if (score <= scores[i]) {
+            return;
+          }
+          System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+          System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+          System.arraycopy(usernames, i + 1, usernames, i, size - i - 1);
+          size--;
+          break;
+        }
+      }
+      int position = size;
+      while (position > 0 && better(score, username, slot, position - 1)) {
+        position--;
+      }
+      if (position == slots.length) {
+        return;
+      }
+      int moved = Math.min(size, slots.length - 1) - position;
+      System.arraycopy(slots, position, slots, position + 1, moved);
+      System.arraycopy(scores, position, scores, position + 1, moved);
+      System.arraycopy(usernames, position, usernames, position + 1, moved);
+      slots[position] = slot;
+      scores[position] = score;
+      usernames[position] = username;
+      size = Math.min(size + 1, slots.length);
+    }
+
+    /** Higher scores first, then usernames in order, then older slots. */
+    private boolean better(double score, String username, int slot, int than) {
+      if (score != scores[than]) {
+        return score > scores[than];
+      }
+      int order = compare(username, usernames[than]);
+      return order != 0 ? order < 0 : slot < slots[than];
+    }
+
+    private static int compare(String a, String b) {
+      if (a == null || b == null) {
+        return a == null ? (b == null ? 0 : 1) : -1;
+      }
+      return a.compareTo(b);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package com.example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.example.config.UpstreamHttpProperties;
+
+/**
+ * The one HTTP client used to call upstream URLs. It keeps connections alive between calls and
+ * bounds every fetch: connecting by {@code connect-timeout}, waiting for headers and for each chunk
+ * of the body by {@code read-timeout}, the whole exchange by {@code total-timeout}, and the body by
+ * {@code max-response-size}. Bodies are collected as raw bytes and decoded once at the end.
+ */
+@Component
+public class UpstreamHttpClient {
+
+  private final UpstreamHttpProperties properties;
+  private final HttpClient client;
+  private final ScheduledExecutorService timer;
+
+  public UpstreamHttpClient(UpstreamHttpProperties properties) {
+    this.properties = properties;
+    this.client =
+        HttpClient.newBuilder()
+            .connectTimeout(properties.getConnectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+              thread.setName("upstream-http-timer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    timer.setRemoveOnCancelPolicy(true);
+    this.timer = timer;
+  }
+
+  /**
+   * Fetches {@code url} with a GET request. The future fails with an {@link HttpTimeoutException}
+   * when a timeout expires and with an {@link UpstreamResponseTooLargeException} when the body is
+   * too large; it never blocks the calling thread.
+   */
+  public CompletableFuture<UpstreamResponse> get(String url) {
+    return get(url, Collections.emptyMap());
+  }
+
+  /** Like {@link #get(String)}, sending {@code requestHeaders} such as conditional headers. */
+  public CompletableFuture<UpstreamResponse> get(String url, Map<String, String> requestHeaders) {
+    HttpRequest request;
+    try {
+      HttpRequest.Builder builder =
+          HttpRequest.newBuilder(URI.create(url))
+              .timeout(min(properties.getReadTimeout(), properties.getTotalTimeout()))
+              .GET();
+      requestHeaders.forEach(builder::header);
+      request = builder.build();
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    long totalNanos = properties.getTotalTimeout().toNanos();
+    long deadline = System.nanoTime() + totalNanos;
+    CompletableFuture<UpstreamResponse> result = new CompletableFuture<>();
+    CompletableFuture<HttpResponse<byte[]>> exchange =
+        client.sendAsync(request, info -> new LimitedBodySubscriber(info.headers(), deadline));
+
+    // Covers the time before the body subscriber takes over the deadline
+    ScheduledFuture<?> expiry =
+        timer.schedule(
+            () -> {
+              if (result.completeExceptionally(
+                  new HttpTimeoutException("Upstream did not respond within the total timeout"))) {
+                exchange.cancel(true);
+              }
+            },
+            totalNanos,
+            TimeUnit.NANOSECONDS);
+
+    exchange.whenComplete(
+        (response, failure) -> {
+          expiry.cancel(false);
+          if (failure != null) {
+            result.completeExceptionally(failure);
+          } else {
+            result.complete(
+                new UpstreamResponse(
+                    response.statusCode(),
+                    response.body(),
+                    charsetOf(response.headers()),
+                    response.headers()));
+          }
+        });
+    return result;
+  }
+
+  @PreDestroy
+  public void close() {
+    timer.shutdownNow();
+  }
+
+  private static Duration min(Duration a, Duration b) {
+    return a.compareTo(b) <= 0 ? a : b;
+  }
+
+  private static Charset charsetOf(HttpHeaders headers) {
+    try {
+      return headers
+          .firstValue("Content-Type")
+          .map(MediaType::parseMediaType)
+          .map(MediaType::getCharset)
+          .orElse(StandardCharsets.UTF_8);
+    } catch (RuntimeException e) {
+      return StandardCharsets.UTF_8;
+    }
+  }
+
+  /**
+   * Copies body chunks into one growing buffer, failing the exchange once the body passes the size
+   * limit, a chunk is later than {@code read-timeout}, or the total deadline has passed.
+   */
+  private final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+    private static final int MAX_INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+    private final long limit = properties.getMaxResponseSize().toBytes();
+    private final long readTimeoutNanos = properties.getReadTimeout().toNanos();
+    private final long deadline;
+    private final ByteArrayOutputStream buffer;
+    private final byte[] scratch = new byte[8192];
+
+    private volatile Flow.Subscription subscription;
+    private volatile ScheduledFuture<?> idleTimeout;
+    private volatile ScheduledFuture<?> totalTimeout;
+
+    LimitedBodySubscriber(HttpHeaders headers, long deadline) {
+      this.deadline = deadline;
+      long contentLength = headers.firstValueAsLong("Content-Length").orElse(-1);
+      if (contentLength > limit) {
+        // Nothing of the body will be read, so nothing is allocated for it
+        this.buffer = new ByteArrayOutputStream(0);
+        fail(new UpstreamResponseTooLargeException(limit));
+        return;
+      }
+      // The header is the upstream's word only; the buffer grows if it is true
+      int initialSize =
+          contentLength > 0 ? (int) Math.min(contentLength, MAX_INITIAL_BUFFER_SIZE) : 8192;
+      this.buffer = new ByteArrayOutputStream(initialSize);
+    }
+
+    @Override
+    public CompletionStage<byte[]> getBody() {
+      return body;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (body.isDone()) {
+        subscription.cancel();
+        return;
+      }
+      totalTimeout =
+          timer.schedule(
+              () ->
+                  fail(new HttpTimeoutException("Upstream body not received within total timeout")),
+              deadline - System.nanoTime(),
+              TimeUnit.NANOSECONDS);
+      rearmIdleTimeout();
+      subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> chunks) {
+      if (body.isDone()) {
+        return;
+      }
+      rearmIdleTimeout();
+      for (ByteBuffer chunk : chunks) {
+        if (buffer.size() + (long) chunk.remaining() > limit) {
+          fail(new UpstreamResponseTooLargeException(limit));
+          return;
+        }
+        while (chunk.hasRemaining()) {
+          int length = Math.min(chunk.remaining(), scratch.length);
+          chunk.get(scratch, 0, length);
+          buffer.write(scratch, 0, length);
+        }
+      }
+      subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      cancelTimeouts();
+      body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      cancelTimeouts();
+      body.complete(buffer.toByteArray());
+    }
+
+    private void rearmIdleTimeout() {
+      cancelIdleTimeout();
+      idleTimeout =
+          timer.schedule(
+              () -> fail(new HttpTimeoutException("Upstream body stalled beyond read timeout")),
+              readTimeoutNanos,
+              TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelIdleTimeout() {
+      ScheduledFuture<?> pending = idleTimeout;
+      if (pending != null) {
+        pending.cancel(false);
+      }
+    }
+
+    private void cancelTimeouts() {
+      cancelIdleTimeout();
+      ScheduledFuture<?> pending = totalTimeout;
+      if (pending != null) {
+        pending.cancel(false);
+      }
+    }
+
+    private void fail(Throwable failure) {
+      if (body.completeExceptionally(failure)) {
+        cancelTimeouts();
+        Flow.Subscription current = subscription;
+        if (current != null) {
+          current.cancel();
+        }
+      }
+    }
+  }
+}
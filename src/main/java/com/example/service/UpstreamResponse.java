@@ -0,0 +1,46 @@
+package com.example.service;
+
+import java.net.http.HttpHeaders;
+import java.nio.charset.Charset;
+import java.util.Optional;
+
+/** A fully read upstream response body together with its status. */
+public final class UpstreamResponse {
+
+  private final int statusCode;
+  private final byte[] body;
+  private final Charset charset;
+  private final HttpHeaders headers;
+
+  UpstreamResponse(int statusCode, byte[] body, Charset charset, HttpHeaders headers) {
+    this.statusCode = statusCode;
+    this.body = body;
+    this.charset = charset;
+    this.headers = headers;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public Optional<String> header(String name) {
+    return headers.firstValue(name);
+  }
+
+  HttpHeaders getHeaders() {
+    return headers;
+  }
+
+  Charset getCharset() {
+    return charset;
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  /** The body decoded with the charset of its {@code Content-Type}, UTF-8 if none was given. */
+  public String getBodyAsString() {
+    return new String(body, charset);
+  }
+}
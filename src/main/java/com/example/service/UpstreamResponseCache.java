@@ -0,0 +1,299 @@
+package com.example.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.example.config.UpstreamCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * HTTP cache in front of {@link UpstreamHttpClient} for {@code /api/fetch-url}.
+ *
+ * <p>Successful responses are kept while {@code Cache-Control: max-age} says they are fresh and
+ * served without contacting the upstream. Once stale, a response that carried an {@code ETag} or
+ * {@code Last-Modified} is revalidated with a conditional GET, so an unchanged document costs a 304
+ * instead of a full transfer. Errors, {@code no-store} responses and responses that are neither
+ * fresh nor revalidatable are not kept. Unless they say {@code no-store} or the document is gone
+ * (404 or 410), they also leave the URL's cached entry in place, so a failed revalidation does not
+ * cost the next request a full transfer. Once their bodies exceed {@code
+ * employee.upstream-cache.max-size} bytes in total, Caffeine evicts entries by its W-TinyLFU
+ * policy, weighing each by its body. Lookups, fresh hits included, take no lock shared with other
+ * URLs.
+ *
+ * <p>Concurrent requests for a URL that is not fresh share one upstream exchange through a {@link
+ * SingleFlight}, also when caching is disabled.
+ */
+@Component
+public class UpstreamResponseCache {
+
+  private final UpstreamHttpClient client;
+  private final boolean enabled;
+  private final long maxBytes;
+  private final SingleFlight<String, UpstreamResponse> upstreamFetches = new SingleFlight<>();
+
+  private final Cache<String, Entry> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder bytesServedFromCache = new LongAdder();
+
+  public UpstreamResponseCache(UpstreamHttpClient client, UpstreamCacheProperties properties) {
+    this.client = client;
+    this.enabled = properties.isEnabled();
+    this.maxBytes = properties.getMaxSize().toBytes();
+    this.entries =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String url, Entry entry) -> entry.size())
+            .recordStats()
+            .build();
+  }
+
+  public CompletableFuture<UpstreamResponse> fetch(String url) {
+    if (!enabled) {
+      return upstreamFetches.executeAsync(url, () -> client.get(url));
+    }
+
+    Entry cached = lookup(url);
+    if (cached != null && cached.isFresh(System.nanoTime())) {
+      return hit(cached);
+    }
+    return upstreamFetches.executeAsync(url, () -> fetchFromUpstream(url));
+  }
+
+  private CompletableFuture<UpstreamResponse> fetchFromUpstream(String url) {
+    // Looked up again: the entry may have been refreshed while this caller was getting here
+    Entry cached = lookup(url);
+    if (cached != null && cached.isFresh(System.nanoTime())) {
+      return hit(cached);
+    }
+    if (cached == null || cached.conditions().isEmpty()) {
+      misses.increment();
+      return client.get(url).thenApply(response -> store(url, response));
+    }
+
+    return client
+        .get(url, cached.conditions())
+        .thenApply(
+            response -> {
+              if (response.getStatusCode() != 304) {
+                misses.increment();
+                return store(url, response);
+              }
+              revalidations.increment();
+              bytesServedFromCache.add(cached.response.getBody().length);
+              refresh(url, cached, response);
+              return cached.response;
+            });
+  }
+
+  private CompletableFuture<UpstreamResponse> hit(Entry cached) {
+    hits.increment();
+    bytesServedFromCache.add(cached.response.getBody().length);
+    return CompletableFuture.completedFuture(cached.response);
+  }
+
+  public Snapshot snapshot() {
+    // Evictions are otherwise carried out in the background, after the write that causes them
+    entries.cleanUp();
+    return new Snapshot(
+        entries.estimatedSize(),
+        entries.policy().eviction().orElseThrow().weightedSize().orElse(0),
+        hits.sum(),
+        revalidations.sum(),
+        misses.sum(),
+        entries.stats().evictionCount(),
+        bytesServedFromCache.sum(),
+        upstreamFetches.getCoalesced());
+  }
+
+  private Entry lookup(String url) {
+    return entries.getIfPresent(url);
+  }
+
+  private UpstreamResponse store(String url, UpstreamResponse response) {
+    Policy policy = Policy.of(response);
+    boolean cacheable =
+        response.getStatusCode() == 200
+            && !policy.noStore
+            && (policy.maxAgeNanos > 0 || hasValidators(response))
+            && response.getBody().length <= maxBytes;
+
+    if (cacheable) {
+      entries.put(
+          url, new Entry(response, System.nanoTime() + policy.maxAgeNanos, policy.maxAgeNanos));
+    } else if (policy.noStore || isGone(response)) {
+      entries.invalidate(url);
+    }
+    // Otherwise, such as on a 5xx, a cached entry is kept: its validators may still be good
+    return response;
+  }
+
+  /** Extends a revalidated entry by the freshness the 304 carried, if the entry is still cached. */
+  private void refresh(String url, Entry cached, UpstreamResponse notModified) {
+    Optional<String> cacheControl = notModified.header("Cache-Control");
+    long maxAgeNanos =
+        cacheControl.isPresent() ? Policy.of(notModified).maxAgeNanos : cached.maxAgeNanos;
+    entries
+        .asMap()
+        .replace(url, cached, cached.withFreshness(System.nanoTime() + maxAgeNanos, maxAgeNanos));
+  }
+
+  private static boolean isGone(UpstreamResponse response) {
+    return response.getStatusCode() == 404 || response.getStatusCode() == 410;
+  }
+
+  private static boolean hasValidators(UpstreamResponse response) {
+    return response.header("ETag").isPresent() || response.header("Last-Modified").isPresent();
+  }
+
+  private static final class Entry {
+
+    private final UpstreamResponse response;
+    private final long freshUntil;
+    private final long maxAgeNanos;
+
+    Entry(UpstreamResponse response, long freshUntil, long maxAgeNanos) {
+      this.response = response;
+      this.freshUntil = freshUntil;
+      this.maxAgeNanos = maxAgeNanos;
+    }
+
+    boolean isFresh(long now) {
+      return now - freshUntil < 0;
+    }
+
+    int size() {
+      return response.getBody().length;
+    }
+
+    Map<String, String> conditions() {
+      Map<String, String> conditions = new LinkedHashMap<>();
+      response.header("ETag").ifPresent(etag -> conditions.put("If-None-Match", etag));
+      response
+          .header("Last-Modified")
+          .ifPresent(lastModified -> conditions.put("If-Modified-Since", lastModified));
+      return conditions;
+    }
+
+    Entry withFreshness(long freshUntil, long maxAgeNanos) {
+      return new Entry(response, freshUntil, maxAgeNanos);
+    }
+  }
+
+  /** The parts of {@code Cache-Control} (and {@code Age}) this cache acts on. */
+  private static final class Policy {
+
+    private final boolean noStore;
+    private final long maxAgeNanos;
+
+    private Policy(boolean noStore, long maxAgeNanos) {
+      this.noStore = noStore;
+      this.maxAgeNanos = maxAgeNanos;
+    }
+
+    static Policy of(UpstreamResponse response) {
+      boolean noStore = false;
+      boolean noCache = false;
+      long maxAgeSeconds = 0;
+      for (String directive : response.header("Cache-Control").orElse("").split(",")) {
+        String name = directive.trim().toLowerCase(Locale.ROOT);
+        if (name.equals("no-store")) {
+          noStore = true;
+        } else if (name.equals("no-cache")) {
+          noCache = true;
+        } else if (name.startsWith("max-age=")) {
+          maxAgeSeconds = parseSeconds(name.substring("max-age=".length()));
+        }
+      }
+      long ageSeconds = response.header("Age").map(Policy::parseSeconds).orElse(0L);
+      long freshSeconds = noCache ? 0 : Math.max(0, maxAgeSeconds - ageSeconds);
+      return new Policy(noStore, TimeUnit.SECONDS.toNanos(freshSeconds));
+    }
+
+    private static long parseSeconds(String value) {
+      try {
+        return Math.max(0, Long.parseLong(value.trim().replace("\"", "")));
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final long entries;
+    private final long bytes;
+    private final long hits;
+    private final long revalidations;
+    private final long misses;
+    private final long evictions;
+    private final long bytesServedFromCache;
+    private final long coalesced;
+
+    Snapshot(
+        long entries,
+        long bytes,
+        long hits,
+        long revalidations,
+        long misses,
+        long evictions,
+        long bytesServedFromCache,
+        long coalesced) {
+      this.entries = entries;
+      this.bytes = bytes;
+      this.hits = hits;
+      this.revalidations = revalidations;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.bytesServedFromCache = bytesServedFromCache;
+      this.coalesced = coalesced;
+    }
+
+    public long getEntries() {
+      return entries;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    /** Served while fresh, without contacting the upstream. */
+    public long getHits() {
+      return hits;
+    }
+
+    /** Served after the upstream answered a conditional GET with 304. */
+    public long getRevalidations() {
+      return revalidations;
+    }
+
+    /** Needed a full response from the upstream. */
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /** Body bytes the upstream did not have to send. */
+    public long getBytesServedFromCache() {
+      return bytesServedFromCache;
+    }
+
+    /** Requests that shared an upstream exchange already in flight instead of starting one. */
+    public long getCoalesced() {
+      return coalesced;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.example.service;
+
+import java.io.IOException;
+
+/** An upstream body grew past {@code employee.upstream-http.max-response-size}. */
+public class UpstreamResponseTooLargeException extends IOException {
+
+  public UpstreamResponseTooLargeException(long limit) {
+    super("Response body exceeds " + limit + " bytes");
+  }
+}
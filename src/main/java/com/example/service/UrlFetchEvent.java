@@ -0,0 +1,30 @@
+package com.example.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.UrlFetch")
+@Label("URL Fetch")
+@Category({"Employee Portal", "Backend"})
+@Description("A fetch by EmployeeService, answered by the upstream or the response cache")
+@StackTrace(false)
+final class UrlFetchEvent extends Event {
+
+  @Label("Host")
+  String host;
+
+  @Label("Status")
+  int status;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Error")
+  String error;
+}
@@ -0,0 +1,72 @@
+package com.example.service;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.datasource.RecentWrites;
+import com.example.model.User;
+
+/**
+ * Keeps {@link UserLookupCache} consistent with writes made through JPA. The entry is dropped as
+ * soon as the change is flushed and again once the transaction completes, so a lookup that raced
+ * the commit cannot leave the pre-commit state cached. The write is also recorded in {@link
+ * RecentWrites}, from the commit on, so the reload comes from the primary rather than a replica
+ * that may not have the change yet, and reported to {@link UserSnapshotService}, which stops
+ * answering for the user until it has read the change. Once the change is committed it is also
+ * applied to the {@link UserSearchIndex}.
+ */
+@Component
+public class UserCacheInvalidationListener {
+
+  @Autowired private UserLookupCache userLookupCache;
+
+  @Autowired private RecentWrites recentWrites;
+
+  @Autowired private UserSearchIndex userSearchIndex;
+
+  @Autowired private UserSnapshotService userSnapshotService;
+
+  @PostPersist
+  @PostUpdate
+  public void userChanged(User user) {
+    // A copy, since the entity may change again before the commit
+    User committed = new User(user.getUsername(), null, user.getEmail());
+    committed.setId(user.getId());
+    changed(user.getUsername(), () -> userSearchIndex.put(committed));
+  }
+
+  @PostRemove
+  public void userRemoved(User user) {
+    long id = user.getId();
+    changed(user.getUsername(), () -> userSearchIndex.remove(id));
+  }
+
+  private void changed(String username, Runnable indexChange) {
+    recentWrites.record(username);
+    userLookupCache.invalidate(username);
+    userSnapshotService.changed(username);
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              recentWrites.record(username);
+              userLookupCache.invalidate(username);
+              userSnapshotService.changed(username);
+              if (status == STATUS_COMMITTED) {
+                indexChange.run();
+              }
+            }
+          });
+    } else {
+      indexChange.run();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a directory search: the {@code (username, id)} of the last row a client
+ * received. The next page starts strictly after it, so pages stay stable while rows are inserted
+ * and no OFFSET scan is needed.
+ */
+public final class UserCursor {
+
+  private static final char SEPARATOR = '\u0000';
+
+  private final String username;
+  private final long id;
+
+  public UserCursor(String username, long id) {
+    this.username = username;
+    this.id = id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String encode() {
+    String position = id + String.valueOf(SEPARATOR) + username;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static UserCursor decode(String token) {
+    try {
+      String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = position.indexOf(SEPARATOR);
+      return new UserCursor(
+          position.substring(separator + 1), Long.parseLong(position.substring(0, separator)));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + token);
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.example.service;
+
+import java.util.Locale;
+
+/** Output formats of {@link UserExportService}. */
+public enum UserExportFormat {
+  CSV("text/csv", "csv"),
+  NDJSON("application/x-ndjson", "ndjson");
+
+  private final String mediaType;
+  private final String extension;
+
+  UserExportFormat(String mediaType, String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public static UserExportFormat fromName(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown export format: " + name + " (use csv or ndjson)");
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.example.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.config.UserExportProperties;
+import com.example.datasource.DataSourceRouting;
+import com.example.datasource.UserShards;
+import com.example.repository.UserColumn;
+import com.example.repository.UserProjection;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Dumps the {@code users} table as CSV or NDJSON. Rows are read through a forward-only cursor,
+ * {@code employee.user-export.fetch-size} at a time, and written straight from the result set to
+ * the output, so no entity is created and memory use does not depend on the size of the table. The
+ * shards are exported one after the other.
+ */
+@Service
+public class UserExportService {
+
+  private static final Logger log = LoggerFactory.getLogger(UserExportService.class);
+
+  @Autowired private DataSource dataSource;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private UserExportProperties userExportProperties;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  /**
+   * Writes every user, in id order within each shard, with the columns of {@code projection} to
+   * {@code out}. The stream is flushed but not closed.
+   *
+   * @return the number of rows written
+   */
+  public long exportUsers(UserProjection projection, UserExportFormat format, OutputStream out)
+      throws SQLException, IOException {
+    List<UserColumn> columns = projection.columns();
+    if (columns.stream().anyMatch(column -> !column.isExposed())) {
+      throw new IllegalArgumentException("Exports may only contain exposed columns");
+    }
+
+    try (DataSourceRouting.Scope routing = DataSourceRouting.replica()) {
+      return format == UserExportFormat.CSV
+          ? writeCsv(projection, columns, out)
+          : writeNdjson(projection, columns, out);
+    } catch (SQLException e) {
+      log.error(
+          "User export failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+      throw e;
+    }
+  }
+
+  /** Reads every row of every shard, one shard after the other, and returns the number read. */
+  long readUsers(UserProjection projection, RowWriter writer) throws SQLException, IOException {
+    long rows = 0;
+    for (int shard = 0; shard < userShards.count(); shard++) {
+      try (DataSourceRouting.Scope scope = userShards.on(shard);
+          Connection connection = dataSource.getConnection();
+          PreparedStatement statement =
+              connection.prepareStatement(
+                  projection.select("ORDER BY id"),
+                  ResultSet.TYPE_FORWARD_ONLY,
+                  ResultSet.CONCUR_READ_ONLY)) {
+        statement.setFetchSize(userExportProperties.getFetchSize());
+
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            writer.write(resultSet);
+            rows++;
+          }
+        }
+      }
+    }
+    return rows;
+  }
+
+  private long writeCsv(UserProjection projection, List<UserColumn> columns, OutputStream out)
+      throws SQLException, IOException {
+    Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(out, StandardCharsets.UTF_8),
+            userExportProperties.getBufferSize());
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(columns.get(i).getColumnName());
+    }
+    writer.write('\n');
+
+    long rows =
+        readUsers(
+            projection,
+            resultSet -> {
+              for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                  writer.write(',');
+                }
+                writeCsvField(writer, resultSet.getString(i + 1));
+              }
+              writer.write('\n');
+            });
+    writer.flush();
+    return rows;
+  }
+
+  private static void writeCsvField(Writer writer, String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      writer.write(value);
+      return;
+    }
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+
+  private long writeNdjson(UserProjection projection, List<UserColumn> columns, OutputStream out)
+      throws SQLException, IOException {
+    try (JsonGenerator generator =
+        objectMapper
+            .getFactory()
+            .createGenerator(out)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .setRootValueSeparator(null)) {
+      return readUsers(
+          projection,
+          resultSet -> {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+              UserColumn column = columns.get(i);
+              generator.writeFieldName(column.getColumnName());
+              if (column == UserColumn.ID) {
+                generator.writeNumber(resultSet.getLong(i + 1));
+              } else {
+                generator.writeString(resultSet.getString(i + 1));
+              }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+          });
+    }
+  }
+
+  @FunctionalInterface
+  interface RowWriter {
+    void write(ResultSet resultSet) throws SQLException, IOException;
+  }
+}
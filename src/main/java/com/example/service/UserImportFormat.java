@@ -0,0 +1,34 @@
+package com.example.service;
+
+import org.springframework.http.MediaType;
+
+/** Record formats accepted by {@link UserImportService}; both carry one user per line. */
+public enum UserImportFormat {
+  CSV("text/csv"),
+  NDJSON("application/x-ndjson");
+
+  private final String mediaType;
+
+  UserImportFormat(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  public static UserImportFormat fromContentType(String contentType) {
+    if (contentType != null) {
+      MediaType type = MediaType.parseMediaType(contentType);
+      for (UserImportFormat format : values()) {
+        if (type.isCompatibleWith(MediaType.parseMediaType(format.mediaType))) {
+          return format;
+        }
+      }
+    }
+    throw new IllegalArgumentException(
+        "Unsupported import content type: "
+            + contentType
+            + " (use text/csv or application/x-ndjson)");
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.service;
+
+import java.io.IOException;
+
+/** Follows a running {@link UserImportService} import. */
+public interface UserImportListener {
+
+  /** Called for each rejected line, up to {@code employee.user-import.max-reported-rejects}. */
+  default void onReject(long line, String reason) throws IOException {}
+
+  /** Called after every commit with the running totals. */
+  default void onProgress(UserImportResult progress) throws IOException {}
+}
@@ -0,0 +1,51 @@
+package com.example.service;
+
+/** Running or final totals of a bulk user import. */
+public final class UserImportResult {
+
+  public enum Status {
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  private final Status status;
+  private final long imported;
+  private final long rejected;
+  private final long elapsedMillis;
+  private final String error;
+
+  public UserImportResult(
+      Status status, long imported, long rejected, long elapsedMillis, String error) {
+    this.status = status;
+    this.imported = imported;
+    this.rejected = rejected;
+    this.elapsedMillis = elapsedMillis;
+    this.error = error;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /** Rows committed to the database. */
+  public long getImported() {
+    return imported;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public long getRowsPerSecond() {
+    return elapsedMillis == 0 ? imported : imported * 1000 / elapsedMillis;
+  }
+
+  public String getError() {
+    return error;
+  }
+}
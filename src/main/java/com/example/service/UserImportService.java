@@ -0,0 +1,365 @@
+package com.example.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.config.UserImportProperties;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.UserShards;
+import com.example.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Loads users in bulk from a CSV or NDJSON stream. Rows are validated as they are read, written
+ * through multi-row {@code INSERT} statements of {@code employee.user-import.batch-size} rows and
+ * committed every {@code employee.user-import.commit-size} rows, so memory use does not depend on
+ * the size of the input.
+ */
+@Service
+public class UserImportService {
+
+  private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+  private static final int MAX_COLUMN_LENGTH = 255;
+
+  private static final int USERNAME = 0;
+  private static final int PASSWORD = 1;
+  private static final int EMAIL = 2;
+
+  @Autowired private DataSource dataSource;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Autowired private UserImportProperties userImportProperties;
+
+  @Autowired private RecentWrites recentWrites;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private UserLookupCache userLookupCache;
+
+  @Autowired private UserSearchIndex userSearchIndex;
+
+  @Autowired private UserSnapshotService userSnapshotService;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  /**
+   * Imports every valid line of {@code input}. CSV input may start with a header naming the {@code
+   * username}, {@code password} and {@code email} columns; without one the columns are taken in
+   * that order. Each commit is final: if the database fails part way, the result reports the rows
+   * committed before the failure.
+   *
+   * <p>Rows are written to {@code spring.datasource} only, so on a sharded store the import fails
+   * before reading anything.
+   */
+  public UserImportResult importUsers(
+      InputStream input, UserImportFormat format, UserImportListener listener) throws IOException {
+    Run run = new Run(format, listener);
+    if (userShards.count() > 1) {
+      return run.result(
+          UserImportResult.Status.FAILED, "Bulk import is not supported on a sharded store");
+    }
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+    SessionFactoryImplementor sessionFactory =
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    // Ids come from the entity's own pooled generator so bulk rows never collide with JPA saves
+    IdentifierGenerator idGenerator = sessionFactory.getIdentifierGenerator(User.class.getName());
+    StatelessSession idSession = sessionFactory.openStatelessSession();
+
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement batch = connection.prepareStatement(insert(run.batchSize))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          run.lineNumber++;
+          if (line.isBlank()) {
+            continue;
+          }
+          String[] row;
+          try {
+            row = run.parse(line);
+          } catch (IllegalArgumentException e) {
+            run.reject(e.getMessage());
+            continue;
+          }
+          if (row == null) {
+            continue;
+          }
+          long id =
+              ((Number) idGenerator.generate((SharedSessionContractImplementor) idSession, null))
+                  .longValue();
+          run.add(id, row);
+          if (run.pending == run.batchSize) {
+            run.write(batch);
+          }
+          if (run.uncommitted.size() >= run.commitSize) {
+            run.commit(connection);
+          }
+        }
+        run.commit(connection);
+      } catch (SQLException | IOException | RuntimeException e) {
+        rollback(connection);
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error(
+          "User import failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+      return run.result(UserImportResult.Status.FAILED, e.getMessage());
+    } finally {
+      idSession.close();
+    }
+    return run.result(UserImportResult.Status.COMPLETED, null);
+  }
+
+  private static String insert(int rows) {
+    StringBuilder sql =
+        new StringBuilder("INSERT INTO users (id, username, password, email) VALUES ");
+    for (int i = 0; i < rows; i++) {
+      sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+    }
+    return sql.toString();
+  }
+
+  private static void rollback(Connection connection) {
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      log.error("Rollback failed: sqlState={} errorCode={}", e.getSQLState(), e.getErrorCode(), e);
+    }
+  }
+
+  /** Parses a CSV line, honouring double-quoted fields with {@code ""} as an escaped quote. */
+  static List<String> parseCsvLine(String line) {
+    List<String> fields = new ArrayList<>(3);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /** State of one import: the rows waiting for the next statement and the running totals. */
+  private final class Run {
+
+    private final UserImportFormat format;
+    private final UserImportListener listener;
+    private final int batchSize;
+    private final int commitSize;
+    private final long started = System.nanoTime();
+
+    private final long[] ids;
+    private final String[] values;
+    private int pending;
+    private final List<User> uncommitted = new ArrayList<>();
+
+    private int[] columns = {USERNAME, PASSWORD, EMAIL};
+    private boolean firstRecord = true;
+    private long lineNumber;
+    private long imported;
+    private long rejected;
+
+    Run(UserImportFormat format, UserImportListener listener) {
+      this.format = format;
+      this.listener = listener;
+      this.batchSize = Math.max(1, userImportProperties.getBatchSize());
+      this.commitSize = Math.max(batchSize, userImportProperties.getCommitSize());
+      this.ids = new long[batchSize];
+      this.values = new String[batchSize * 3];
+    }
+
+    /** Returns the validated row as {@code [username, password, email]}, or null for a header. */
+    String[] parse(String line) {
+      String[] row = format == UserImportFormat.CSV ? parseCsv(line) : parseJson(line);
+      if (row == null) {
+        return null;
+      }
+      String username = row[USERNAME] == null ? "" : row[USERNAME].trim();
+      String email = row[EMAIL] == null ? "" : row[EMAIL].trim();
+      if (username.isEmpty()) {
+        throw new IllegalArgumentException("Missing username");
+      }
+      if (username.length() > MAX_COLUMN_LENGTH) {
+        throw new IllegalArgumentException("Username longer than " + MAX_COLUMN_LENGTH);
+      }
+      if (email.isEmpty() || email.indexOf('@') < 1) {
+        throw new IllegalArgumentException("Invalid email");
+      }
+      if (email.length() > MAX_COLUMN_LENGTH) {
+        throw new IllegalArgumentException("Email longer than " + MAX_COLUMN_LENGTH);
+      }
+      if (row[PASSWORD] != null && row[PASSWORD].length() > MAX_COLUMN_LENGTH) {
+        throw new IllegalArgumentException("Password longer than " + MAX_COLUMN_LENGTH);
+      }
+      row[USERNAME] = username;
+      row[EMAIL] = email;
+      return row;
+    }
+
+    private String[] parseCsv(String line) {
+      List<String> fields = parseCsvLine(line);
+      if (firstRecord) {
+        firstRecord = false;
+        if (readHeader(fields)) {
+          return null;
+        }
+      }
+      String[] row = new String[3];
+      for (int i = 0; i < fields.size() && i < columns.length; i++) {
+        if (columns[i] >= 0) {
+          row[columns[i]] = fields.get(i);
+        }
+      }
+      return row;
+    }
+
+    private boolean readHeader(List<String> fields) {
+      int[] header = new int[fields.size()];
+      boolean named = false;
+      for (int i = 0; i < header.length; i++) {
+        switch (fields.get(i).trim().toLowerCase(Locale.ROOT)) {
+          case "username":
+            header[i] = USERNAME;
+            named = true;
+            break;
+          case "password":
+            header[i] = PASSWORD;
+            break;
+          case "email":
+            header[i] = EMAIL;
+            break;
+          default:
+            header[i] = -1;
+        }
+      }
+      if (named) {
+        columns = header;
+      }
+      return named;
+    }
+
+    private String[] parseJson(String line) {
+      JsonNode node;
+      try {
+        node = objectMapper.readTree(line);
+      } catch (JsonProcessingException e) {
+        throw new IllegalArgumentException("Malformed JSON");
+      }
+      if (!node.isObject()) {
+        throw new IllegalArgumentException("Expected a JSON object");
+      }
+      return new String[] {
+        node.path("username").textValue(),
+        node.path("password").textValue(),
+        node.path("email").textValue()
+      };
+    }
+
+    void add(long id, String[] row) {
+      ids[pending] = id;
+      System.arraycopy(row, 0, values, pending * 3, 3);
+      pending++;
+      User user = new User(row[USERNAME], null, row[EMAIL]);
+      user.setId(id);
+      uncommitted.add(user);
+    }
+
+    void write(PreparedStatement statement) throws SQLException {
+      int parameter = 1;
+      for (int i = 0; i < pending; i++) {
+        statement.setLong(parameter++, ids[i]);
+        statement.setString(parameter++, values[i * 3 + USERNAME]);
+        statement.setString(parameter++, values[i * 3 + PASSWORD]);
+        statement.setString(parameter++, values[i * 3 + EMAIL]);
+      }
+      statement.executeUpdate();
+      pending = 0;
+    }
+
+    /** Writes a short batch ahead of a commit with a statement sized to fit it. */
+    private void flush(Connection connection) throws SQLException {
+      if (pending == 0) {
+        return;
+      }
+      try (PreparedStatement tail = connection.prepareStatement(insert(pending))) {
+        write(tail);
+      }
+    }
+
+    void commit(Connection connection) throws SQLException, IOException {
+      if (uncommitted.isEmpty()) {
+        return;
+      }
+      flush(connection);
+      connection.commit();
+      imported += uncommitted.size();
+      for (User user : uncommitted) {
+        recentWrites.record(user.getUsername());
+        userLookupCache.invalidate(user.getUsername());
+        userSnapshotService.changed(user.getUsername());
+      }
+      userSearchIndex.putAll(uncommitted);
+      uncommitted.clear();
+      listener.onProgress(result(UserImportResult.Status.RUNNING, null));
+    }
+
+    void reject(String reason) throws IOException {
+      rejected++;
+      if (rejected <= userImportProperties.getMaxReportedRejects()) {
+        listener.onReject(lineNumber, reason);
+      }
+    }
+
+    UserImportResult result(UserImportResult.Status status, String error) {
+      long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+      return new UserImportResult(status, imported, rejected, elapsedMillis, error);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.example.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.example.config.UserCacheProperties;
+import com.example.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Username lookup cache in front of {@link EmployeeService#findUserByUsername(String)}.
+ *
+ * <p>Caffeine's W-TinyLFU policy keeps the frequently requested usernames when the size bound is
+ * reached. Empty results are cached too, with their own shorter TTL. Loads and invalidations of the
+ * same key are serialized by striped read/write locks, so once {@link #invalidate(String)} returns
+ * no load that started before it can repopulate the entry. Concurrent misses for one username share
+ * a single load through a {@link SingleFlight}, whether or not the cache is enabled.
+ */
+@Component
+public class UserLookupCache {
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final boolean enabled;
+  private final Cache<String, List<User>> cache;
+  private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+  private final SingleFlight<String, List<User>> cachedLoads = new SingleFlight<>();
+  private final SingleFlight<String, List<User>> uncachedLoads = new SingleFlight<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  public UserLookupCache(UserCacheProperties properties) {
+    this.enabled = properties.isEnabled();
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new ReentrantReadWriteLock();
+    }
+    long ttlNanos = properties.getTtl().toNanos();
+    long negativeTtlNanos = properties.getNegativeTtl().toNanos();
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfter(
+                new Expiry<String, List<User>>() {
+                  @Override
+                  public long expireAfterCreate(String key, List<User> users, long currentTime) {
+                    return users.isEmpty() ? negativeTtlNanos : ttlNanos;
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      String key, List<User> users, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, users, currentTime);
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      String key, List<User> users, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+                })
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Returns the cached users for {@code username}, loading them on a miss. A loader that returns
+   * {@code null} signals a failed lookup: nothing is cached and an empty list is returned.
+   */
+  public List<User> get(String username, Function<String, List<User>> loader) {
+    if (!enabled) {
+      List<User> users = uncachedLoads.execute(username, () -> loader.apply(username));
+      return users == null ? Collections.emptyList() : users;
+    }
+
+    List<User> users = cache.getIfPresent(username);
+    if (users != null) {
+      hits.increment();
+      return users;
+    }
+
+    // The loader runs outside Caffeine's compute, which would hold a map bin lock (a monitor, which
+    // pins a virtual thread to its carrier) for the whole query; a SingleFlight shares it instead
+    boolean[] loaded = new boolean[1];
+    Lock lock = lockFor(username).readLock();
+    lock.lock();
+    try {
+      users = cache.getIfPresent(username);
+      if (users == null) {
+        users =
+            cachedLoads.execute(
+                username,
+                () -> {
+                  loaded[0] = true;
+                  List<User> result = immutable(loader.apply(username));
+                  if (result != null) {
+                    cache.put(username, result);
+                  }
+                  return result;
+                });
+      }
+    } finally {
+      lock.unlock();
+    }
+    (loaded[0] ? misses : hits).increment();
+    return users == null ? Collections.emptyList() : users;
+  }
+
+  public void invalidate(String username) {
+    Lock lock = lockFor(username).writeLock();
+    lock.lock();
+    try {
+      cache.invalidate(username);
+    } finally {
+      lock.unlock();
+    }
+    uncachedLoads.forget(username);
+    invalidations.increment();
+  }
+
+  public void invalidateAll() {
+    for (ReadWriteLock stripe : locks) {
+      stripe.writeLock().lock();
+    }
+    try {
+      cache.invalidateAll();
+    } finally {
+      for (ReadWriteLock stripe : locks) {
+        stripe.writeLock().unlock();
+      }
+    }
+    uncachedLoads.forgetAll();
+    invalidations.increment();
+  }
+
+  private ReadWriteLock lockFor(String username) {
+    return locks[Math.floorMod(username.hashCode(), LOCK_STRIPES)];
+  }
+
+  public Snapshot snapshot() {
+    cache.cleanUp();
+    CacheStats stats = cache.stats();
+    return new Snapshot(
+        cache.estimatedSize(),
+        hits.sum(),
+        misses.sum(),
+        stats.evictionCount(),
+        invalidations.sum(),
+        uncachedLoads.getCoalesced());
+  }
+
+  private static List<User> immutable(List<User> users) {
+    return users == null ? null : Collections.unmodifiableList(users);
+  }
+
+  public static final class Snapshot {
+
+    private final long size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final long coalesced;
+
+    Snapshot(
+        long size, long hits, long misses, long evictions, long invalidations, long coalesced) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+      this.coalesced = coalesced;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    /** Uncached lookups that shared a database query already in flight. */
+    public long getCoalesced() {
+      return coalesced;
+    }
+  }
+}
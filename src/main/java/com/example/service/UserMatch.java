@@ -0,0 +1,36 @@
+package com.example.service;
+
+/**
+ * A user found by the fuzzy search, with how closely the better of its username and email matched
+ * the query: the Dice coefficient of their trigrams, 1.0 for an exact match.
+ */
+public final class UserMatch {
+
+  private final long id;
+  private final String username;
+  private final String email;
+  private final double score;
+
+  public UserMatch(long id, String username, String email, double score) {
+    this.id = id;
+    this.username = username;
+    this.email = email;
+    this.score = score;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public double getScore() {
+    return score;
+  }
+}
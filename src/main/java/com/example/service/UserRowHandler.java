@@ -0,0 +1,12 @@
+package com.example.service;
+
+import java.io.IOException;
+
+import com.example.model.User;
+
+/** Receives users one at a time as a streaming query reads them from the cursor. */
+@FunctionalInterface
+public interface UserRowHandler {
+
+  void handle(User user) throws IOException;
+}
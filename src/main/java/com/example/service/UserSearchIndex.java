@@ -0,0 +1,336 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.config.UserSearchProperties;
+import com.example.model.User;
+import com.example.repository.UserProjection;
+
+/**
+ * Typo-tolerant search over every user's username and email, answered from an in-memory {@link
+ * TrigramIndex} rather than the database. The index is loaded from every shard once the application
+ * is ready, and kept current by the writers: JPA saves through {@link
+ * UserCacheInvalidationListener}, bulk imports and account updates report each committed change. A
+ * failed first load is retried with backoff; until one succeeds, searches throw {@link
+ * UserSearchIndexUnavailableException} rather than answer from an empty index.
+ *
+ * <p>Searches share a read lock and changes take the write lock, which they hold only to append a
+ * user's trigrams. A {@linkplain #rebuild rebuild} loads into a fresh index without the lock and
+ * replays the changes reported meanwhile before swapping it in.
+ */
+@Component
+public class UserSearchIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+  @Autowired private UserExportService userExportService;
+
+  @Autowired private UserSearchProperties userSearchProperties;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Guarded by {@link #lock}. */
+  private TrigramIndex index = new TrigramIndex();
+
+  /** Changes reported while a rebuild is loading, or null; guarded by {@link #lock}. */
+  private List<Consumer<TrigramIndex>> backlog;
+
+  private volatile long rebuildMillis = -1;
+
+  private final LongAdder loadFailures = new LongAdder();
+
+  /** Runs retries of the first load, created by the first failure; guarded by {@code this}. */
+  private ScheduledThreadPoolExecutor loader;
+
+  private boolean stopped;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    load(userSearchProperties.getFuzzyLoadRetryDelay());
+  }
+
+  /** Tries the first load, and on failure schedules the next try after {@code retryDelay}. */
+  private void load(Duration retryDelay) {
+    if (rebuildMillis != -1) {
+      return;
+    }
+    try {
+      rebuild();
+      return;
+    } catch (SQLException e) {
+      loadFailures.increment();
+      log.error(
+          "User search index load failed, retrying in {} ms: sqlState={} errorCode={}",
+          retryDelay.toMillis(),
+          e.getSQLState(),
+          e.getErrorCode(),
+          e);
+    } catch (RuntimeException e) {
+      loadFailures.increment();
+      log.error("User search index load failed, retrying in {} ms", retryDelay.toMillis(), e);
+    }
+    Duration doubled = retryDelay.multipliedBy(2);
+    Duration max = userSearchProperties.getFuzzyLoadMaxRetryDelay();
+    Duration next = doubled.compareTo(max) < 0 ? doubled : max;
+    synchronized (this) {
+      if (stopped) {
+        return;
+      }
+      if (loader == null) {
+        loader =
+            new ScheduledThreadPoolExecutor(
+                1,
+                runnable -> {
+                  Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                  thread.setName("user-search-index-loader");
+                  thread.setDaemon(true);
+                  return thread;
+                });
+      }
+      loader.schedule(() -> load(next), retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    stopped = true;
+    if (loader != null) {
+      loader.shutdownNow();
+    }
+  }
+
+  /**
+   * Loads every user from the database into a new index and swaps it in. Changes reported while it
+   * loads are applied to both, so none is lost whichever side of the load they fall.
+   *
+   * @return the number of users indexed
+   */
+  public int rebuild() throws SQLException {
+    long start = System.nanoTime();
+    lock.writeLock().lock();
+    try {
+      if (backlog != null) {
+        throw new IllegalStateException("User search index rebuild already running");
+      }
+      backlog = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    TrigramIndex fresh = new TrigramIndex(Math.max(1024, size()));
+    boolean loaded = false;
+    try {
+      userExportService.readUsers(
+          UserProjection.SUMMARY,
+          resultSet ->
+              fresh.put(
+                  resultSet.getLong("id"),
+                  resultSet.getString("username"),
+                  resultSet.getString("email")));
+      loaded = true;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      lock.writeLock().lock();
+      try {
+        if (loaded) {
+          backlog.forEach(change -> change.accept(fresh));
+          index = fresh;
+        }
+        backlog = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    rebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    int users = size();
+    log.info("User search index loaded {} users in {} ms", users, rebuildMillis);
+    return users;
+  }
+
+  /** Indexes a committed insert or update of {@code user}. */
+  public void put(User user) {
+    if (user.getId() != null) {
+      long id = user.getId();
+      String username = user.getUsername();
+      String email = user.getEmail();
+      change(index -> index.put(id, username, email));
+    }
+  }
+
+  /** {@link #put(User)} for each of {@code users}, under one lock. */
+  public void putAll(Collection<User> users) {
+    List<User> committed = new ArrayList<>(users);
+    change(
+        index -> {
+          for (User user : committed) {
+            if (user.getId() != null) {
+              index.put(user.getId(), user.getUsername(), user.getEmail());
+            }
+          }
+        });
+  }
+
+  /** Drops a committed delete of the user with {@code id}. */
+  public void remove(long id) {
+    change(index -> index.remove(id));
+  }
+
+  /** Indexes a committed change of the email of every user named {@code username}. */
+  public void emailChanged(String username, String email) {
+    change(index -> index.updateEmail(username, email));
+  }
+
+  private void change(Consumer<TrigramIndex> change) {
+    lock.writeLock().lock();
+    try {
+      change.accept(index);
+      if (backlog != null) {
+        backlog.add(change);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** {@link #search(String, int)} for {@code employee.user-search.fuzzy-default-results}. */
+  public List<UserMatch> search(String query) {
+    return search(query, userSearchProperties.getFuzzyDefaultResults());
+  }
+
+  /**
+   * The users whose username or email is closest to {@code query}, allowing {@code
+   * employee.user-search.fuzzy-max-typos} typos, best match first.
+   *
+   * @throws UserSearchIndexUnavailableException if no load from the database has completed yet
+   */
+  public List<UserMatch> search(String query, int limit) {
+    if (query == null || query.isBlank()) {
+      throw new IllegalArgumentException("Missing query");
+    }
+    if (query.length() > userSearchProperties.getFuzzyMaxQueryLength()) {
+      throw new IllegalArgumentException(
+          "Query longer than " + userSearchProperties.getFuzzyMaxQueryLength());
+    }
+    if (limit < 1 || limit > userSearchProperties.getFuzzyMaxResults()) {
+      throw new IllegalArgumentException(
+          "Limit must be between 1 and " + userSearchProperties.getFuzzyMaxResults());
+    }
+    if (rebuildMillis == -1) {
+      throw new UserSearchIndexUnavailableException();
+    }
+    lock.readLock().lock();
+    try {
+      return index.search(query.trim(), limit, userSearchProperties.getFuzzyMaxTypos());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public Snapshot snapshot() {
+    lock.readLock().lock();
+    try {
+      return new Snapshot(
+          index.size(),
+          index.deadSlots(),
+          index.grams(),
+          index.postings(),
+          index.estimatedBytes(),
+          rebuildMillis,
+          loadFailures.sum());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final int users;
+    private final int deadSlots;
+    private final int grams;
+    private final long postings;
+    private final long estimatedBytes;
+    private final long rebuildMillis;
+    private final long loadFailures;
+
+    Snapshot(
+        int users,
+        int deadSlots,
+        int grams,
+        long postings,
+        long estimatedBytes,
+        long rebuildMillis,
+        long loadFailures) {
+      this.users = users;
+      this.deadSlots = deadSlots;
+      this.grams = grams;
+      this.postings = postings;
+      this.estimatedBytes = estimatedBytes;
+      this.rebuildMillis = rebuildMillis;
+      this.loadFailures = loadFailures;
+    }
+
+    public int getUsers() {
+      return users;
+    }
+
+    /** Superseded versions of changed users, dropped by the next compaction. */
+    public int getDeadSlots() {
+      return deadSlots;
+    }
+
+    /** Distinct trigrams of usernames plus those of emails. */
+    public int getGrams() {
+      return grams;
+    }
+
+    /** Entries across all posting lists. */
+    public long getPostings() {
+      return postings;
+    }
+
+    /** Heap held by the index, texts included, as estimated from its array sizes. */
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    /** How long the last load from the database took, or -1 if none has completed. */
+    public long getRebuildMillis() {
+      return rebuildMillis;
+    }
+
+    /** Failed attempts at the first load, each retried after a longer wait. */
+    public long getLoadFailures() {
+      return loadFailures;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.example.service;
+
+/** The fuzzy search index has not been loaded from the database yet, so it cannot answer. */
+public class UserSearchIndexUnavailableException extends RuntimeException {
+
+  public UserSearchIndexUnavailableException() {
+    super("User search index is not loaded yet");
+  }
+}
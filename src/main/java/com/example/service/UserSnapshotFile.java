@@ -0,0 +1,445 @@
+package com.example.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.example.model.User;
+
+/**
+ * The id, username and email of every user, in a file read through a memory mapping. The users live
+ * in the page cache rather than on the heap, and a {@link User} is only created for the users a
+ * lookup returns. A file is never changed once written; a {@link Writer} writes the next one beside
+ * it and moves it into place.
+ *
+ * <p>The file is little-endian: a header, the records of each shard in id order, then two
+ * open-addressing tables of {@code slots} entries, at most half full. The id table holds the id and
+ * record offset of each user, the username table a hash of the username and the record offset, so a
+ * lookup reads only the table and the records that match. A record is the id followed by the
+ * username and email as UTF-8, each behind its length as an int, -1 for null.
+ */
+public final class UserSnapshotFile {
+
+  private static final int MAGIC = 0x55534E50;
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 32;
+  private static final int SHARD_BYTES = 16;
+  private static final int ID_SLOT_BYTES = 12;
+  private static final int USERNAME_SLOT_BYTES = 8;
+
+  private final Path path;
+  private final ByteBuffer buffer;
+  private final int users;
+  private final int slots;
+  private final long createdMillis;
+  private final long[] changedUpTo;
+  private final int[] shardUsers;
+  private final int[] shardStarts;
+  private final int records;
+  private final int idTable;
+  private final int usernameTable;
+
+  private UserSnapshotFile(Path path, ByteBuffer buffer) throws IOException {
+    this.path = path;
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a user snapshot: " + path);
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported user snapshot version " + buffer.getInt(4) + ": " + path);
+    }
+    int shards = buffer.getInt(8);
+    users = buffer.getInt(12);
+    slots = buffer.getInt(16);
+    int recordBytes = buffer.getInt(20);
+    createdMillis = buffer.getLong(24);
+    records = HEADER_BYTES + shards * SHARD_BYTES;
+    idTable = records + recordBytes;
+    usernameTable = idTable + slots * ID_SLOT_BYTES;
+    if (shards < 1
+        || Integer.bitCount(slots) != 1
+        || (long) usernameTable + (long) slots * USERNAME_SLOT_BYTES != buffer.capacity()) {
+      throw new IOException("Truncated user snapshot: " + path);
+    }
+    changedUpTo = new long[shards];
+    shardUsers = new int[shards];
+    shardStarts = new int[shards];
+    for (int shard = 0; shard < shards; shard++) {
+      int at = HEADER_BYTES + shard * SHARD_BYTES;
+      changedUpTo[shard] = buffer.getLong(at);
+      shardUsers[shard] = buffer.getInt(at + 8);
+      shardStarts[shard] = buffer.getInt(at + 12);
+    }
+  }
+
+  /** Maps the snapshot at {@code path}; the mapping outlives the file, should it be replaced. */
+  public static UserSnapshotFile open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("User snapshot larger than 2 GB: " + path);
+      }
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new UserSnapshotFile(path, buffer.order(ByteOrder.LITTLE_ENDIAN));
+    }
+  }
+
+  /** The users named {@code username}, with their id, username and email. */
+  public List<User> findByUsername(String username) {
+    List<User> users = new ArrayList<>(1);
+    if (username == null) {
+      return users;
+    }
+    byte[] key = username.getBytes(StandardCharsets.UTF_8);
+    int hash = usernameHash(username);
+    int mask = slots - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int at = usernameTable + slot * USERNAME_SLOT_BYTES;
+      int offset = buffer.getInt(at + 4);
+      if (offset == 0) {
+        return users;
+      }
+      if (buffer.getInt(at) == hash && usernameEquals(records + offset - 1, key)) {
+        users.add(read(records + offset - 1));
+      }
+    }
+  }
+
+  /** The user with {@code id}, or null. */
+  public User findById(long id) {
+    int mask = slots - 1;
+    for (int slot = idHash(id) & mask; ; slot = (slot + 1) & mask) {
+      int at = idTable + slot * ID_SLOT_BYTES;
+      int offset = buffer.getInt(at + 8);
+      if (offset == 0) {
+        return null;
+      }
+      if (buffer.getLong(at) == id) {
+        return read(records + offset - 1);
+      }
+    }
+  }
+
+  private boolean usernameEquals(int record, byte[] key) {
+    int at = record + 8;
+    if (buffer.getInt(at) != key.length) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (buffer.get(at + 4 + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private User read(int record) {
+    ShardCursor cursor = new ShardCursor(record, 1);
+    cursor.next();
+    User user = new User(cursor.username, null, cursor.email);
+    user.setId(cursor.id);
+    return user;
+  }
+
+  /** The records of {@code shard}, in id order. */
+  ShardCursor cursor(int shard) {
+    return new ShardCursor(records + shardStarts[shard], shardUsers[shard]);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public int size() {
+    return users;
+  }
+
+  /** Bytes mapped, which are held by the page cache rather than the heap. */
+  public long fileBytes() {
+    return buffer.capacity();
+  }
+
+  public int shards() {
+    return changedUpTo.length;
+  }
+
+  public int size(int shard) {
+    return shardUsers[shard];
+  }
+
+  /** When the snapshot was written, in epoch milliseconds. */
+  public long createdMillis() {
+    return createdMillis;
+  }
+
+  /**
+   * The database time, in epoch milliseconds, at which {@code shard} was read: every change
+   * committed before it is in the snapshot.
+   */
+  public long changedUpTo(int shard) {
+    return changedUpTo[shard];
+  }
+
+  private static int usernameHash(String username) {
+    int hash = username.hashCode() * 0x9E3779B9;
+    return hash ^ hash >>> 16;
+  }
+
+  private static int idHash(long id) {
+    long hash = id * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ hash >>> 32);
+  }
+
+  private static int tableSlots(int users) {
+    return Math.max(2, Integer.highestOneBit(Math.max(1, users) * 2 - 1) << 1);
+  }
+
+  /** Reads the records of one shard in order; {@link #next} must be called before each. */
+  final class ShardCursor {
+
+    private int position;
+    private int remaining;
+    private long id;
+    private String username;
+    private String email;
+
+    private ShardCursor(int position, int records) {
+      this.position = position;
+      this.remaining = records;
+    }
+
+    boolean next() {
+      if (remaining == 0) {
+        return false;
+      }
+      remaining--;
+      id = buffer.getLong(position);
+      position += 8;
+      username = readString();
+      email = readString();
+      return true;
+    }
+
+    private String readString() {
+      int length = buffer.getInt(position);
+      position += 4;
+      if (length < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(position + i);
+      }
+      position += length;
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    long id() {
+      return id;
+    }
+
+    String username() {
+      return username;
+    }
+
+    String email() {
+      return email;
+    }
+  }
+
+  /**
+   * Writes a snapshot shard by shard, each in id order, to a file beside {@code path}, and moves it
+   * over {@code path} once it is complete. Nothing reading the previous file notices.
+   */
+  static final class Writer implements Closeable {
+
+    private final Path path;
+    private final Path partial;
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private final long[] changedUpTo;
+    private final int[] shardUsers;
+    private final int[] shardStarts;
+    private int shard = -1;
+
+    private long[] ids = new long[1024];
+    private int[] offsets = new int[1024];
+    private int[] hashes = new int[1024];
+    private final BitSet withoutUsername = new BitSet();
+    private int users;
+    private long recordBytes;
+    private long lastId;
+
+    Writer(Path path, int shards) throws IOException {
+      this.path = path;
+      this.partial = path.resolveSibling(path.getFileName() + ".partial");
+      Path directory = path.toAbsolutePath().getParent();
+      if (directory != null) {
+        Files.createDirectories(directory);
+      }
+      this.channel =
+          FileChannel.open(
+              partial,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE);
+      this.changedUpTo = new long[shards];
+      this.shardUsers = new int[shards];
+      this.shardStarts = new int[shards];
+      channel.position(HEADER_BYTES + shards * SHARD_BYTES);
+    }
+
+    /** Starts the records of the next shard, read from the database at {@code changedUpTo}. */
+    void startShard(long changedUpTo) {
+      shard++;
+      this.changedUpTo[shard] = changedUpTo;
+      shardStarts[shard] = (int) recordBytes;
+    }
+
+    void add(long id, String username, String email) throws IOException {
+      if (shardUsers[shard] > 0 && id <= lastId) {
+        throw new IllegalArgumentException("Users must be added in id order within a shard");
+      }
+      byte[] usernameBytes = username == null ? null : username.getBytes(StandardCharsets.UTF_8);
+      byte[] emailBytes = email == null ? null : email.getBytes(StandardCharsets.UTF_8);
+      long length = 16L + length(usernameBytes) + length(emailBytes);
+      if (recordBytes + length > Integer.MAX_VALUE - 1) {
+        throw new IOException("User snapshot larger than 2 GB: " + path);
+      }
+      if (users == ids.length) {
+        ids = Arrays.copyOf(ids, users << 1);
+        offsets = Arrays.copyOf(offsets, users << 1);
+        hashes = Arrays.copyOf(hashes, users << 1);
+      }
+      ids[users] = id;
+      offsets[users] = (int) recordBytes;
+      if (username == null) {
+        withoutUsername.set(users);
+      } else {
+        hashes[users] = usernameHash(username);
+      }
+      users++;
+      shardUsers[shard]++;
+      lastId = id;
+
+      ensureRoom((int) Math.min(length, out.capacity()));
+      out.putLong(id);
+      putString(usernameBytes);
+      putString(emailBytes);
+      recordBytes += length;
+    }
+
+    private static int length(byte[] bytes) {
+      return bytes == null ? 0 : bytes.length;
+    }
+
+    private void putString(byte[] bytes) throws IOException {
+      if (bytes == null) {
+        out.putInt(-1);
+        return;
+      }
+      out.putInt(bytes.length);
+      if (bytes.length <= out.remaining()) {
+        out.put(bytes);
+        return;
+      }
+      // Longer than the buffer has room for: written straight after what the buffer holds
+      flush();
+      ByteBuffer value = ByteBuffer.wrap(bytes);
+      while (value.hasRemaining()) {
+        channel.write(value);
+      }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+      if (out.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      out.flip();
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+      out.clear();
+    }
+
+    /** Writes the tables and header, then moves the file into place and maps it. */
+    UserSnapshotFile finish(long createdMillis) throws IOException {
+      if (shard != shardUsers.length - 1) {
+        throw new IllegalStateException("Only " + (shard + 1) + " of the shards were written");
+      }
+      int slots = tableSlots(users);
+      if (HEADER_BYTES + shardUsers.length * SHARD_BYTES + recordBytes + (long) slots * 20
+          > Integer.MAX_VALUE) {
+        throw new IOException("User snapshot larger than 2 GB: " + path);
+      }
+      int mask = slots - 1;
+      // Users by slot, plus one, so that zero marks an empty slot
+      int[] byId = new int[slots];
+      int[] byUsername = new int[slots];
+      for (int user = 0; user < users; user++) {
+        int slot = idHash(ids[user]) & mask;
+        while (byId[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        byId[slot] = user + 1;
+        if (!withoutUsername.get(user)) {
+          slot = hashes[user] & mask;
+          while (byUsername[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          byUsername[slot] = user + 1;
+        }
+      }
+      for (int slot = 0; slot < slots; slot++) {
+        ensureRoom(ID_SLOT_BYTES);
+        int user = byId[slot] - 1;
+        out.putLong(user < 0 ? 0 : ids[user]);
+        out.putInt(user < 0 ? 0 : offsets[user] + 1);
+      }
+      for (int slot = 0; slot < slots; slot++) {
+        ensureRoom(USERNAME_SLOT_BYTES);
+        int user = byUsername[slot] - 1;
+        out.putInt(user < 0 ? 0 : hashes[user]);
+        out.putInt(user < 0 ? 0 : offsets[user] + 1);
+      }
+      flush();
+
+      out.putInt(MAGIC).putInt(VERSION).putInt(shardUsers.length).putInt(users).putInt(slots);
+      out.putInt((int) recordBytes).putLong(createdMillis);
+      for (int i = 0; i < shardUsers.length; i++) {
+        out.putLong(changedUpTo[i]).putInt(shardUsers[i]).putInt(shardStarts[i]);
+      }
+      out.flip();
+      long position = 0;
+      while (out.hasRemaining()) {
+        position += channel.write(out, position);
+      }
+      out.clear();
+      channel.force(true);
+      channel.close();
+      Files.move(
+          partial, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return open(path);
+    }
+
+    /** Closes the file, deleting it unless {@link #finish} moved it into place. */
+    @Override
+    public void close() throws IOException {
+      channel.close();
+      Files.deleteIfExists(partial);
+    }
+  }
+}
@@ -0,0 +1,476 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.config.UserSnapshotProperties;
+import com.example.datasource.DataSourceRouting;
+import com.example.datasource.UserShards;
+import com.example.model.User;
+import com.example.repository.UserProjection;
+
+/**
+ * Serves username lookups from a {@link UserSnapshotFile} when {@code
+ * employee.user-snapshot.enabled} is set. The file left by the previous run is mapped on startup,
+ * so lookups are answered before anything is read from the database, and it is refreshed every
+ * {@code refresh-interval} in the background.
+ *
+ * <p>A refresh reads each shard in one repeatable-read transaction. It reads only the rows whose
+ * {@code updated_at} is after the shard's previous read, less {@code change-overlap}, and merges
+ * them into the previous file. When the merged count differs from the shard's row count, users were
+ * deleted, and the shard is read in full instead; every {@code full-refresh-interval}, and first
+ * after startup, all of them are. The new file is moved over the old one and swapped in.
+ *
+ * <p>Users written through this node since the current file was read are not answered from it:
+ * {@link #findByUsername} returns null for them until a refresh started after their write is
+ * swapped in. Writes through other nodes are seen at the next refresh.
+ */
+@Service
+public class UserSnapshotService {
+
+  private static final Logger log = LoggerFactory.getLogger(UserSnapshotService.class);
+
+  private static final int MAXIMUM_TRACKED = 100_000;
+
+  private static final String NOW = "SELECT CURRENT_TIMESTAMP";
+  private static final String COUNT = "SELECT COUNT(*) FROM users";
+  private static final String ALL = UserProjection.SUMMARY.select("ORDER BY id");
+  private static final String CHANGED_SINCE =
+      UserProjection.SUMMARY.select("WHERE updated_at >= ? ORDER BY id");
+
+  private final UserSnapshotProperties properties;
+  private final DataSource dataSource;
+  private final UserShards userShards;
+
+  private final ReentrantLock refreshLock = new ReentrantLock();
+  private ScheduledThreadPoolExecutor refresher;
+
+  private volatile Loaded loaded;
+
+  /** Usernames written through this node, by the time of their latest write. */
+  private final ConcurrentHashMap<String, Long> written = new ConcurrentHashMap<>();
+
+  /** When more writes than can be tracked were made; no lookup is answered until a later read. */
+  private volatile long overflowedMillis = Long.MIN_VALUE;
+
+  /** Guarded by {@link #refreshLock}. */
+  private long lastFullMillis;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder bypassed = new LongAdder();
+  private final LongAdder fullRefreshes = new LongAdder();
+  private final LongAdder incrementalRefreshes = new LongAdder();
+  private final LongAdder failedRefreshes = new LongAdder();
+  private volatile long lastRefreshMillis = -1;
+  private volatile long lastChangedRows;
+
+  public UserSnapshotService(
+      UserSnapshotProperties properties, DataSource dataSource, UserShards userShards) {
+    this.properties = properties;
+    this.dataSource = dataSource;
+    this.userShards = userShards;
+  }
+
+  @PostConstruct
+  public void open() {
+    Path path = properties.getPath();
+    if (!properties.isEnabled() || !Files.exists(path)) {
+      return;
+    }
+    try {
+      UserSnapshotFile file = UserSnapshotFile.open(path);
+      if (file.shards() != userShards.count()) {
+        log.warn(
+            "Ignoring user snapshot {} of {} shards; there are {}",
+            path,
+            file.shards(),
+            userShards.count());
+        return;
+      }
+      loaded = new Loaded(file, file.createdMillis());
+      log.info("Mapped user snapshot {} of {} users", path, file.size());
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable user snapshot {}: {}", path, e.getMessage());
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    ScheduledThreadPoolExecutor refresher =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+              thread.setName("user-snapshot-refresher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    refresher.scheduleWithFixedDelay(
+        this::refreshQuietly, 0, properties.getRefreshInterval().toMillis(), TimeUnit.MILLISECONDS);
+    this.refresher = refresher;
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+    }
+  }
+
+  /**
+   * The users named {@code username} as the snapshot has them, or null when it cannot say: it is
+   * disabled or not loaded yet, or the username was written through this node since it was read.
+   */
+  public List<User> findByUsername(String username) {
+    Loaded current = loaded;
+    if (current == null) {
+      return null;
+    }
+    if (written.containsKey(username) || overflowedMillis >= current.readMillis) {
+      bypassed.increment();
+      return null;
+    }
+    hits.increment();
+    return current.file.findByUsername(username);
+  }
+
+  /**
+   * Notes that {@code username} is being, or has been, written. Writers call it once the change is
+   * committed, and may also call it before.
+   */
+  public void changed(String username) {
+    if (!properties.isEnabled() || username == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (written.size() >= MAXIMUM_TRACKED && !written.containsKey(username)) {
+      overflowedMillis = now;
+      return;
+    }
+    written.put(username, now);
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (SQLException e) {
+      failedRefreshes.increment();
+      log.error(
+          "User snapshot refresh failed: sqlState={} errorCode={}",
+          e.getSQLState(),
+          e.getErrorCode(),
+          e);
+    } catch (IOException | RuntimeException e) {
+      failedRefreshes.increment();
+      log.error("User snapshot refresh failed: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Reads the users changed since the current file, or all of them when a full read is due, writes
+   * the next file and swaps it in.
+   *
+   * @return the number of users in the new file
+   */
+  public int refresh() throws SQLException, IOException {
+    refreshLock.lock();
+    try {
+      long start = System.nanoTime();
+      // Before any shard is read, so every write noted before it is in what they read
+      long readMillis = System.currentTimeMillis();
+      Loaded previous = loaded;
+      boolean full =
+          previous == null
+              || previous.file.shards() != userShards.count()
+              || readMillis - lastFullMillis >= properties.getFullRefreshInterval().toMillis();
+
+      long changedRows = 0;
+      UserSnapshotFile file;
+      try (UserSnapshotFile.Writer writer =
+          new UserSnapshotFile.Writer(properties.getPath(), userShards.count())) {
+        for (int shard = 0; shard < userShards.count(); shard++) {
+          changedRows += readShard(shard, full ? null : previous.file, writer);
+        }
+        file = writer.finish(readMillis);
+      }
+      loaded = new Loaded(file, readMillis);
+      written.values().removeIf(writtenMillis -> writtenMillis < readMillis);
+
+      if (full) {
+        lastFullMillis = readMillis;
+        fullRefreshes.increment();
+      } else {
+        incrementalRefreshes.increment();
+      }
+      lastChangedRows = changedRows;
+      lastRefreshMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      log.debug(
+          "User snapshot refreshed: {} users, {} rows read, full={}, {} ms",
+          file.size(),
+          changedRows,
+          full,
+          lastRefreshMillis);
+      return file.size();
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Writes the users of {@code shard}: those of {@code previous} merged with the rows changed since
+   * it was read, or every row when there is no previous file or users have been deleted.
+   *
+   * @return the number of rows read
+   */
+  private long readShard(int shard, UserSnapshotFile previous, UserSnapshotFile.Writer writer)
+      throws SQLException, IOException {
+    try (DataSourceRouting.Scope scope = userShards.on(shard);
+        Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      try {
+        long now = databaseMillis(connection);
+        if (previous != null) {
+          long since = previous.changedUpTo(shard) - properties.getChangeOverlap().toMillis();
+          List<User> changes = readChanges(connection, since);
+          int added = 0;
+          for (User change : changes) {
+            if (previous.findById(change.getId()) == null) {
+              added++;
+            }
+          }
+          if (previous.size(shard) + added == count(connection)) {
+            writer.startShard(now);
+            merge(previous.cursor(shard), changes, writer);
+            connection.commit();
+            return changes.size();
+          }
+        }
+        writer.startShard(now);
+        long rows = 0;
+        try (PreparedStatement statement =
+            connection.prepareStatement(
+                ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+          statement.setFetchSize(properties.getFetchSize());
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+              writer.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3));
+              rows++;
+            }
+          }
+        }
+        connection.commit();
+        return rows;
+      } catch (SQLException | IOException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Replaces the users of {@code cursor} that have a change, and adds the new ones, in id order.
+   */
+  private static void merge(
+      UserSnapshotFile.ShardCursor cursor, List<User> changes, UserSnapshotFile.Writer writer)
+      throws IOException {
+    boolean more = cursor.next();
+    int next = 0;
+    while (more || next < changes.size()) {
+      User change = next < changes.size() ? changes.get(next) : null;
+      if (change == null || (more && cursor.id() < change.getId())) {
+        writer.add(cursor.id(), cursor.username(), cursor.email());
+        more = cursor.next();
+      } else {
+        writer.add(change.getId(), change.getUsername(), change.getEmail());
+        if (more && cursor.id() == change.getId()) {
+          more = cursor.next();
+        }
+        next++;
+      }
+    }
+  }
+
+  private static long databaseMillis(Connection connection) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(NOW);
+        ResultSet resultSet = statement.executeQuery()) {
+      resultSet.next();
+      return resultSet.getTimestamp(1).getTime();
+    }
+  }
+
+  private static int count(Connection connection) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(COUNT);
+        ResultSet resultSet = statement.executeQuery()) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+
+  private static List<User> readChanges(Connection connection, long sinceMillis)
+      throws SQLException {
+    List<User> changes = new ArrayList<>();
+    try (PreparedStatement statement = connection.prepareStatement(CHANGED_SINCE)) {
+      statement.setTimestamp(1, new Timestamp(sinceMillis));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          changes.add(UserProjection.SUMMARY.map(resultSet));
+        }
+      }
+    }
+    return changes;
+  }
+
+  public Snapshot snapshot() {
+    Loaded current = loaded;
+    return new Snapshot(
+        properties.isEnabled(),
+        current == null ? 0 : current.file.size(),
+        current == null ? 0 : current.file.fileBytes(),
+        current == null ? -1 : current.file.createdMillis(),
+        written.size(),
+        hits.sum(),
+        bypassed.sum(),
+        fullRefreshes.sum(),
+        incrementalRefreshes.sum(),
+        failedRefreshes.sum(),
+        lastRefreshMillis,
+        lastChangedRows);
+  }
+
+  /** A mapped file and the local time its read started. */
+  private static final class Loaded {
+
+    private final UserSnapshotFile file;
+    private final long readMillis;
+
+    Loaded(UserSnapshotFile file, long readMillis) {
+      this.file = file;
+      this.readMillis = readMillis;
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final boolean enabled;
+    private final int users;
+    private final long fileBytes;
+    private final long createdMillis;
+    private final int trackedWrites;
+    private final long hits;
+    private final long bypassed;
+    private final long fullRefreshes;
+    private final long incrementalRefreshes;
+    private final long failedRefreshes;
+    private final long lastRefreshMillis;
+    private final long lastChangedRows;
+
+    Snapshot(
+        boolean enabled,
+        int users,
+        long fileBytes,
+        long createdMillis,
+        int trackedWrites,
+        long hits,
+        long bypassed,
+        long fullRefreshes,
+        long incrementalRefreshes,
+        long failedRefreshes,
+        long lastRefreshMillis,
+        long lastChangedRows) {
+      this.enabled = enabled;
+      this.users = users;
+      this.fileBytes = fileBytes;
+      this.createdMillis = createdMillis;
+      this.trackedWrites = trackedWrites;
+      this.hits = hits;
+      this.bypassed = bypassed;
+      this.fullRefreshes = fullRefreshes;
+      this.incrementalRefreshes = incrementalRefreshes;
+      this.failedRefreshes = failedRefreshes;
+      this.lastRefreshMillis = lastRefreshMillis;
+      this.lastChangedRows = lastChangedRows;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public int getUsers() {
+      return users;
+    }
+
+    /** Size of the mapped file, held by the page cache rather than the heap. */
+    public long getFileBytes() {
+      return fileBytes;
+    }
+
+    /** When the current file was read from the database, in epoch milliseconds, or -1. */
+    public long getCreatedMillis() {
+      return createdMillis;
+    }
+
+    /** Usernames written through this node that the current file may not have yet. */
+    public int getTrackedWrites() {
+      return trackedWrites;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    /** Lookups passed on to the database because their username was written since the read. */
+    public long getBypassed() {
+      return bypassed;
+    }
+
+    public long getFullRefreshes() {
+      return fullRefreshes;
+    }
+
+    public long getIncrementalRefreshes() {
+      return incrementalRefreshes;
+    }
+
+    public long getFailedRefreshes() {
+      return failedRefreshes;
+    }
+
+    /** How long the last refresh took, or -1 if none has completed. */
+    public long getLastRefreshMillis() {
+      return lastRefreshMillis;
+    }
+
+    /** Rows the last refresh read: the changed ones, or every row of a shard read in full. */
+    public long getLastChangedRows() {
+      return lastChangedRows;
+    }
+  }
+}
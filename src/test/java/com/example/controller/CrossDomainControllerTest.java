@@ -0,0 +1,67 @@
+package com.example.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CrossDomainControllerTest {
+
+  @Autowired private MockMvc mockMvc;
+
+  @Test
+  public void testServesPolicyFileWithValidators() throws Exception {
+    byte[] policy = new ClassPathResource("static/crossdomain.xml").getInputStream().readAllBytes();
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/crossdomain.xml"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/xml"))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"))
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(content().bytes(policy))
+            .andReturn();
+    String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc
+        .perform(get("/crossdomain.xml").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  @Test
+  public void testServesGzipVariant() throws Exception {
+    MvcResult result =
+        mockMvc
+            .perform(get("/crossdomain.xml").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+            .andReturn();
+
+    byte[] body = result.getResponse().getContentAsByteArray();
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+          .contains("domain=\"*\"")
+          .contains("secure=\"false\"");
+    }
+  }
+}
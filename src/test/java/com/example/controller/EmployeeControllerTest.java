@@ -1,15 +1,37 @@
 package com.example.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,18 +42,45 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import com.example.config.BinaryEncodingConfig;
 import com.example.config.SecurityConfig;
 import com.example.model.User;
+import com.example.repository.UserProjection;
+import com.example.service.AccountUpdateService;
 import com.example.service.EmployeeService;
+import com.example.service.UserCursor;
+import com.example.service.UserExportFormat;
+import com.example.service.UserExportService;
+import com.example.service.UserImportFormat;
+import com.example.service.UserImportListener;
+import com.example.service.UserImportResult;
+import com.example.service.UserImportService;
+import com.example.service.UserMatch;
+import com.example.service.UserRowHandler;
+import com.example.service.UserSearchIndex;
+import com.example.service.UserSearchIndexUnavailableException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 
 @WebMvcTest(EmployeeController.class)
-@Import(SecurityConfig.class) // Import the security configuration to disable CSRF protection
+// The security configuration disables CSRF protection; the binary encodings are what the app serves
+@Import({SecurityConfig.class, BinaryEncodingConfig.class})
 public class EmployeeControllerTest {
 
   @Autowired private MockMvc mockMvc;
 
   @MockBean private EmployeeService employeeService;
 
+  @MockBean private UserImportService userImportService;
+
+  @MockBean private UserExportService userExportService;
+
+  @MockBean private AccountUpdateService accountUpdateService;
+
+  @MockBean private UserSearchIndex userSearchIndex;
+
   @Test
   public void testUserSearchExample() throws Exception {
     // Setup
@@ -55,6 +104,367 @@ public class EmployeeControllerTest {
     assertThat(content).contains("test@example.com");
   }
 
+  @Test
+  public void testUserSearchExample_BinaryEncodings() throws Exception {
+    // Setup
+    User testUser = new User("testuser", null, "test@example.com");
+    testUser.setId(7L);
+    when(employeeService.findUserByUsername("testuser")).thenReturn(Arrays.asList(testUser));
+    Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+    mappers.put("application/cbor", new CBORMapper());
+    mappers.put("application/x-jackson-smile", new SmileMapper());
+
+    for (Map.Entry<String, ObjectMapper> encoding : mappers.entrySet()) {
+      // Test
+      MvcResult result =
+          mockMvc
+              .perform(
+                  get("/api/user-search")
+                      .param("username", "testuser")
+                      .accept(encoding.getKey(), "application/json;q=0.5"))
+              .andExpect(status().isOk())
+              .andReturn();
+
+      // Verify: the same document as the JSON one, decoded by a plain mapper for the format
+      assertThat(result.getResponse().getContentType()).isEqualTo(encoding.getKey());
+      List<Map<String, Object>> users =
+          encoding
+              .getValue()
+              .readValue(
+                  result.getResponse().getContentAsByteArray(),
+                  new TypeReference<List<Map<String, Object>>>() {});
+      assertThat(users).hasSize(1);
+      assertThat(users.get(0))
+          .containsEntry("id", 7)
+          .containsEntry("username", "testuser")
+          .containsEntry("email", "test@example.com")
+          .doesNotContainKey("updatedAt");
+    }
+  }
+
+  @Test
+  public void testUserSearchExample_JsonIsTheDefault() throws Exception {
+    // Setup
+    when(employeeService.findUserByUsername(anyString()))
+        .thenReturn(Arrays.asList(new User("testuser", null, "test@example.com")));
+
+    // Test & Verify
+    mockMvc
+        .perform(get("/api/user-search").param("username", "testuser").accept(MediaType.ALL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  public void testBatchUserSearchExample() throws Exception {
+    // Setup
+    Map<String, List<User>> usersByUsername = new LinkedHashMap<>();
+    usersByUsername.put("testuser", Arrays.asList(new User("testuser", null, "test@example.com")));
+    usersByUsername.put("unknown", Collections.emptyList());
+    when(employeeService.findUsersByUsernames(anyList())).thenReturn(usersByUsername);
+
+    // Test
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/api/user-search/batch")
+                    .content("[\"testuser\", \"unknown\"]")
+                    .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // Verify
+    String content = result.getResponse().getContentAsString();
+    assertThat(content).contains("\"testuser\":[{");
+    assertThat(content).contains("test@example.com");
+    assertThat(content).contains("\"unknown\":[]");
+  }
+
+  @Test
+  public void testBatchUserSearchExample_StoreUnavailable() throws Exception {
+    // Setup
+    when(employeeService.findUsersByUsernames(anyList()))
+        .thenThrow(new SQLException("HikariDataSource has been closed"));
+
+    // Test & Verify: 503, not every username mapped to no users
+    mockMvc
+        .perform(
+            post("/api/user-search/batch")
+                .content("[\"testuser\"]")
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"))
+        .andExpect(content().string("The user store is unavailable"));
+  }
+
+  @Test
+  public void testBatchUserSearchExample_TooManyUsernames() throws Exception {
+    // Setup
+    when(employeeService.findUsersByUsernames(anyList()))
+        .thenThrow(new IllegalArgumentException("At most 1 usernames can be resolved per batch"));
+
+    // Test & Verify
+    mockMvc
+        .perform(
+            post("/api/user-search/batch")
+                .content("[\"a\", \"b\"]")
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string(containsString("At most 1 usernames")));
+  }
+
+  @Test
+  public void testUserDirectoryExample() throws Exception {
+    // Setup: a full page of two users, so a cursor for the next page follows them
+    User first = new User("dir_a", null, "a@example.com");
+    first.setId(1L);
+    User second = new User("dir_b", null, "b@example.com");
+    second.setId(2L);
+    when(employeeService.directoryPageSize(2)).thenReturn(2);
+    when(employeeService.streamUsersByPrefix(eq("dir"), isNull(), anyInt(), any()))
+        .thenAnswer(
+            invocation -> {
+              UserRowHandler handler = invocation.getArgument(3);
+              handler.handle(first);
+              handler.handle(second);
+              return new UserCursor("dir_b", 2L);
+            });
+
+    // Test
+    MvcResult pending =
+        mockMvc
+            .perform(get("/api/user-directory").param("prefix", "dir").param("limit", "2"))
+            .andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify: one JSON document per line, then the cursor
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+    assertThat(lines).hasSize(3);
+    assertThat(lines[0]).startsWith("{\"id\":1,").contains("\"username\":\"dir_a\"");
+    assertThat(lines[1]).startsWith("{\"id\":2,").contains("\"username\":\"dir_b\"");
+    assertThat(lines[2])
+        .isEqualTo("{\"nextCursor\":\"" + new UserCursor("dir_b", 2L).encode() + "\"}");
+  }
+
+  @Test
+  public void testUserDirectoryExample_CborFrames() throws Exception {
+    // Setup
+    User first = new User("dir_a", null, "a@example.com");
+    first.setId(1L);
+    when(employeeService.directoryPageSize(1)).thenReturn(1);
+    when(employeeService.streamUsersByPrefix(eq("dir"), isNull(), anyInt(), any()))
+        .thenAnswer(
+            invocation -> {
+              UserRowHandler handler = invocation.getArgument(3);
+              handler.handle(first);
+              return new UserCursor("dir_a", 1L);
+            });
+
+    // Test
+    MvcResult pending =
+        mockMvc
+            .perform(
+                get("/api/user-directory")
+                    .param("prefix", "dir")
+                    .param("limit", "1")
+                    .accept(EmployeeController.APPLICATION_CBOR_FRAMES_VALUE))
+            .andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify: a big-endian length ahead of each CBOR document, the cursor last
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-cbor-frames");
+    DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+    CBORMapper cbor = new CBORMapper();
+    List<Map<String, Object>> frames = new ArrayList<>();
+    while (in.available() > 0) {
+      byte[] frame = new byte[in.readInt()];
+      in.readFully(frame);
+      frames.add(cbor.readValue(frame, new TypeReference<Map<String, Object>>() {}));
+    }
+    assertThat(frames).hasSize(2);
+    assertThat(frames.get(0)).containsEntry("id", 1).containsEntry("username", "dir_a");
+    assertThat(frames.get(1))
+        .containsExactly(entry("nextCursor", new UserCursor("dir_a", 1L).encode()));
+  }
+
+  @Test
+  public void testUserDirectoryExample_HigherQualityWins() throws Exception {
+    // Setup
+    when(employeeService.directoryPageSize(null)).thenReturn(10);
+
+    // Test
+    MvcResult pending =
+        mockMvc
+            .perform(
+                get("/api/user-directory")
+                    .param("prefix", "dir")
+                    .accept("application/x-cbor-frames;q=0.5, application/x-ndjson"))
+            .andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+  }
+
+  @Test
+  public void testUserDirectoryExample_NdjsonIsPreferredOnATie() throws Exception {
+    // Setup
+    when(employeeService.directoryPageSize(null)).thenReturn(10);
+
+    // Test
+    MvcResult pending =
+        mockMvc
+            .perform(
+                get("/api/user-directory")
+                    .param("prefix", "dir")
+                    .accept("application/x-cbor-frames, application/x-ndjson, */*;q=0.1"))
+            .andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+  }
+
+  @Test
+  public void testUserDirectoryExample_NdjsonWithoutAccept() throws Exception {
+    // Setup
+    when(employeeService.directoryPageSize(null)).thenReturn(10);
+
+    // Test
+    MvcResult pending =
+        mockMvc.perform(get("/api/user-directory").param("prefix", "dir")).andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+  }
+
+  @Test
+  public void testUserDirectoryExample_NdjsonForATypeWildcard() throws Exception {
+    // Setup
+    when(employeeService.directoryPageSize(null)).thenReturn(10);
+
+    // Test
+    MvcResult pending =
+        mockMvc
+            .perform(get("/api/user-directory").param("prefix", "dir").accept("application/*"))
+            .andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+  }
+
+  @Test
+  public void testUserDirectoryExample_UnsupportedAccept() throws Exception {
+    mockMvc
+        .perform(get("/api/user-directory").param("prefix", "dir").accept("application/json"))
+        .andExpect(status().isNotAcceptable());
+    mockMvc
+        .perform(get("/api/user-directory").param("prefix", "dir").accept("application/xml"))
+        .andExpect(status().isNotAcceptable());
+    verifyNoInteractions(employeeService);
+  }
+
+  @Test
+  public void testUserDirectoryExample_InvalidCursor() throws Exception {
+    mockMvc
+        .perform(get("/api/user-directory").param("prefix", "dir").param("cursor", "%%%"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testUserImportExample() throws Exception {
+    // Setup: one rejected line, one commit, then the summary
+    when(userImportService.importUsers(any(), eq(UserImportFormat.CSV), any()))
+        .thenAnswer(
+            invocation -> {
+              UserImportListener listener = invocation.getArgument(2);
+              listener.onReject(3, "Invalid email");
+              listener.onProgress(
+                  new UserImportResult(UserImportResult.Status.RUNNING, 2, 1, 5, null));
+              return new UserImportResult(UserImportResult.Status.COMPLETED, 2, 1, 10, null);
+            });
+
+    // Test
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/api/user-import")
+                    .contentType("text/csv")
+                    .content("username,password,email\na,p,a@example.com\nb,p,broken\n"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // Verify
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+    assertThat(lines).hasSize(3);
+    assertThat(lines[0])
+        .isEqualTo("{\"event\":\"reject\",\"line\":3,\"reason\":\"Invalid email\"}");
+    assertThat(lines[1]).startsWith("{\"event\":\"progress\",").contains("\"imported\":2");
+    assertThat(lines[2])
+        .startsWith("{\"event\":\"summary\",")
+        .contains("\"status\":\"COMPLETED\"")
+        .contains("\"rowsPerSecond\":200");
+  }
+
+  @Test
+  public void testUserImportExample_UnsupportedContentType() throws Exception {
+    mockMvc
+        .perform(post("/api/user-import").contentType(MediaType.APPLICATION_XML).content("<x/>"))
+        .andExpect(status().isUnsupportedMediaType());
+  }
+
+  @Test
+  public void testUserExportExample_Gzip() throws Exception {
+    // Setup
+    when(userExportService.exportUsers(
+            eq(UserProjection.parse("id,username")), eq(UserExportFormat.CSV), any()))
+        .thenAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(2);
+              out.write("id,username\n1,alice\n".getBytes(StandardCharsets.UTF_8));
+              return 1L;
+            });
+
+    // Test
+    MvcResult result =
+        mockMvc
+            .perform(
+                get("/api/user-export")
+                    .param("format", "csv")
+                    .param("fields", "id,username")
+                    .param("gzip", "true"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // Verify
+    assertThat(result.getResponse().getContentType()).isEqualTo("application/gzip");
+    assertThat(result.getResponse().getHeader("Content-Disposition"))
+        .isEqualTo("attachment; filename=\"users.csv.gz\"");
+    byte[] body =
+        new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))
+            .readAllBytes();
+    assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo("id,username\n1,alice\n");
+  }
+
+  @Test
+  public void testUserExportExample_PasswordRejected() throws Exception {
+    mockMvc
+        .perform(get("/api/user-export").param("fields", "username,password"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string(containsString("password")));
+  }
+
   @Test
   public void testRenderContentExample() throws Exception {
     // Test
@@ -83,4 +493,139 @@ public class EmployeeControllerTest {
         .andExpect(status().isOk())
         .andExpect(content().string(containsString(mockResponse)));
   }
+
+  @Test
+  public void testExecuteCommand_QueueFull() throws Exception {
+    // Setup
+    when(employeeService.executeCommand(anyString()))
+        .thenThrow(new RejectedExecutionException("Too many commands running; 16 already waiting"));
+
+    // Test & Verify
+    mockMvc
+        .perform(get("/api/execute").param("cmd", "echo hello"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"))
+        .andExpect(content().string(containsString("Too many commands")));
+  }
+
+  @Test
+  public void testExecuteCommand_NotAllowed() throws Exception {
+    // Setup
+    when(employeeService.executeCommand(anyString()))
+        .thenThrow(new IllegalArgumentException("Command not allowed: rm"));
+
+    // Test & Verify
+    mockMvc
+        .perform(get("/api/execute").param("cmd", "rm -rf /"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string("Command not allowed: rm"));
+  }
+
+  @Test
+  public void testUpdateAccount_Durable() throws Exception {
+    // Setup
+    when(accountUpdateService.updateEmail("alice", "alice@example.org")).thenReturn(true);
+
+    // Test & Verify
+    mockMvc
+        .perform(
+            post("/api/update-account")
+                .param("username", "alice")
+                .param("email", "alice@example.org"))
+        .andExpect(status().isOk())
+        .andExpect(
+            content().string("Account updated for user: alice with email: alice@example.org"));
+  }
+
+  @Test
+  public void testUpdateAccount_UnknownUser() throws Exception {
+    // Setup
+    when(accountUpdateService.updateEmail(anyString(), anyString())).thenReturn(false);
+
+    // Test & Verify
+    mockMvc
+        .perform(
+            post("/api/update-account")
+                .param("username", "nobody")
+                .param("email", "nobody@example.org"))
+        .andExpect(status().isNotFound())
+        .andExpect(content().string("No such user: nobody"));
+  }
+
+  @Test
+  public void testUpdateAccount_Async() throws Exception {
+    // Setup
+    when(accountUpdateService.submit("alice", "alice@example.org"))
+        .thenReturn(new CompletableFuture<>());
+
+    // Test & Verify
+    mockMvc
+        .perform(
+            post("/api/update-account")
+                .param("username", "alice")
+                .param("email", "alice@example.org")
+                .param("ack", "async"))
+        .andExpect(status().isAccepted())
+        .andExpect(
+            content()
+                .string("Account update queued for user: alice with email: alice@example.org"));
+  }
+
+  @Test
+  public void testUpdateAccount_QueueFull() throws Exception {
+    // Setup
+    when(accountUpdateService.submit(anyString(), anyString()))
+        .thenThrow(
+            new RejectedExecutionException("Account update queue is full (16 users waiting)"));
+
+    // Test & Verify
+    mockMvc
+        .perform(
+            post("/api/update-account")
+                .param("username", "alice")
+                .param("email", "alice@example.org")
+                .param("ack", "async"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"));
+  }
+
+  @Test
+  public void testFuzzyUserSearch() throws Exception {
+    // Setup
+    when(userSearchIndex.search("jon.smith"))
+        .thenReturn(
+            Arrays.asList(
+                new UserMatch(7, "john.smith", "john.smith@example.com", 0.8),
+                new UserMatch(9, "jon.smythe", "jon@example.com", 0.6)));
+    when(userSearchIndex.search("jon.smith", 1))
+        .thenReturn(
+            Collections.singletonList(
+                new UserMatch(7, "john.smith", "john.smith@example.com", 0.8)));
+
+    // Test & Verify
+    mockMvc
+        .perform(get("/api/user-search/fuzzy").param("q", "jon.smith"))
+        .andExpect(status().isOk())
+        .andExpect(
+            content()
+                .json(
+                    "[{\"id\":7,\"username\":\"john.smith\",\"score\":0.8},"
+                        + "{\"id\":9,\"username\":\"jon.smythe\",\"score\":0.6}]"));
+    mockMvc
+        .perform(get("/api/user-search/fuzzy").param("q", "jon.smith").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(content().json("[{\"id\":7}]"));
+  }
+
+  @Test
+  public void testFuzzyUserSearch_IndexNotLoaded() throws Exception {
+    // Setup
+    when(userSearchIndex.search(anyString())).thenThrow(new UserSearchIndexUnavailableException());
+
+    // Test & Verify: 503, not an empty list of matches
+    mockMvc
+        .perform(get("/api/user-search/fuzzy").param("q", "jon.smith"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"));
+  }
 }
@@ -0,0 +1,83 @@
+package com.example.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+@SpringBootTest(
+    webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = {
+      "management.server.port=0",
+      "spring.datasource.url=jdbc:h2:mem:metrics;OPTIMIZE_REUSE_RESULTS=FALSE"
+    })
+@AutoConfigureMetrics
+public class MetricsEndpointTest {
+
+  @Autowired private TestRestTemplate restTemplate;
+
+  @LocalManagementPort private int managementPort;
+
+  @Test
+  public void testPrometheusScrapeOnManagementPort() throws InterruptedException {
+    restTemplate.getForEntity("/api/user-search?username=metrics-probe-user", String.class);
+    restTemplate.getForEntity("/crossdomain.xml", String.class);
+
+    // The request timer is recorded after the response is written, so it may trail the client
+    ResponseEntity<String> scrape = scrape();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!scrape.getBody().contains("uri=\"/crossdomain.xml\"") && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+      scrape = scrape();
+    }
+
+    assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+    String metrics = scrape.getBody();
+    // Per-route timers with histogram buckets, keyed by the route template
+    assertThat(metrics)
+        .containsPattern("http_server_requests_seconds_bucket\\{.*uri=\"/api/user-search\"")
+        .containsPattern(
+            "http_server_requests_seconds_count\\{.*status=\"200\".*uri=\"/crossdomain.xml\"")
+        .containsPattern("employee_backend_seconds_count\\{.*operation=\"user-query\"")
+        .contains("hikaricp_connections_acquire_seconds");
+    // Request values never become tags (http_client_requests belongs to this test's own client)
+    assertThat(metrics.lines().filter(line -> !line.startsWith("http_client_requests")))
+        .noneMatch(line -> line.contains("metrics-probe-user"));
+  }
+
+  @Test
+  public void testAsyncLoggingCountersAreExposed() {
+    // The application logs through the bounded queue configured in logback-spring.xml
+    ResponseEntity<String> diagnostics =
+        restTemplate.getForEntity("/api/diagnostics/logging", String.class);
+    assertThat(diagnostics.getBody()).contains("\"queueSize\":8192").contains("\"droppedError\":0");
+
+    String metrics =
+        restTemplate.getForObject(
+            "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+    assertThat(metrics)
+        .containsPattern("logging_async_dropped_total\\{.*level=\"error\"")
+        .contains("logging_async_queued")
+        .contains("logging_repeats_suppressed_total");
+  }
+
+  @Test
+  public void testActuatorIsNotOnApplicationPort() {
+    assertThat(restTemplate.getForEntity("/actuator/prometheus", String.class).getStatusCode())
+        .isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
+  private ResponseEntity<String> scrape() {
+    return restTemplate.getForEntity(
+        "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+  }
+}
@@ -0,0 +1,93 @@
+package com.example.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.config.SecurityConfig;
+import com.example.model.User;
+import com.example.service.EmployeeService;
+import com.example.service.ReactiveSearchUnsupportedException;
+import com.example.service.ReactiveUserSearchService;
+
+import reactor.core.publisher.Flux;
+
+@WebMvcTest(ReactiveUserSearchController.class)
+@Import(SecurityConfig.class)
+public class ReactiveUserSearchControllerTest {
+
+  @Autowired private MockMvc mockMvc;
+
+  @MockBean private ReactiveUserSearchService reactiveUserSearchService;
+
+  @MockBean private EmployeeService employeeService;
+
+  @Test
+  public void testUserDirectoryStreamsNdjson() throws Exception {
+    // Setup
+    User first = new User("dir_a", null, "a@example.com");
+    first.setId(1L);
+    User second = new User("dir_b", null, "b@example.com");
+    second.setId(2L);
+    when(employeeService.directoryPageSize(2)).thenReturn(2);
+    when(reactiveUserSearchService.findUsersByPrefix(eq("dir"), eq(2)))
+        .thenReturn(Flux.just(first, second));
+
+    // Test
+    MvcResult pending =
+        mockMvc
+            .perform(get("/api/reactive/user-directory").param("prefix", "dir").param("limit", "2"))
+            .andReturn();
+    MvcResult result =
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk()).andReturn();
+
+    // Verify: one JSON document per line
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertThat(result.getResponse().getContentType()).startsWith("application/x-ndjson");
+    assertThat(lines).hasSize(2);
+    assertThat(lines[0]).startsWith("{\"id\":1,").contains("\"username\":\"dir_a\"");
+    assertThat(lines[1]).startsWith("{\"id\":2,").contains("\"username\":\"dir_b\"");
+  }
+
+  @Test
+  public void testUserSearchOnAShardedStoreIsNotImplemented() throws Exception {
+    // Setup
+    when(reactiveUserSearchService.findUserByUsername("alice"))
+        .thenReturn(Flux.error(new ReactiveSearchUnsupportedException()));
+
+    // Test
+    MvcResult pending =
+        mockMvc.perform(get("/api/reactive/user-search").param("username", "alice")).andReturn();
+
+    // Verify
+    mockMvc
+        .perform(asyncDispatch(pending))
+        .andExpect(status().isNotImplemented())
+        .andExpect(content().string(containsString("sharded store")));
+  }
+
+  @Test
+  public void testUserDirectoryRejectsInvalidPageSize() throws Exception {
+    when(employeeService.directoryPageSize(0))
+        .thenThrow(new IllegalArgumentException("Page size must be between 1 and 100000"));
+
+    mockMvc
+        .perform(get("/api/reactive/user-directory").param("prefix", "dir").param("limit", "0"))
+        .andExpect(status().isBadRequest());
+    verifyNoInteractions(reactiveUserSearchService);
+  }
+}
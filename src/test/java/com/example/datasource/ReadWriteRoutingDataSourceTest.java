@@ -0,0 +1,148 @@
+package com.example.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.model.User;
+import com.example.repository.UserRepository;
+import com.example.service.EmployeeService;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * One primary and two replicas, each its own in-memory H2 database. Replication is simulated by
+ * writing to the replicas directly, with a different email per database so every read shows where
+ * it was served from. A third replica points at a server that does not exist.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:rw-primary;OPTIMIZE_REUSE_RESULTS=FALSE",
+      "employee.datasource.replicas[0].url=" + ReadWriteRoutingDataSourceTest.REPLICA_1,
+      "employee.datasource.replicas[0].username=sa",
+      "employee.datasource.replicas[1].url=" + ReadWriteRoutingDataSourceTest.REPLICA_2,
+      "employee.datasource.replicas[1].username=sa",
+      "employee.datasource.replicas[2].url=jdbc:h2:tcp://localhost:1/unreachable",
+      "employee.datasource.replicas[2].username=sa",
+      "employee.datasource.replica-connection-timeout=250ms",
+      "employee.datasource.replica-retry-interval=1h",
+      "employee.datasource.read-your-writes-window=300ms",
+      "employee.user-cache.enabled=false"
+    })
+public class ReadWriteRoutingDataSourceTest {
+
+  static final String REPLICA_1 = "jdbc:h2:mem:rw-replica-1;DB_CLOSE_DELAY=-1";
+  static final String REPLICA_2 = "jdbc:h2:mem:rw-replica-2;DB_CLOSE_DELAY=-1";
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private HikariDataSource primary;
+
+  @Autowired private ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+  @Autowired private RecentWrites recentWrites;
+
+  @BeforeEach
+  public void replicate() {
+    replicateAlice(new JdbcTemplate(primary), "alice@primary");
+    replicateAlice(replica(REPLICA_1), "alice@replica-1");
+    replicateAlice(replica(REPLICA_2), "alice@replica-2");
+  }
+
+  @Test
+  public void testLookupsRotateOverHealthyReplicas() {
+    Set<String> servedBy = new HashSet<>();
+    for (int i = 0; i < 6; i++) {
+      List<User> users = employeeService.findUserByUsername("alice");
+      assertThat(users).hasSize(1);
+      servedBy.add(users.get(0).getEmail());
+    }
+
+    assertThat(servedBy).containsExactlyInAnyOrder("alice@replica-1", "alice@replica-2");
+    // The unreachable replica failed once and is now skipped
+    ReadWriteRoutingDataSource.ReplicaSnapshot unreachable =
+        readWriteRoutingDataSource.snapshot().getReplicas().get(2);
+    assertThat(unreachable.getName()).isEqualTo("employee-replica-3");
+    assertThat(unreachable.isAvailable()).isFalse();
+    assertThat(unreachable.getFailures()).isEqualTo(1);
+    assertThat(unreachable.getConnections()).isZero();
+  }
+
+  @Test
+  public void testWritesGoToThePrimary() {
+    userRepository.save(new User("rw_bob", "password", "bob@example.com"));
+
+    assertThat(count(new JdbcTemplate(primary), "rw_bob")).isEqualTo(1);
+    assertThat(count(replica(REPLICA_1), "rw_bob")).isZero();
+    assertThat(count(replica(REPLICA_2), "rw_bob")).isZero();
+  }
+
+  @Test
+  public void testLookupsReadTheirWritesWithinTheWindow() throws Exception {
+    // The replicas still hold the state from before the write
+    replica(REPLICA_1)
+        .update(
+            "MERGE INTO users (id, username, password, email) KEY (username)"
+                + " VALUES (900, 'rw_carol', 'p', 'old')");
+    replica(REPLICA_2)
+        .update(
+            "MERGE INTO users (id, username, password, email) KEY (username)"
+                + " VALUES (900, 'rw_carol', 'p', 'old')");
+    userRepository.save(new User("rw_carol", "password", "new"));
+
+    assertThat(employeeService.findUserByUsername("rw_carol").get(0).getEmail()).isEqualTo("new");
+    // Other users are not held back by the write
+    assertThat(employeeService.findUserByUsername("alice").get(0).getEmail())
+        .startsWith("alice@replica-");
+
+    awaitWindow();
+    assertThat(employeeService.findUserByUsername("rw_carol").get(0).getEmail()).isEqualTo("old");
+  }
+
+  @Test
+  public void testReadOnlyTransactionsUseReplicas() throws Exception {
+    awaitWindow();
+
+    assertThat(userRepository.findByUsername("alice").getEmail()).startsWith("alice@replica-");
+  }
+
+  private void awaitWindow() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (recentWrites.isAnyRecent() && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(recentWrites.isAnyRecent()).isFalse();
+  }
+
+  private static JdbcTemplate replica(String url) {
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    replica.execute(
+        "CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, username VARCHAR(255),"
+            + " password VARCHAR(255), email VARCHAR(255),"
+            + " updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)");
+    return replica;
+  }
+
+  private static void replicateAlice(JdbcTemplate database, String email) {
+    database.update(
+        "MERGE INTO users (id, username, password, email) KEY (username)"
+            + " VALUES (1000000, 'alice', 'password', ?)",
+        email);
+  }
+
+  private static int count(JdbcTemplate database, String username) {
+    return database.queryForObject(
+        "SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username);
+  }
+}
@@ -0,0 +1,169 @@
+package com.example.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.service.EmployeeService;
+import com.example.service.UserSearchIndex;
+
+/**
+ * Shows lookup throughput growing with the number of shards. A real database serves a bounded
+ * number of queries at a time; here each shard gets two connections and {@code users} is a view
+ * that takes 5 ms per row read, so a shard answers at most about 400 lookups a second whatever the
+ * CPU. The same client load is then spread over the users of 1, 2 and 4 shards.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=" + ShardedLookupThroughputTest.SHARD_0,
+      "spring.datasource.hikari.maximum-pool-size=2",
+      "spring.datasource.hikari.minimum-idle=2",
+      "spring.jpa.hibernate.ddl-auto=none",
+      "employee.sharding.shards[0].url=" + ShardedLookupThroughputTest.SHARD_1,
+      "employee.sharding.shards[0].username=sa",
+      "employee.sharding.shards[1].url=" + ShardedLookupThroughputTest.SHARD_2,
+      "employee.sharding.shards[1].username=sa",
+      "employee.sharding.shards[2].url=" + ShardedLookupThroughputTest.SHARD_3,
+      "employee.sharding.shards[2].username=sa",
+      "employee.sharding.shard-pool-size=2",
+      "employee.user-cache.enabled=false"
+    })
+public class ShardedLookupThroughputTest {
+
+  static final String SHARD_0 = "jdbc:h2:mem:throughput-0;DB_CLOSE_DELAY=-1";
+  static final String SHARD_1 = "jdbc:h2:mem:throughput-1;DB_CLOSE_DELAY=-1";
+  static final String SHARD_2 = "jdbc:h2:mem:throughput-2;DB_CLOSE_DELAY=-1";
+  static final String SHARD_3 = "jdbc:h2:mem:throughput-3;DB_CLOSE_DELAY=-1";
+
+  static {
+    // Startup checks that each shard's users_seq counts in its own range
+    String[] urls = {SHARD_0, SHARD_1, SHARD_2, SHARD_3};
+    for (int shard = 0; shard < urls.length; shard++) {
+      new JdbcTemplate(new DriverManagerDataSource(urls[shard], "sa", ""))
+          .execute(
+              "CREATE SEQUENCE IF NOT EXISTS users_seq START WITH "
+                  + ShardIdRanges.firstId(shard)
+                  + " INCREMENT BY 50");
+    }
+  }
+
+  private static final int USERS = 400;
+  private static final int CLIENTS = 16;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private UserSearchIndex userSearchIndex;
+
+  /** Usernames by the shard holding them. */
+  private final List<List<String>> usernames = new ArrayList<>();
+
+  @BeforeEach
+  public void seed() throws InterruptedException {
+    String[] urls = {SHARD_0, SHARD_1, SHARD_2, SHARD_3};
+    List<JdbcTemplate> shards = new ArrayList<>();
+    for (String url : urls) {
+      JdbcTemplate shard = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+      shard.execute("CREATE ALIAS IF NOT EXISTS PAUSE FOR 'java.lang.Thread.sleep(long)'");
+      shard.execute(
+          "CREATE TABLE IF NOT EXISTS user_rows (id BIGINT PRIMARY KEY, username VARCHAR(255),"
+              + " password VARCHAR(255), email VARCHAR(255))");
+      shard.execute("CREATE INDEX IF NOT EXISTS idx_user_rows_username ON user_rows (username)");
+      shard.execute(
+          "CREATE OR REPLACE VIEW users AS"
+              + " SELECT id, username, password, email FROM user_rows WHERE PAUSE(5) IS NULL");
+      shard.execute("DELETE FROM user_rows");
+      shards.add(shard);
+      usernames.add(new ArrayList<>());
+    }
+    for (int i = 0; i < USERS; i++) {
+      String username = "throughput_" + i;
+      int shard = userShards.shardOf(username);
+      shards
+          .get(shard)
+          .update(
+              "INSERT INTO user_rows VALUES (?, ?, 'password', ?)",
+              i,
+              username,
+              username + "@example.com");
+      usernames.get(shard).add(username);
+    }
+
+    // The search index's first load fails before the view exists, and its retry reads every row
+    // through the slow view; let it finish rather than compete with the measured lookups
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (userSearchIndex.snapshot().getRebuildMillis() == -1 && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+  }
+
+  @Test
+  public void testLookupThroughputGrowsWithShards() throws Exception {
+    double one = lookupsPerSecond(1);
+    double two = lookupsPerSecond(2);
+    double four = lookupsPerSecond(4);
+    System.out.printf(
+        "Lookups per second with users on 1, 2 and 4 shards: %.0f, %.0f, %.0f%n", one, two, four);
+
+    assertThat(two).isGreaterThan(1.5 * one);
+    assertThat(four).isGreaterThan(2.5 * one);
+  }
+
+  /** Runs {@link #CLIENTS} clients for a second against the users of the first {@code shards}. */
+  private double lookupsPerSecond(int shards) throws Exception {
+    List<String> targets = new ArrayList<>();
+    for (int shard = 0; shard < shards; shard++) {
+      targets.addAll(usernames.get(shard));
+    }
+    long duration = TimeUnit.SECONDS.toNanos(1);
+    LongAdder lookups = new LongAdder();
+    AtomicInteger failures = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    try {
+      for (int i = 0; i < CLIENTS; i++) {
+        clients.execute(
+            () -> {
+              try {
+                start.await();
+              } catch (InterruptedException e) {
+                return;
+              }
+              long end = System.nanoTime() + duration;
+              while (System.nanoTime() < end) {
+                String username = targets.get(ThreadLocalRandom.current().nextInt(targets.size()));
+                if (employeeService.findUserByUsername(username).size() == 1) {
+                  lookups.increment();
+                } else {
+                  failures.incrementAndGet();
+                }
+              }
+            });
+      }
+      long started = System.nanoTime();
+      start.countDown();
+      clients.shutdown();
+      assertThat(clients.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(failures).hasValue(0);
+      return lookups.sum() * 1e9 / (System.nanoTime() - started);
+    } finally {
+      clients.shutdownNow();
+    }
+  }
+}
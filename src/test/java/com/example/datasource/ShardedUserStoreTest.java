@@ -0,0 +1,338 @@
+package com.example.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.config.ShardingProperties;
+import com.example.model.User;
+import com.example.repository.UserRepository;
+import com.example.service.EmployeeService;
+import com.example.service.ReactiveSearchUnsupportedException;
+import com.example.service.ReactiveUserSearchService;
+import com.example.service.UserCursor;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Four shards, each its own in-memory H2 database: {@code spring.datasource} as shard 0 and three
+ * more. Every shard's {@code users_seq} counts in its own range, so ids stay unique across them.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:sharded-0;OPTIMIZE_REUSE_RESULTS=FALSE",
+      "employee.sharding.shards[0].url=" + ShardedUserStoreTest.SHARD_1,
+      "employee.sharding.shards[0].username=sa",
+      "employee.sharding.shards[1].url=" + ShardedUserStoreTest.SHARD_2,
+      "employee.sharding.shards[1].username=sa",
+      "employee.sharding.shards[2].url=" + ShardedUserStoreTest.SHARD_3,
+      "employee.sharding.shards[2].username=sa",
+      "employee.sharding.fan-out-timeout=500ms",
+      "employee.user-cache.enabled=false"
+    })
+public class ShardedUserStoreTest {
+
+  static final String SHARD_1 = "jdbc:h2:mem:sharded-1;DB_CLOSE_DELAY=-1";
+  static final String SHARD_2 = "jdbc:h2:mem:sharded-2;DB_CLOSE_DELAY=-1";
+  static final String SHARD_3 = "jdbc:h2:mem:sharded-3;DB_CLOSE_DELAY=-1";
+
+  static {
+    // Before the application starts, which checks every shard's users_seq
+    shard(SHARD_1, 1);
+    shard(SHARD_2, 2);
+    shard(SHARD_3, 3);
+  }
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private ReactiveUserSearchService reactiveUserSearchService;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private HikariDataSource primary;
+
+  private final List<JdbcTemplate> shards = new ArrayList<>();
+
+  @BeforeEach
+  public void createSchemas() {
+    shards.add(new JdbcTemplate(primary));
+    shards.add(shard(SHARD_1, 1));
+    shards.add(shard(SHARD_2, 2));
+    shards.add(shard(SHARD_3, 3));
+  }
+
+  @Test
+  public void testUsersLiveOnTheShardOfTheirUsername() {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      users.add(new User("placed_" + i, "password", "placed_" + i + "@example.com"));
+    }
+    userRepository.saveAll(users.subList(0, 30));
+    for (User user : users.subList(30, 40)) {
+      userRepository.save(user);
+    }
+
+    Set<Integer> used = new HashSet<>();
+    for (User user : users) {
+      int home = userShards.shardOf(user.getUsername());
+      used.add(home);
+      for (int shard = 0; shard < shards.size(); shard++) {
+        assertThat(count(shards.get(shard), user.getUsername()))
+            .as("%s on shard %d", user.getUsername(), shard)
+            .isEqualTo(shard == home ? 1 : 0);
+      }
+      assertThat(userRepository.findByUsername(user.getUsername()).getId()).isEqualTo(user.getId());
+      assertThat(employeeService.findUserByUsername(user.getUsername()))
+          .extracting(User::getEmail)
+          .containsExactly(user.getEmail());
+    }
+    assertThat(used).containsExactlyInAnyOrder(0, 1, 2, 3);
+    assertThat(users.stream().map(User::getId).distinct()).hasSize(users.size());
+  }
+
+  @Test
+  public void testBatchLookupAndEmailSearchCoverEveryShard() throws Exception {
+    List<String> usernames = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      usernames.add("batch_" + i);
+      userRepository.save(new User("batch_" + i, "password", "shared@example.com"));
+    }
+    usernames.add("batch_missing");
+
+    Map<String, List<User>> found = employeeService.findUsersByUsernames(usernames);
+    assertThat(found.keySet()).containsExactlyElementsOf(usernames);
+    assertThat(found.get("batch_missing")).isEmpty();
+    for (String username : usernames.subList(0, 20)) {
+      assertThat(found.get(username)).extracting(User::getUsername).containsExactly(username);
+    }
+
+    List<User> byEmail = employeeService.findUsersByEmail("shared@example.com");
+    assertThat(byEmail)
+        .extracting(User::getUsername)
+        .containsExactlyElementsOf(
+            usernames.subList(0, 20).stream().sorted().collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testDirectoryPagesMergeShardsInOrder() throws Exception {
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      String username = "dir_" + (char) ('a' + i % 26) + i;
+      expected.add(username);
+      userRepository.save(new User(username, "password", username + "@example.com"));
+    }
+    expected.sort(null);
+
+    List<String> listed = new ArrayList<>();
+    UserCursor cursor = null;
+    int pages = 0;
+    do {
+      cursor =
+          employeeService.streamUsersByPrefix(
+              "dir_", cursor, 7, user -> listed.add(user.getUsername()));
+      pages++;
+    } while (cursor != null);
+
+    assertThat(listed).containsExactlyElementsOf(expected);
+    assertThat(pages).isEqualTo(5);
+  }
+
+  @Test
+  public void testASequenceOutsideItsShardsRangeIsRefused() {
+    // Setup: shard 1 with a sequence left at its default start
+    String url = "jdbc:h2:mem:sharded-unranged;DB_CLOSE_DELAY=-1";
+    JdbcTemplate unranged = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    unranged.execute("CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50");
+    ShardingProperties properties = new ShardingProperties();
+    properties.getShards().add(new ShardingProperties.Shard());
+    UserShards twoShards = new UserShards(properties);
+    ShardIdRanges ranges =
+        new ShardIdRanges(
+            new ShardedDataSource(List.of(primary, unranged.getDataSource())),
+            twoShards,
+            "SELECT NEXT VALUE FOR users_seq");
+
+    try {
+      // Test & Verify
+      assertThatThrownBy(ranges::verify)
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessageStartingWith("users_seq on shard 1 is at 1, outside the shard's ids");
+    } finally {
+      twoShards.close();
+    }
+  }
+
+  @Test
+  public void testReactiveSearchesRefuseAShardedStore() {
+    assertThatThrownBy(() -> reactiveUserSearchService.findUserByUsername("anyone").blockFirst())
+        .isInstanceOf(ReactiveSearchUnsupportedException.class);
+  }
+
+  @Test
+  public void testFanOutFailsAtTheDeadlineAndReleasesLateResults() throws Exception {
+    long timeoutsBefore = userShards.snapshot().getFanOutTimeouts();
+    List<Integer> discarded = new CopyOnWriteArrayList<>();
+
+    assertThatThrownBy(
+            () ->
+                userShards.scatter(
+                    shard -> {
+                      if (shard == 2) {
+                        sleep(1000);
+                      }
+                      return shard;
+                    },
+                    discarded::add))
+        .isInstanceOf(SQLTimeoutException.class)
+        .hasMessage("Shards [2] did not answer within 500 ms");
+
+    assertThat(userShards.snapshot().getFanOutTimeouts()).isEqualTo(timeoutsBefore + 1);
+    // Every shard's result is released, the late one once it arrives
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (discarded.size() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(discarded).containsExactlyInAnyOrder(0, 1, 2, 3);
+  }
+
+  @Test
+  public void testAFullFanOutQueueRejectsAtOnce() throws Exception {
+    // Setup: three shards on one thread with a queue of one, the first shard's query held
+    ShardingProperties properties = new ShardingProperties();
+    properties.getShards().add(new ShardingProperties.Shard());
+    properties.getShards().add(new ShardingProperties.Shard());
+    properties.setFanOutThreads(1);
+    properties.setFanOutQueueCapacity(1);
+    properties.setFanOutTimeout(Duration.ofSeconds(10));
+    UserShards threeShards = new UserShards(properties);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> discarded = new CopyOnWriteArrayList<>();
+
+    try {
+      // Test
+      long started = System.nanoTime();
+      assertThatThrownBy(
+              () ->
+                  threeShards.scatter(
+                      shard -> {
+                        await(release);
+                        return shard;
+                      },
+                      discarded::add))
+          .isInstanceOf(RejectedExecutionException.class);
+
+      // Verify: turned away without waiting for the held query, which is released once it ends
+      assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+      assertThat(threeShards.snapshot().getFanOutRejections()).isEqualTo(1);
+      release.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (discarded.size() < 2 && System.nanoTime() < deadline) {
+        Thread.sleep(20);
+      }
+      assertThat(discarded).containsExactlyInAnyOrder(0, 1);
+    } finally {
+      release.countDown();
+      threeShards.close();
+    }
+  }
+
+  @Test
+  public void testConcurrentFanOutsBeyondTheThreadsAreQueued() throws Exception {
+    // Setup: four shards on two threads, with the default queue
+    ShardingProperties properties = new ShardingProperties();
+    for (int i = 0; i < 3; i++) {
+      properties.getShards().add(new ShardingProperties.Shard());
+    }
+    properties.setFanOutThreads(2);
+    properties.setFanOutTimeout(Duration.ofSeconds(30));
+    UserShards fourShards = new UserShards(properties);
+    int searches = 50;
+    ExecutorService callers = Executors.newFixedThreadPool(searches);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      // Test: many more searches at once than there are threads
+      List<Future<List<Integer>>> results = new ArrayList<>();
+      for (int i = 0; i < searches; i++) {
+        results.add(
+            callers.submit(
+                () -> {
+                  start.await();
+                  return fourShards.scatter(
+                      shard -> {
+                        sleep(5);
+                        return shard;
+                      },
+                      shard -> {});
+                }));
+      }
+      start.countDown();
+
+      // Verify: every one waits its turn instead of being turned away
+      for (Future<List<Integer>> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).containsExactly(0, 1, 2, 3);
+      }
+      assertThat(fourShards.snapshot().getFanOutRejections()).isZero();
+    } finally {
+      callers.shutdownNow();
+      fourShards.close();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static JdbcTemplate shard(String url, int index) {
+    JdbcTemplate shard = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    shard.execute(
+        "CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, username VARCHAR(255),"
+            + " password VARCHAR(255), email VARCHAR(255),"
+            + " updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)");
+    shard.execute(
+        "CREATE SEQUENCE IF NOT EXISTS users_seq START WITH "
+            + ShardIdRanges.firstId(index)
+            + " INCREMENT BY 50");
+    return shard;
+  }
+
+  private static int count(JdbcTemplate database, String username) {
+    return database.queryForObject(
+        "SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username);
+  }
+}
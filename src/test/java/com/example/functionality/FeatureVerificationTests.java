@@ -11,12 +11,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 public class FeatureVerificationTests {
 
   @Autowired private MockMvc mockMvc;
 
+  @Autowired private UserRepository userRepository;
+
   @Test
   public void testSystemCommandExecution() throws Exception {
     // Test system command execution feature
@@ -45,7 +50,10 @@ public class FeatureVerificationTests {
 
   @Test
   public void testAccountUpdateEndpoint() throws Exception {
-    // Test account update feature
+    // Test account update feature; the change is written to an existing user
+    if (userRepository.findByUsername("testuser") == null) {
+      userRepository.save(new User("testuser", "password", "old@example.com"));
+    }
     mockMvc
         .perform(
             post("/api/update-account")
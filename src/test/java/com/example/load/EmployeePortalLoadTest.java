@@ -0,0 +1,191 @@
+package com.example.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Drives the running portal at a fixed arrival rate and fails when the latency or error SLO in
+ * {@code load-test.properties} is not met. Excluded from the default build; run it with {@code mvn
+ * -Pload test}, overriding any setting with {@code -Dload.<name>=<value>}. Adding the {@code
+ * java21} profile runs the same load against virtual threads.
+ */
+@Tag("load")
+@SpringBootTest(
+    webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:loadtest;OPTIMIZE_REUSE_RESULTS=FALSE",
+      "management.server.port=0"
+    })
+public class EmployeePortalLoadTest {
+
+  private static final Logger log = LoggerFactory.getLogger(EmployeePortalLoadTest.class);
+
+  private static final long SEED = 42;
+
+  @LocalServerPort private int port;
+
+  @Value("${employee.virtual-threads.enabled:false}")
+  private boolean virtualThreads;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private LoadTestConfig config;
+
+  private HttpServer upstream;
+  private ExecutorService upstreamThreads;
+
+  @BeforeEach
+  public void seed() throws Exception {
+    config = LoadTestConfig.load();
+    startUpstream();
+    if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) > 0) {
+      return;
+    }
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) "
+            + "SELECT X, 'user' || X, 'password', 'user' || X || '@example.com' "
+            + "FROM SYSTEM_RANGE(1, ?)",
+        config.getUsers());
+  }
+
+  @AfterEach
+  public void stopUpstream() {
+    upstream.stop(0);
+    upstreamThreads.shutdownNow();
+  }
+
+  /** A slow upstream for fetch-url, answering uncacheable responses after a fixed delay. */
+  private void startUpstream() throws Exception {
+    long delayMillis = config.getUpstreamDelay().toMillis();
+    upstreamThreads = Executors.newCachedThreadPool();
+    upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    upstream.setExecutor(upstreamThreads);
+    upstream.createContext(
+        "/slow",
+        exchange -> {
+          try {
+            Thread.sleep(delayMillis);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().set("Cache-Control", "no-store");
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    upstream.start();
+  }
+
+  @Test
+  public void testMeetsLatencySlo() throws Exception {
+    HttpClient client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // Let the JIT, the connection pool and the caches settle before anything is recorded
+    generator(client).run(config.getRate(), config.getWarmup(), config.getDrainTimeout(), SEED - 1);
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    threadBean.resetPeakThreadCount();
+    OpenLoadGenerator.Run run =
+        generator(client)
+            .run(config.getRate(), config.getDuration(), config.getDrainTimeout(), SEED);
+
+    LoadReport report =
+        new LoadReport(
+            config, run, virtualThreads ? "virtual" : "platform", threadBean.getPeakThreadCount());
+    Path written = report.write();
+    log.info("Load test finished\n{}report: {}", report.summary(), written.toAbsolutePath());
+
+    List<String> violations = report.violations();
+    assertThat(violations).as("SLO violations").isEmpty();
+  }
+
+  private OpenLoadGenerator generator(HttpClient client) {
+    OpenLoadGenerator generator = new OpenLoadGenerator(client);
+    for (Map.Entry<String, Integer> mix : config.getMix().entrySet()) {
+      generator.endpoint(mix.getKey(), mix.getValue(), request(mix.getKey()));
+    }
+    return generator;
+  }
+
+  private Function<Random, HttpRequest> request(String endpoint) {
+    int users = config.getUsers();
+    switch (endpoint) {
+      case "user-search":
+        return random ->
+            HttpRequest.newBuilder(
+                    uri("/api/user-search?username=user" + (1 + random.nextInt(users))))
+                .GET()
+                .build();
+      case "reactive-user-search":
+        return random ->
+            HttpRequest.newBuilder(
+                    uri("/api/reactive/user-search?username=user" + (1 + random.nextInt(users))))
+                .header("Accept", "application/x-ndjson")
+                .GET()
+                .build();
+      case "update-account":
+        return random -> {
+          int user = 1 + random.nextInt(users);
+          String form = "username=user" + user + "&email=" + encode("user" + user + "@example.org");
+          return HttpRequest.newBuilder(uri("/api/update-account"))
+              .header("Content-Type", "application/x-www-form-urlencoded")
+              .POST(HttpRequest.BodyPublishers.ofString(form))
+              .build();
+        };
+      case "crossdomain":
+        return random -> HttpRequest.newBuilder(uri("/crossdomain.xml")).GET().build();
+      case "fetch-url":
+        // A distinct URL per request, so no two requests share an upstream call
+        String slow = "http://localhost:" + upstream.getAddress().getPort() + "/slow?n=";
+        return random ->
+            HttpRequest.newBuilder(uri("/api/fetch-url?url=" + encode(slow + random.nextLong())))
+                .GET()
+                .build();
+      default:
+        throw new IllegalStateException("Unknown load.mix endpoint " + endpoint);
+    }
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + port + path);
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+}
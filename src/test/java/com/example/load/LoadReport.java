@@ -0,0 +1,166 @@
+package com.example.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes a run as {@code load-<timestamp>.json}, with the settings and per-endpoint percentiles in
+ * milliseconds so runs can be diffed, plus one {@code .hgrm} percentile distribution per endpoint
+ * for HdrHistogram's plotter. Also checks the run against the configured SLO.
+ */
+final class LoadReport {
+
+  private static final DateTimeFormatter TIMESTAMP =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+  private final LoadTestConfig config;
+  private final OpenLoadGenerator.Run run;
+  private final String threads;
+  private final int peakLiveThreads;
+
+  /**
+   * {@code threads} names how the server ran requests, "platform" or "virtual"; {@code
+   * peakLiveThreads} is the JVM's peak platform thread count during the run, load generator
+   * included.
+   */
+  LoadReport(
+      LoadTestConfig config, OpenLoadGenerator.Run run, String threads, int peakLiveThreads) {
+    this.config = config;
+    this.run = run;
+    this.threads = threads;
+    this.peakLiveThreads = peakLiveThreads;
+  }
+
+  /** Writes the report files and returns the JSON one. */
+  Path write() throws IOException {
+    Path directory = Paths.get(config.getReportDirectory());
+    Files.createDirectories(directory);
+    String name = "load-" + TIMESTAMP.format(Instant.now());
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("settings", config.asMap());
+    report.put("threads", threads);
+    report.put("peakLiveThreads", peakLiveThreads);
+    report.put("javaVersion", Runtime.version().toString());
+    report.put("targetRate", run.targetRate);
+    report.put("achievedRate", Math.round(run.achievedRate));
+    report.put(
+        "maxScheduleLagMillis", millis(TimeUnit.NANOSECONDS.toMicros(run.maxScheduleLagNanos)));
+    Map<String, Object> endpoints = new LinkedHashMap<>();
+    for (OpenLoadGenerator.EndpointResult endpoint : run.endpoints.values()) {
+      endpoints.put(endpoint.name, summary(endpoint));
+      try (PrintStream out =
+          new PrintStream(
+              Files.newOutputStream(directory.resolve(name + "-" + endpoint.name + ".hgrm")))) {
+        // Values are recorded in microseconds; scale the distribution to milliseconds
+        endpoint.latencies.outputPercentileDistribution(out, 1000.0);
+      }
+    }
+    report.put("endpoints", endpoints);
+    report.put("sloViolations", violations());
+
+    Path json = directory.resolve(name + ".json");
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), report);
+    return json;
+  }
+
+  /** One line per endpoint, for the test log. */
+  String summary() {
+    StringBuilder summary = new StringBuilder();
+    summary.append(
+        String.format(
+            "%s threads (peak %d live), target %d req/s, achieved %.0f req/s,"
+                + " max schedule lag %.1f ms%n",
+            threads,
+            peakLiveThreads,
+            run.targetRate,
+            run.achievedRate,
+            millis(TimeUnit.NANOSECONDS.toMicros(run.maxScheduleLagNanos))));
+    for (OpenLoadGenerator.EndpointResult endpoint : run.endpoints.values()) {
+      Histogram latencies = endpoint.latencies;
+      summary.append(
+          String.format(
+              "%-16s %8d requests %6d errors  p50 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms%n",
+              endpoint.name,
+              endpoint.requests,
+              endpoint.errors,
+              millis(latencies.getValueAtPercentile(50)),
+              millis(latencies.getValueAtPercentile(99)),
+              millis(latencies.getValueAtPercentile(99.9)),
+              millis(latencies.getMaxValue())));
+    }
+    return summary.toString();
+  }
+
+  /** Descriptions of every threshold an endpoint exceeded; empty if the SLO was met. */
+  List<String> violations() {
+    List<String> violations = new ArrayList<>();
+    for (OpenLoadGenerator.EndpointResult endpoint : run.endpoints.values()) {
+      check(violations, endpoint, "p99", 99, config.getSloP99());
+      check(violations, endpoint, "p99.9", 99.9, config.getSloP999());
+      if (endpoint.errorRate() > config.getSloMaxErrorRate()) {
+        violations.add(
+            String.format(
+                "%s error rate %.4f exceeds %.4f (%d of %d, %d unfinished)",
+                endpoint.name,
+                endpoint.errorRate(),
+                config.getSloMaxErrorRate(),
+                endpoint.errors,
+                endpoint.requests,
+                endpoint.unfinished));
+      }
+    }
+    return violations;
+  }
+
+  private static void check(
+      List<String> violations,
+      OpenLoadGenerator.EndpointResult endpoint,
+      String label,
+      double percentile,
+      Duration threshold) {
+    long micros = endpoint.latencies.getValueAtPercentile(percentile);
+    if (micros > TimeUnit.NANOSECONDS.toMicros(threshold.toNanos())) {
+      violations.add(
+          String.format(
+              "%s %s %.2f ms exceeds %d ms",
+              endpoint.name, label, millis(micros), threshold.toMillis()));
+    }
+  }
+
+  private static Map<String, Object> summary(OpenLoadGenerator.EndpointResult endpoint) {
+    Histogram latencies = endpoint.latencies;
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("requests", endpoint.requests);
+    summary.put("errors", endpoint.errors);
+    summary.put("unfinished", endpoint.unfinished);
+    summary.put("p50Millis", millis(latencies.getValueAtPercentile(50)));
+    summary.put("p90Millis", millis(latencies.getValueAtPercentile(90)));
+    summary.put("p99Millis", millis(latencies.getValueAtPercentile(99)));
+    summary.put("p999Millis", millis(latencies.getValueAtPercentile(99.9)));
+    summary.put("maxMillis", millis(latencies.getMaxValue()));
+    summary.put("meanMillis", latencies.getMean() / 1000.0);
+    return summary;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,113 @@
+package com.example.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Settings of the load test, read from {@code load-test.properties} on the test classpath with any
+ * {@code load.*} system property taking precedence.
+ */
+final class LoadTestConfig {
+
+  private static final String MIX_PREFIX = "load.mix.";
+
+  private final Properties properties;
+
+  private LoadTestConfig(Properties properties) {
+    this.properties = properties;
+  }
+
+  static LoadTestConfig load() throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = LoadTestConfig.class.getResourceAsStream("/load-test.properties")) {
+      if (in != null) {
+        properties.load(in);
+      }
+    }
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("load.")) {
+        properties.setProperty(name, System.getProperty(name));
+      }
+    }
+    return new LoadTestConfig(properties);
+  }
+
+  int getRate() {
+    return Integer.parseInt(require("load.rate"));
+  }
+
+  Duration getWarmup() {
+    return duration("load.warmup");
+  }
+
+  Duration getDuration() {
+    return duration("load.duration");
+  }
+
+  Duration getDrainTimeout() {
+    return duration("load.drain-timeout");
+  }
+
+  int getUsers() {
+    return Integer.parseInt(require("load.users"));
+  }
+
+  /** Endpoint name to relative weight, in a stable order. */
+  Map<String, Integer> getMix() {
+    Map<String, Integer> mix = new LinkedHashMap<>();
+    properties.stringPropertyNames().stream()
+        .filter(name -> name.startsWith(MIX_PREFIX))
+        .sorted()
+        .forEach(
+            name -> mix.put(name.substring(MIX_PREFIX.length()), Integer.parseInt(require(name))));
+    return mix;
+  }
+
+  /** How long the stub upstream behind the fetch-url endpoint takes to answer. */
+  Duration getUpstreamDelay() {
+    return duration("load.upstream-delay");
+  }
+
+  Duration getSloP99() {
+    return duration("load.slo.p99");
+  }
+
+  Duration getSloP999() {
+    return duration("load.slo.p999");
+  }
+
+  double getSloMaxErrorRate() {
+    return Double.parseDouble(require("load.slo.max-error-rate"));
+  }
+
+  String getReportDirectory() {
+    return require("load.report-directory");
+  }
+
+  /** Everything that shaped the run, for the report. */
+  Map<String, String> asMap() {
+    Map<String, String> settings = new LinkedHashMap<>();
+    properties.stringPropertyNames().stream()
+        .sorted()
+        .forEach(name -> settings.put(name, properties.getProperty(name)));
+    return settings;
+  }
+
+  private Duration duration(String name) {
+    return DurationStyle.detectAndParse(require(name));
+  }
+
+  private String require(String name) {
+    String value = properties.getProperty(name);
+    if (value == null || value.trim().isEmpty()) {
+      throw new IllegalStateException("Missing load test setting " + name);
+    }
+    return value.trim();
+  }
+}
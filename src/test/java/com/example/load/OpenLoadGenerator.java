@@ -0,0 +1,193 @@
+package com.example.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Starts requests at a fixed arrival rate, whether or not earlier requests have completed, and
+ * times each one from the moment it was scheduled to start rather than from when it was actually
+ * sent. A server that stalls therefore shows up in the latencies of every request that should have
+ * started during the stall, not only the one that was in flight (no coordinated omission).
+ */
+final class OpenLoadGenerator {
+
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+  private final HttpClient client;
+  private final List<String> names = new ArrayList<>();
+  private final List<Function<Random, HttpRequest>> requests = new ArrayList<>();
+  private final List<Integer> cumulativeWeights = new ArrayList<>();
+  private int totalWeight;
+
+  OpenLoadGenerator(HttpClient client) {
+    this.client = client;
+  }
+
+  /** Adds an endpoint picked for {@code weight} out of every total-weight requests. */
+  OpenLoadGenerator endpoint(String name, int weight, Function<Random, HttpRequest> request) {
+    if (weight <= 0) {
+      return this;
+    }
+    totalWeight += weight;
+    names.add(name);
+    requests.add(request);
+    cumulativeWeights.add(totalWeight);
+    return this;
+  }
+
+  /**
+   * Runs the schedule for {@code duration}, then waits up to {@code drainTimeout} for the requests
+   * still in flight. Requests that fail, answer with 4xx/5xx or do not finish count as errors.
+   */
+  Run run(int rate, Duration duration, Duration drainTimeout, long seed)
+      throws InterruptedException {
+    if (names.isEmpty()) {
+      throw new IllegalStateException("No endpoints with a positive weight");
+    }
+    List<EndpointStats> stats = new ArrayList<>();
+    for (String name : names) {
+      stats.add(new EndpointStats(name));
+    }
+    Random random = new Random(seed);
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    long total = duration.toNanos() / intervalNanos;
+    long maxLagNanos = 0;
+
+    long start = System.nanoTime();
+    for (long i = 0; i < total; i++) {
+      long intended = start + i * intervalNanos;
+      long now;
+      while ((now = System.nanoTime()) < intended) {
+        LockSupport.parkNanos(intended - now);
+      }
+      maxLagNanos = Math.max(maxLagNanos, now - intended);
+
+      int endpoint = pick(random);
+      EndpointStats endpointStats = stats.get(endpoint);
+      HttpRequest request = requests.get(endpoint).apply(random);
+      endpointStats.started();
+      client
+          .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .whenComplete(
+              (response, failure) ->
+                  endpointStats.completed(
+                      intended, failure == null && response.statusCode() < 400));
+    }
+    long sendingNanos = System.nanoTime() - start;
+
+    long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+    while (stats.stream().anyMatch(s -> s.inFlight() > 0) && System.nanoTime() < drainDeadline) {
+      Thread.sleep(10);
+    }
+
+    Map<String, EndpointResult> results = new LinkedHashMap<>();
+    for (EndpointStats endpointStats : stats) {
+      results.put(endpointStats.name, endpointStats.result());
+    }
+    double achievedRate = total / (sendingNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    return new Run(rate, achievedRate, maxLagNanos, results);
+  }
+
+  private int pick(Random random) {
+    int ticket = random.nextInt(totalWeight);
+    for (int i = 0; i < cumulativeWeights.size(); i++) {
+      if (ticket < cumulativeWeights.get(i)) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("Weight out of range: " + ticket);
+  }
+
+  private static final class EndpointStats {
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    EndpointStats(String name) {
+      this.name = name;
+    }
+
+    void started() {
+      started.incrementAndGet();
+    }
+
+    void completed(long intendedStartNanos, boolean success) {
+      if (success) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+        latencies.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+      } else {
+        errors.incrementAndGet();
+      }
+      finished.incrementAndGet();
+    }
+
+    long inFlight() {
+      return started.get() - finished.get();
+    }
+
+    EndpointResult result() {
+      long unfinished = inFlight();
+      return new EndpointResult(
+          name, latencies.copy(), started.get(), errors.get() + unfinished, unfinished);
+    }
+  }
+
+  /** The outcome of one schedule. */
+  static final class Run {
+
+    final int targetRate;
+    final double achievedRate;
+    final long maxScheduleLagNanos;
+    final Map<String, EndpointResult> endpoints;
+
+    Run(
+        int targetRate,
+        double achievedRate,
+        long maxScheduleLagNanos,
+        Map<String, EndpointResult> endpoints) {
+      this.targetRate = targetRate;
+      this.achievedRate = achievedRate;
+      this.maxScheduleLagNanos = maxScheduleLagNanos;
+      this.endpoints = endpoints;
+    }
+  }
+
+  /** Latencies of the successful requests to one endpoint, in microseconds. */
+  static final class EndpointResult {
+
+    final String name;
+    final Histogram latencies;
+    final long requests;
+    final long errors;
+    final long unfinished;
+
+    EndpointResult(String name, Histogram latencies, long requests, long errors, long unfinished) {
+      this.name = name;
+      this.latencies = latencies;
+      this.requests = requests;
+      this.errors = errors;
+      this.unfinished = unfinished;
+    }
+
+    double errorRate() {
+      return requests == 0 ? 0 : errors / (double) requests;
+    }
+  }
+}
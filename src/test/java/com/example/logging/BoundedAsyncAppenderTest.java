@@ -0,0 +1,140 @@
+package com.example.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+public class BoundedAsyncAppenderTest {
+
+  private final LoggerContext context = new LoggerContext();
+  private final BlockingAppender target = new BlockingAppender();
+  private final BoundedAsyncAppender appender = new BoundedAsyncAppender();
+
+  @BeforeEach
+  public void setup() {
+    target.setContext(context);
+    target.start();
+    appender.setContext(context);
+    appender.setName("test");
+    appender.setQueueSize(4);
+    appender.addAppender(target);
+  }
+
+  @AfterEach
+  public void release() {
+    target.release.countDown();
+    appender.stop();
+  }
+
+  @Test
+  public void testDropsAndCountsWhenQueueIsFull() throws Exception {
+    appender.setDiscardingThreshold(0);
+    appender.start();
+    blockWorker();
+
+    for (int i = 1; i <= 7; i++) {
+      appender.doAppend(event(Level.ERROR, "error " + i));
+    }
+
+    // The worker holds "blocker", four wait in the queue and the rest are dropped, not blocked on
+    assertThat(appender.getQueued()).isEqualTo(4);
+    assertThat(appender.getDropped(Level.ERROR)).isEqualTo(3);
+    assertThat(appender.getDroppedTotal()).isEqualTo(3);
+
+    target.release.countDown();
+    appender.stop();
+    assertThat(target.messages())
+        .containsExactly("blocker", "error 1", "error 2", "error 3", "error 4");
+  }
+
+  @Test
+  public void testKeepsLastSlotsForWarningsAndErrors() throws Exception {
+    appender.setDiscardingThreshold(2);
+    appender.start();
+    blockWorker();
+
+    appender.doAppend(event(Level.INFO, "info 1"));
+    appender.doAppend(event(Level.DEBUG, "debug 1"));
+    appender.doAppend(event(Level.INFO, "info 2"));
+    // One slot left, below the threshold of two: only warnings and errors get in
+    appender.doAppend(event(Level.INFO, "info 3"));
+    appender.doAppend(event(Level.WARN, "warn 1"));
+    appender.doAppend(event(Level.ERROR, "error 1"));
+
+    assertThat(appender.getDropped(Level.INFO)).isEqualTo(1);
+    assertThat(appender.getDropped(Level.WARN)).isZero();
+    assertThat(appender.getDropped(Level.ERROR)).isEqualTo(1);
+
+    target.release.countDown();
+    appender.stop();
+    assertThat(target.messages())
+        .containsExactly("blocker", "info 1", "debug 1", "info 2", "warn 1");
+  }
+
+  @Test
+  public void testStopWritesQueuedEvents() throws Exception {
+    appender.start();
+    target.release.countDown();
+    for (int i = 1; i <= 3; i++) {
+      appender.doAppend(event(Level.INFO, "info " + i));
+    }
+
+    appender.stop();
+
+    assertThat(target.messages()).containsExactly("info 1", "info 2", "info 3");
+    assertThat(appender.getAppended()).isEqualTo(3);
+    assertThat(target.isStarted()).isFalse();
+  }
+
+  /** Parks the worker inside the target appender so that the queue fills up. */
+  private void blockWorker() throws InterruptedException {
+    appender.doAppend(event(Level.ERROR, "blocker"));
+    assertThat(target.entered.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  private LoggingEvent event(Level level, String message) {
+    return new LoggingEvent(
+        BoundedAsyncAppenderTest.class.getName(),
+        context.getLogger("test"),
+        level,
+        message,
+        null,
+        null);
+  }
+
+  private static final class BlockingAppender extends AppenderBase<ILoggingEvent> {
+
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<ILoggingEvent> events = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      events.add(event);
+    }
+
+    List<String> messages() {
+      return events.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class RepeatedEventFilterTest {
+
+  private final LoggerContext context = new LoggerContext();
+  private final RepeatedEventFilter filter = new RepeatedEventFilter();
+  private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+  private final Logger logger = context.getLogger("com.example.Test");
+
+  @BeforeEach
+  public void setup() {
+    events.setContext(context);
+    events.start();
+    context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(events);
+    filter.setContext(context);
+    filter.setBurst(2);
+    filter.start();
+    context.addTurboFilter(filter);
+  }
+
+  @Test
+  public void testSuppressesRepeatsBeyondBurst() {
+    for (int i = 0; i < 5; i++) {
+      // Arguments and exception messages differ, the pattern and exception type do not
+      logger.error("Lookup failed: attempt={}", i, new SQLException("timeout " + i));
+    }
+    logger.error("Lookup failed: attempt={}", 5, new IOException("reset"));
+    logger.error("Export failed: attempt={}", 6, new SQLException("timeout"));
+    for (int i = 0; i < 5; i++) {
+      logger.info("Lookup started: attempt={}", i);
+    }
+
+    assertThat(messages())
+        .containsExactly(
+            "Lookup failed: attempt=0",
+            "Lookup failed: attempt=1",
+            "Lookup failed: attempt=5",
+            "Export failed: attempt=6",
+            "Lookup started: attempt=0",
+            "Lookup started: attempt=1",
+            "Lookup started: attempt=2",
+            "Lookup started: attempt=3",
+            "Lookup started: attempt=4");
+    assertThat(filter.getSuppressed()).isEqualTo(3);
+  }
+
+  @Test
+  public void testReportsSuppressedCountInNextWindow() throws Exception {
+    filter.setWindow(50);
+    for (int i = 0; i < 4; i++) {
+      logger.warn("Fetch failed: attempt={}", i);
+    }
+
+    Thread.sleep(60);
+    logger.warn("Fetch failed: attempt={}", 4);
+
+    assertThat(messages())
+        .containsExactly(
+            "Fetch failed: attempt=0",
+            "Fetch failed: attempt=1",
+            "Suppressed 2 repeats of \"Fetch failed: attempt={}\" beyond 2 per 50 ms",
+            "Fetch failed: attempt=4");
+  }
+
+  private List<String> messages() {
+    return events.list.stream()
+        .map(ILoggingEvent::getFormattedMessage)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.model.User;
+
+public class UserProjectionTest {
+
+  @Test
+  public void testSelectListFollowsColumnOrder() {
+    assertThat(UserProjection.SUMMARY.select("WHERE username = ?"))
+        .isEqualTo("SELECT id, username, email FROM users WHERE username = ?");
+    assertThat(UserProjection.FULL.select("WHERE id = ?"))
+        .isEqualTo("SELECT id, username, password, email FROM users WHERE id = ?");
+  }
+
+  @Test
+  public void testSameColumnsShareOneShape() {
+    assertThat(UserProjection.parse("email, id, username")).isSameAs(UserProjection.SUMMARY);
+    assertThat(UserProjection.of(EnumSet.of(UserColumn.USERNAME, UserColumn.ID)))
+        .isSameAs(UserProjection.parse("username,id"));
+  }
+
+  @Test
+  public void testParseRejectsPasswordAndUnknownColumns() {
+    assertThatThrownBy(() -> UserProjection.parse("id,password"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("password");
+    assertThatThrownBy(() -> UserProjection.parse("id,salary"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("salary");
+  }
+
+  @Test
+  public void testMapReadsByPosition() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getLong(1)).thenReturn(7L);
+    when(resultSet.getString(2)).thenReturn("jdoe");
+    when(resultSet.getString(3)).thenReturn("jdoe@example.com");
+
+    User user = UserProjection.SUMMARY.map(resultSet);
+
+    assertThat(user.getId()).isEqualTo(7L);
+    assertThat(user.getUsername()).isEqualTo("jdoe");
+    assertThat(user.getEmail()).isEqualTo("jdoe@example.com");
+    assertThat(user.getPassword()).isNull();
+  }
+}
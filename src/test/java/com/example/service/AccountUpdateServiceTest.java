@@ -0,0 +1,334 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.config.AccountUpdateProperties;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.UserShards;
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=" + AccountUpdateServiceTest.URL,
+      "employee.account-updates.queue-capacity=4",
+      "employee.account-updates.batch-size=4",
+      "employee.account-updates.max-delay=1s",
+      "employee.account-updates.offer-timeout=200ms",
+      "employee.account-updates.ack-timeout=10s"
+    })
+public class AccountUpdateServiceTest {
+
+  // A long lock timeout, so a flush stuck behind a held row waits instead of failing
+  static final String URL = "jdbc:h2:mem:account-updates;LOCK_TIMEOUT=10000";
+
+  @Autowired private AccountUpdateService accountUpdateService;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private AccountUpdateProperties accountUpdateProperties;
+
+  @Autowired private DataSource dataSource;
+
+  @Autowired private UserShards userShards;
+
+  @Autowired private RecentWrites recentWrites;
+
+  @Autowired private UserLookupCache userLookupCache;
+
+  @Autowired private UserSnapshotService userSnapshotService;
+
+  @Autowired private SlowOperationLog slowOperationLog;
+
+  @Test
+  public void testUpdatesOfOneUserCoalesceAndWaitForTheDelay() throws Exception {
+    // Setup
+    seed("coalesce_a", "coalesce_b");
+    AccountUpdateService.Snapshot before = accountUpdateService.snapshot();
+    long start = System.nanoTime();
+
+    // Test: three users, one of them missing, is less than a batch
+    List<CompletableFuture<Boolean>> acks = new ArrayList<>();
+    acks.add(accountUpdateService.submit("coalesce_a", "a1@example.org"));
+    acks.add(accountUpdateService.submit("coalesce_b", "b1@example.org"));
+    acks.add(accountUpdateService.submit("coalesce_a", "a2@example.org"));
+    acks.add(accountUpdateService.submit("coalesce_missing", "m@example.org"));
+    acks.add(accountUpdateService.submit("coalesce_a", "a3@example.org"));
+    List<Boolean> found = new ArrayList<>();
+    for (CompletableFuture<Boolean> ack : acks) {
+      found.add(ack.get(10, TimeUnit.SECONDS));
+    }
+
+    // Verify: written once the oldest update had waited max-delay, in one commit, last write wins
+    assertThat(System.nanoTime() - start)
+        .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(900));
+    assertThat(found).containsExactly(true, true, true, false, true);
+    assertThat(emailOf("coalesce_a")).isEqualTo("a3@example.org");
+    assertThat(emailOf("coalesce_b")).isEqualTo("b1@example.org");
+    AccountUpdateService.Snapshot after = accountUpdateService.snapshot();
+    assertThat(after.getSubmitted() - before.getSubmitted()).isEqualTo(5);
+    assertThat(after.getCoalesced() - before.getCoalesced()).isEqualTo(2);
+    assertThat(after.getWritten() - before.getWritten()).isEqualTo(3);
+    assertThat(after.getCommits() - before.getCommits()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFullBatchIsWrittenAtOnceAndReadBackAfterTheAck() throws Exception {
+    // Setup: warm the lookup cache with the old emails
+    seed("batch_0", "batch_1", "batch_2", "batch_3");
+    for (int i = 0; i < 4; i++) {
+      assertThat(employeeService.findUserByUsername("batch_" + i)).hasSize(1);
+    }
+    long start = System.nanoTime();
+
+    // Test: a durable update of each, from concurrent callers
+    List<CompletableFuture<Boolean>> acks = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      String username = "batch_" + i;
+      acks.add(
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return accountUpdateService.updateEmail(username, username + "@example.org");
+                } catch (Exception e) {
+                  throw new IllegalStateException(e);
+                }
+              }));
+    }
+    for (CompletableFuture<Boolean> ack : acks) {
+      assertThat(ack.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    // Verify: the full batch did not wait for max-delay, and lookups see the new emails
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+    for (int i = 0; i < 4; i++) {
+      assertThat(employeeService.findUserByUsername("batch_" + i))
+          .extracting(User::getEmail)
+          .containsExactly("batch_" + i + "@example.org");
+    }
+  }
+
+  @Test
+  public void testFullQueueHoldsBackNewUsernames() throws Exception {
+    // Setup
+    seed("held_0", "held_1", "held_2", "held_3", "held_4", "held_5", "held_6", "held_7");
+    long rejectedBefore = accountUpdateService.snapshot().getRejected();
+    List<CompletableFuture<Boolean>> acks = new ArrayList<>();
+    try (Connection blocker = DriverManager.getConnection(URL, "sa", "")) {
+      // Hold a row so that the flusher stalls on the first batch
+      blocker.setAutoCommit(false);
+      try (PreparedStatement hold =
+          blocker.prepareStatement("UPDATE users SET email = email WHERE username = 'held_0'")) {
+        hold.executeUpdate();
+      }
+      for (int i = 0; i < 4; i++) {
+        acks.add(accountUpdateService.submit("held_" + i, "held_" + i + "@example.org"));
+      }
+      waitForQueued(0);
+      for (int i = 4; i < 8; i++) {
+        acks.add(accountUpdateService.submit("held_" + i, "held_" + i + "@example.org"));
+      }
+
+      // Test: the queue is full of waiting usernames
+      long start = System.nanoTime();
+      assertThatThrownBy(() -> accountUpdateService.submit("held_8", "held_8@example.org"))
+          .isInstanceOf(RejectedExecutionException.class)
+          .hasMessage("Account update queue is full (4 users waiting)");
+      long waited = System.nanoTime() - start;
+      // A waiting username can still be changed
+      acks.add(accountUpdateService.submit("held_7", "held_7@example.net"));
+
+      // Verify: the caller waited offer-timeout, and async acks are not yet committed
+      assertThat(waited).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(190));
+      assertThat(accountUpdateService.snapshot().getRejected()).isEqualTo(rejectedBefore + 1);
+      assertThat(acks).noneMatch(CompletableFuture::isDone);
+      blocker.rollback();
+    }
+
+    for (CompletableFuture<Boolean> ack : acks) {
+      assertThat(ack.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+    assertThat(emailOf("held_0")).isEqualTo("held_0@example.org");
+    assertThat(emailOf("held_7")).isEqualTo("held_7@example.net");
+  }
+
+  @Test
+  public void testTheFlusherSurvivesFailuresAroundTheCommit() throws Exception {
+    // Setup: a search index that always fails, and shard routing that fails the first batch
+    seed("survivor_a");
+    UserSearchIndex failingIndex = mock(UserSearchIndex.class);
+    doThrow(new IllegalStateException("index broken"))
+        .when(failingIndex)
+        .emailChanged(anyString(), anyString());
+    UserShards shards = spy(userShards);
+    doThrow(new IllegalStateException("routing broken"))
+        .doCallRealMethod()
+        .when(shards)
+        .shardOf(anyString());
+    AccountUpdateService service =
+        new AccountUpdateService(
+            accountUpdateProperties,
+            dataSource,
+            shards,
+            recentWrites,
+            userLookupCache,
+            failingIndex,
+            userSnapshotService,
+            slowOperationLog);
+    service.start();
+
+    try {
+      // Test
+      CompletableFuture<Boolean> first = service.submit("survivor_a", "first@example.org");
+      assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS))
+          .hasCauseInstanceOf(IllegalStateException.class)
+          .hasMessageContaining("routing broken");
+      boolean found = service.updateEmail("survivor_a", "second@example.org");
+
+      // Verify: the flusher lived on, and the committed change was acknowledged
+      assertThat(found).isTrue();
+      assertThat(emailOf("survivor_a")).isEqualTo("second@example.org");
+      verify(failingIndex).emailChanged("survivor_a", "second@example.org");
+    } finally {
+      service.close();
+    }
+  }
+
+  @Test
+  public void testRowsReportedWithoutCountsAreLookedUp() throws Exception {
+    // Setup: a driver that rewrites the batch and reports SUCCESS_NO_INFO for every row
+    seed("no_info_a");
+    UserSearchIndex index = mock(UserSearchIndex.class);
+    AccountUpdateService service =
+        new AccountUpdateService(
+            accountUpdateProperties,
+            withoutUpdateCounts(dataSource),
+            userShards,
+            recentWrites,
+            userLookupCache,
+            index,
+            userSnapshotService,
+            slowOperationLog);
+    service.start();
+
+    try {
+      // Test
+      CompletableFuture<Boolean> known = service.submit("no_info_a", "known@example.org");
+      CompletableFuture<Boolean> missing = service.submit("no_info_missing", "m@example.org");
+
+      // Verify: only the user that exists is found and reindexed
+      assertThat(known.get(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(missing.get(10, TimeUnit.SECONDS)).isFalse();
+      assertThat(emailOf("no_info_a")).isEqualTo("known@example.org");
+      verify(index).emailChanged("no_info_a", "known@example.org");
+      verify(index, never()).emailChanged(eq("no_info_missing"), anyString());
+    } finally {
+      service.close();
+    }
+  }
+
+  /** {@code dataSource}, with batches reporting {@link Statement#SUCCESS_NO_INFO} for each row. */
+  private static DataSource withoutUpdateCounts(DataSource dataSource) {
+    return proxy(
+        DataSource.class,
+        dataSource,
+        (method, result) ->
+            method.getName().equals("getConnection")
+                ? withoutUpdateCounts((Connection) result)
+                : result);
+  }
+
+  private static Connection withoutUpdateCounts(Connection connection) {
+    return proxy(
+        Connection.class,
+        connection,
+        (method, result) ->
+            method.getName().equals("prepareStatement")
+                ? withoutUpdateCounts((PreparedStatement) result)
+                : result);
+  }
+
+  private static PreparedStatement withoutUpdateCounts(PreparedStatement statement) {
+    return proxy(
+        PreparedStatement.class,
+        statement,
+        (method, result) -> {
+          if (!method.getName().equals("executeBatch")) {
+            return result;
+          }
+          int[] counts = new int[((int[]) result).length];
+          Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+          return counts;
+        });
+  }
+
+  /** Forwards every call to {@code target}, passing its result through {@code rewrite}. */
+  private static <T> T proxy(Class<T> type, T target, BiFunction<Method, Object, Object> rewrite) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              try {
+                return rewrite.apply(method, method.invoke(target, args));
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            }));
+  }
+
+  private void seed(String... usernames) {
+    for (String username : usernames) {
+      if (userRepository.findByUsername(username) == null) {
+        userRepository.save(new User(username, "password", username + "@example.com"));
+      }
+    }
+  }
+
+  private void waitForQueued(int queued) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (accountUpdateService.snapshot().getQueued() != queued && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(accountUpdateService.snapshot().getQueued()).isEqualTo(queued);
+  }
+
+  private String emailOf(String username) {
+    return jdbcTemplate.queryForObject(
+        "SELECT email FROM users WHERE username = ?", String.class, username);
+  }
+}
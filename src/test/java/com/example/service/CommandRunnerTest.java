@@ -0,0 +1,154 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.example.config.CommandRunnerProperties;
+
+public class CommandRunnerTest {
+
+  private CommandRunner runner;
+
+  @AfterEach
+  public void closeRunner() {
+    if (runner != null) {
+      runner.close();
+    }
+  }
+
+  private CommandRunner runner(int workers, int queueCapacity, Duration timeout) {
+    CommandRunnerProperties properties = new CommandRunnerProperties();
+    properties.setWorkers(workers);
+    properties.setQueueCapacity(queueCapacity);
+    properties.setTimeout(timeout);
+    properties.setMaxOutputSize(DataSize.ofKilobytes(4));
+    properties.setAllowedCommands(List.of("echo", "sh"));
+    runner = new CommandRunner(properties);
+    return runner;
+  }
+
+  @Test
+  public void testRunsAllowedCommand() throws Exception {
+    CommandResult result = runner(1, 1, Duration.ofSeconds(5)).run("echo hello   world");
+
+    assertThat(result.getExitCode()).isZero();
+    assertThat(result.getStdout()).isEqualTo("hello world\n");
+    assertThat(result.getStderr()).isEmpty();
+    assertThat(result.isTruncated()).isFalse();
+  }
+
+  @Test
+  public void testRejectsCommandsOutsideAllowlist() {
+    CommandRunner runner = runner(1, 1, Duration.ofSeconds(5));
+
+    assertThatThrownBy(() -> runner.run("rm -rf /tmp/nothing"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("rm");
+    assertThatThrownBy(() -> runner.run("/bin/echo hello"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> runner.run("   ")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testRejectsAnEmptyQueueAtStartup() {
+    assertThatThrownBy(() -> runner(1, 0, Duration.ofSeconds(5)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("queue-capacity");
+  }
+
+  @Test
+  public void testFloodedStderrDoesNotBlockStdout() throws Exception {
+    // Far more stderr than a pipe buffer holds, written before anything reaches stdout
+    CommandResult result =
+        runner(1, 1, Duration.ofSeconds(10))
+            .run(List.of("sh", "-c", "head -c 1000000 /dev/zero | tr '\\0' e >&2; echo done"));
+
+    assertThat(result.isTimedOut()).isFalse();
+    assertThat(result.getStdout()).isEqualTo("done\n");
+    assertThat(result.getStderr()).hasSize(4096);
+    assertThat(result.isTruncated()).isTrue();
+  }
+
+  @Test
+  public void testTimeoutKillsCommandAndChildren() throws Exception {
+    long started = System.nanoTime();
+
+    // The background sleep holds stdout open; it has to be killed for the drain to finish
+    CommandResult result =
+        runner(1, 1, Duration.ofMillis(500))
+            .run(List.of("sh", "-c", "sleep 30 & echo started; wait"));
+
+    assertThat(result.isTimedOut()).isTrue();
+    assertThat(result.getExitCode()).isEqualTo(-1);
+    assertThat(result.getStdout()).isEqualTo("started\n");
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+    assertThat(runner.snapshot().getTimedOut()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRejectsWhenQueueIsFull() throws Exception {
+    CommandRunner runner = runner(1, 1, Duration.ofSeconds(10));
+    ExecutorService callers = Executors.newFixedThreadPool(2);
+    try {
+      // One command occupies the worker and one waits in the queue
+      Future<CommandResult> running =
+          callers.submit(() -> runner.run(List.of("sh", "-c", "sleep 2")));
+      awaitQueued(runner, 0, 1);
+      Future<CommandResult> queued = callers.submit(() -> runner.run("echo queued"));
+      awaitQueued(runner, 1, 1);
+
+      assertThatThrownBy(() -> runner.run("echo rejected"))
+          .isInstanceOf(RejectedExecutionException.class);
+
+      assertThat(running.get(10, TimeUnit.SECONDS).isTimedOut()).isFalse();
+      assertThat(queued.get(10, TimeUnit.SECONDS).getStdout()).isEqualTo("queued\n");
+    } finally {
+      callers.shutdownNow();
+    }
+
+    CommandRunner.Snapshot snapshot = runner.snapshot();
+    assertThat(snapshot.getRejected()).isEqualTo(1);
+    assertThat(snapshot.getCompleted()).isEqualTo(2);
+    assertThat(snapshot.getQueued()).isZero();
+  }
+
+  @Test
+  public void testRecordsRunTimes() throws Exception {
+    CommandRunner runner = runner(2, 4, Duration.ofSeconds(10));
+
+    runner.run(List.of("sh", "-c", "sleep 0.2"));
+    runner.run("echo fast");
+
+    CommandRunner.Snapshot snapshot = runner.snapshot();
+    assertThat(snapshot.getCompleted()).isEqualTo(2);
+    assertThat(snapshot.getMaxRunMillis()).isGreaterThanOrEqualTo(200);
+    assertThat(snapshot.getMeanRunMillis()).isGreaterThanOrEqualTo(100);
+    assertThat(snapshot.getWorkers()).isEqualTo(2);
+    assertThat(snapshot.getQueueCapacity()).isEqualTo(4);
+  }
+
+  private static void awaitQueued(CommandRunner runner, int queued, int active)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      CommandRunner.Snapshot snapshot = runner.snapshot();
+      if (snapshot.getQueued() == queued && snapshot.getActive() == active) {
+        return;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("Runner never reached " + active + " active, " + queued + " queued");
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.config.ConnectionPoolMetrics;
+import com.example.config.VirtualThreads;
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+@SpringBootTest(
+    properties = {
+      "spring.datasource.hikari.pool-name=soak-pool",
+      "spring.datasource.hikari.maximum-pool-size=4",
+      "spring.datasource.hikari.minimum-idle=4",
+      "spring.datasource.hikari.connection-timeout=1000",
+      "employee.user-cache.enabled=false"
+    })
+public class EmployeeServiceConnectionPoolTest {
+
+  private static final int SEARCHES = 5000;
+  private static final int THREADS = 32;
+  private static final int VIRTUAL_THREADS = 2000;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private ConnectionPoolMetrics connectionPoolMetrics;
+
+  @Autowired private UserLookupCache userLookupCache;
+
+  @Test
+  public void testConcurrentSearchesDoNotLeakConnections() throws Exception {
+    // Given: a known user and a pool far smaller than the number of concurrent callers
+    if (userRepository.findByUsername("soakUser") == null) {
+      userRepository.save(new User("soakUser", "password", "soak@example.com"));
+    }
+
+    long coalescedBefore = userLookupCache.snapshot().getCoalesced();
+
+    // When: thousands of searches run concurrently
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<List<User>>> results = new ArrayList<>();
+    for (int i = 0; i < SEARCHES; i++) {
+      String username = i % 10 == 0 ? "missing-" + i : "soakUser";
+      results.add(executor.submit(() -> employeeService.findUserByUsername(username)));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+    // Then: every search completed, and every connection made it back to the pool
+    for (int i = 0; i < SEARCHES; i++) {
+      assertThat(results.get(i).get()).hasSize(i % 10 == 0 ? 0 : 1);
+    }
+
+    // Pool statistics are refreshed at most once a second
+    Thread.sleep(1100);
+    ConnectionPoolMetrics.PoolSnapshot pool = connectionPoolMetrics.snapshot("soak-pool");
+    assertThat(pool.getActive()).isZero();
+    assertThat(pool.getWaiting()).isZero();
+    assertThat(pool.getTotal()).isLessThanOrEqualTo(4);
+    assertThat(pool.getTimeouts()).isZero();
+    // Searches either took a connection or shared the query of an identical search in flight
+    long coalesced = userLookupCache.snapshot().getCoalesced() - coalescedBefore;
+    assertThat(pool.getAcquisitions() + coalesced).isGreaterThanOrEqualTo(SEARCHES);
+  }
+
+  @Test
+  @EnabledIf("com.example.config.VirtualThreads#isSupported")
+  public void testVirtualThreadsAreCappedByThePool() throws Exception {
+    // Given: one virtual thread per search, hundreds of times more callers than connections
+    if (userRepository.findByUsername("soakUser") == null) {
+      userRepository.save(new User("soakUser", "password", "soak@example.com"));
+    }
+
+    // When: they all search at once
+    ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("soak-virtual-");
+    List<Future<List<User>>> results = new ArrayList<>();
+    for (int i = 0; i < VIRTUAL_THREADS; i++) {
+      String username = i % 10 == 0 ? "missing-" + i : "soakUser";
+      results.add(executor.submit(() -> employeeService.findUserByUsername(username)));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+    // Then: they queued for the pool's connections rather than opening more
+    for (int i = 0; i < VIRTUAL_THREADS; i++) {
+      assertThat(results.get(i).get()).hasSize(i % 10 == 0 ? 0 : 1);
+    }
+    Thread.sleep(1100);
+    ConnectionPoolMetrics.PoolSnapshot pool = connectionPoolMetrics.snapshot("soak-pool");
+    assertThat(pool.getTotal()).isLessThanOrEqualTo(4);
+    assertThat(pool.getActive()).isZero();
+    assertThat(pool.getTimeouts()).isZero();
+  }
+}
@@ -0,0 +1,130 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import com.sun.net.httpserver.HttpServer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:flightrecorder;OPTIMIZE_REUSE_RESULTS=FALSE",
+      "employee.user-cache.enabled=false",
+      "employee.slow-operations.query-threshold=0ms",
+      "employee.slow-operations.fetch-threshold=0ms",
+      "employee.slow-operations.command-threshold=0ms"
+    })
+@ExtendWith(OutputCaptureExtension.class)
+public class EmployeeServiceFlightRecorderTest {
+
+  @Autowired private EmployeeService employeeService;
+
+  @TempDir Path directory;
+
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/hello",
+        exchange -> {
+          byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testBackendCallsAreRecorded(CapturedOutput output) throws Exception {
+    String url = "http://localhost:" + server.getAddress().getPort() + "/hello?token=secret";
+    Path file = directory.resolve("backend.jfr");
+
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcQueryEvent.class);
+      recording.enable(UrlFetchEvent.class);
+      recording.enable(CommandExecutionEvent.class);
+      recording.start();
+
+      employeeService.findUserByUsername("nobody");
+      employeeService.fetchDataFromUrl(url);
+      employeeService.executeCommand("echo not-recorded");
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+    RecordedEvent query = single(events, "com.example.JdbcQuery");
+    assertThat(query.getString("sql"))
+        .isEqualTo("SELECT id, username, email FROM users WHERE username = ?");
+    assertThat(query.getInt("rows")).isZero();
+    assertThat(query.getString("error")).isNull();
+    assertThat(query.getDuration()).isPositive();
+
+    RecordedEvent fetch = single(events, "com.example.UrlFetch");
+    assertThat(fetch.getString("host")).isEqualTo("localhost");
+    assertThat(fetch.getInt("status")).isEqualTo(200);
+    assertThat(fetch.getLong("bytes")).isEqualTo(5);
+    assertThat(fetch.getDuration()).isPositive();
+
+    RecordedEvent command = single(events, "com.example.CommandExecution");
+    assertThat(command.getString("program")).isEqualTo("echo");
+    assertThat(command.getInt("exitCode")).isZero();
+    assertThat(command.getBoolean("timedOut")).isFalse();
+    assertThat(command.getDuration()).isPositive();
+
+    // With every threshold at zero, each call is also in the slow-operation log, which a
+    // background thread writes
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!output.getOut().contains("Slow command: ") && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(output.getOut())
+        .contains("Slow query: ")
+        .contains("0 rows: SELECT id, username, email FROM users WHERE username = ?")
+        .contains("Slow URL fetch: ")
+        .contains("from localhost, HTTP 200, 5 bytes")
+        .contains("Slow command: ")
+        .contains("running echo, exit code 0")
+        // Neither query strings nor command arguments are logged
+        .doesNotContain("secret")
+        .doesNotContain("not-recorded");
+  }
+
+  private static RecordedEvent single(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> matching =
+        events.stream()
+            .filter(event -> event.getEventType().getName().equals(name))
+            .collect(Collectors.toList());
+    assertThat(matching).as(name).hasSize(1);
+    return matching.get(0);
+  }
+}
@@ -20,10 +20,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.example.config.DataSourceRoutingProperties;
+import com.example.config.ShardingProperties;
+import com.example.config.SlowOperationProperties;
+import com.example.config.UserCacheProperties;
+import com.example.config.UserSnapshotProperties;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.UserShards;
 import com.example.model.User;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @SpringBootTest
 public class EmployeeServiceSecurityTest {
 
@@ -35,6 +45,22 @@ public class EmployeeServiceSecurityTest {
 
   @Mock private ResultSet resultSet;
 
+  @Spy private RecentWrites recentWrites = new RecentWrites(new DataSourceRoutingProperties());
+
+  @Spy private UserShards userShards = new UserShards(new ShardingProperties());
+
+  @Spy private UserLookupCache userLookupCache = new UserLookupCache(new UserCacheProperties());
+
+  // Disabled, so every lookup goes to the mocked database
+  @Spy
+  private UserSnapshotService userSnapshotService =
+      new UserSnapshotService(new UserSnapshotProperties(), null, null);
+
+  @Spy private BackendMetrics backendMetrics = new BackendMetrics(new SimpleMeterRegistry());
+
+  @Spy
+  private SlowOperationLog slowOperationLog = new SlowOperationLog(new SlowOperationProperties());
+
   @InjectMocks private EmployeeService employeeService;
 
   @BeforeEach
@@ -59,7 +85,7 @@ public class EmployeeServiceSecurityTest {
     verify(connection).prepareStatement(queryCaptor.capture());
 
     String capturedQuery = queryCaptor.getValue();
-    assertThat(capturedQuery).isEqualTo("SELECT * FROM users WHERE username = ?");
+    assertThat(capturedQuery).isEqualTo("SELECT id, username, email FROM users WHERE username = ?");
 
     ArgumentCaptor<String> paramCaptor = ArgumentCaptor.forClass(String.class);
     verify(preparedStatement).setString(anyInt(), paramCaptor.capture());
@@ -82,7 +108,7 @@ public class EmployeeServiceSecurityTest {
     verify(connection).prepareStatement(queryCaptor.capture());
 
     String capturedQuery = queryCaptor.getValue();
-    assertThat(capturedQuery).isEqualTo("SELECT * FROM users WHERE username = ?");
+    assertThat(capturedQuery).isEqualTo("SELECT id, username, email FROM users WHERE username = ?");
 
     ArgumentCaptor<String> paramCaptor = ArgumentCaptor.forClass(String.class);
     verify(preparedStatement).setString(anyInt(), paramCaptor.capture());
@@ -98,10 +124,9 @@ public class EmployeeServiceSecurityTest {
     String normalInput = "testuser";
 
     when(resultSet.next()).thenReturn(true, false);
-    when(resultSet.getLong("id")).thenReturn(1L);
-    when(resultSet.getString("username")).thenReturn("testuser");
-    when(resultSet.getString("password")).thenReturn("password123");
-    when(resultSet.getString("email")).thenReturn("test@example.com");
+    when(resultSet.getLong(1)).thenReturn(1L);
+    when(resultSet.getString(2)).thenReturn("testuser");
+    when(resultSet.getString(3)).thenReturn("test@example.com");
 
     List<User> result = employeeService.findUserByUsername(normalInput);
 
@@ -109,7 +134,7 @@ public class EmployeeServiceSecurityTest {
     verify(connection).prepareStatement(queryCaptor.capture());
 
     String capturedQuery = queryCaptor.getValue();
-    assertThat(capturedQuery).isEqualTo("SELECT * FROM users WHERE username = ?");
+    assertThat(capturedQuery).isEqualTo("SELECT id, username, email FROM users WHERE username = ?");
 
     ArgumentCaptor<String> paramCaptor = ArgumentCaptor.forClass(String.class);
     verify(preparedStatement).setString(anyInt(), paramCaptor.capture());
@@ -134,7 +159,7 @@ public class EmployeeServiceSecurityTest {
     verify(connection).prepareStatement(queryCaptor.capture());
 
     String capturedQuery = queryCaptor.getValue();
-    assertThat(capturedQuery).isEqualTo("SELECT * FROM users WHERE username = ?");
+    assertThat(capturedQuery).isEqualTo("SELECT id, username, email FROM users WHERE username = ?");
 
     ArgumentCaptor<String> paramCaptor = ArgumentCaptor.forClass(String.class);
     verify(preparedStatement).setString(anyInt(), paramCaptor.capture());
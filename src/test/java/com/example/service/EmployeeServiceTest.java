@@ -1,14 +1,19 @@
 package com.example.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -17,11 +22,25 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.example.config.DataSourceRoutingProperties;
+import com.example.config.ShardingProperties;
+import com.example.config.SlowOperationProperties;
+import com.example.config.UpstreamCacheProperties;
+import com.example.config.UpstreamHttpProperties;
+import com.example.config.UserCacheProperties;
+import com.example.config.UserSearchProperties;
+import com.example.config.UserSnapshotProperties;
+import com.example.datasource.RecentWrites;
+import com.example.datasource.UserShards;
 import com.example.model.User;
+import com.example.repository.UserProjection;
 import com.example.repository.UserRepository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @SpringBootTest
 public class EmployeeServiceTest {
 
@@ -35,6 +54,31 @@ public class EmployeeServiceTest {
 
   @Mock private ResultSet resultSet;
 
+  @Spy private UserSearchProperties userSearchProperties = new UserSearchProperties();
+
+  @Spy private RecentWrites recentWrites = new RecentWrites(new DataSourceRoutingProperties());
+
+  @Spy private UserShards userShards = new UserShards(new ShardingProperties());
+
+  @Spy private UserLookupCache userLookupCache = new UserLookupCache(new UserCacheProperties());
+
+  // Disabled, so every lookup goes to the mocked database
+  @Spy
+  private UserSnapshotService userSnapshotService =
+      new UserSnapshotService(new UserSnapshotProperties(), null, null);
+
+  @Spy
+  private UpstreamResponseCache upstreamResponseCache =
+      new UpstreamResponseCache(
+          new UpstreamHttpClient(new UpstreamHttpProperties()), new UpstreamCacheProperties());
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy private BackendMetrics backendMetrics = new BackendMetrics(meterRegistry);
+
+  @Spy
+  private SlowOperationLog slowOperationLog = new SlowOperationLog(new SlowOperationProperties());
+
   @InjectMocks private EmployeeService employeeService;
 
   @BeforeEach
@@ -56,10 +100,9 @@ public class EmployeeServiceTest {
     // Configure ResultSet to return a single user
     when(resultSet.next())
         .thenReturn(true, false); // Return true first time, then false to end loop
-    when(resultSet.getLong("id")).thenReturn(1L);
-    when(resultSet.getString("username")).thenReturn("testuser");
-    when(resultSet.getString("password")).thenReturn("password");
-    when(resultSet.getString("email")).thenReturn("test@example.com");
+    when(resultSet.getLong(1)).thenReturn(1L);
+    when(resultSet.getString(2)).thenReturn("testuser");
+    when(resultSet.getString(3)).thenReturn("test@example.com");
 
     // Test
     List<User> actualUsers = employeeService.findUserByUsername("testuser");
@@ -69,6 +112,121 @@ public class EmployeeServiceTest {
     assertThat(actualUsers.size()).isEqualTo(1);
     assertThat(actualUsers.get(0).getUsername()).isEqualTo("testuser");
     assertThat(actualUsers.get(0).getEmail()).isEqualTo("test@example.com");
+    assertThat(actualUsers.get(0).getPassword()).isNull();
+  }
+
+  @Test
+  public void testFindUserByUsername_WithProjection() throws SQLException {
+    // Setup
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getLong(1)).thenReturn(1L);
+    when(resultSet.getString(2)).thenReturn("testuser");
+
+    // Test
+    List<User> actualUsers =
+        employeeService.findUserByUsername("testuser", UserProjection.parse("username,id"));
+
+    // Verify: only the requested columns are selected and mapped, in canonical order
+    verify(connection).prepareStatement("SELECT id, username FROM users WHERE username = ?");
+    assertThat(actualUsers).hasSize(1);
+    assertThat(actualUsers.get(0).getId()).isEqualTo(1L);
+    assertThat(actualUsers.get(0).getUsername()).isEqualTo("testuser");
+    assertThat(actualUsers.get(0).getEmail()).isNull();
+  }
+
+  @Test
+  public void testFindUserByUsername_ClosesResourcesOnError() throws SQLException {
+    // Setup
+    when(statement.executeQuery()).thenThrow(new SQLException("connection reset"));
+
+    // Test
+    List<User> actualUsers = employeeService.findUserByUsername("testuser");
+
+    // Verify: the failed query still returns its statement and connection to the pool
+    assertThat(actualUsers).isEmpty();
+    verify(statement).close();
+    verify(connection).close();
+  }
+
+  @Test
+  public void testFindUserByUsername_RecordsQueryOutcome() throws SQLException {
+    // Setup
+    when(statement.executeQuery())
+        .thenReturn(resultSet)
+        .thenThrow(new SQLException("connection reset"));
+
+    // Test
+    employeeService.findUserByUsername("found");
+    employeeService.findUserByUsername("failed");
+
+    // Verify: tagged by operation and error type, never by username
+    assertThat(
+            meterRegistry
+                .get("employee.backend")
+                .tags("operation", "user-query", "outcome", "success")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            meterRegistry
+                .get("employee.backend.errors")
+                .tags("operation", "user-query", "error", "SQLException")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.getMeters())
+        .allSatisfy(
+            meter -> assertThat(meter.getId().getTags().toString()).doesNotContain("found"));
+  }
+
+  @Test
+  public void testFindUsersByUsernames_GroupsResultsInChunks() throws SQLException {
+    // Setup: three usernames with a chunk size of two means two IN queries on one connection
+    userSearchProperties.setBatchChunkSize(2);
+    when(resultSet.next()).thenReturn(true, true, false, false);
+    when(resultSet.getLong(1)).thenReturn(1L, 2L);
+    when(resultSet.getString(2)).thenReturn("alice", "bob");
+    when(resultSet.getString(3)).thenReturn("alice@example.com", "bob@example.com");
+
+    // Test
+    Map<String, List<User>> usersByUsername =
+        employeeService.findUsersByUsernames(Arrays.asList("alice", "bob", "carol", "alice"));
+
+    // Verify
+    assertThat(usersByUsername).containsOnlyKeys("alice", "bob", "carol");
+    assertThat(usersByUsername.get("alice")).extracting(User::getId).containsExactly(1L);
+    assertThat(usersByUsername.get("bob")).extracting(User::getId).containsExactly(2L);
+    assertThat(usersByUsername.get("carol")).isEmpty();
+    verify(connection)
+        .prepareStatement("SELECT id, username, email FROM users WHERE username IN (?, ?)");
+    verify(connection)
+        .prepareStatement("SELECT id, username, email FROM users WHERE username IN (?)");
+    verify(dataSource).getConnection();
+  }
+
+  @Test
+  public void testFindUsersByUsernames_FailsWhenTheStoreIsUnavailable() throws SQLException {
+    // Setup: the pool has been shut down
+    when(dataSource.getConnection())
+        .thenThrow(new SQLException("HikariDataSource has been closed"));
+
+    // Test & Verify: a failure, not every username missing
+    assertThatThrownBy(() -> employeeService.findUsersByUsernames(Arrays.asList("alice", "bob")))
+        .isInstanceOf(SQLException.class)
+        .hasMessageContaining("closed");
+  }
+
+  @Test
+  public void testFindUsersByUsernames_RejectsOversizedBatch() throws SQLException {
+    // Setup
+    userSearchProperties.setBatchMaxUsernames(2);
+
+    // Test & Verify
+    assertThatThrownBy(
+            () -> employeeService.findUsersByUsernames(Arrays.asList("alice", "bob", "carol")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("At most 2 usernames");
+    assertThat(employeeService.findUsersByUsernames(Collections.emptyList())).isEmpty();
   }
 
   @Test
@@ -91,4 +249,12 @@ public class EmployeeServiceTest {
     // Verify that the error message is returned
     assertThat(result).contains("Error fetching URL:");
   }
+
+  @Test
+  public void testFetchDataFromUrlAsync_Error() {
+    // The async variant reports failures in its result instead of failing the future
+    String result = employeeService.fetchDataFromUrlAsync("not-a-valid-url").join();
+
+    assertThat(result).startsWith("Error fetching URL:");
+  }
 }
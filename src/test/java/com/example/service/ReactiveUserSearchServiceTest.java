@@ -0,0 +1,100 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.SignalType;
+
+@SpringBootTest(
+    properties = "spring.datasource.url=jdbc:h2:mem:reactivesearch;OPTIMIZE_REUSE_RESULTS=FALSE")
+public class ReactiveUserSearchServiceTest {
+
+  @Autowired private ReactiveUserSearchService reactiveUserSearchService;
+
+  @Autowired private UserRepository userRepository;
+
+  @BeforeEach
+  public void seed() {
+    if (userRepository.findByUsername("reactive_a") == null) {
+      for (String name : new String[] {"reactive_c", "reactive_a", "reactive_b", "reactiveXd"}) {
+        userRepository.save(new User(name, "secret", name + "@example.com"));
+      }
+    }
+  }
+
+  @Test
+  public void testFindsUsersWrittenThroughJpa() {
+    List<User> users =
+        reactiveUserSearchService
+            .findUserByUsername("reactive_b")
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(users).hasSize(1);
+    assertThat(users.get(0).getId()).isNotNull();
+    assertThat(users.get(0).getEmail()).isEqualTo("reactive_b@example.com");
+    // The password column is never selected
+    assertThat(users.get(0).getPassword()).isNull();
+  }
+
+  @Test
+  public void testPrefixSearchIsOrderedLimitedAndEscaped() {
+    List<String> usernames =
+        reactiveUserSearchService
+            .findUsersByPrefix("reactive_", 2)
+            .map(User::getUsername)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    // "_" is matched literally, so reactiveXd is not a match
+    assertThat(usernames).containsExactly("reactive_a", "reactive_b");
+  }
+
+  @Test
+  public void testRowsAreOnlyEmittedOnDemand() throws Exception {
+    List<String> received = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    BaseSubscriber<User> subscriber =
+        new BaseSubscriber<User>() {
+          @Override
+          protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+          }
+
+          @Override
+          protected void hookOnNext(User user) {
+            received.add(user.getUsername());
+          }
+
+          @Override
+          protected void hookFinally(SignalType type) {
+            done.countDown();
+          }
+        };
+
+    reactiveUserSearchService.findUsersByPrefix("reactive", 10).subscribe(subscriber);
+
+    // One row requested, one row delivered, however many the query matched
+    Thread.sleep(200);
+    assertThat(received).containsExactly("reactiveXd");
+
+    subscriber.request(Long.MAX_VALUE);
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(received).containsExactly("reactiveXd", "reactive_a", "reactive_b", "reactive_c");
+  }
+}
@@ -0,0 +1,214 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+  private static final int CALLERS = 32;
+
+  private final SingleFlight<String, String> flight = new SingleFlight<>();
+  private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+  @AfterEach
+  public void stopCallers() {
+    callers.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentCallsShareOneExecution() throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(
+          callers.submit(
+              () ->
+                  flight.execute(
+                      "alice",
+                      () -> {
+                        // Hold the execution open until every other caller has joined it
+                        awaitCoalesced(CALLERS - 1);
+                        return "alice#" + executions.incrementAndGet();
+                      })));
+    }
+
+    for (Future<String> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("alice#1");
+    }
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(flight.getExecutions()).isEqualTo(1);
+    assertThat(flight.getCoalesced()).isEqualTo(CALLERS - 1);
+  }
+
+  @Test
+  public void testFailureIsSharedWithWaiters() throws Exception {
+    IllegalStateException failure = new IllegalStateException("database down");
+
+    List<Future<Throwable>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(
+          callers.submit(
+              () -> {
+                try {
+                  flight.execute(
+                      "alice",
+                      () -> {
+                        awaitCoalesced(CALLERS - 1);
+                        throw failure;
+                      });
+                  return null;
+                } catch (IllegalStateException e) {
+                  return e;
+                }
+              }));
+    }
+
+    for (Future<Throwable> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(failure);
+    }
+    assertThat(flight.getExecutions()).isEqualTo(1);
+  }
+
+  @Test
+  public void testBackendExecutionsUnderContention() throws Exception {
+    String[] keys = {"alice", "bob", "carol", "dave"};
+    int callsPerCaller = 300;
+    Map<String, AtomicInteger> backendExecutions = new ConcurrentHashMap<>();
+    AtomicInteger wrongResults = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+
+    List<Future<?>> done = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      int caller = i;
+      done.add(
+          callers.submit(
+              () -> {
+                start.await();
+                for (int call = 0; call < callsPerCaller; call++) {
+                  String key = keys[(caller + call) % keys.length];
+                  String result =
+                      flight.execute(
+                          key,
+                          () -> {
+                            backendExecutions
+                                .computeIfAbsent(key, k -> new AtomicInteger())
+                                .incrementAndGet();
+                            sleep(1);
+                            return key;
+                          });
+                  if (!key.equals(result)) {
+                    wrongResults.incrementAndGet();
+                  }
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> caller : done) {
+      caller.get(60, TimeUnit.SECONDS);
+    }
+
+    long calls = (long) CALLERS * callsPerCaller;
+    long executed = backendExecutions.values().stream().mapToLong(AtomicInteger::get).sum();
+    assertThat(wrongResults.get()).isZero();
+    assertThat(executed).isEqualTo(flight.getExecutions());
+    assertThat(executed + flight.getCoalesced()).isEqualTo(calls);
+    // With 32 callers on 4 keys most calls find an execution in flight
+    assertThat(executed).isLessThan(calls / 2);
+  }
+
+  @Test
+  public void testFinishedExecutionIsNotReused() {
+    assertThat(flight.execute("alice", () -> "first")).isEqualTo("first");
+    assertThat(flight.execute("alice", () -> "second")).isEqualTo("second");
+    assertThat(flight.getCoalesced()).isZero();
+  }
+
+  @Test
+  public void testForgetStartsNewExecution() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<String> stale =
+        callers.submit(
+            () ->
+                flight.execute(
+                    "alice",
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      return "old";
+                    }));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    flight.forget("alice");
+
+    assertThat(flight.execute("alice", () -> "new")).isEqualTo("new");
+    release.countDown();
+    assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+    assertThat(flight.getExecutions()).isEqualTo(2);
+  }
+
+  @Test
+  public void testAsyncCallsShareOneExecution() throws Exception {
+    CompletableFuture<String> work = new CompletableFuture<>();
+    AtomicInteger executions = new AtomicInteger();
+
+    List<CompletableFuture<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(
+          flight.executeAsync(
+              "alice",
+              () -> {
+                executions.incrementAndGet();
+                return work;
+              }));
+    }
+    // One caller giving up does not cancel the execution for the others
+    results.get(0).cancel(true);
+    work.complete("alice");
+
+    for (CompletableFuture<String> result : results.subList(1, results.size())) {
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("alice");
+    }
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(flight.getCoalesced()).isEqualTo(CALLERS - 1);
+  }
+
+  private void awaitCoalesced(int expected) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (flight.getCoalesced() < expected && System.nanoTime() < deadline) {
+      sleep(1);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
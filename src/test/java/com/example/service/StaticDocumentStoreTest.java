@@ -0,0 +1,155 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import com.example.config.StaticDocumentProperties;
+
+public class StaticDocumentStoreTest {
+
+  private static final String POLICY =
+      "<?xml version=\"1.0\"?>\n<cross-domain-policy>\n"
+          + "  <allow-access-from domain=\"*\" secure=\"false\"/>\n".repeat(20)
+          + "</cross-domain-policy>\n";
+
+  @TempDir Path directory;
+
+  @Test
+  public void testLoadsDocumentsFromJar() throws Exception {
+    Path jar = directory.resolve("app.jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      // Directory entries as in a Spring Boot jar
+      putEntry(out, "static/", new byte[0]);
+      putEntry(out, "static/nested/", new byte[0]);
+      putEntry(out, "static/crossdomain.xml", POLICY.getBytes(StandardCharsets.UTF_8));
+      putEntry(out, "static/nested/robots.txt", "User-agent: *\n".getBytes(StandardCharsets.UTF_8));
+      putEntry(out, "static/large.bin", new byte[2048]);
+    }
+    StaticDocumentProperties properties = new StaticDocumentProperties();
+    properties.setMaxSize(DataSize.ofBytes(1536));
+
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toUri().toURL()}, null)) {
+      StaticDocumentStore store =
+          new StaticDocumentStore(properties, new DefaultResourceLoader(classLoader));
+
+      assertThat(store.find("crossdomain.xml")).isPresent();
+      assertThat(store.find("nested/robots.txt")).isPresent();
+      // Too large to keep in memory
+      assertThat(store.find("large.bin")).isEmpty();
+
+      ResponseEntity<byte[]> response =
+          store.serve(store.find("crossdomain.xml").get(), new HttpHeaders());
+      assertThat(new String(response.getBody(), StandardCharsets.UTF_8)).isEqualTo(POLICY);
+      assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_XML);
+    }
+  }
+
+  @Test
+  public void testServesWithEtagAndCacheControl() {
+    StaticDocumentStore store = store();
+    StaticDocument document = document();
+
+    ResponseEntity<byte[]> response = store.serve(document, new HttpHeaders());
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getHeaders().getETag()).matches("\"[0-9a-f]{32}\"");
+    assertThat(response.getHeaders().getCacheControl()).isEqualTo("max-age=86400, public");
+    assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(POLICY.length());
+    assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+  }
+
+  @Test
+  public void testMatchingEtagIsNotModified() {
+    StaticDocumentStore store = store();
+    StaticDocument document = document();
+    String etag = store.serve(document, new HttpHeaders()).getHeaders().getETag();
+
+    HttpHeaders request = new HttpHeaders();
+    request.setIfNoneMatch("\"other\", W/" + etag);
+    ResponseEntity<byte[]> response = store.serve(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(response.getBody()).isNull();
+    assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+
+    request.setIfNoneMatch("\"stale\"");
+    assertThat(store.serve(document, request).getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  public void testGzipVariantHasItsOwnEtag() throws IOException {
+    StaticDocumentStore store = store();
+    StaticDocument document = document();
+    String identityEtag = store.serve(document, new HttpHeaders()).getHeaders().getETag();
+
+    HttpHeaders request = new HttpHeaders();
+    request.set(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8");
+    ResponseEntity<byte[]> response = store.serve(document, request);
+
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getHeaders().getETag()).isNotEqualTo(identityEtag);
+    assertThat(response.getBody().length).isLessThan(POLICY.length());
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(POLICY);
+    }
+
+    // The identity ETag does not validate the gzip variant
+    request.setIfNoneMatch(identityEtag);
+    assertThat(store.serve(document, request).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+    request.set(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *");
+    request.setIfNoneMatch(identityEtag);
+    assertThat(store.serve(document, request).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+  }
+
+  @Test
+  public void testIncompressibleDocumentHasNoGzipVariant() {
+    StaticDocument document = StaticDocument.of("tiny.txt", "ok".getBytes(StandardCharsets.UTF_8));
+    HttpHeaders request = new HttpHeaders();
+    request.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+    ResponseEntity<byte[]> response = store().serve(document, request);
+
+    assertThat(document.hasGzip()).isFalse();
+    assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    assertThat(response.getHeaders().getVary()).isEmpty();
+    assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.TEXT_PLAIN);
+  }
+
+  private StaticDocumentStore store() {
+    StaticDocumentProperties properties = new StaticDocumentProperties();
+    properties.setLocation("classpath:no-such-directory/");
+    return new StaticDocumentStore(properties, new DefaultResourceLoader());
+  }
+
+  private static StaticDocument document() {
+    return StaticDocument.of("crossdomain.xml", POLICY.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void putEntry(JarOutputStream jar, String name, byte[] content)
+      throws IOException {
+    jar.putNextEntry(new JarEntry(name));
+    jar.write(content);
+    jar.closeEntry();
+  }
+}
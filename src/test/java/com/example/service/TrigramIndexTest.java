@@ -0,0 +1,120 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TrigramIndexTest {
+
+  @Test
+  public void testTyposAreRankedBelowExactMatches() {
+    // Setup
+    TrigramIndex index = new TrigramIndex();
+    index.put(1, "jonathan.smith", "jonathan.smith@example.com");
+    index.put(2, "jonathan.smyth", "j.smyth@example.com");
+    index.put(3, "joanna.smithers", "joanna@example.com");
+    index.put(4, "bob", "bob@example.com");
+
+    // Test
+    List<UserMatch> exact = index.search("jonathan.smith", 10, 1);
+    List<UserMatch> typo = index.search("jonathan.simth", 10, 1);
+
+    // Verify: the exact match scores 1.0; a transposition still finds it, ahead of the near miss
+    assertThat(exact).extracting(UserMatch::getId).startsWith(1L, 2L);
+    assertThat(exact.get(0).getScore()).isEqualTo(1.0);
+    assertThat(typo).extracting(UserMatch::getId).startsWith(1L);
+    assertThat(typo.get(0).getScore()).isLessThan(1.0);
+    assertThat(typo).extracting(UserMatch::getId).doesNotContain(4L);
+  }
+
+  @Test
+  public void testEmailsAreSearchedCaseInsensitively() {
+    // Setup
+    TrigramIndex index = new TrigramIndex();
+    index.put(1, "alice", "Alice.Liddell@Wonderland.org");
+    index.put(2, "bob", "bob@example.com");
+
+    // Test & Verify
+    assertThat(index.search("alice.liddell@wonderland.org", 10, 0))
+        .extracting(UserMatch::getUsername)
+        .containsExactly("alice");
+    assertThat(index.search("wonderlnd", 10, 1))
+        .extracting(UserMatch::getUsername)
+        .containsExactly("alice");
+  }
+
+  @Test
+  public void testChangesReplaceWhatWasIndexed() {
+    // Setup
+    TrigramIndex index = new TrigramIndex();
+    index.put(1, "carol", "carol@example.com");
+    index.put(2, "dave", "dave@example.com");
+    index.put(3, "dave", "dave@example.org");
+
+    // Test
+    index.put(1, "caroline", "caroline@example.com");
+    assertThat(index.updateEmail("dave", "david@example.net")).isEqualTo(2);
+    assertThat(index.remove(2)).isTrue();
+    assertThat(index.remove(2)).isFalse();
+
+    // Verify
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(index.search("caroline", 10, 0))
+        .extracting(UserMatch::getEmail)
+        .containsExactly("caroline@example.com");
+    // The old email is gone; only the new one, which contains most of it, still matches
+    List<UserMatch> oldEmail = index.search("carol@example.com", 10, 0);
+    assertThat(oldEmail).extracting(UserMatch::getEmail).containsExactly("caroline@example.com");
+    assertThat(oldEmail.get(0).getScore()).isLessThan(1.0);
+    assertThat(index.search("david@example.net", 10, 0))
+        .extracting(UserMatch::getId)
+        .containsExactly(3L);
+  }
+
+  @Test
+  public void testCompactionKeepsEveryLiveUser() {
+    // Setup
+    TrigramIndex index = new TrigramIndex(16);
+    for (int i = 0; i < 500; i++) {
+      index.put(i, "user" + i, "user" + i + "@example.com");
+    }
+
+    // Test: enough updates to leave more dead slots than live ones, several times over
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 500; i++) {
+        index.put(i, "user" + i, "user" + i + "+" + round + "@example.com");
+      }
+    }
+
+    // Verify
+    assertThat(index.size()).isEqualTo(500);
+    assertThat(index.deadSlots()).isLessThan(index.size() + 1024);
+    assertThat(index.search("user123", 1, 0))
+        .extracting(UserMatch::getEmail)
+        .containsExactly("user123+9@example.com");
+    assertThat(index.updateEmail("user42", "fortytwo@example.com")).isEqualTo(1);
+    assertThat(index.search("fortytwo@example.com", 5, 0))
+        .extracting(UserMatch::getId)
+        .containsExactly(42L);
+  }
+
+  @Test
+  public void testLimitKeepsTheBestMatches() {
+    // Setup
+    TrigramIndex index = new TrigramIndex();
+    for (int i = 0; i < 100; i++) {
+      index.put(i, "support" + i, "support" + i + "@example.com");
+    }
+
+    // Test
+    List<UserMatch> matches = index.search("support7", 3, 1);
+
+    // Verify: the exact username first, then the closest by score and username
+    assertThat(matches).hasSize(3);
+    assertThat(matches.get(0).getUsername()).isEqualTo("support7");
+    assertThat(matches.get(1).getScore()).isLessThanOrEqualTo(matches.get(0).getScore());
+    assertThat(matches.get(2).getScore()).isLessThanOrEqualTo(matches.get(1).getScore());
+  }
+}
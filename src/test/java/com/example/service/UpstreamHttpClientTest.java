@@ -0,0 +1,222 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.example.config.UpstreamHttpProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/** Runs {@link UpstreamHttpClient} against an in-process server playing various upstreams. */
+public class UpstreamHttpClientTest {
+
+  private HttpServer server;
+  private ExecutorService serverThreads;
+  private UpstreamHttpClient client;
+  private String baseUrl;
+  private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    serverThreads = Executors.newCachedThreadPool();
+    server.setExecutor(serverThreads);
+    server.createContext(
+        "/text",
+        exchange -> {
+          clientPorts.add(exchange.getRemoteAddress().getPort());
+          exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=ISO-8859-1");
+          respond(exchange, 200, "first line\nsecond line: café\n", StandardCharsets.ISO_8859_1);
+        });
+    server.createContext(
+        "/large", exchange -> respond(exchange, 200, "x".repeat(4096), StandardCharsets.UTF_8));
+    server.createContext(
+        "/large-chunked",
+        exchange -> {
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream body = exchange.getResponseBody()) {
+            for (int i = 0; i < 8; i++) {
+              body.write(new byte[512]);
+              body.flush();
+            }
+          }
+        });
+    server.createContext(
+        "/huge-content-length",
+        exchange -> {
+          // Announces about 3 GB, which cannot even be sized as an int, and sends a few bytes
+          exchange.sendResponseHeaders(200, 3_000_000_000L);
+          try (OutputStream body = exchange.getResponseBody()) {
+            body.write("short".getBytes(StandardCharsets.UTF_8));
+          } catch (IOException e) {
+            // Closing short of the announced length fails, or the client gave up on us
+          }
+        });
+    server.createContext(
+        "/slow-headers",
+        exchange -> {
+          sleep(2000);
+          respond(exchange, 200, "late", StandardCharsets.UTF_8);
+        });
+    server.createContext(
+        "/stall",
+        exchange -> {
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream body = exchange.getResponseBody()) {
+            body.write("partial".getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            sleep(2000);
+          } catch (IOException e) {
+            // The client gave up on us, which is the point
+          }
+        });
+    server.createContext(
+        "/trickle",
+        exchange -> {
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream body = exchange.getResponseBody()) {
+            for (int i = 0; i < 30; i++) {
+              body.write('.');
+              body.flush();
+              sleep(100);
+            }
+          } catch (IOException e) {
+            // The client gave up on us, which is the point
+          }
+        });
+    server.createContext(
+        "/fail", exchange -> respond(exchange, 500, "boom", StandardCharsets.UTF_8));
+    server.start();
+    baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+    UpstreamHttpProperties properties = new UpstreamHttpProperties();
+    properties.setConnectTimeout(Duration.ofSeconds(1));
+    properties.setReadTimeout(Duration.ofMillis(300));
+    properties.setTotalTimeout(Duration.ofSeconds(1));
+    properties.setMaxResponseSize(DataSize.ofKilobytes(1));
+    client = new UpstreamHttpClient(properties);
+  }
+
+  @AfterEach
+  public void stopServer() {
+    client.close();
+    server.stop(0);
+    serverThreads.shutdownNow();
+  }
+
+  @Test
+  public void testBodyKeepsBytesAndNewlines() throws Exception {
+    UpstreamResponse response = client.get(baseUrl + "/text").get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode()).isEqualTo(200);
+    assertThat(response.getBodyAsString()).isEqualTo("first line\nsecond line: café\n");
+  }
+
+  @Test
+  public void testConnectionIsReused() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      client.get(baseUrl + "/text").get(5, TimeUnit.SECONDS);
+    }
+
+    assertThat(clientPorts).hasSize(1);
+  }
+
+  @Test
+  public void testOversizedBodyIsRejected() {
+    assertFailsWith(client.get(baseUrl + "/large"), UpstreamResponseTooLargeException.class);
+    assertFailsWith(
+        client.get(baseUrl + "/large-chunked"), UpstreamResponseTooLargeException.class);
+  }
+
+  @Test
+  public void testOversizedContentLengthIsRejectedWithoutReading() {
+    assertFailsWith(
+        client.get(baseUrl + "/huge-content-length"), UpstreamResponseTooLargeException.class);
+  }
+
+  @Test
+  public void testSlowHeadersTimeOut() {
+    long started = System.nanoTime();
+
+    assertFailsWith(client.get(baseUrl + "/slow-headers"), HttpTimeoutException.class);
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+  }
+
+  @Test
+  public void testStalledBodyTimesOut() {
+    assertFailsWith(client.get(baseUrl + "/stall"), HttpTimeoutException.class);
+  }
+
+  @Test
+  public void testTricklingBodyHitsTotalTimeout() {
+    long started = System.nanoTime();
+
+    assertFailsWith(client.get(baseUrl + "/trickle"), HttpTimeoutException.class);
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+  }
+
+  @Test
+  public void testErrorStatusIsReturned() throws Exception {
+    UpstreamResponse response = client.get(baseUrl + "/fail").get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode()).isEqualTo(500);
+  }
+
+  @Test
+  public void testGetDoesNotBlockCaller() {
+    long started = System.nanoTime();
+    CompletableFuture<UpstreamResponse> pending = client.get(baseUrl + "/slow-headers");
+
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(250));
+    assertThat(pending).isNotDone();
+    assertFailsWith(pending, HttpTimeoutException.class);
+  }
+
+  private static void assertFailsWith(
+      CompletableFuture<UpstreamResponse> future, Class<? extends Throwable> type) {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      throw new AssertionError("Expected " + type.getSimpleName());
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(type);
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body, Charset charset)
+      throws IOException {
+    byte[] bytes = body.getBytes(charset);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
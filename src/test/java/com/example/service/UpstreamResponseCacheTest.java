@@ -0,0 +1,262 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.example.config.UpstreamCacheProperties;
+import com.example.config.UpstreamHttpProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/** Proves the cache saves upstream transfers, using a local server that counts what it sends. */
+public class UpstreamResponseCacheTest {
+
+  private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+  private HttpServer server;
+  private UpstreamHttpClient client;
+  private UpstreamResponseCache cache;
+  private String baseUrl;
+
+  private final Map<String, AtomicInteger> fullResponses = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> notModifiedResponses = new ConcurrentHashMap<>();
+  private final AtomicReference<String> etagVersion = new AtomicReference<>("\"v1\"");
+  private final AtomicInteger etagFailure = new AtomicInteger();
+  private final CountDownLatch slowRelease = new CountDownLatch(1);
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/fresh",
+        exchange -> {
+          exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+          respond(exchange, "fresh document");
+        });
+    server.createContext(
+        "/etag",
+        exchange -> {
+          if (etagFailure.get() != 0) {
+            exchange.sendResponseHeaders(etagFailure.get(), -1);
+            exchange.close();
+            return;
+          }
+          String etag = etagVersion.get();
+          exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+          exchange.getResponseHeaders().add("ETag", etag);
+          if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified(exchange);
+          } else {
+            respond(exchange, "document " + etag);
+          }
+        });
+    server.createContext(
+        "/last-modified",
+        exchange -> {
+          exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+          if (LAST_MODIFIED.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+            notModified(exchange);
+          } else {
+            respond(exchange, "dated document");
+          }
+        });
+    server.createContext(
+        "/no-store",
+        exchange -> {
+          exchange.getResponseHeaders().add("Cache-Control", "no-store, max-age=60");
+          respond(exchange, "secret");
+        });
+    server.createContext(
+        "/sized",
+        exchange -> {
+          exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+          respond(exchange, "x".repeat(400));
+        });
+    server.createContext(
+        "/slow",
+        exchange -> {
+          try {
+            slowRelease.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          exchange.getResponseHeaders().add("Cache-Control", "no-store");
+          respond(exchange, "slow document");
+        });
+    server.start();
+    baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+    UpstreamCacheProperties properties = new UpstreamCacheProperties();
+    properties.setMaxSize(DataSize.ofBytes(1000));
+    client = new UpstreamHttpClient(new UpstreamHttpProperties());
+    cache = new UpstreamResponseCache(client, properties);
+  }
+
+  @AfterEach
+  public void stopServer() {
+    client.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void testFreshResponseIsServedWithoutUpstream() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      assertThat(fetch("/fresh")).isEqualTo("fresh document");
+    }
+
+    assertThat(fullResponses("/fresh")).isEqualTo(1);
+    UpstreamResponseCache.Snapshot stats = cache.snapshot();
+    assertThat(stats.getMisses()).isEqualTo(1);
+    assertThat(stats.getHits()).isEqualTo(4);
+    assertThat(stats.getBytesServedFromCache()).isEqualTo(4 * "fresh document".length());
+  }
+
+  @Test
+  public void testEtagRevalidationCostsOnlyNotModified() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      assertThat(fetch("/etag")).isEqualTo("document \"v1\"");
+    }
+
+    assertThat(fullResponses("/etag")).isEqualTo(1);
+    assertThat(notModifiedResponses("/etag")).isEqualTo(4);
+    assertThat(cache.snapshot().getRevalidations()).isEqualTo(4);
+
+    // A changed document is transferred again and replaces the cached one
+    etagVersion.set("\"v2\"");
+    assertThat(fetch("/etag")).isEqualTo("document \"v2\"");
+    assertThat(fetch("/etag")).isEqualTo("document \"v2\"");
+    assertThat(fullResponses("/etag")).isEqualTo(2);
+    assertThat(notModifiedResponses("/etag")).isEqualTo(5);
+  }
+
+  @Test
+  public void testFailedRevalidationKeepsTheEntry() throws Exception {
+    fetch("/etag");
+
+    // Test: the upstream fails one revalidation
+    etagFailure.set(503);
+    assertThat(cache.fetch(baseUrl + "/etag").get(5, TimeUnit.SECONDS).getStatusCode())
+        .isEqualTo(503);
+    etagFailure.set(0);
+
+    // Verify: the next request still revalidates instead of transferring the document again
+    assertThat(fetch("/etag")).isEqualTo("document \"v1\"");
+    assertThat(fullResponses("/etag")).isEqualTo(1);
+    assertThat(notModifiedResponses("/etag")).isEqualTo(1);
+  }
+
+  @Test
+  public void testGoneDocumentDropsTheEntry() throws Exception {
+    fetch("/etag");
+
+    etagFailure.set(410);
+    assertThat(cache.fetch(baseUrl + "/etag").get(5, TimeUnit.SECONDS).getStatusCode())
+        .isEqualTo(410);
+    etagFailure.set(0);
+
+    assertThat(cache.snapshot().getEntries()).isZero();
+    fetch("/etag");
+    assertThat(fullResponses("/etag")).isEqualTo(2);
+  }
+
+  @Test
+  public void testLastModifiedRevalidation() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertThat(fetch("/last-modified")).isEqualTo("dated document");
+    }
+
+    assertThat(fullResponses("/last-modified")).isEqualTo(1);
+    assertThat(notModifiedResponses("/last-modified")).isEqualTo(2);
+  }
+
+  @Test
+  public void testNoStoreIsNeverCached() throws Exception {
+    fetch("/no-store");
+    fetch("/no-store");
+
+    assertThat(fullResponses("/no-store")).isEqualTo(2);
+    assertThat(cache.snapshot().getEntries()).isZero();
+  }
+
+  @Test
+  public void testEntriesAreEvictedByBytes() throws Exception {
+    // Two 400-byte documents fit in 1000 bytes; a third makes one of them go
+    fetch("/sized?a");
+    fetch("/sized?b");
+    fetch("/sized?a");
+    fetch("/sized?c");
+
+    UpstreamResponseCache.Snapshot stats = cache.snapshot();
+    assertThat(stats.getEntries()).isEqualTo(2);
+    assertThat(stats.getBytes()).isEqualTo(800);
+    assertThat(stats.getEvictions()).isEqualTo(1);
+  }
+
+  @Test
+  public void testConcurrentRequestsShareOneUpstreamFetch() throws Exception {
+    List<CompletableFuture<UpstreamResponse>> pending = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      pending.add(cache.fetch(baseUrl + "/slow"));
+    }
+    slowRelease.countDown();
+
+    for (CompletableFuture<UpstreamResponse> response : pending) {
+      assertThat(response.get(5, TimeUnit.SECONDS).getBodyAsString()).isEqualTo("slow document");
+    }
+    assertThat(fullResponses("/slow")).isEqualTo(1);
+    assertThat(cache.snapshot().getCoalesced()).isEqualTo(19);
+
+    // Nothing was stored, so the next request goes upstream again
+    fetch("/slow");
+    assertThat(fullResponses("/slow")).isEqualTo(2);
+  }
+
+  private String fetch(String path) throws Exception {
+    return cache.fetch(baseUrl + path).get(5, TimeUnit.SECONDS).getBodyAsString();
+  }
+
+  private int fullResponses(String path) {
+    return fullResponses.getOrDefault(path, new AtomicInteger()).get();
+  }
+
+  private int notModifiedResponses(String path) {
+    return notModifiedResponses.getOrDefault(path, new AtomicInteger()).get();
+  }
+
+  private void respond(HttpExchange exchange, String body) throws IOException {
+    fullResponses
+        .computeIfAbsent(exchange.getHttpContext().getPath(), path -> new AtomicInteger())
+        .incrementAndGet();
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void notModified(HttpExchange exchange) throws IOException {
+    notModifiedResponses
+        .computeIfAbsent(exchange.getHttpContext().getPath(), path -> new AtomicInteger())
+        .incrementAndGet();
+    exchange.sendResponseHeaders(304, -1);
+    exchange.close();
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.model.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:directory-search")
+public class UserDirectorySearchTest {
+
+  private static final int LARGE_TABLE_ROWS = 120_000;
+  private static final int LARGE_PAGE = 100_000;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @BeforeEach
+  public void seed() {
+    if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) > 0) {
+      return;
+    }
+    // Ids well above anything the identity column will hand out to other tests
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) "
+            + "SELECT 1000000 + X, 'bulk' || LPAD(X, 7, '0'), 'password', 'bulk' || X || '@example.com' "
+            + "FROM SYSTEM_RANGE(1, ?)",
+        LARGE_TABLE_ROWS);
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) VALUES "
+            + "(1, 'dir_a', 'p', 'a@example.com'), (2, 'dir_b', 'p', 'b@example.com'), "
+            + "(3, 'dir_b', 'p', 'b2@example.com'), (4, 'dirxc', 'p', 'c@example.com'), "
+            + "(5, 'dir_d', 'p', 'd@example.com')");
+  }
+
+  @Test
+  public void testPagesFollowKeysetOrder() throws Exception {
+    List<String> seen = new ArrayList<>();
+    UserCursor cursor = null;
+    int pages = 0;
+    do {
+      cursor =
+          employeeService.streamUsersByPrefix(
+              "dir_", cursor, 2, user -> seen.add(user.getUsername() + "#" + user.getId()));
+      pages++;
+    } while (cursor != null);
+
+    // "_" is matched literally, duplicates of a username are ordered by id, nothing repeats
+    assertThat(seen).containsExactly("dir_a#1", "dir_b#2", "dir_b#3", "dir_d#5");
+    assertThat(pages).isEqualTo(3);
+  }
+
+  @Test
+  public void testCursorRoundTrips() {
+    UserCursor cursor = UserCursor.decode(new UserCursor("dir_b", 3).encode());
+    assertThat(cursor.getUsername()).isEqualTo("dir_b");
+    assertThat(cursor.getId()).isEqualTo(3);
+  }
+
+  @Test
+  public void testLargePageKeepsHeapFlat() throws Exception {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long baseline = usedHeapAfterGc(memory);
+    long[] peakGrowth = {0};
+    List<WeakReference<User>> emitted = new ArrayList<>();
+    int[] rows = {0};
+
+    try (JsonGenerator generator =
+        objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+      employeeService.streamUsersByPrefix(
+          "bulk",
+          null,
+          LARGE_PAGE,
+          user -> {
+            objectMapper.writeValue(generator, user);
+            if (++rows[0] % 1000 == 0) {
+              emitted.add(new WeakReference<>(user));
+            }
+            if (rows[0] % 25_000 == 0) {
+              peakGrowth[0] = Math.max(peakGrowth[0], usedHeapAfterGc(memory) - baseline);
+            }
+          });
+    }
+
+    // Every row went out, none of the emitted users is still reachable, and the heap did not
+    // grow with the page the way a materialized List<User> of 100k rows would
+    assertThat(rows[0]).isEqualTo(LARGE_PAGE);
+    usedHeapAfterGc(memory);
+    assertThat(emitted.stream().filter(reference -> reference.get() != null).count())
+        .isLessThanOrEqualTo(1);
+    assertThat(peakGrowth[0]).isLessThan(16L * 1024 * 1024);
+  }
+
+  private static long usedHeapAfterGc(MemoryMXBean memory) throws IOException {
+    System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
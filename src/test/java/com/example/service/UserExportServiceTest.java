@@ -0,0 +1,197 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.EmployeeManagementPortal;
+import com.example.repository.UserColumn;
+import com.example.repository.UserProjection;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:user-export")
+public class UserExportServiceTest {
+
+  private static final int LARGE_TABLE_ROWS = 2_000_000;
+  private static final int SMALL_TABLE_ROWS = 20_000;
+  private static final String EXPORT_HEAP = "-Xmx96m";
+
+  @Autowired private UserExportService userExportService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  public void seed() {
+    if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) > 0) {
+      return;
+    }
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) VALUES "
+            + "(1, 'plain', 'secret', 'plain@example.com'), "
+            + "(2, 'comma, \"quoted\"', 'secret', 'quoted@example.com'), "
+            + "(3, 'no_email', 'secret', NULL)");
+  }
+
+  @Test
+  public void testCsvExportQuotesFieldsAndOmitsPassword() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long rows = userExportService.exportUsers(UserProjection.SUMMARY, UserExportFormat.CSV, out);
+
+    assertThat(rows).isEqualTo(3);
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .isEqualTo(
+            "id,username,email\n"
+                + "1,plain,plain@example.com\n"
+                + "2,\"comma, \"\"quoted\"\"\",quoted@example.com\n"
+                + "3,no_email,\n");
+  }
+
+  @Test
+  public void testNdjsonExportWritesSelectedColumns() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    userExportService.exportUsers(UserProjection.parse("email,id"), UserExportFormat.NDJSON, out);
+
+    assertThat(out.toString(StandardCharsets.UTF_8).split("\n"))
+        .containsExactly(
+            "{\"id\":1,\"email\":\"plain@example.com\"}",
+            "{\"id\":2,\"email\":\"quoted@example.com\"}",
+            "{\"id\":3,\"email\":null}");
+  }
+
+  @Test
+  public void testPasswordCannotBeExported() {
+    UserProjection withPassword = UserProjection.of(EnumSet.of(UserColumn.ID, UserColumn.PASSWORD));
+
+    assertThatThrownBy(
+            () ->
+                userExportService.exportUsers(
+                    withPassword, UserExportFormat.CSV, new ByteArrayOutputStream()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testExportStreamsEveryRowInSmallFixedHeap(@TempDir Path directory) throws Exception {
+    assertExportsInSmallHeap(directory, SMALL_TABLE_ROWS);
+  }
+
+  /** Takes over a minute, so it runs with the load tests: {@code mvn -Pload test}. */
+  @Test
+  @Tag("load")
+  public void testLargeExportRunsInSmallFixedHeap(@TempDir Path directory) throws Exception {
+    assertExportsInSmallHeap(directory, LARGE_TABLE_ROWS);
+  }
+
+  private static void assertExportsInSmallHeap(Path directory, int rows) throws Exception {
+    // Given: a separate JVM whose heap is far smaller than a large table it exports
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    Process process =
+        new ProcessBuilder(
+                java,
+                EXPORT_HEAP,
+                "-XX:+ExitOnOutOfMemoryError",
+                // Devtools would otherwise relaunch main() in a restart class loader
+                "-Dspring.devtools.restart.enabled=false",
+                "-cp",
+                System.getProperty("java.class.path"),
+                ExportProbe.class.getName(),
+                directory.toString(),
+                String.valueOf(rows))
+            .redirectErrorStream(true)
+            .redirectOutput(directory.resolve("probe.log").toFile())
+            .start();
+
+    // When: it exports every row as CSV and as gzipped NDJSON over HTTP
+    boolean finished = process.waitFor(10, TimeUnit.MINUTES);
+    if (!finished) {
+      process.destroyForcibly();
+    }
+    String log = Files.readString(directory.resolve("probe.log"));
+
+    // Then: both exports saw every row without running out of memory
+    assertThat(finished).as(log).isTrue();
+    assertThat(process.exitValue()).as(log).isZero();
+    assertThat(log).contains("csv rows=" + rows).contains("ndjson rows=" + rows);
+  }
+
+  /** Runs in the small-heap JVM: seeds a file database, then downloads both exports. */
+  public static class ExportProbe {
+
+    public static void main(String[] args) throws Exception {
+      File database = new File(args[0], "export");
+      int rows = Integer.parseInt(args[1]);
+
+      // Command-line arguments, unlike builder properties, override application.properties
+      ConfigurableApplicationContext context =
+          new SpringApplicationBuilder(EmployeeManagementPortal.class)
+              .run(
+                  "--server.port=0",
+                  "--spring.datasource.url=jdbc:h2:file:" + database.getAbsolutePath(),
+                  "--spring.datasource.hikari.maximum-pool-size=2",
+                  "--spring.datasource.hikari.minimum-idle=1",
+                  "--spring.jpa.show-sql=false",
+                  "--spring.main.banner-mode=off",
+                  "--logging.level.root=WARN");
+      try {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int from = 1; from <= rows; from += 250_000) {
+          jdbcTemplate.update(
+              "INSERT INTO users (id, username, password, email) "
+                  + "SELECT X, 'export' || X, 'password', 'export' || X || '@example.com' "
+                  + "FROM SYSTEM_RANGE(?, ?)",
+              from,
+              Math.min(from + 249_999, rows));
+        }
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String base = "http://localhost:" + port + "/api/user-export";
+        System.out.println("csv rows=" + (countLines(base + "?format=csv", false) - 1));
+        System.out.println("ndjson rows=" + countLines(base + "?format=ndjson&gzip=true", true));
+      } finally {
+        context.close();
+      }
+      System.exit(0);
+    }
+
+    private static long countLines(String url, boolean gzip) throws IOException {
+      HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+      try (InputStream body =
+              gzip
+                  ? new GZIPInputStream(connection.getInputStream())
+                  : connection.getInputStream();
+          BufferedReader reader =
+              new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+        long lines = 0;
+        while (reader.readLine() != null) {
+          lines++;
+        }
+        return lines;
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:user-import",
+      "employee.user-import.batch-size=7",
+      "employee.user-import.commit-size=20"
+    })
+public class UserImportServiceTest {
+
+  @Autowired private UserImportService userImportService;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void testCsvImportWithHeaderAndRejects() throws Exception {
+    // Setup: reordered header, a quoted field, and two bad lines
+    String csv =
+        "email,username,password\n"
+            + "csv1@example.com,csv_one,secret\n"
+            + "\"csv2@example.com\",\"csv_two, jr\",\"pa\"\"ss\"\n"
+            + "not-an-email,csv_bad,secret\n"
+            + "\n"
+            + "csv4@example.com,,secret\n"
+            + "csv5@example.com,csv_five,secret\n";
+    RecordingListener listener = new RecordingListener();
+
+    // Test
+    UserImportResult result =
+        userImportService.importUsers(stream(csv), UserImportFormat.CSV, listener);
+
+    // Verify
+    assertThat(result.getStatus()).isEqualTo(UserImportResult.Status.COMPLETED);
+    assertThat(result.getImported()).isEqualTo(3);
+    assertThat(result.getRejected()).isEqualTo(2);
+    assertThat(listener.rejects).containsExactly("4: Invalid email", "6: Missing username");
+    User quoted = userRepository.findByUsername("csv_two, jr");
+    assertThat(quoted.getPassword()).isEqualTo("pa\"ss");
+    assertThat(quoted.getEmail()).isEqualTo("csv2@example.com");
+  }
+
+  @Test
+  public void testNdjsonImportCommitsInChunks() throws Exception {
+    // Setup: enough rows for several commits and a short final statement
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < 53; i++) {
+      ndjson
+          .append("{\"username\":\"json_")
+          .append(i)
+          .append("\",\"password\":\"p\",\"email\":\"json")
+          .append(i)
+          .append("@example.com\"}\n");
+    }
+    ndjson.append("[1, 2]\n{\"username\":\n");
+    RecordingListener listener = new RecordingListener();
+
+    // Test
+    UserImportResult result =
+        userImportService.importUsers(stream(ndjson.toString()), UserImportFormat.NDJSON, listener);
+
+    // Verify: progress after each commit of 20 rows, then the tail
+    assertThat(result.getImported()).isEqualTo(53);
+    assertThat(result.getRejected()).isEqualTo(2);
+    assertThat(listener.rejects)
+        .containsExactly("54: Expected a JSON object", "55: Malformed JSON");
+    assertThat(listener.progress).containsExactly(20L, 40L, 53L);
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE username LIKE 'json!_%' ESCAPE '!'",
+                Integer.class))
+        .isEqualTo(53);
+  }
+
+  @Test
+  public void testImportedIdsDoNotCollideWithRepositorySaves() throws Exception {
+    // Setup: JPA saves before and after the import draw from the same sequence
+    User before = userRepository.save(new User("ids_before", "p", "before@example.com"));
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 120; i++) {
+      csv.append("ids_").append(i).append(",p,ids").append(i).append("@example.com\n");
+    }
+
+    // Test
+    UserImportResult result =
+        userImportService.importUsers(
+            stream(csv.toString()), UserImportFormat.CSV, new RecordingListener());
+    User after = userRepository.save(new User("ids_after", "p", "after@example.com"));
+
+    // Verify
+    assertThat(result.getImported()).isEqualTo(120);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM users", Long.class))
+        .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class));
+    assertThat(after.getId()).isNotEqualTo(before.getId());
+  }
+
+  @Test
+  public void testImportInvalidatesCachedMisses() throws Exception {
+    // Setup: a cached negative lookup
+    assertThat(employeeService.findUserByUsername("cache_late")).isEmpty();
+
+    // Test
+    userImportService.importUsers(
+        stream("cache_late,p,late@example.com\n"), UserImportFormat.CSV, new RecordingListener());
+
+    // Verify
+    assertThat(employeeService.findUserByUsername("cache_late")).hasSize(1);
+  }
+
+  private static InputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static class RecordingListener implements UserImportListener {
+
+    private final List<String> rejects = new ArrayList<>();
+    private final List<Long> progress = new ArrayList<>();
+
+    @Override
+    public void onReject(long line, String reason) throws IOException {
+      rejects.add(line + ": " + reason);
+    }
+
+    @Override
+    public void onProgress(UserImportResult result) throws IOException {
+      progress.add(result.getImported());
+    }
+  }
+}
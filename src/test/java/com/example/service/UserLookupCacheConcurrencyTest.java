@@ -0,0 +1,95 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserLookupCacheConcurrencyTest {
+
+  private static final String USERNAME = "cacheRaceUser";
+  private static final int UPDATES = 200;
+  private static final int READERS = 8;
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void testNoStaleReadsAfterAccountUpdate() throws Exception {
+    // Given: a user whose email carries a version number
+    if (userRepository.findByUsername(USERNAME) == null) {
+      userRepository.save(new User(USERNAME, "password", "v0@example.com"));
+    }
+    jdbcTemplate.update(
+        "UPDATE users SET email = ? WHERE username = ?", "v0@example.com", USERNAME);
+    employeeService.invalidateUserLookup(USERNAME);
+
+    // Readers note the last version acknowledged by /api/update-account before each lookup;
+    // the lookup must never return anything older than that
+    AtomicInteger acknowledged = new AtomicInteger();
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicLong reads = new AtomicLong();
+    AtomicLong staleReads = new AtomicLong();
+    ExecutorService readers = Executors.newFixedThreadPool(READERS);
+    for (int i = 0; i < READERS; i++) {
+      readers.submit(
+          () -> {
+            while (running.get()) {
+              int minimum = acknowledged.get();
+              List<User> users = employeeService.findUserByUsername(USERNAME);
+              if (users.size() != 1 || versionOf(users.get(0)) < minimum) {
+                staleReads.incrementAndGet();
+              }
+              reads.incrementAndGet();
+            }
+          });
+    }
+
+    // When: the email is changed repeatedly and each change is acknowledged by the endpoint
+    for (int version = 1; version <= UPDATES; version++) {
+      String email = "v" + version + "@example.com";
+      jdbcTemplate.update("UPDATE users SET email = ? WHERE username = ?", email, USERNAME);
+      mockMvc
+          .perform(post("/api/update-account").param("username", USERNAME).param("email", email))
+          .andExpect(status().isOk());
+      acknowledged.set(version);
+    }
+    running.set(false);
+    readers.shutdown();
+    assertThat(readers.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    // Then: readers kept going through the updates and never saw a superseded email
+    assertThat(reads.get()).isGreaterThan(UPDATES);
+    assertThat(staleReads.get()).isZero();
+    assertThat(versionOf(employeeService.findUserByUsername(USERNAME).get(0))).isEqualTo(UPDATES);
+  }
+
+  private static int versionOf(User user) {
+    String email = user.getEmail();
+    return Integer.parseInt(email.substring(1, email.indexOf('@')));
+  }
+}
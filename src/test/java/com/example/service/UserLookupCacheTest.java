@@ -0,0 +1,189 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.config.UserCacheProperties;
+import com.example.model.User;
+
+public class UserLookupCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private List<User> load(String username) {
+    loads.incrementAndGet();
+    return username.startsWith("missing")
+        ? new ArrayList<>()
+        : new ArrayList<>(Arrays.asList(new User(username, null, username + "@example.com")));
+  }
+
+  @Test
+  public void testCachesFoundAndMissingUsers() {
+    UserLookupCache cache = new UserLookupCache(new UserCacheProperties());
+
+    assertThat(cache.get("alice", this::load)).extracting(User::getUsername).contains("alice");
+    assertThat(cache.get("alice", this::load)).hasSize(1);
+    assertThat(cache.get("missing-bob", this::load)).isEmpty();
+    assertThat(cache.get("missing-bob", this::load)).isEmpty();
+
+    // Each username went to the loader once; the repeats were hits
+    assertThat(loads.get()).isEqualTo(2);
+    UserLookupCache.Snapshot snapshot = cache.snapshot();
+    assertThat(snapshot.getHits()).isEqualTo(2);
+    assertThat(snapshot.getMisses()).isEqualTo(2);
+    assertThat(snapshot.getSize()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFailedLoadsAreNotCached() {
+    UserLookupCache cache = new UserLookupCache(new UserCacheProperties());
+
+    assertThat(cache.get("alice", username -> null)).isEmpty();
+    assertThat(cache.get("alice", this::load)).hasSize(1);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testInvalidateForcesReload() {
+    UserLookupCache cache = new UserLookupCache(new UserCacheProperties());
+
+    cache.get("alice", this::load);
+    cache.invalidate("alice");
+    cache.get("alice", this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(cache.snapshot().getInvalidations()).isEqualTo(1);
+  }
+
+  @Test
+  public void testEvictsBeyondMaximumSize() {
+    UserCacheProperties properties = new UserCacheProperties();
+    properties.setMaximumSize(10);
+    UserLookupCache cache = new UserLookupCache(properties);
+
+    for (int i = 0; i < 100; i++) {
+      cache.get("user" + i, this::load);
+    }
+
+    UserLookupCache.Snapshot snapshot = cache.snapshot();
+    assertThat(snapshot.getSize()).isLessThanOrEqualTo(10);
+    assertThat(snapshot.getEvictions()).isGreaterThanOrEqualTo(90);
+  }
+
+  @Test
+  public void testNegativeLookupsExpireSooner() throws InterruptedException {
+    UserCacheProperties properties = new UserCacheProperties();
+    properties.setNegativeTtl(Duration.ofMillis(50));
+    UserLookupCache cache = new UserLookupCache(properties);
+
+    cache.get("alice", this::load);
+    cache.get("missing-bob", this::load);
+    Thread.sleep(100);
+    cache.get("alice", this::load);
+    cache.get("missing-bob", this::load);
+
+    // Only the negative entry expired and was loaded again
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testDisabledCacheAlwaysLoads() {
+    UserCacheProperties properties = new UserCacheProperties();
+    properties.setEnabled(false);
+    UserLookupCache cache = new UserLookupCache(properties);
+
+    cache.get("alice", this::load);
+    assertThat(cache.get("alice", this::load)).hasSize(1);
+    assertThat(cache.get("alice", username -> null)).isEqualTo(Collections.emptyList());
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDisabledCacheSharesConcurrentLoads() throws Exception {
+    UserCacheProperties properties = new UserCacheProperties();
+    properties.setEnabled(false);
+    UserLookupCache cache = new UserLookupCache(properties);
+    int callers = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+    try {
+      List<Future<List<User>>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        results.add(
+            executor.submit(
+                () ->
+                    cache.get(
+                        "alice",
+                        username -> {
+                          // Keep the query in flight until every other caller has joined it
+                          long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                          while (cache.snapshot().getCoalesced() < callers - 1
+                              && System.nanoTime() < deadline) {
+                            Thread.yield();
+                          }
+                          return load(username);
+                        })));
+      }
+      for (Future<List<User>> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS)).hasSize(1);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(cache.snapshot().getCoalesced()).isEqualTo(callers - 1);
+  }
+
+  @Test
+  public void testInvalidateDetachesLoadInFlight() throws Exception {
+    UserCacheProperties properties = new UserCacheProperties();
+    properties.setEnabled(false);
+    UserLookupCache cache = new UserLookupCache(properties);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      Future<List<User>> before =
+          executor.submit(
+              () ->
+                  cache.get(
+                      "alice",
+                      username -> {
+                        started.countDown();
+                        try {
+                          release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                          Thread.currentThread().interrupt();
+                        }
+                        return load(username);
+                      }));
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+      // A lookup after the invalidation must not join the query that started before it
+      cache.invalidate("alice");
+      cache.get("alice", this::load);
+      release.countDown();
+      before.get(5, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(cache.snapshot().getCoalesced()).isZero();
+  }
+}
@@ -0,0 +1,66 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import com.example.config.UserSearchProperties;
+
+/** The first load of {@link UserSearchIndex} against a database that is not ready yet. */
+public class UserSearchIndexLoadTest {
+
+  @Mock private UserExportService userExportService;
+
+  @Spy private UserSearchProperties userSearchProperties = new UserSearchProperties();
+
+  @InjectMocks private UserSearchIndex userSearchIndex;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    userSearchProperties.setFuzzyLoadRetryDelay(Duration.ofMillis(50));
+  }
+
+  @AfterEach
+  public void stop() {
+    userSearchIndex.stop();
+  }
+
+  @Test
+  public void testAFailedFirstLoadIsRetriedAndSearchesWaitForIt() throws Exception {
+    // Setup: the users table is missing twice, then empty
+    when(userExportService.readUsers(any(), any()))
+        .thenThrow(new SQLException("Table \"USERS\" not found", "42S04"))
+        .thenThrow(new SQLException("Table \"USERS\" not found", "42S04"))
+        .thenReturn(0L);
+
+    // Test
+    userSearchIndex.build();
+
+    // Verify: unavailable rather than empty, until a retry loads the index
+    assertThatThrownBy(() -> userSearchIndex.search("anyone"))
+        .isInstanceOf(UserSearchIndexUnavailableException.class);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (userSearchIndex.snapshot().getRebuildMillis() == -1 && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(userSearchIndex.search("anyone")).isEmpty();
+    assertThat(userSearchIndex.snapshot().getLoadFailures()).isEqualTo(2);
+    verify(userExportService, times(3)).readUsers(any(), any());
+  }
+}
@@ -0,0 +1,117 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:user-search-index")
+@AutoConfigureMockMvc
+public class UserSearchIndexTest {
+
+  @Autowired private UserSearchIndex userSearchIndex;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private AccountUpdateService accountUpdateService;
+
+  @Autowired private UserImportService userImportService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private MockMvc mockMvc;
+
+  @Test
+  public void testRebuildLoadsUsersWrittenBehindItsBack() throws Exception {
+    // Setup: rows the index was never told about
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) VALUES"
+            + " (900001, 'rebuild_margaret', 'password', 'margaret.hamilton@example.com')");
+    assertThat(userSearchIndex.search("margaret.hamilton")).isEmpty();
+
+    // Test
+    int users = userSearchIndex.rebuild();
+
+    // Verify
+    assertThat(users).isEqualTo(userSearchIndex.snapshot().getUsers());
+    assertThat(userSearchIndex.search("margret.hamilton"))
+        .extracting(UserMatch::getUsername)
+        .containsExactly("rebuild_margaret");
+  }
+
+  @Test
+  public void testRepositoryWritesAreIndexedOnCommit() {
+    // Test: insert, then change the email, then delete
+    User user = userRepository.save(new User("grace_hopper", "password", "grace@navy.example"));
+    assertThat(userSearchIndex.search("grace_hoper"))
+        .extracting(UserMatch::getId)
+        .containsExactly(user.getId());
+
+    user.setEmail("amazing.grace@cobol.example");
+    userRepository.save(user);
+    assertThat(userSearchIndex.search("amazing.grace"))
+        .extracting(UserMatch::getEmail)
+        .containsExactly("amazing.grace@cobol.example");
+    assertThat(userSearchIndex.search("grace@navy.example")).isEmpty();
+
+    userRepository.delete(user);
+    assertThat(userSearchIndex.search("grace_hopper")).isEmpty();
+  }
+
+  @Test
+  public void testAccountUpdatesAndImportsAreIndexed() throws Exception {
+    // Setup
+    userRepository.save(new User("ada_lovelace", "password", "ada@engine.example"));
+
+    // Test
+    assertThat(accountUpdateService.updateEmail("ada_lovelace", "countess@analytical.example"))
+        .isTrue();
+    UserImportResult imported =
+        userImportService.importUsers(
+            new ByteArrayInputStream(
+                "alan_turing,password,alan@bletchley.example\n".getBytes(StandardCharsets.UTF_8)),
+            UserImportFormat.CSV,
+            new UserImportListener() {});
+
+    // Verify
+    assertThat(imported.getImported()).isEqualTo(1);
+    assertThat(userSearchIndex.search("countess@analytical"))
+        .extracting(UserMatch::getUsername)
+        .containsExactly("ada_lovelace");
+    assertThat(userSearchIndex.search("bletchly"))
+        .extracting(UserMatch::getUsername)
+        .containsExactly("alan_turing");
+  }
+
+  @Test
+  public void testFuzzySearchEndpoint() throws Exception {
+    // Setup
+    userRepository.save(new User("edsger_dijkstra", "password", "edsger@goto.example"));
+    userRepository.save(new User("edgar_codd", "password", "ted@relational.example"));
+
+    // Test & Verify: a misspelt name finds the user, best match first
+    mockMvc
+        .perform(get("/api/user-search/fuzzy").param("q", "edsger_dikjstra"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].username").value("edsger_dijkstra"))
+        .andExpect(jsonPath("$[0].email").value("edsger@goto.example"))
+        .andExpect(jsonPath("$[0].score").isNumber())
+        .andExpect(jsonPath("$[0].password").doesNotExist());
+    mockMvc
+        .perform(get("/api/user-search/fuzzy").param("q", "edsger").param("limit", "0"))
+        .andExpect(status().isBadRequest());
+  }
+}
@@ -0,0 +1,163 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.model.User;
+
+public class UserSnapshotFileTest {
+
+  @TempDir Path directory;
+
+  @Test
+  public void testLookupsByUsernameAndId() throws IOException {
+    // Setup: two shards, a shared username, a missing email and a multi-byte username
+    Path path = directory.resolve("users.snapshot");
+    UserSnapshotFile file;
+    try (UserSnapshotFile.Writer writer = new UserSnapshotFile.Writer(path, 2)) {
+      writer.startShard(1000);
+      writer.add(1, "alice", "alice@example.com");
+      writer.add(2, "bob", null);
+      writer.add(3, "alice", "alice@example.org");
+      writer.startShard(2000);
+      for (int i = 0; i < 1000; i++) {
+        writer.add(1_000_000_000_000L + i, "user" + i, "user" + i + "@example.com");
+      }
+      writer.add(2_000_000_000_000L, "zoë", "zoe@example.com");
+      file = writer.finish(42);
+    }
+
+    // Verify
+    assertThat(file.size()).isEqualTo(1004);
+    assertThat(file.size(0)).isEqualTo(3);
+    assertThat(file.changedUpTo(1)).isEqualTo(2000);
+    assertThat(file.createdMillis()).isEqualTo(42);
+    assertThat(file.findByUsername("alice"))
+        .extracting(User::getId, User::getEmail)
+        .containsExactlyInAnyOrder(tuple(1L, "alice@example.com"), tuple(3L, "alice@example.org"));
+    assertThat(file.findByUsername("bob"))
+        .singleElement()
+        .satisfies(
+            bob -> {
+              assertThat(bob.getEmail()).isNull();
+              assertThat(bob.getPassword()).isNull();
+            });
+    assertThat(file.findByUsername("zoë"))
+        .extracting(User::getId)
+        .containsExactly(2_000_000_000_000L);
+    assertThat(file.findByUsername("user999"))
+        .extracting(User::getEmail)
+        .containsExactly("user999@example.com");
+    assertThat(file.findByUsername("user1000")).isEmpty();
+    assertThat(file.findById(1_000_000_000_500L).getUsername()).isEqualTo("user500");
+    assertThat(file.findById(4)).isNull();
+  }
+
+  @Test
+  public void testCursorReadsEachShardInIdOrder() throws IOException {
+    // Setup
+    Path path = directory.resolve("users.snapshot");
+    UserSnapshotFile file;
+    try (UserSnapshotFile.Writer writer = new UserSnapshotFile.Writer(path, 2)) {
+      writer.startShard(0);
+      writer.startShard(0);
+      writer.add(7, "carol", "carol@example.com");
+      writer.add(9, null, "nobody@example.com");
+      file = writer.finish(0);
+    }
+
+    // Test
+    List<String> shard1 = new ArrayList<>();
+    UserSnapshotFile.ShardCursor cursor = file.cursor(1);
+    while (cursor.next()) {
+      shard1.add(cursor.id() + ":" + cursor.username() + ":" + cursor.email());
+    }
+
+    // Verify
+    assertThat(file.cursor(0).next()).isFalse();
+    assertThat(shard1).containsExactly("7:carol:carol@example.com", "9:null:nobody@example.com");
+    assertThat(file.findById(9).getUsername()).isNull();
+  }
+
+  @Test
+  public void testReplacingTheFileLeavesEarlierMappingsReadable() throws IOException {
+    // Setup
+    Path path = directory.resolve("users.snapshot");
+    UserSnapshotFile first;
+    try (UserSnapshotFile.Writer writer = new UserSnapshotFile.Writer(path, 1)) {
+      writer.startShard(0);
+      writer.add(1, "dave", "dave@example.com");
+      first = writer.finish(1);
+    }
+
+    // Test
+    UserSnapshotFile second;
+    try (UserSnapshotFile.Writer writer = new UserSnapshotFile.Writer(path, 1)) {
+      writer.startShard(0);
+      writer.add(1, "dave", "david@example.net");
+      second = writer.finish(2);
+    }
+
+    // Verify
+    assertThat(first.findByUsername("dave"))
+        .extracting(User::getEmail)
+        .containsExactly("dave@example.com");
+    assertThat(second.findByUsername("dave"))
+        .extracting(User::getEmail)
+        .containsExactly("david@example.net");
+    assertThat(UserSnapshotFile.open(path).createdMillis()).isEqualTo(2);
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files).containsExactly(path);
+    }
+  }
+
+  @Test
+  public void testLongValuesAreReadBackWhole() throws IOException {
+    // Setup: lengths past a short's range, one longer than the writer's buffer, then a short record
+    String longUsername = "u".repeat(40_000);
+    String longerEmail = "é".repeat(700_000) + "@example.com";
+    Path path = directory.resolve("users.snapshot");
+    UserSnapshotFile file;
+    try (UserSnapshotFile.Writer writer = new UserSnapshotFile.Writer(path, 1)) {
+      writer.startShard(0);
+      writer.add(1, longUsername, longerEmail);
+      writer.add(2, "after", "after@example.com");
+      file = writer.finish(0);
+    }
+
+    // Verify
+    assertThat(file.findByUsername(longUsername))
+        .singleElement()
+        .satisfies(user -> assertThat(user.getEmail()).isEqualTo(longerEmail));
+    assertThat(file.findByUsername("u".repeat(39_999))).isEmpty();
+    assertThat(file.findById(2).getEmail()).isEqualTo("after@example.com");
+  }
+
+  @Test
+  public void testWritesMustBeInIdOrderAndFilesWellFormed() throws IOException {
+    Path path = directory.resolve("users.snapshot");
+    try (UserSnapshotFile.Writer writer = new UserSnapshotFile.Writer(path, 1)) {
+      writer.startShard(0);
+      writer.add(5, "erin", null);
+      assertThatThrownBy(() -> writer.add(5, "frank", null))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+    assertThat(path).doesNotExist();
+
+    Files.write(path, "not a snapshot".getBytes());
+    assertThatThrownBy(() -> UserSnapshotFile.open(path))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("Not a user snapshot");
+  }
+}
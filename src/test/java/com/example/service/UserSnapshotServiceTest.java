@@ -0,0 +1,153 @@
+package com.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.config.UserSnapshotProperties;
+import com.example.datasource.UserShards;
+import com.example.model.User;
+import com.example.repository.UserRepository;
+
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:user-snapshot",
+      "employee.user-snapshot.enabled=true",
+      "employee.user-snapshot.refresh-interval=1h",
+      "employee.user-snapshot.full-refresh-interval=1h",
+      "employee.user-snapshot.change-overlap=0s"
+    })
+public class UserSnapshotServiceTest {
+
+  private static Path directory;
+
+  @Autowired private UserSnapshotService userSnapshotService;
+
+  @Autowired private UserSnapshotProperties userSnapshotProperties;
+
+  @Autowired private EmployeeService employeeService;
+
+  @Autowired private AccountUpdateService accountUpdateService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private DataSource dataSource;
+
+  @Autowired private UserShards userShards;
+
+  @DynamicPropertySource
+  static void snapshotPath(DynamicPropertyRegistry registry) throws IOException {
+    directory = Files.createTempDirectory("user-snapshot");
+    registry.add("employee.user-snapshot.path", () -> directory.resolve("users.snapshot"));
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    // Past the full read that follows startup, so the next refreshes only read changes
+    userSnapshotService.refresh();
+  }
+
+  @Test
+  public void testLookupsAreServedFromTheSnapshotUntilItIsRefreshed() throws Exception {
+    // Setup: written behind the application's back, as another node would
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) VALUES"
+            + " (700001, 'snap_alice', 'password', 'alice@example.com')");
+    userSnapshotService.refresh();
+    long hits = userSnapshotService.snapshot().getHits();
+
+    // Test
+    jdbcTemplate.update("UPDATE users SET email = 'alice@example.org' WHERE id = 700001");
+    User before = employeeService.findUserByUsername("snap_alice").get(0);
+    long incremental = userSnapshotService.snapshot().getIncrementalRefreshes();
+    userSnapshotService.refresh();
+    User after = employeeService.findUserByUsername("snap_alice").get(0);
+
+    // Verify: the stale email until the refresh read the changed row, and only changed rows
+    assertThat(before.getEmail()).isEqualTo("alice@example.com");
+    assertThat(after.getEmail()).isEqualTo("alice@example.org");
+    assertThat(after.getPassword()).isNull();
+    UserSnapshotService.Snapshot snapshot = userSnapshotService.snapshot();
+    assertThat(snapshot.getHits()).isEqualTo(hits + 2);
+    assertThat(snapshot.getIncrementalRefreshes()).isEqualTo(incremental + 1);
+    assertThat(snapshot.getLastChangedRows()).isEqualTo(1);
+  }
+
+  @Test
+  public void testWritesThroughThisNodeBypassTheSnapshot() throws Exception {
+    // Test: a save and an account update, neither yet in the snapshot
+    userRepository.save(new User("snap_bob", "password", "bob@example.com"));
+    assertThat(accountUpdateService.updateEmail("snap_bob", "robert@example.com")).isTrue();
+    long bypassed = userSnapshotService.snapshot().getBypassed();
+    User written = employeeService.findUserByUsername("snap_bob").get(0);
+    // A write noted in the refresh's own millisecond stays tracked until the next refresh
+    long writtenMillis = System.currentTimeMillis();
+    while (System.currentTimeMillis() == writtenMillis) {
+      Thread.sleep(1);
+    }
+    userSnapshotService.refresh();
+    long hits = userSnapshotService.snapshot().getHits();
+    User refreshed = employeeService.findUserByUsername("snap_bob").get(0);
+
+    // Verify: the database answered until the refresh read the update, stamped by the database
+    assertThat(written.getEmail()).isEqualTo("robert@example.com");
+    assertThat(userSnapshotService.snapshot().getBypassed()).isEqualTo(bypassed + 1);
+    assertThat(refreshed.getEmail()).isEqualTo("robert@example.com");
+    assertThat(userSnapshotService.snapshot().getHits()).isEqualTo(hits + 1);
+    assertThat(userSnapshotService.snapshot().getTrackedWrites()).isZero();
+  }
+
+  @Test
+  public void testDeletesAreFoundByTheRowCount() throws Exception {
+    // Setup
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) VALUES"
+            + " (700002, 'snap_carol', 'password', 'carol@example.com')");
+    userSnapshotService.refresh();
+    assertThat(employeeService.findUserByUsername("snap_carol")).hasSize(1);
+
+    // Test: a delete leaves no changed row behind
+    jdbcTemplate.update("DELETE FROM users WHERE id = 700002");
+    int users = userSnapshotService.refresh();
+
+    // Verify: the shard was read in full
+    assertThat(employeeService.findUserByUsername("snap_carol")).isEmpty();
+    assertThat(users)
+        .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    assertThat(userSnapshotService.snapshot().getLastChangedRows()).isEqualTo(users);
+  }
+
+  @Test
+  public void testARestartedNodeAnswersFromTheFileBeforeRefreshing() throws Exception {
+    // Setup
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, email) VALUES"
+            + " (700003, 'snap_dave', 'password', 'dave@example.com')");
+    userSnapshotService.refresh();
+
+    // Test: a new service over the same file, as on the next start
+    UserSnapshotService restarted =
+        new UserSnapshotService(userSnapshotProperties, dataSource, userShards);
+    restarted.open();
+
+    // Verify
+    assertThat(restarted.findByUsername("snap_dave"))
+        .extracting(User::getEmail)
+        .containsExactly("dave@example.com");
+    assertThat(restarted.snapshot().getFullRefreshes()).isZero();
+  }
+}